@@ -33,6 +33,7 @@ public class BatchRandomizationSettings implements Cloneable {
     private Boolean autoAdvanceStartingIndex;
     private Integer numberOfRandomizedROMs;
     private Integer startingIndex;
+    private Integer numberOfThreads;
     private String fileNamePrefix;
     private String outputDirectory;
 
@@ -42,6 +43,7 @@ public class BatchRandomizationSettings implements Cloneable {
         autoAdvanceStartingIndex = true;
         numberOfRandomizedROMs = 10;
         startingIndex = 0;
+        numberOfThreads = 1;
         fileNamePrefix = "random";
         outputDirectory = SysConstants.ROOT_PATH;
     }
@@ -86,6 +88,14 @@ public class BatchRandomizationSettings implements Cloneable {
         this.startingIndex = startingIndex;
     }
 
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
     public String getFileNamePrefix() {
         return fileNamePrefix;
     }
@@ -110,6 +120,7 @@ public class BatchRandomizationSettings implements Cloneable {
         sj.add("batchrandomization.autoadvanceindex=" + autoAdvanceStartingIndex.toString());
         sj.add("batchrandomization.numberofrandomizedroms=" + numberOfRandomizedROMs.toString());
         sj.add("batchrandomization.startingindex=" + startingIndex.toString());
+        sj.add("batchrandomization.numberofthreads=" + numberOfThreads.toString());
         sj.add("batchrandomization.filenameprefix=" + fileNamePrefix);
         sj.add("batchrandomization.outputdirectory=" + outputDirectory);
         return sj.toString();
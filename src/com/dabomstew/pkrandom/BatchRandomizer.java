@@ -0,0 +1,245 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.log.SpoilerLog;
+import com.dabomstew.pkrandom.random.SeedPicker;
+import com.dabomstew.pkrandom.romhandlers.RomHandler;
+import com.dabomstew.pkrandom.romhandlers.RomSnapshot;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Runs a batch of {@link GameRandomizer#randomize(String, SpoilerLog, long)} jobs on a bounded pool of worker
+ * threads, without any GUI involvement. The source ROM is only loaded from disk once; every job then gets its own
+ * {@link RomHandler} (created through the given {@link RomHandler.Factory}), loaded from a shared
+ * {@link RomSnapshot}, so no handler is ever shared between threads or reused between seeds.
+ * <br><br>
+ * The output file names, starting index, and whether to write logs are taken from a
+ * {@link BatchRandomizationSettings}, exactly like batch randomization in the GUI.
+ */
+public class BatchRandomizer {
+
+    /**
+     * The outcome of a single seed in the batch.
+     */
+    public static class Result {
+        private final int index;
+        private final long seed;
+        private final String filename;
+        private final int checkValue;
+        private final long elapsedMillis;
+        private final Exception exception;
+
+        private Result(int index, long seed, String filename, int checkValue, long elapsedMillis,
+                       Exception exception) {
+            this.index = index;
+            this.seed = seed;
+            this.filename = filename;
+            this.checkValue = checkValue;
+            this.elapsedMillis = elapsedMillis;
+            this.exception = exception;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public int getCheckValue() {
+            return checkValue;
+        }
+
+        /**
+         * The time taken for this seed, including loading the ROM from the snapshot and saving the output.
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public boolean isSuccess() {
+            return exception == null;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+
+        @Override
+        public String toString() {
+            if (isSuccess()) {
+                return String.format("#%d seed=%d cv=%08X time=%dms file=%s", index, seed, checkValue,
+                        elapsedMillis, filename);
+            }
+            return String.format("#%d seed=%d FAILED time=%dms (%s)", index, seed, elapsedMillis, exception);
+        }
+    }
+
+    private final Settings settings;
+    private final String sourceRomPath;
+    private final RomHandler.Factory factory;
+    private final BatchRandomizationSettings batchSettings;
+    private final ResourceBundle bundle;
+    private final boolean saveAsDirectory;
+
+    private RandomizationReport.Format reportFormat;
+    private SpoilerLog.Format logFormat = SpoilerLog.Format.TEXT;
+    private boolean compressLog;
+
+    public BatchRandomizer(Settings settings, String sourceRomPath, RomHandler.Factory factory,
+                           BatchRandomizationSettings batchSettings, ResourceBundle bundle, boolean saveAsDirectory) {
+        this.settings = settings;
+        this.sourceRomPath = sourceRomPath;
+        this.factory = factory;
+        this.batchSettings = batchSettings;
+        this.bundle = bundle;
+        this.saveAsDirectory = saveAsDirectory;
+    }
+
+    /**
+     * Sets the format of the {@link RandomizationReport} written next to each output ROM, or null (the default)
+     * to not write any reports.
+     */
+    public void setReportFormat(RandomizationReport.Format reportFormat) {
+        this.reportFormat = reportFormat;
+    }
+
+    /**
+     * Sets the format of the log written next to each output ROM, if
+     * {@link BatchRandomizationSettings#shouldGenerateLogFile()}. Plain uncompressed text by default.
+     */
+    public void setLogFormat(SpoilerLog.Format logFormat, boolean compressLog) {
+        this.logFormat = logFormat;
+        this.compressLog = compressLog;
+    }
+
+    /**
+     * Randomizes {@link BatchRandomizationSettings#getNumberOfRandomizedROMs()} seeds, using up to
+     * {@link BatchRandomizationSettings#getNumberOfThreads()} threads.
+     *
+     * @param onResult Called once per seed as it finishes, from the worker thread that ran it. May be null.
+     * @return The results of all seeds, ordered by index.
+     * @throws IOException If the source ROM could not be loaded.
+     */
+    public List<Result> run(Consumer<Result> onResult) throws IOException, InterruptedException {
+        int count = batchSettings.getNumberOfRandomizedROMs();
+        int startingIndex = batchSettings.getStartingIndex();
+        int threads = Math.max(1, Math.min(batchSettings.getNumberOfThreads(), count));
+
+        RomHandler sourceHandler = factory.create();
+        if (!sourceHandler.loadRom(sourceRomPath)) {
+            throw new IOException("Could not load " + sourceRomPath);
+        }
+        RomSnapshot snapshot = sourceHandler.getRomSnapshot();
+        String settingsString = settings.toString();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>(count);
+            for (int i = startingIndex; i < startingIndex + count; i++) {
+                // seeds are picked up front, so the seed of an index doesn't depend on scheduling order
+                final int index = i;
+                final long seed = SeedPicker.pickSeed();
+                futures.add(pool.submit(() -> {
+                    Result result = randomizeOne(snapshot, settingsString, index, seed);
+                    if (onResult != null) {
+                        onResult.accept(result);
+                    }
+                    return result;
+                }));
+            }
+
+            List<Result> results = new ArrayList<>(count);
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // randomizeOne catches everything itself, so this would be an error in the callback
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Result randomizeOne(RomSnapshot snapshot, String settingsString, int index, long seed) {
+        long startTime = System.currentTimeMillis();
+        String filename = null;
+        try {
+            RomHandler romHandler = factory.create();
+            if (!romHandler.loadRom(snapshot)) {
+                throw new IOException("Could not load " + snapshot.getFilename());
+            }
+            // Settings are tweaked per ROM, so every job works on a copy of its own
+            Settings jobSettings = Settings.fromString(settingsString);
+            jobSettings.setCustomNames(settings.getCustomNames());
+            jobSettings.tweakForRom(romHandler);
+
+            filename = getOutputFilename(romHandler, index);
+
+            GameRandomizer randomizer = new GameRandomizer(jobSettings, romHandler, bundle, saveAsDirectory);
+            SpoilerLog log = batchSettings.shouldGenerateLogFile()
+                    ? SpoilerLog.toFile(filename, logFormat, compressLog) : SpoilerLog.discard();
+            int checkValue;
+            try {
+                checkValue = randomizer.randomize(filename, log, seed);
+            } finally {
+                log.close();
+            }
+            if (log.checkError()) {
+                throw new IOException("Could not write log for " + filename);
+            }
+            if (reportFormat != null) {
+                randomizer.getReport().writeNextTo(filename, reportFormat);
+            }
+            return new Result(index, seed, filename, checkValue, System.currentTimeMillis() - startTime, null);
+        } catch (Exception e) {
+            return new Result(index, seed, filename, 0, System.currentTimeMillis() - startTime, e);
+        }
+    }
+
+    private String getOutputFilename(RomHandler romHandler, int index) {
+        String filename = batchSettings.getOutputDirectory() + File.separator + batchSettings.getFileNamePrefix()
+                + index;
+        if (saveAsDirectory) {
+            new File(filename).mkdirs();
+        } else {
+            filename += '.' + romHandler.getDefaultExtension();
+        }
+        return new File(filename).getAbsolutePath();
+    }
+}
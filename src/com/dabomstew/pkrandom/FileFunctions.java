@@ -283,8 +283,10 @@ public class FileFunctions {
     }
 
     public static void applyPatch(byte[] rom, String patchName) throws IOException {
-        byte[] patch = getCodeTweakFile(patchName + ".ips");
+        applyIPSPatch(rom, getCodeTweakFile(patchName + ".ips"));
+    }
 
+    public static void applyIPSPatch(byte[] rom, byte[] patch) throws IOException {
         // check sig
         int patchlen = patch.length;
         if (patchlen < 8 || patch[0] != 'P' || patch[1] != 'A' || patch[2] != 'T' || patch[3] != 'C' || patch[4] != 'H') {
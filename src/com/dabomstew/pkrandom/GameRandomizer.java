@@ -22,10 +22,13 @@ package com.dabomstew.pkrandom;
 /*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
 /*----------------------------------------------------------------------------*/
 
-import java.io.OutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
+import com.dabomstew.pkrandom.log.SpoilerLog;
+import com.dabomstew.pkrandom.log.TextLogSink;
 import com.dabomstew.pkrandom.pokemon.*;
 import com.dabomstew.pkrandom.random.RandomSource;
 import com.dabomstew.pkrandom.random.SeedPicker;
@@ -81,6 +84,8 @@ public class GameRandomizer {
     private final PaletteRandomizer paletteRandomizer;
     private final MiscTweakRandomizer miscTweakRandomizer;
 
+    private RandomizationReport report;
+
     public GameRandomizer(Settings settings, RomHandler romHandler, ResourceBundle bundle, boolean saveAsDirectory) {
         this.settings = settings;
         this.romHandler = romHandler;
@@ -120,24 +125,43 @@ public class GameRandomizer {
         this.miscTweakRandomizer = new MiscTweakRandomizer(romHandler, settings, randomSource.getNonCosmetic());
     }
 
+    /**
+     * Returns the {@link RandomizationReport} of the last call to {@link #randomize(String, SpoilerLog, long)},
+     * or null if it hasn't been called yet.
+     */
+    public RandomizationReport getReport() {
+        return report;
+    }
+
     public int randomize(final String filename) {
-        return randomize(filename, new PrintStream(new OutputStream() {
-            @Override
-            public void write(int b) {
-            }
-        }));
+        return randomize(filename, SpoilerLog.discard());
     }
 
     public int randomize(final String filename, final PrintStream log) {
+        return randomize(filename, new SpoilerLog(new TextLogSink(log)));
+    }
+
+    public int randomize(final String filename, final SpoilerLog log) {
         long seed = SeedPicker.pickSeed();
         // long seed = 123456789;    // TESTING
         return randomize(filename, log, seed);
     }
 
     public int randomize(final String filename, final PrintStream log, long seed) {
+        return randomize(filename, new SpoilerLog(new TextLogSink(log)), seed);
+    }
+
+    /**
+     * Randomizes the ROM and saves it to the given file, writing what was changed to the log as it goes.
+     * The log is flushed, but not closed, when this returns.
+     */
+    public int randomize(final String filename, final SpoilerLog log, long seed) {
 
         final long startTime = System.currentTimeMillis();
         randomSource.seed(seed);
+        report = new RandomizationReport(romHandler.getROMName(), romHandler.generationOfPokemon(), seed,
+                Version.VERSION + settings.toString(), randomSource);
+        report.begin(RandomizationReport.Phase.SETUP);
 
         int checkValue = 0;
 
@@ -157,6 +181,7 @@ public class GameRandomizer {
         }
 
         // Type effectiveness
+        report.begin(RandomizationReport.Phase.TYPE_EFFECTIVENESS);
 
         if (settings.isUpdateTypeEffectiveness()) {
             typeEffUpdater.updateTypeEffectiveness();
@@ -170,14 +195,16 @@ public class GameRandomizer {
                 case INVERSE -> typeEffRandomizer.invertTypeEffectiveness(settings.isInverseTypesRandomImmunities());
             }
         }
-        if (typeEffUpdater.isUpdated() || typeEffRandomizer.isChangesMade()) {
-            log.println("--Type Effectiveness--");
+        if (log.isEnabled() && (typeEffUpdater.isUpdated() || typeEffRandomizer.isChangesMade())) {
+            log.beginSection("Type Effectiveness");
             log.println(romHandler.getTypeTable().toBigString() + NEWLINE);
+            log.endSection();
         }
 
         // Move updates & data changes
         // 1. Update moves to a future generation
         // 2. Randomize move stats
+        report.begin(RandomizationReport.Phase.MOVES);
 
         if (settings.isUpdateMoves()) {
             moveUpdater.updateMoves(settings.getUpdateMovesToGeneration());
@@ -208,11 +235,13 @@ public class GameRandomizer {
         }
 
         // Misc Tweaks
+        report.begin(RandomizationReport.Phase.MISC);
         if (settings.getCurrentMiscTweaks() != MiscTweak.NO_MISC_TWEAKS) {
             miscTweakRandomizer.applyMiscTweaks();
         }
 
         // Update base stats to a future generation
+        report.begin(RandomizationReport.Phase.POKEMON_TRAITS);
         if (settings.isUpdateBaseStats()) {
             pokeBSUpdater.updatePokemonStats(settings.getUpdateBaseStatsToGeneration());
         }
@@ -234,6 +263,7 @@ public class GameRandomizer {
 
         // Random Evos
         // Applied after type to pick new evos based on new types.
+        report.begin(RandomizationReport.Phase.EVOLUTIONS);
 
         if (settings.getEvolutionsMod() != Settings.EvolutionsMod.UNCHANGED) {
             evoRandomizer.randomizeEvolutions();
@@ -244,6 +274,7 @@ public class GameRandomizer {
         }
 
         // Base stat randomization
+        report.begin(RandomizationReport.Phase.POKEMON_TRAITS);
         switch (settings.getBaseStatisticsMod()) {
             case SHUFFLE -> pokeBSRandomizer.shufflePokemonStats();
             case RANDOM -> pokeBSRandomizer.randomizePokemonStats();
@@ -271,6 +302,7 @@ public class GameRandomizer {
         }
 
         // Trade evolutions removal
+        report.begin(RandomizationReport.Phase.EVOLUTIONS);
         if (settings.isChangeImpossibleEvolutions()) {
             romHandler.removeImpossibleEvolutions(settings);
         }
@@ -288,12 +320,12 @@ public class GameRandomizer {
 
         // Log everything afterwards, so that "impossible evolutions" can account for "easier evolutions"
         if (settings.isChangeImpossibleEvolutions()) {
-            log.println("--Removing Impossible Evolutions--");
+            log.beginSection("Removing Impossible Evolutions");
             logUpdatedEvolutions(log, romHandler.getImpossibleEvoUpdates(), romHandler.getEasierEvoUpdates());
         }
 
         if (settings.isMakeEvolutionsEasier()) {
-            log.println("--Making Evolutions Easier--");
+            log.beginSection("Making Evolutions Easier");
             if (!(romHandler instanceof Gen1RomHandler)) {
                 log.println("Friendship evolutions now take 160 happiness (was 220).");
             }
@@ -301,12 +333,13 @@ public class GameRandomizer {
         }
 
         if (settings.isRemoveTimeBasedEvolutions()) {
-            log.println("--Removing Timed-Based Evolutions--");
+            log.beginSection("Removing Timed-Based Evolutions");
             logUpdatedEvolutions(log, romHandler.getTimeBasedEvoUpdates(), null);
         }
 
         // Starter Pokemon
         // Applied after type to update the strings correctly based on new types
+        report.begin(RandomizationReport.Phase.STARTERS);
         if(settings.getStartersMod() != Settings.StartersMod.UNCHANGED) {
             starterRandomizer.randomizeStarters();
         }
@@ -320,6 +353,7 @@ public class GameRandomizer {
 
         // Move Data Log
         // Placed here so it matches its position in the randomizer interface
+        report.begin(RandomizationReport.Phase.MOVES);
         if (moveDataRandomizer.isChangesMade() || moveUpdater.isUpdated()) {
             logMoveChanges(log);
         } else {
@@ -330,6 +364,7 @@ public class GameRandomizer {
         // 1. Randomize movesets
         // 2. Reorder moves by damage
         // Note: "Metronome only" is handled after trainers instead
+        report.begin(RandomizationReport.Phase.MOVESETS);
 
         if (settings.getMovesetsMod() != Settings.MovesetsMod.UNCHANGED &&
                 settings.getMovesetsMod() != Settings.MovesetsMod.METRONOME_ONLY) {
@@ -351,6 +386,7 @@ public class GameRandomizer {
         }
 
         // TMs
+        report.begin(RandomizationReport.Phase.TMS_HMS_TUTORS);
 
         if (!(settings.getMovesetsMod() == Settings.MovesetsMod.METRONOME_ONLY)
                 && settings.getTmsMod() == Settings.TMsMod.RANDOM) {
@@ -442,6 +478,7 @@ public class GameRandomizer {
         }
 
         // do part of wild Pokemon early if needed
+        report.begin(RandomizationReport.Phase.ENCOUNTERS);
         if (settings.isTrainersUseLocalPokemon() &&
                 (settings.getWildPokemonMod() != Settings.WildPokemonMod.UNCHANGED ||
                         settings.isWildLevelsModified())) {
@@ -454,6 +491,7 @@ public class GameRandomizer {
         // 3. Randomize Trainer Pokemon
         // 4. Modify rivals to carry starters
         // 5. Force Trainer Pokemon to be fully evolved
+        report.begin(RandomizationReport.Phase.TRAINERS);
 
         if (settings.getAdditionalRegularTrainerPokemon() > 0
                 || settings.getAdditionalImportantTrainerPokemon() > 0
@@ -529,10 +567,12 @@ public class GameRandomizer {
         }
 
         // Apply metronome only mode now that trainers have been dealt with
+        report.begin(RandomizationReport.Phase.MOVESETS);
         if (settings.getMovesetsMod() == Settings.MovesetsMod.METRONOME_ONLY) {
             pokeMovesetRandomizer.metronomeOnlyMode();
         }
 
+        report.begin(RandomizationReport.Phase.TRAINERS);
         List<Trainer> trainers = romHandler.getTrainers();
         for (Trainer t : trainers) {
             for (TrainerPokemon tpk : t.pokemon) {
@@ -541,6 +581,7 @@ public class GameRandomizer {
         }
 
         // Static Pokemon
+        report.begin(RandomizationReport.Phase.STATIC_POKEMON);
         if (romHandler.canChangeStaticPokemon()) {
             List<StaticEncounter> oldStatics = romHandler.getStaticPokemon();
             if (settings.getStaticPokemonMod() != Settings.StaticPokemonMod.UNCHANGED) { // Legendary for L
@@ -576,6 +617,7 @@ public class GameRandomizer {
         }
 
         // Wild Pokemon
+        report.begin(RandomizationReport.Phase.ENCOUNTERS);
 
         if (settings.isUseMinimumCatchRate()) {
             encounterRandomizer.changeCatchRates();
@@ -604,6 +646,7 @@ public class GameRandomizer {
 
 
         // In-game trades
+        report.begin(RandomizationReport.Phase.TRADES);
 
         List<IngameTrade> oldTrades = romHandler.getIngameTrades();
         switch (settings.getInGameTradesMod()) {
@@ -616,6 +659,7 @@ public class GameRandomizer {
         }
 
         // Field Items
+        report.begin(RandomizationReport.Phase.ITEMS);
         switch (settings.getFieldItemsMod()) {
             case SHUFFLE -> itemRandomizer.shuffleFieldItems();
             case RANDOM, RANDOM_EVEN -> itemRandomizer.randomizeFieldItems();
@@ -644,6 +688,8 @@ public class GameRandomizer {
         // Test output for placement history
         // romHandler.renderPlacementHistory();
 
+        report.begin(RandomizationReport.Phase.PALETTES);
+
         if (settings.getPokemonPalettesMod() == Settings.PokemonPalettesMod.RANDOM) {
             paletteRandomizer.randomizePokemonPalettes();
         }
@@ -654,13 +700,16 @@ public class GameRandomizer {
         }
 
         // Intro Pokemon...
+        report.begin(RandomizationReport.Phase.MISC);
         introPokeRandomizer.randomizeIntroPokemon();
 
         // Record check value?
         romHandler.writeCheckValueToROM(checkValue);
 
         // Save
+        report.begin(RandomizationReport.Phase.SAVE);
         romHandler.saveRom(filename, seed, saveAsDirectory);
+        report.end();
 
         // Log tail
         String gameName = romHandler.getROMName();
@@ -675,17 +724,23 @@ public class GameRandomizer {
         log.println();
 
         // Diagnostics
-        log.println("--ROM Diagnostics--");
+        log.beginSection("ROM Diagnostics");
         if (!romHandler.isRomValid()) {
             log.println(bundle.getString("Log.InvalidRomLoaded"));
         }
-        romHandler.printRomDiagnostics(log);
+        if (log.isEnabled()) {
+            ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+            romHandler.printRomDiagnostics(new PrintStream(diagnostics, true, StandardCharsets.UTF_8));
+            log.print(diagnostics.toString(StandardCharsets.UTF_8));
+        }
+        log.endSection();
+        log.flush();
 
         return checkValue;
     }
 
-    private int logMoveTutorMoves(PrintStream log, int checkValue, List<Integer> oldMtMoves) {
-        log.println("--Move Tutor Moves--");
+    private int logMoveTutorMoves(final SpoilerLog log, int checkValue, List<Integer> oldMtMoves) {
+        log.beginSection("Move Tutor Moves");
         List<Integer> newMtMoves = romHandler.getMoveTutorMoves();
         List<Move> moves = romHandler.getMoves();
         for (int i = 0; i < newMtMoves.size(); i++) {
@@ -694,11 +749,12 @@ public class GameRandomizer {
             checkValue = addToCV(checkValue, newMtMoves.get(i));
         }
         log.println();
+        log.endSection();
         return checkValue;
     }
 
-    private int logTMMoves(PrintStream log, int checkValue) {
-        log.println("--TM Moves--");
+    private int logTMMoves(final SpoilerLog log, int checkValue) {
+        log.beginSection("TM Moves");
         List<Integer> tmMoves = romHandler.getTMMoves();
         List<Move> moves = romHandler.getMoves();
         for (int i = 0; i < tmMoves.size(); i++) {
@@ -706,11 +762,15 @@ public class GameRandomizer {
             checkValue = addToCV(checkValue, tmMoves.get(i));
         }
         log.println();
+        log.endSection();
         return checkValue;
     }
 
-    private void logTrades(PrintStream log, List<IngameTrade> oldTrades) {
-        log.println("--In-Game Trades--");
+    private void logTrades(final SpoilerLog log, List<IngameTrade> oldTrades) {
+        if (!log.isEnabled()) {
+            return;
+        }
+        log.beginSection("In-Game Trades");
         List<IngameTrade> newTrades = romHandler.getIngameTrades();
         int size = oldTrades.size();
         for (int i = 0; i < size; i++) {
@@ -723,20 +783,32 @@ public class GameRandomizer {
                     newT.nickname, newT.givenPokemon.fullName());
         }
         log.println();
+        log.endSection();
     }
 
-    private void logMovesetChanges(PrintStream log) {
-        log.println("--Pokemon Movesets--");
-        List<String> movesets = new ArrayList<>();
+    private void logMovesetChanges(final SpoilerLog log) {
+        if (!log.isEnabled()) {
+            return;
+        }
+        log.beginSection("Pokemon Movesets");
         Map<Integer, List<MoveLearnt>> moveData = romHandler.getMovesLearnt();
         Map<Integer, List<Integer>> eggMoves = romHandler.getEggMoves();
         List<Move> moves = romHandler.getMoves();
-        List<Pokemon> pkmnList = romHandler.getPokemonInclFormes();
-        int i = 1;
-        for (Pokemon pkmn : pkmnList) {
-            if (pkmn == null || pkmn.isActuallyCosmetic()) {
-                continue;
+        List<Pokemon> pkmnList = new ArrayList<>();
+        for (Pokemon pkmn : romHandler.getPokemonInclFormes()) {
+            if (pkmn != null && !pkmn.isActuallyCosmetic()) {
+                pkmnList.add(pkmn);
             }
+        }
+        // The movesets are listed in the order of their "%03d" numbers as strings, so e.g. 1000 comes right
+        // after 100. Each moveset is written as soon as it's built, rather than building them all and sorting.
+        List<Integer> order = new ArrayList<>(pkmnList.size());
+        for (int i = 1; i <= pkmnList.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(i -> String.format("%03d", i)));
+        for (int i : order) {
+            Pokemon pkmn = pkmnList.get(i - 1);
             StringBuilder evoStr = new StringBuilder();
             try {
                 evoStr.append(" -> ").append(pkmn.getEvolutionsFrom().get(0).getTo().fullName());
@@ -765,8 +837,6 @@ public class GameRandomizer {
                         .append(String.format("SPE %-3d", pkmn.getSpeed())).append(System.getProperty("line.separator"));
             }
 
-            i++;
-
             List<MoveLearnt> data = moveData.get(pkmn.getNumber());
             for (MoveLearnt ml : data) {
                 try {
@@ -791,17 +861,17 @@ public class GameRandomizer {
                 }
             }
 
-            movesets.add(sb.toString());
-        }
-        Collections.sort(movesets);
-        for (String moveset : movesets) {
-            log.println(moveset);
+            log.println(sb);
         }
         log.println();
+        log.endSection();
     }
 
-    private void logMoveUpdates(PrintStream log) {
-        log.println("--Move Updates--");
+    private void logMoveUpdates(final SpoilerLog log) {
+        if (!log.isEnabled()) {
+            return;
+        }
+        log.beginSection("Move Updates");
         List<Move> moves = romHandler.getMoves();
         Map<Integer, boolean[]> moveUpdates = moveUpdater.getMoveUpdates();
         for (int moveID : moveUpdates.keySet()) {
@@ -847,10 +917,14 @@ public class GameRandomizer {
             log.println(logStr);
         }
         log.println();
+        log.endSection();
     }
 
-    private void logEvolutionChanges(PrintStream log) {
-        log.println("--Randomized Evolutions--");
+    private void logEvolutionChanges(final SpoilerLog log) {
+        if (!log.isEnabled()) {
+            return;
+        }
+        log.beginSection("Randomized Evolutions");
         List<Pokemon> allPokes = romHandler.getPokemonInclFormes();
         for (Pokemon pk : allPokes) {
             if (pk != null && !pk.isActuallyCosmetic()) {
@@ -870,13 +944,17 @@ public class GameRandomizer {
         }
 
         log.println();
+        log.endSection();
     }
 
-    private void logPokemonTraitChanges(final PrintStream log) {
+    private void logPokemonTraitChanges(final SpoilerLog log) {
+        if (!log.isEnabled()) {
+            return;
+        }
         List<Pokemon> allPokes = romHandler.getPokemonInclFormes();
         String[] itemNames = romHandler.getItemNames();
         // Log base stats & types
-        log.println("--Pokemon Base Stats & Types--");
+        log.beginSection("Pokemon Base Stats & Types");
         if (romHandler instanceof Gen1RomHandler) {
             log.println("NUM|NAME      |TYPE             |  HP| ATK| DEF| SPE|SPEC");
             for (Pokemon pkmn : allPokes) {
@@ -962,11 +1040,15 @@ public class GameRandomizer {
             }
         }
         log.println();
+        log.endSection();
     }
 
-    private void logTMHMCompatibility(final PrintStream log) {
-        log.println("--TM Compatibility--");
-        Map<Pokemon, boolean[]> compat = romHandler.getTMHMCompatibility();
+    private void logTMHMCompatibility(final SpoilerLog log) {
+        if (!log.isEnabled()) {
+            return;
+        }
+        log.beginSection("TM Compatibility");
+        MoveCompatibilityMatrix compat = romHandler.getTMHMCompatibility();
         List<Integer> tmHMs = new ArrayList<>(romHandler.getTMMoves());
         tmHMs.addAll(romHandler.getHMMoves());
         List<Move> moveData = romHandler.getMoves();
@@ -974,22 +1056,23 @@ public class GameRandomizer {
         logCompatibility(log, compat, tmHMs, moveData, true);
     }
 
-    private void logTutorCompatibility(final PrintStream log) {
-        log.println("--Move Tutor Compatibility--");
-        Map<Pokemon, boolean[]> compat = romHandler.getMoveTutorCompatibility();
+    private void logTutorCompatibility(final SpoilerLog log) {
+        if (!log.isEnabled()) {
+            return;
+        }
+        log.beginSection("Move Tutor Compatibility");
+        MoveCompatibilityMatrix compat = romHandler.getMoveTutorCompatibility();
         List<Integer> tutorMoves = romHandler.getMoveTutorMoves();
         List<Move> moveData = romHandler.getMoves();
 
         logCompatibility(log, compat, tutorMoves, moveData, false);
     }
 
-    private void logCompatibility(final PrintStream log, Map<Pokemon, boolean[]> compat, List<Integer> moveList,
+    private void logCompatibility(final SpoilerLog log, MoveCompatibilityMatrix compat, List<Integer> moveList,
                                   List<Move> moveData, boolean includeTMNumber) {
         int tmCount = romHandler.getTMCount();
-        for (Map.Entry<Pokemon, boolean[]> entry : compat.entrySet()) {
-            Pokemon pkmn = entry.getKey();
+        for (Pokemon pkmn : compat.getPokemon()) {
             if (pkmn.isActuallyCosmetic()) continue;
-            boolean[] flags = entry.getValue();
 
             String nameSpFormat = "%-14s";
             if (romHandler.generationOfPokemon() >= 6) {
@@ -997,13 +1080,13 @@ public class GameRandomizer {
             }
             log.printf("%3d " + nameSpFormat, pkmn.getNumber(), pkmn.fullName() + " ");
 
-            for (int i = 1; i < flags.length; i++) {
+            for (int i = 1; i <= compat.getMoveCount(); i++) {
                 String moveName = moveData.get(moveList.get(i - 1)).name;
                 if (moveName.length() == 0) {
                     moveName = "(BLANK)";
                 }
                 int moveNameLength = moveName.length();
-                if (flags[i]) {
+                if (compat.get(pkmn, i - 1)) {
                     if (includeTMNumber) {
                         if (i <= tmCount) {
                             log.printf("|TM%02d %" + moveNameLength + "s ", i, moveName);
@@ -1024,10 +1107,14 @@ public class GameRandomizer {
             log.println("|");
         }
         log.println();
+        log.endSection();
     }
 
-    private void logUpdatedEvolutions(final PrintStream log, Set<EvolutionUpdate> updatedEvolutions,
+    private void logUpdatedEvolutions(final SpoilerLog log, Set<EvolutionUpdate> updatedEvolutions,
                                       Set<EvolutionUpdate> otherUpdatedEvolutions) {
+        if (!log.isEnabled()) {
+            return;
+        }
         for (EvolutionUpdate evo : updatedEvolutions) {
             if (otherUpdatedEvolutions != null && otherUpdatedEvolutions.contains(evo)) {
                 log.println(evo.toString() + " (Overwritten by \"Make Evolutions Easier\", see below)");
@@ -1036,19 +1123,26 @@ public class GameRandomizer {
             }
         }
         log.println();
+        log.endSection();
     }
 
-    private void logStarters(final PrintStream log) {
+    private void logStarters(final SpoilerLog log) {
+        if (!log.isEnabled()) {
+            return;
+        }
 
         // TODO: log starter held items
 
-        switch (settings.getStartersMod()) {
-            case CUSTOM -> log.println("--Custom Starters--");
-            case COMPLETELY_RANDOM -> log.println("--Random Starters--");
-            case RANDOM_BASIC -> log.println("--Random Basic Starters--");
-            case RANDOM_WITH_TWO_EVOLUTIONS -> log.println("--Random 2-Evolution Starters--");
-            default -> {
-            }
+        // when only the held items changed, the starters are listed without a section of their own
+        String title = switch (settings.getStartersMod()) {
+            case CUSTOM -> "Custom Starters";
+            case COMPLETELY_RANDOM -> "Random Starters";
+            case RANDOM_BASIC -> "Random Basic Starters";
+            case RANDOM_WITH_TWO_EVOLUTIONS -> "Random 2-Evolution Starters";
+            default -> null;
+        };
+        if (title != null) {
+            log.beginSection(title);
         }
 
         List<Pokemon> starters = romHandler.getStarters();
@@ -1058,11 +1152,17 @@ public class GameRandomizer {
             i++;
         }
         log.println();
+        if (title != null) {
+            log.endSection();
+        }
     }
 
-    private void logWildPokemonChanges(final PrintStream log) {
+    private void logWildPokemonChanges(final SpoilerLog log) {
+        if (!log.isEnabled()) {
+            return;
+        }
 
-        log.println("--Wild Pokemon--");
+        log.beginSection("Wild Pokemon");
         boolean useTimeBasedEncounters = settings.isUseTimeBasedEncounters() ||
                 (settings.getWildPokemonMod() == Settings.WildPokemonMod.UNCHANGED && settings.isWildLevelsModified());
         List<EncounterArea> encounterAreas = romHandler.getSortedEncounters(useTimeBasedEncounters);
@@ -1106,10 +1206,14 @@ public class GameRandomizer {
             log.println();
         }
         log.println();
+        log.endSection();
     }
 
-    private void maybeLogTrainerChanges(final PrintStream log, List<String> originalTrainerNames, boolean trainerNamesChanged, boolean logTrainerMovesets) {
-        log.println("--Trainers Pokemon--");
+    private void maybeLogTrainerChanges(final SpoilerLog log, List<String> originalTrainerNames, boolean trainerNamesChanged, boolean logTrainerMovesets) {
+        if (!log.isEnabled()) {
+            return;
+        }
+        log.beginSection("Trainers Pokemon");
         List<Trainer> trainers = romHandler.getTrainers();
         for (Trainer t : trainers) {
             log.print("#" + t.index + " ");
@@ -1165,13 +1269,14 @@ public class GameRandomizer {
             log.println();
         }
         log.println();
+        log.endSection();
     }
 
-    private int logStaticPokemon(final PrintStream log, int checkValue, List<StaticEncounter> oldStatics) {
+    private int logStaticPokemon(final SpoilerLog log, int checkValue, List<StaticEncounter> oldStatics) {
 
         List<StaticEncounter> newStatics = romHandler.getStaticPokemon();
 
-        log.println("--Static Pokemon--");
+        log.beginSection("Static Pokemon");
         Map<String, Integer> seenPokemon = new TreeMap<>();
         for (int i = 0; i < oldStatics.size(); i++) {
             StaticEncounter oldP = oldStatics.get(i);
@@ -1189,16 +1294,17 @@ public class GameRandomizer {
             log.println(" => " + newP.toString(settings.isStaticLevelModified()));
         }
         log.println();
+        log.endSection();
 
         return checkValue;
     }
 
-    private int logTotemPokemon(final PrintStream log, int checkValue, List<TotemPokemon> oldTotems) {
+    private int logTotemPokemon(final SpoilerLog log, int checkValue, List<TotemPokemon> oldTotems) {
 
         List<TotemPokemon> newTotems = romHandler.getTotemPokemon();
 
         String[] itemNames = romHandler.getItemNames();
-        log.println("--Totem Pokemon--");
+        log.beginSection("Totem Pokemon");
         for (int i = 0; i < oldTotems.size(); i++) {
             TotemPokemon oldP = oldTotems.get(i);
             TotemPokemon newP = newTotems.get(i);
@@ -1207,13 +1313,17 @@ public class GameRandomizer {
             log.printf(newP.toString(), itemNames[newP.heldItem]);
         }
         log.println();
+        log.endSection();
 
         return checkValue;
     }
 
-    private void logMoveChanges(final PrintStream log) {
+    private void logMoveChanges(final SpoilerLog log) {
+        if (!log.isEnabled()) {
+            return;
+        }
 
-        log.println("--Move Data--");
+        log.beginSection("Move Data");
         log.print("NUM|NAME           |TYPE    |POWER|ACC.|PP");
         if (romHandler.hasPhysicalSpecialSplit()) {
             log.print(" |CATEGORY");
@@ -1232,11 +1342,15 @@ public class GameRandomizer {
             }
         }
         log.println();
+        log.endSection();
     }
 
-    private void logShops(final PrintStream log) {
+    private void logShops(final SpoilerLog log) {
+        if (!log.isEnabled()) {
+            return;
+        }
         String[] itemNames = romHandler.getItemNames();
-        log.println("--Shops--");
+        log.beginSection("Shops");
         Map<Integer, Shop> shopsDict = romHandler.getShopItems();
         for (int shopID : shopsDict.keySet()) {
             Shop shop = shopsDict.get(shopID);
@@ -1251,12 +1365,16 @@ public class GameRandomizer {
             log.println();
         }
         log.println();
+        log.endSection();
     }
 
-    private void logPickupItems(final PrintStream log) {
+    private void logPickupItems(final SpoilerLog log) {
+        if (!log.isEnabled()) {
+            return;
+        }
         List<PickupItem> pickupItems = romHandler.getPickupItems();
         String[] itemNames = romHandler.getItemNames();
-        log.println("--Pickup Items--");
+        log.beginSection("Pickup Items");
         for (int levelRange = 0; levelRange < 10; levelRange++) {
             int startingLevel = (levelRange * 10) + 1;
             int endingLevel = (levelRange + 1) * 10;
@@ -1283,6 +1401,7 @@ public class GameRandomizer {
             log.println();
         }
         log.println();
+        log.endSection();
     }
 
     private List<String> getTrainerNames() {
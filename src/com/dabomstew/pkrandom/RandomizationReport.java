@@ -0,0 +1,251 @@
+package com.dabomstew.pkrandom;
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.log.SpoilerLog;
+import com.dabomstew.pkrandom.random.RandomSource;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records how long each phase of a {@link GameRandomizer#randomize(String, SpoilerLog, long)} call took, how much
+ * memory it allocated, and how many RNG calls it made. Phases may be entered several times (e.g. evolutions are
+ * both randomized and made easier, at different points), in which case the numbers are summed.
+ * <br><br>
+ * Allocation is measured for the randomizing thread only, and is reported as -1 if the JVM can't measure it.
+ * The time spent writing the log is counted towards the phase that writes it.
+ */
+public class RandomizationReport {
+
+    public enum Phase {
+        SETUP, TYPE_EFFECTIVENESS, MOVES, MISC, POKEMON_TRAITS, EVOLUTIONS, STARTERS, MOVESETS, TMS_HMS_TUTORS,
+        TRAINERS, STATIC_POKEMON, ENCOUNTERS, TRADES, ITEMS, PALETTES, SAVE
+    }
+
+    public enum Format {
+        JSON("json"), CSV("csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    public static class PhaseStats {
+        private final Phase phase;
+        private int entries;
+        private long timeNanos;
+        private long allocatedBytes;
+        private long rngCalls;
+
+        private PhaseStats(Phase phase) {
+            this.phase = phase;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        /**
+         * How many times the phase was entered.
+         */
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getRngCalls() {
+            return rngCalls;
+        }
+    }
+
+    private final String romName;
+    private final int generation;
+    private final long seed;
+    private final String settingsString;
+    private final RandomSource randomSource;
+
+    private final Map<Phase, PhaseStats> phaseStats = new EnumMap<>(Phase.class);
+    private final com.sun.management.ThreadMXBean allocationBean;
+
+    private Phase current;
+    private long currentStartNanos;
+    private long currentStartAllocated;
+    private int currentStartRngCalls;
+
+    public RandomizationReport(String romName, int generation, long seed, String settingsString,
+                               RandomSource randomSource) {
+        this.romName = romName;
+        this.generation = generation;
+        this.seed = seed;
+        this.settingsString = settingsString;
+        this.randomSource = randomSource;
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()
+                && sunBean.isThreadAllocatedMemoryEnabled()) {
+            this.allocationBean = sunBean;
+        } else {
+            this.allocationBean = null;
+        }
+    }
+
+    /**
+     * Ends the current phase (if any), and starts the given one.
+     */
+    public void begin(Phase phase) {
+        end();
+        current = phase;
+        currentStartRngCalls = randomSource.callsSinceSeed();
+        currentStartAllocated = allocatedBytes();
+        currentStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, adding its numbers to the phase's totals. Does nothing if no phase is running.
+     */
+    public void end() {
+        if (current == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - currentStartNanos;
+        PhaseStats stats = phaseStats.computeIfAbsent(current, PhaseStats::new);
+        stats.entries++;
+        stats.timeNanos += nanos;
+        stats.allocatedBytes = allocationBean == null ? -1
+                : stats.allocatedBytes + allocatedBytes() - currentStartAllocated;
+        stats.rngCalls += randomSource.callsSinceSeed() - currentStartRngCalls;
+        current = null;
+    }
+
+    private long allocatedBytes() {
+        return allocationBean == null ? -1 : allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the stats of all phases that were entered at least once, in the order of {@link Phase}.
+     */
+    public List<PhaseStats> getPhaseStats() {
+        return new ArrayList<>(phaseStats.values());
+    }
+
+    public long getTotalTimeNanos() {
+        return phaseStats.values().stream().mapToLong(PhaseStats::getTimeNanos).sum();
+    }
+
+    public long getTotalRngCalls() {
+        return phaseStats.values().stream().mapToLong(PhaseStats::getRngCalls).sum();
+    }
+
+    public String getRomName() {
+        return romName;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getSettingsString() {
+        return settingsString;
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"romName\": ").append(JsonFunctions.quote(romName)).append(",\n");
+        sb.append("  \"generation\": ").append(generation).append(",\n");
+        sb.append("  \"seed\": ").append(seed).append(",\n");
+        sb.append("  \"settings\": ").append(JsonFunctions.quote(settingsString)).append(",\n");
+        sb.append("  \"totalTimeNanos\": ").append(getTotalTimeNanos()).append(",\n");
+        sb.append("  \"totalRngCalls\": ").append(getTotalRngCalls()).append(",\n");
+        sb.append("  \"phases\": [");
+        boolean first = true;
+        for (PhaseStats stats : phaseStats.values()) {
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append(String.format(Locale.ROOT, "    {\"phase\": \"%s\", \"entries\": %d, \"timeNanos\": %d, " +
+                            "\"allocatedBytes\": %d, \"rngCalls\": %d}", stats.phase, stats.entries,
+                    stats.timeNanos, stats.allocatedBytes, stats.rngCalls));
+        }
+        sb.append("\n  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Returns the report as CSV, with one row per phase. The ROM, generation, seed and settings are repeated on
+     * each row, so reports of several runs can be concatenated (minus their header lines) and compared directly.
+     */
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("romName,generation,seed,settings,phase,entries,timeNanos,allocatedBytes,rngCalls\n");
+        for (PhaseStats stats : phaseStats.values()) {
+            sb.append(String.format(Locale.ROOT, "%s,%d,%d,%s,%s,%d,%d,%d,%d\n", csvString(romName), generation,
+                    seed, csvString(settingsString), stats.phase, stats.entries, stats.timeNanos,
+                    stats.allocatedBytes, stats.rngCalls));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the report next to the given output ROM, as "[filename].report.json" or "[filename].report.csv".
+     */
+    public void writeNextTo(String filename, Format format) throws IOException {
+        String contents = format == Format.JSON ? toJson() : toCsv();
+        try (FileOutputStream fos = new FileOutputStream(filename + ".report." + format.getExtension())) {
+            fos.write(contents.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String csvString(String s) {
+        if (s == null) {
+            return "";
+        }
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+}
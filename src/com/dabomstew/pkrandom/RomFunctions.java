@@ -143,100 +143,54 @@ public class RomFunctions {
         return search(haystack, beginOffset, haystack.length, needle);
     }
 
+    /**
+     * Returns the offsets of the non-overlapping occurrences of needle which lie entirely within
+     * [beginOffset, endOffset). Occurrences are found left to right, and the search resumes after the end of each.
+     */
     public static List<Integer> search(byte[] haystack, int beginOffset, int endOffset, byte[] needle) {
-        int currentMatchStart = beginOffset;
-        int currentCharacterPosition = 0;
-
-        int needleSize = needle.length;
-
-        int[] toFillTable = buildKMPSearchTable(needle);
+        int[] skipTable = buildSkipTable(needle);
         List<Integer> results = new ArrayList<>();
-
-        while ((currentMatchStart + currentCharacterPosition) < endOffset) {
-
-            if (needle[currentCharacterPosition] == (haystack[currentCharacterPosition + currentMatchStart])) {
-                currentCharacterPosition = currentCharacterPosition + 1;
-
-                if (currentCharacterPosition == (needleSize)) {
-                    results.add(currentMatchStart);
-                    currentCharacterPosition = 0;
-                    currentMatchStart = currentMatchStart + needleSize;
-
-                }
-
-            } else {
-                currentMatchStart = currentMatchStart + currentCharacterPosition
-                        - toFillTable[currentCharacterPosition];
-
-                if (toFillTable[currentCharacterPosition] > -1) {
-                    currentCharacterPosition = toFillTable[currentCharacterPosition];
-                }
-
-                else {
-                    currentCharacterPosition = 0;
-
-                }
-
-            }
+        int found = indexOf(haystack, beginOffset, endOffset, needle, skipTable);
+        while (found != -1) {
+            results.add(found);
+            found = indexOf(haystack, found + needle.length, endOffset, needle, skipTable);
         }
         return results;
     }
 
     public static int searchForFirst(byte[] haystack, int beginOffset, byte[] needle) {
-        int currentMatchStart = beginOffset;
-        int currentCharacterPosition = 0;
-
-        int docSize = haystack.length;
-        int needleSize = needle.length;
-
-        int[] toFillTable = buildKMPSearchTable(needle);
-
-        while ((currentMatchStart + currentCharacterPosition) < docSize) {
-
-            if (needle[currentCharacterPosition] == (haystack[currentCharacterPosition + currentMatchStart])) {
-                currentCharacterPosition = currentCharacterPosition + 1;
-
-                if (currentCharacterPosition == (needleSize)) {
-                    return currentMatchStart;
-                }
-
-            } else {
-                currentMatchStart = currentMatchStart + currentCharacterPosition
-                        - toFillTable[currentCharacterPosition];
-
-                if (toFillTable[currentCharacterPosition] > -1) {
-                    currentCharacterPosition = toFillTable[currentCharacterPosition];
-                }
-
-                else {
-                    currentCharacterPosition = 0;
-
-                }
+        return indexOf(haystack, beginOffset, haystack.length, needle, buildSkipTable(needle));
+    }
 
+    /**
+     * Boyer-Moore-Horspool; returns the offset of the first occurrence of needle lying entirely within [from, to),
+     * or -1 if there is none.
+     */
+    private static int indexOf(byte[] haystack, int from, int to, byte[] needle, int[] skipTable) {
+        int last = needle.length - 1;
+        byte lastByte = needle[last];
+        for (int i = from + last; i < to; i += skipTable[haystack[i] & 0xFF]) {
+            if (haystack[i] == lastByte && Arrays.equals(haystack, i - last, i, needle, 0, last)) {
+                return i - last;
             }
         }
         return -1;
     }
 
-    private static int[] buildKMPSearchTable(byte[] needle) {
-        int[] stable = new int[needle.length];
-        int pos = 2;
-        int j = 0;
-        stable[0] = -1;
-        stable[1] = 0;
-        while (pos < needle.length) {
-            if (needle[pos - 1] == needle[j]) {
-                stable[pos] = j + 1;
-                pos++;
-                j++;
-            } else if (j > 0) {
-                j = stable[j];
-            } else {
-                stable[pos] = 0;
-                pos++;
-            }
+    private static int[] buildSkipTable(byte[] needle) {
+        checkNeedle(needle);
+        int[] skipTable = new int[256];
+        Arrays.fill(skipTable, needle.length);
+        for (int i = 0; i < needle.length - 1; i++) {
+            skipTable[needle[i] & 0xFF] = needle.length - 1 - i;
+        }
+        return skipTable;
+    }
+
+    private static void checkNeedle(byte[] needle) {
+        if (needle.length == 0) {
+            throw new IllegalArgumentException("Can't search for an empty needle.");
         }
-        return stable;
     }
 
     public static String rewriteDescriptionForNewLineSize(String moveDesc, String newline, int lineSize,
@@ -1,12 +1,15 @@
 package com.dabomstew.pkrandom.cli;
 
+import com.dabomstew.pkrandom.BatchRandomizationSettings;
+import com.dabomstew.pkrandom.BatchRandomizer;
 import com.dabomstew.pkrandom.FileFunctions;
 import com.dabomstew.pkrandom.GameRandomizer;
+import com.dabomstew.pkrandom.RandomizationReport;
 import com.dabomstew.pkrandom.Settings;
+import com.dabomstew.pkrandom.log.SpoilerLog;
 import com.dabomstew.pkrandom.romhandlers.*;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -16,20 +19,20 @@ public class CliRandomizer {
 
     private final static ResourceBundle bundle = java.util.ResourceBundle.getBundle("com/dabomstew/pkrandom/gui/Bundle");
 
-    private static boolean performDirectRandomization(String settingsFilePath, String sourceRomFilePath,
-                                                      String destinationRomFilePath, boolean saveAsDirectory,
-                                                      String updateFilePath, boolean saveLog) {
-        // borrowed directly from RandomizerGUI()
-        RomHandler.Factory[] checkHandlers = new RomHandler.Factory[] {
-                new Gen1RomHandler.Factory(),
-                new Gen2RomHandler.Factory(),
-                new Gen3RomHandler.Factory(),
-                new Gen4RomHandler.Factory(),
-                new Gen5RomHandler.Factory(),
-                new Gen6RomHandler.Factory(),
-                new Gen7RomHandler.Factory()
-        };
+    // borrowed directly from RandomizerGUI()
+    static final RomHandler.Factory[] checkHandlers = new RomHandler.Factory[] {
+            new Gen1RomHandler.Factory(),
+            new Gen2RomHandler.Factory(),
+            new Gen3RomHandler.Factory(),
+            new Gen4RomHandler.Factory(),
+            new Gen5RomHandler.Factory(),
+            new Gen6RomHandler.Factory(),
+            new Gen7RomHandler.Factory()
+    };
+
+    static final RomDetector romDetector = new RomDetector(1024, checkHandlers);
 
+    private static Settings readSettings(String settingsFilePath) {
         Settings settings;
         try {
             File fh = new File(settingsFilePath);
@@ -40,74 +43,149 @@ public class CliRandomizer {
             fis.close();
         } catch (UnsupportedOperationException | IllegalArgumentException | IOException ex) {
             ex.printStackTrace();
+            return null;
+        }
+        return settings;
+    }
+
+    private static boolean performBatchRandomization(String settingsFilePath, String sourceRomFilePath,
+                                                     BatchRandomizationSettings batchSettings,
+                                                     boolean saveAsDirectory,
+                                                     RandomizationReport.Format reportFormat,
+                                                     SpoilerLog.Format logFormat, boolean compressLog) {
+        Settings settings = readSettings(settingsFilePath);
+        if (settings == null) {
             return false;
         }
 
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PrintStream log;
-        log = new PrintStream(baos, false, StandardCharsets.UTF_8);
+        try {
+            String romPath = new File(sourceRomFilePath).getAbsolutePath();
+            RomHandler.Factory rhf = romDetector.detect(romPath);
+            if (rhf != null) {
+                // a throwaway handler, only to check the settings and the save type against the ROM
+                RomHandler romHandler = rhf.create();
+                romHandler.loadRom(romPath);
+                if (saveAsDirectory && romHandler.generationOfPokemon() != 6 && romHandler.generationOfPokemon() != 7) {
+                    saveAsDirectory = false;
+                    printWarning("Saving as directory does not make sense for non-3DS games, ignoring \"-d\" flag...");
+                }
+                CliRandomizer.displaySettingsWarnings(settings, romHandler);
+
+                System.out.printf("Randomizing %d ROMs using %d threads...%n",
+                        batchSettings.getNumberOfRandomizedROMs(), batchSettings.getNumberOfThreads());
+                long startTime = System.currentTimeMillis();
+                BatchRandomizer batchRandomizer = new BatchRandomizer(settings, romPath, rhf, batchSettings,
+                        bundle, saveAsDirectory);
+                batchRandomizer.setReportFormat(reportFormat);
+                batchRandomizer.setLogFormat(logFormat, compressLog);
+                List<BatchRandomizer.Result> results = batchRandomizer.run(System.out::println);
+
+                int failed = 0;
+                for (BatchRandomizer.Result result : results) {
+                    if (!result.isSuccess()) {
+                        failed++;
+                        result.getException().printStackTrace();
+                    }
+                }
+                System.out.printf("Randomized %d/%d ROMs in %dms.%n", results.size() - failed, results.size(),
+                        System.currentTimeMillis() - startTime);
+                return failed == 0;
+            }
+            System.err.printf(bundle.getString("GUI.unsupportedRom") + "%n", new File(sourceRomFilePath).getName());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
 
-        final PrintStream verboseLog = log;
+    private static boolean performDirectRandomization(String settingsFilePath, String sourceRomFilePath,
+                                                      String destinationRomFilePath, boolean saveAsDirectory,
+                                                      String updateFilePath, boolean saveLog,
+                                                      RandomizationReport.Format reportFormat,
+                                                      SpoilerLog.Format logFormat, boolean compressLog) {
+        Settings settings = readSettings(settingsFilePath);
+        if (settings == null) {
+            return false;
+        }
 
         try {
             File romFileHandler = new File(sourceRomFilePath);
             RomHandler romHandler;
 
-            for (RomHandler.Factory rhf : checkHandlers) {
-                if (rhf.isLoadable(romFileHandler.getAbsolutePath())) {
-                    romHandler = rhf.create();
-                    romHandler.loadRom(romFileHandler.getAbsolutePath());
-                    if (updateFilePath != null && (romHandler.generationOfPokemon() == 6 || romHandler.generationOfPokemon() == 7)) {
-                        romHandler.loadGameUpdate(updateFilePath);
-                        if (!saveAsDirectory) {
-                            printWarning("Forcing save as directory since a game update was supplied.");
-                        }
-                        saveAsDirectory = true;
-                    }
-                    if (saveAsDirectory && romHandler.generationOfPokemon() != 6 && romHandler.generationOfPokemon() != 7) {
-                        saveAsDirectory = false;
-                        printWarning("Saving as directory does not make sense for non-3DS games, ignoring \"-d\" flag...");
+            RomHandler.Factory rhf = romDetector.detect(romFileHandler.getAbsolutePath());
+            if (rhf != null) {
+                romHandler = rhf.create();
+                romHandler.loadRom(romFileHandler.getAbsolutePath());
+                if (updateFilePath != null && (romHandler.generationOfPokemon() == 6 || romHandler.generationOfPokemon() == 7)) {
+                    romHandler.loadGameUpdate(updateFilePath);
+                    if (!saveAsDirectory) {
+                        printWarning("Forcing save as directory since a game update was supplied.");
                     }
+                    saveAsDirectory = true;
+                }
+                if (saveAsDirectory && romHandler.generationOfPokemon() != 6 && romHandler.generationOfPokemon() != 7) {
+                    saveAsDirectory = false;
+                    printWarning("Saving as directory does not make sense for non-3DS games, ignoring \"-d\" flag...");
+                }
 
-                    CliRandomizer.displaySettingsWarnings(settings, romHandler);
+                CliRandomizer.displaySettingsWarnings(settings, romHandler);
 
-                    File fh = new File(destinationRomFilePath);
-                    if (!saveAsDirectory) {
-                        List<String> extensions = new ArrayList<>(Arrays.asList("sgb", "gbc", "gba", "nds", "cxi"));
-                        extensions.remove(romHandler.getDefaultExtension());
-
-                        fh = FileFunctions.fixFilename(fh, romHandler.getDefaultExtension(), extensions);
-                        if (romHandler instanceof AbstractDSRomHandler || romHandler instanceof Abstract3DSRomHandler) {
-                            String currentFN = romHandler.loadedFilename();
-                            if (currentFN.equals(fh.getAbsolutePath())) {
-                                printError(bundle.getString("GUI.cantOverwriteDS"));
-                                return false;
-                            }
+                File fh = new File(destinationRomFilePath);
+                if (AbstractGBRomHandler.isPatchFilename(destinationRomFilePath)) {
+                    if (!(romHandler instanceof AbstractGBRomHandler)) {
+                        printError("Saving as an IPS/BPS patch is only supported for GB/GBC/GBA games.");
+                        return false;
+                    }
+                    fh = fh.getAbsoluteFile();
+                } else if (!saveAsDirectory) {
+                    List<String> extensions = new ArrayList<>(Arrays.asList("sgb", "gbc", "gba", "nds", "cxi"));
+                    extensions.remove(romHandler.getDefaultExtension());
+
+                    fh = FileFunctions.fixFilename(fh, romHandler.getDefaultExtension(), extensions);
+                    if (romHandler instanceof AbstractDSRomHandler || romHandler instanceof Abstract3DSRomHandler) {
+                        String currentFN = romHandler.loadedFilename();
+                        if (currentFN.equals(fh.getAbsolutePath())) {
+                            printError(bundle.getString("GUI.cantOverwriteDS"));
+                            return false;
                         }
                     }
+                }
 
-                    String filename = fh.getAbsolutePath();
+                String filename = fh.getAbsolutePath();
 
-                    GameRandomizer randomizer = new GameRandomizer(settings, romHandler, bundle, saveAsDirectory);
-                    randomizer.randomize(filename, verboseLog);
-                    verboseLog.close();
-                    byte[] out = baos.toByteArray();
-                    if (saveLog) {
-                        try {
-                            FileOutputStream fos = new FileOutputStream(filename + ".log");
-                            fos.write(0xEF);
-                            fos.write(0xBB);
-                            fos.write(0xBF);
-                            fos.write(out);
-                            fos.close();
-                        } catch (IOException e) {
-                            printWarning("Could not write log.");
-                        }
+                GameRandomizer randomizer = new GameRandomizer(settings, romHandler, bundle, saveAsDirectory);
+                SpoilerLog log = SpoilerLog.discard();
+                if (saveLog) {
+                    try {
+                        log = SpoilerLog.toFile(filename, logFormat, compressLog);
+                    } catch (IOException e) {
+                        printWarning("Could not write log.");
+                    }
+                }
+                try {
+                    randomizer.randomize(filename, log);
+                } catch (RuntimeException e) {
+                    // like before the log was streamed, don't leave one behind if randomization fails
+                    log.close();
+                    if (log.isEnabled()) {
+                        new File(SpoilerLog.getFilename(filename, logFormat, compressLog)).delete();
                     }
-                    System.out.println("Randomized successfully!");
-                    // this is the only successful exit, everything else will return false at the end of the function
-                    return true;
+                    throw e;
+                }
+                log.close();
+                if (log.checkError()) {
+                    printWarning("Could not write log.");
                 }
+                if (reportFormat != null) {
+                    try {
+                        randomizer.getReport().writeNextTo(filename, reportFormat);
+                    } catch (IOException e) {
+                        printWarning("Could not write report.");
+                    }
+                }
+                System.out.println("Randomized successfully!");
+                // this is the only successful exit, everything else will return false at the end of the function
+                return true;
             }
             // if we get here it means no rom handlers matched the ROM file
             System.err.printf(bundle.getString("GUI.unsupportedRom") + "%n", romFileHandler.getName());
@@ -128,14 +206,25 @@ public class CliRandomizer {
     }
 
     public static int invoke(String[] args) {
+        if (args.length > 0 && args[0].equals("daemon")) {
+            return RandomizerDaemon.invoke(Arrays.copyOfRange(args, 1, args.length));
+        }
+
         String settingsFilePath = null;
         String sourceRomFilePath = null;
         String outputRomFilePath = null;
         boolean saveAsDirectory = false;
         String updateFilePath = null;
         boolean saveLog = false;
+        int batchCount = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String batchPrefix = null;
+        RandomizationReport.Format reportFormat = null;
+        SpoilerLog.Format logFormat = SpoilerLog.Format.TEXT;
+        boolean compressLog = false;
 
-        List<String> allowedFlags = Arrays.asList("-i", "-o", "-s", "-d", "-u", "-l", "--help");
+        List<String> allowedFlags = Arrays.asList("-i", "-o", "-s", "-d", "-u", "-l", "-b", "-t", "-p", "-r", "-lf", "-lz",
+                "--help");
         for (int i = 0; i < args.length; i++) {
             if (allowedFlags.contains(args[i])) {
                 switch(args[i]) {
@@ -157,6 +246,48 @@ public class CliRandomizer {
                     case "-l":
                         saveLog = true;
                         break;
+                    case "-b":
+                        batchCount = parsePositiveInt(args, i);
+                        if (batchCount < 0) {
+                            CliRandomizer.printUsage();
+                            return 1;
+                        }
+                        break;
+                    case "-t":
+                        threads = parsePositiveInt(args, i);
+                        if (threads < 0) {
+                            CliRandomizer.printUsage();
+                            return 1;
+                        }
+                        break;
+                    case "-p":
+                        batchPrefix = args[i + 1];
+                        break;
+                    case "-r":
+                        try {
+                            reportFormat = RandomizationReport.Format.valueOf(args[i + 1].toUpperCase());
+                        } catch (IllegalArgumentException e) {
+                            printError("Unknown report format: " + args[i + 1]);
+                            CliRandomizer.printUsage();
+                            return 1;
+                        }
+                        break;
+                    case "-lf":
+                        switch (args[i + 1].toLowerCase()) {
+                            case "text" -> logFormat = SpoilerLog.Format.TEXT;
+                            case "jsonl" -> logFormat = SpoilerLog.Format.JSON_LINES;
+                            default -> {
+                                printError("Unknown log format: " + args[i + 1]);
+                                CliRandomizer.printUsage();
+                                return 1;
+                            }
+                        }
+                        saveLog = true;
+                        break;
+                    case "-lz":
+                        compressLog = true;
+                        saveLog = true;
+                        break;
                     case "--help":
                         printUsage();
                         return 0;
@@ -187,21 +318,58 @@ public class CliRandomizer {
             return 1;
         }
 
-        // java will return false for a non-existent file, have to check the parent directory
-        if (!new File(outputRomFilePath).getAbsoluteFile().getParentFile().canWrite()) {
-            printError("Destination ROM path not writable");
-            CliRandomizer.printUsage();
-            return 1;
-        }
+        boolean processResult;
+        if (batchCount > 0) {
+            // in batch mode, the "output path" is the directory all ROMs are written to
+            File outputDirectory = new File(outputRomFilePath).getAbsoluteFile();
+            if (!outputDirectory.isDirectory() || !outputDirectory.canWrite()) {
+                printError("Destination directory not writable");
+                CliRandomizer.printUsage();
+                return 1;
+            }
+            if (updateFilePath != null) {
+                printWarning("Game updates are not supported in batch mode, ignoring \"-u\" flag...");
+            }
+
+            BatchRandomizationSettings batchSettings = new BatchRandomizationSettings();
+            batchSettings.setBatchRandomizationEnabled(true);
+            batchSettings.setNumberOfRandomizedROMs(batchCount);
+            batchSettings.setNumberOfThreads(threads);
+            batchSettings.setGenerateLogFile(saveLog);
+            batchSettings.setOutputDirectory(outputDirectory.getPath());
+            if (batchPrefix != null) {
+                batchSettings.setFileNamePrefix(batchPrefix);
+            }
 
-        boolean processResult = CliRandomizer.performDirectRandomization(
-                settingsFilePath,
-                sourceRomFilePath,
-                outputRomFilePath,
-                saveAsDirectory,
-                updateFilePath,
-                saveLog
-        );
+            processResult = CliRandomizer.performBatchRandomization(
+                    settingsFilePath,
+                    sourceRomFilePath,
+                    batchSettings,
+                    saveAsDirectory,
+                    reportFormat,
+                    logFormat,
+                    compressLog
+            );
+        } else {
+            // java will return false for a non-existent file, have to check the parent directory
+            if (!new File(outputRomFilePath).getAbsoluteFile().getParentFile().canWrite()) {
+                printError("Destination ROM path not writable");
+                CliRandomizer.printUsage();
+                return 1;
+            }
+
+            processResult = CliRandomizer.performDirectRandomization(
+                    settingsFilePath,
+                    sourceRomFilePath,
+                    outputRomFilePath,
+                    saveAsDirectory,
+                    updateFilePath,
+                    saveLog,
+                    reportFormat,
+                    logFormat,
+                    compressLog
+            );
+        }
         if (!processResult) {
             printError("Randomization failed");
             CliRandomizer.printUsage();
@@ -210,6 +378,26 @@ public class CliRandomizer {
         return 0;
     }
 
+    /**
+     * Returns the value given for the flag at args[i], if it is a positive whole number. Otherwise, prints an
+     * error and returns -1.
+     */
+    static int parsePositiveInt(String[] args, int i) {
+        if (i + 1 >= args.length) {
+            printError("Missing number after " + args[i]);
+            return -1;
+        }
+        try {
+            int value = Integer.parseInt(args[i + 1]);
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        printError(args[i] + " needs a positive whole number, not \"" + args[i + 1] + "\"");
+        return -1;
+    }
+
     private static void printError(String text) {
         System.err.println("ERROR: " + text);
     }
@@ -220,7 +408,15 @@ public class CliRandomizer {
 
     private static void printUsage() {
         System.err.println("Usage: java [-Xmx4096M] -jar PokeRandoZX.jar cli -s <path to settings file> " +
-                "-i <path to source ROM> -o <path for new ROM> [-d][-u <path to 3DS game update>][-l]");
+                "-i <path to source ROM> -o <path for new ROM> [-d][-u <path to 3DS game update>][-l]" +
+                "[-lf <text|jsonl>][-lz][-r <json|csv>]" +
+                "[-b <number of ROMs> [-t <threads>][-p <file name prefix>]]");
         System.err.println("-d: Save 3DS game as directory (LayeredFS)");
+        System.err.println("-o: For GB/GBC/GBA games, a path ending in .ips or .bps saves a patch to the source ROM");
+        System.err.println("-l: Save the log next to the new ROM; -lf sets its format, -lz gzips it (both imply -l)");
+        System.err.println("-r: Write a per-phase timing report next to the new ROM");
+        System.err.println("-b: Batch randomize several ROMs in parallel; -o is then the output directory");
+        System.err.println("   or: java [-Xmx4096M] -jar PokeRandoZX.jar cli daemon [-t <threads>][-c <number of ROMs to cache>]");
+        System.err.println("daemon: Stay running, taking jobs as JSON lines on stdin (see RandomizerDaemon)");
     }
 }
@@ -0,0 +1,148 @@
+package com.dabomstew.pkrandom.cli;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the {@link RandomizerDaemon} protocol: reading flat objects (string, number, boolean and
+ * null values). Strings in the responses are quoted with {@link com.dabomstew.pkrandom.JsonFunctions#quote(String)}.
+ */
+public class JsonLines {
+
+    private final String text;
+    private int pos;
+
+    private JsonLines(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses one line holding a JSON object without nested objects/arrays. Numbers are returned as Long if they are
+     * integers, otherwise as Double.
+     *
+     * @throws IllegalArgumentException if the line isn't such an object.
+     */
+    public static Map<String, Object> parseObject(String line) {
+        JsonLines parser = new JsonLines(line);
+        Map<String, Object> object = new LinkedHashMap<>();
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String key = parser.readString();
+                parser.expect(':');
+                object.put(key, parser.readValue());
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.skipWhitespace();
+        if (parser.pos != line.length()) {
+            throw parser.error("Unexpected text after the object");
+        }
+        return object;
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (pos >= text.length()) {
+            throw error("Missing value");
+        }
+        char c = text.charAt(pos);
+        if (c == '"') {
+            return readString();
+        } else if (text.startsWith("true", pos)) {
+            pos += 4;
+            return true;
+        } else if (text.startsWith("false", pos)) {
+            pos += 5;
+            return false;
+        } else if (text.startsWith("null", pos)) {
+            pos += 4;
+            return null;
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            return readNumber();
+        }
+        throw error("Unsupported value");
+    }
+
+    private Object readNumber() {
+        int start = pos;
+        boolean integer = true;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) != -1) {
+            integer &= Character.isDigit(text.charAt(pos)) || (pos == start && text.charAt(pos) == '-');
+            pos++;
+        }
+        String number = text.substring(start, pos);
+        try {
+            return integer ? (Object) Long.parseLong(number) : (Object) Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("Bad number " + number);
+        }
+    }
+
+    private String readString() {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (pos >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char escaped = text.charAt(pos++);
+            switch (escaped) {
+                case '"', '\\', '/' -> sb.append(escaped);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > text.length()) {
+                        throw error("Bad unicode escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad unicode escape");
+                    }
+                    pos += 4;
+                }
+                default -> throw error("Bad escape \\" + escaped);
+            }
+        }
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private boolean consume(char c) {
+        skipWhitespace();
+        if (pos < text.length() && text.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+}
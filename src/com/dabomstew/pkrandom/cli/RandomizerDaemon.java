@@ -0,0 +1,400 @@
+package com.dabomstew.pkrandom.cli;
+
+import com.dabomstew.pkrandom.CustomNamesSet;
+import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.GameRandomizer;
+import com.dabomstew.pkrandom.JsonFunctions;
+import com.dabomstew.pkrandom.Settings;
+import com.dabomstew.pkrandom.log.JsonLinesLogSink;
+import com.dabomstew.pkrandom.log.SpoilerLog;
+import com.dabomstew.pkrandom.random.SeedPicker;
+import com.dabomstew.pkrandom.romhandlers.RomHandler;
+import com.dabomstew.pkrandom.romhandlers.RomSnapshot;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * A resident randomizer, driven by JSON lines on stdin, which answers with JSON lines on stdout. Loaded ROMs are
+ * kept as {@link RomSnapshot}s in an LRU cache keyed by the CRC32 of the ROM file, so a job on a cached ROM pays
+ * neither JVM startup nor ROM parsing. Jobs run concurrently on a fixed pool of threads.
+ * <br><br>
+ * Requests:
+ * <pre>
+ * {"type":"load","path":"/roms/emerald.gba"}
+ * {"type":"detect","path":"/uploads/rom.gba"}
+ * {"type":"randomize","id":"job1","crc":"1F1C08FB","settings":"&lt;settings string&gt;","seed":123,
+ *  "output":"/out/job1.gba","log":true}
+ * {"type":"shutdown"}
+ * </pre>
+ * A randomize request may give "path" instead of, or as well as, "crc", to load the ROM if it isn't cached. If both
+ * are given, the CRC of the file must match "crc". "seed" is optional, but must be an integer if given; "log" is
+ * optional too, and "directory":true saves a 3DS game as a LayeredFS directory.
+ * <br><br>
+ * Responses: "loaded" (with "crc" and "rom"), "detected" (with "supported", only checking the start of the file
+ * without loading it), "log" (one per log event, wrapping what {@link JsonLinesLogSink}
+ * writes as "event"), "done" (with "checkValue" and "timeMs"), and "error" (with "message"). Responses to a job
+ * carry its "id", and those of different jobs may interleave. Anything the randomizer itself prints goes to stderr.
+ */
+public class RandomizerDaemon {
+
+    private static final ResourceBundle bundle = ResourceBundle.getBundle("com/dabomstew/pkrandom/gui/Bundle");
+
+    private static class CachedRom {
+        private final RomHandler.Factory factory;
+        private final RomSnapshot snapshot;
+        private final String romName;
+
+        private CachedRom(RomHandler.Factory factory, RomSnapshot snapshot, String romName) {
+            this.factory = factory;
+            this.snapshot = snapshot;
+            this.romName = romName;
+        }
+    }
+
+    private record FileKey(String path, long length, long lastModified) {
+    }
+
+    private static final int CRC_CACHE_SIZE = 1024;
+
+    private final PrintStream out;
+    private final ExecutorService pool;
+    private final CustomNamesSet customNames;
+    // loads in progress are cached too, so concurrent jobs on the same new ROM only load it once
+    private final Map<Long, Future<CachedRom>> cache;
+    // so a job giving the "path" of an unchanged file doesn't read all of it again for the CRC
+    private final Map<FileKey, Long> crcs;
+
+    public RandomizerDaemon(PrintStream out, int threads, int cacheSize) throws IOException {
+        this.out = out;
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.customNames = FileFunctions.getCustomNames();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Future<CachedRom>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.crcs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FileKey, Long> eldest) {
+                return size() > CRC_CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Runs the daemon on stdin/stdout until stdin ends or a "shutdown" request comes, then waits for running jobs.
+     *
+     * @param args [-t &lt;threads&gt;] [-c &lt;number of ROMs to cache&gt;]
+     */
+    public static int invoke(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int cacheSize = 4;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-t" -> threads = CliRandomizer.parsePositiveInt(args, i++);
+                case "-c" -> cacheSize = CliRandomizer.parsePositiveInt(args, i++);
+                default -> {
+                }
+            }
+        }
+        if (threads < 0 || cacheSize < 0) {
+            return 1;
+        }
+        PrintStream protocolOut = new PrintStream(new FileOutputStream(FileDescriptor.out), false,
+                StandardCharsets.UTF_8);
+        // keep stdout for the protocol; the handlers print progress/debug info with System.out
+        System.setOut(System.err);
+        try {
+            RandomizerDaemon daemon = new RandomizerDaemon(protocolOut, threads, cacheSize);
+            daemon.run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+            return 0;
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    public void run(BufferedReader in) throws IOException, InterruptedException {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (!handle(line)) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Handles one request line, returning false if it asks the daemon to shut down.
+     */
+    private boolean handle(String line) {
+        Map<String, Object> request;
+        try {
+            request = JsonLines.parseObject(line);
+        } catch (IllegalArgumentException e) {
+            respondError(null, "Bad request: " + e.getMessage());
+            return true;
+        }
+        String id = request.get("id") == null ? null : String.valueOf(request.get("id"));
+        String type = String.valueOf(request.get("type"));
+        switch (type) {
+            case "load" -> pool.submit(() -> {
+                try {
+                    String path = getString(request, "path", true);
+                    long crc = getFileCRC32(path);
+                    CachedRom rom = getRom(crc, path);
+                    respond(id, "loaded", "\"crc\":" + JsonFunctions.quote(formatCRC(crc))
+                            + ",\"rom\":" + JsonFunctions.quote(rom.romName));
+                } catch (Exception e) {
+                    respondError(id, e);
+                }
+            });
+            case "detect" -> pool.submit(() -> {
+                try {
+                    String path = getString(request, "path", true);
+                    boolean supported = CliRandomizer.romDetector.detect(path) != null;
+                    respond(id, "detected", "\"path\":" + JsonFunctions.quote(path) + ",\"supported\":" + supported);
+                } catch (Exception e) {
+                    respondError(id, e);
+                }
+            });
+            case "randomize" -> pool.submit(() -> {
+                try {
+                    randomize(id, request);
+                } catch (Exception e) {
+                    respondError(id, e);
+                }
+            });
+            case "shutdown" -> {
+                return false;
+            }
+            default -> respondError(id, "Unknown request type: " + type);
+        }
+        return true;
+    }
+
+    private void randomize(String id, Map<String, Object> request) throws Exception {
+        long startTime = System.currentTimeMillis();
+        String path = getString(request, "path", false);
+        String crcString = getString(request, "crc", path == null);
+        long crc;
+        if (path != null) {
+            // the CRC is the cache key, so it must come from the file itself
+            crc = getFileCRC32(path);
+            if (crcString != null && Long.parseLong(crcString, 16) != crc) {
+                throw new IllegalArgumentException("\"crc\" " + crcString + " does not match " + path
+                        + ", which has CRC " + formatCRC(crc));
+            }
+        } else {
+            crc = Long.parseLong(crcString, 16);
+        }
+        String output = new File(getString(request, "output", true)).getAbsolutePath();
+        long seed = getSeed(request);
+        boolean saveAsDirectory = Boolean.TRUE.equals(request.get("directory"));
+        boolean streamLog = Boolean.TRUE.equals(request.get("log"));
+
+        CachedRom rom = getRom(crc, path);
+        RomHandler romHandler = rom.factory.create();
+        if (!romHandler.loadRom(rom.snapshot)) {
+            throw new IOException("Could not load " + rom.snapshot.getFilename());
+        }
+        Settings settings = Settings.fromString(getString(request, "settings", true));
+        settings.setCustomNames(customNames);
+        settings.tweakForRom(romHandler);
+        if (saveAsDirectory) {
+            new File(output).mkdirs();
+        }
+
+        GameRandomizer randomizer = new GameRandomizer(settings, romHandler, bundle, saveAsDirectory);
+        SpoilerLog log = streamLog ? new SpoilerLog(new JsonLinesLogSink(new LogEventWriter(id)))
+                : SpoilerLog.discard();
+        int checkValue;
+        try {
+            checkValue = randomizer.randomize(output, log, seed);
+        } finally {
+            log.close();
+        }
+        respond(id, "done", "\"output\":" + JsonFunctions.quote(output) + ",\"seed\":" + seed
+                + ",\"checkValue\":" + JsonFunctions.quote(String.format("%08X", checkValue))
+                + ",\"timeMs\":" + (System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * Returns the cached ROM with the given CRC, loading it from path if it isn't cached.
+     */
+    private CachedRom getRom(long crc, String path) throws Exception {
+        Future<CachedRom> future;
+        FutureTask<CachedRom> load = null;
+        synchronized (cache) {
+            future = cache.get(crc);
+            if (future == null) {
+                if (path == null) {
+                    throw new IllegalArgumentException("No ROM with CRC " + formatCRC(crc)
+                            + " is loaded; give a \"path\" to load it from.");
+                }
+                load = new FutureTask<>(() -> loadRom(path));
+                future = load;
+                cache.put(crc, future);
+            }
+        }
+        if (load != null) {
+            load.run();
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            synchronized (cache) {
+                cache.remove(crc, future);
+            }
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private static CachedRom loadRom(String path) throws IOException {
+        String romPath = new File(path).getAbsolutePath();
+        RomHandler.Factory factory = CliRandomizer.romDetector.detect(romPath);
+        if (factory != null) {
+            RomHandler romHandler = factory.create();
+            if (!romHandler.loadRom(romPath)) {
+                throw new IOException("Could not load " + romPath);
+            }
+            return new CachedRom(factory, romHandler.getRomSnapshot(), romHandler.getROMName());
+        }
+        throw new IOException(String.format(bundle.getString("GUI.unsupportedRom"), new File(path).getName()));
+    }
+
+    /**
+     * Returns the request's "seed", or a new random seed if it has none.
+     *
+     * @throws IllegalArgumentException if the "seed" is anything but an integer.
+     */
+    private static long getSeed(Map<String, Object> request) {
+        Object seed = request.get("seed");
+        if (seed == null) {
+            return SeedPicker.pickSeed();
+        }
+        if (!(seed instanceof Long)) {
+            throw new IllegalArgumentException("\"seed\" must be an integer, not "
+                    + (seed instanceof String ? JsonFunctions.quote((String) seed) : seed));
+        }
+        return (Long) seed;
+    }
+
+    /**
+     * Returns the CRC32 of the file, only reading it if it wasn't checked before with the same size and
+     * modification time.
+     */
+    private long getFileCRC32(String path) throws IOException {
+        File file = new File(path).getAbsoluteFile();
+        FileKey key = new FileKey(file.getPath(), file.length(), file.lastModified());
+        synchronized (crcs) {
+            Long cached = crcs.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long crc = readFileCRC32(file);
+        synchronized (crcs) {
+            crcs.put(key, crc);
+        }
+        return crc;
+    }
+
+    private static long readFileCRC32(File file) throws IOException {
+        try (CheckedInputStream in = new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)),
+                new CRC32())) {
+            byte[] buf = new byte[64 * 1024];
+            while (in.read(buf) != -1) {
+                // only reading for the checksum
+            }
+            return in.getChecksum().getValue();
+        }
+    }
+
+    private static String formatCRC(long crc) {
+        return String.format("%08X", crc);
+    }
+
+    private static String getString(Map<String, Object> request, String key, boolean required) {
+        Object value = request.get(key);
+        if (value == null) {
+            if (required) {
+                throw new IllegalArgumentException("Missing \"" + key + "\"");
+            }
+            return null;
+        }
+        return String.valueOf(value);
+    }
+
+    private void respond(String id, String type, String fields) {
+        StringBuilder sb = new StringBuilder("{\"type\":").append(JsonFunctions.quote(type));
+        if (id != null) {
+            sb.append(",\"id\":").append(JsonFunctions.quote(id));
+        }
+        if (!fields.isEmpty()) {
+            sb.append(',').append(fields);
+        }
+        sb.append('}');
+        synchronized (out) {
+            out.println(sb);
+            out.flush();
+        }
+    }
+
+    private void respondError(String id, Exception e) {
+        e.printStackTrace();
+        respondError(id, e.getMessage() == null ? e.toString() : e.getMessage());
+    }
+
+    private void respondError(String id, String message) {
+        respond(id, "error", "\"message\":" + JsonFunctions.quote(message));
+    }
+
+    /**
+     * Sends each line a {@link JsonLinesLogSink} writes as the "event" of a "log" response.
+     */
+    private class LogEventWriter extends Writer {
+
+        private final String id;
+        private final StringBuilder line = new StringBuilder();
+
+        private LogEventWriter(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                if (cbuf[i] == '\n') {
+                    respond(id, "log", "\"event\":" + line);
+                    line.setLength(0);
+                } else {
+                    line.append(cbuf[i]);
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
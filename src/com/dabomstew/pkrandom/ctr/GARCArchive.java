@@ -21,6 +21,7 @@ package com.dabomstew.pkrandom.ctr;
 /*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
 /*----------------------------------------------------------------------------*/
 
+import com.dabomstew.pkrandom.exceptions.RomIOException;
 import cuecompressors.BLZCoder;
 
 import java.io.ByteArrayOutputStream;
@@ -30,7 +31,12 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A GARC archive. Reading one only indexes its subfiles; each subfile is copied out of the archive, and decompressed
+ * if need be, the first time it is accessed.
+ */
 public class GARCArchive {
 
     private final int VER_4 = 0x0400;
@@ -47,6 +53,11 @@ public class GARCArchive {
     public List<Map<Integer,byte[]>> files = new ArrayList<>();
     private Map<Integer,Boolean> isCompressed = new TreeMap<>();
     private List<Boolean> compressThese = null;
+    // the archive as read, which subfiles are copied from when first accessed
+    private byte[] data;
+    // decompressed subfiles as read, by (index << 32 | subIndex). Shared between copies of the same archive,
+    // and safe to use from several threads, as long as each reads different directories
+    private Map<Long, byte[]> decompressed = new ConcurrentHashMap<>();
 
     private GARCFrame garc;
     private FATOFrame fato;
@@ -75,6 +86,31 @@ public class GARCArchive {
         files = fimb.files;
     }
 
+    /**
+     * Creates a copy of the given GARCArchive as it was when read, i.e. without any of its changes.
+     * The copy shares the template's data and its decompressed subfiles, so each subfile is decompressed
+     * at most once between all copies of the same template.
+     */
+    public GARCArchive(GARCArchive template) {
+        this.skipDecompression = template.skipDecompression;
+        this.compressThese = template.compressThese;
+        this.version = template.version;
+        this.data = template.data;
+        this.decompressed = template.decompressed;
+        this.isCompressed = new TreeMap<>(template.isCompressed);
+        this.garc = template.garc;
+        this.fato = template.fato;
+        this.fatb = template.fatb;
+        this.fimb = new FIMBFrame();
+        this.fimb.headerSize = template.fimb.headerSize;
+        this.fimb.dataSize = template.fimb.dataSize;
+        this.fimb.files = new ArrayList<>();
+        for (int i = 0; i < fatb.fileCount; i++) {
+            fimb.files.add(new Directory(i, fatb.entries[i]));
+        }
+        files = fimb.files;
+    }
+
     private boolean readFrames(byte[] data) {
         if (data.length <= 0) {
             System.out.println("Empty GARC");
@@ -167,35 +203,41 @@ public class GARCArchive {
         fimb.headerSize = bbuf.getInt();
         fimb.dataSize = bbuf.getInt();
         fimb.files = new ArrayList<>();
+        this.data = data;
         for (int i = 0; i < fatb.fileCount; i++) {
             FATBEntry entry = fatb.entries[i];
-            Map<Integer,byte[]> files = new TreeMap<>();
             for (int k: entry.subEntries.keySet()) {
-                FATBSubEntry subEntry = entry.subEntries.get(k);
-                bbuf.position(garc.dataOffset + subEntry.start);
-                byte[] file = new byte[subEntry.length];
-                boolean compressed = compressThese == null ?
-                        bbuf.get(bbuf.position()) == 0x11 && !skipDecompression :
-                        bbuf.get(bbuf.position()) == 0x11 && compressThese.get(i);
-                bbuf.get(file);
-                if (compressed) {
-                    try {
-                        files.put(k,new BLZCoder(null).BLZ_DecodePub(file,"GARC"));
-                        isCompressed.put(i,true);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        return false;
-                    }
-                } else {
-                    files.put(k,file);
-                    isCompressed.put(i,false);
-                }
+                isCompressed.put(i, isCompressed(i, entry.subEntries.get(k)));
             }
-            fimb.files.add(files);
+            fimb.files.add(new Directory(i, entry));
         }
         return true;
     }
 
+    private boolean isCompressed(int index, FATBSubEntry subEntry) {
+        boolean compressedData = data[garc.dataOffset + subEntry.start] == 0x11;
+        return compressThese == null ? compressedData && !skipDecompression : compressedData && compressThese.get(index);
+    }
+
+    private byte[] readSubfile(int index, int subIndex, FATBSubEntry subEntry) {
+        int start = garc.dataOffset + subEntry.start;
+        if (!isCompressed(index, subEntry)) {
+            return Arrays.copyOfRange(data, start, start + subEntry.length);
+        }
+        long key = ((long) index << 32) | subIndex;
+        byte[] file = decompressed.get(key);
+        if (file == null) {
+            try {
+                file = new BLZCoder(null).BLZ_DecodePub(Arrays.copyOfRange(data, start, start + subEntry.length),
+                        "GARC");
+            } catch (Exception e) {
+                throw new RomIOException(String.format("Could not decompress GARC subfile %d/%d", index, subIndex), e);
+            }
+            decompressed.put(key, file);
+        }
+        return Arrays.copyOf(file, file.length);
+    }
+
     public void updateFiles(List<Map<Integer,byte[]>> files) {
         fimb.files = files;
     }
@@ -237,11 +279,21 @@ public class GARCArchive {
             Map<Integer,byte[]> directory = fimb.files.get(i);
             int bitVector = 0;
             int totalLength = 0;
-            for (int k: directory.keySet()) {
+            Set<Integer> subIndices = directory instanceof Directory ? ((Directory) directory).subIndices()
+                    : directory.keySet();
+            for (int k: subIndices) {
                 bitVector |= (1 << k);
-                byte[] file = directory.get(k);
-                if (isCompressed.get(i)) {
-                    file = new BLZCoder(null).BLZ_EncodePub(file,false,false,"GARC");
+                byte[] file;
+                if (directory instanceof Directory && ((Directory) directory).isUnread(k)) {
+                    // never accessed, so it can be copied as is, without recompressing it
+                    FATBSubEntry subEntry = fatb.entries[i].subEntries.get(k);
+                    file = Arrays.copyOfRange(data, garc.dataOffset + subEntry.start,
+                            garc.dataOffset + subEntry.start + subEntry.length);
+                } else {
+                    file = directory.get(k);
+                    if (isCompressed.get(i)) {
+                        file = new BLZCoder(null).BLZ_EncodePub(file,false,false,"GARC");
+                    }
                 }
                 fimbPayloadStream.write(file);
                 totalLength += file.length;
@@ -340,6 +392,80 @@ public class GARCArchive {
         return fimb.files.get(index);
     }
 
+    /**
+     * The subfiles of one GARC entry, by subindex. Subfiles are only read from the archive when first accessed.
+     * <br><br>
+     * Iterating over the entries reads all of them. {@link #put(Integer, byte[])} and {@link #remove(Object)}
+     * return null rather than read a subfile which has not been accessed yet.
+     */
+    private class Directory extends AbstractMap<Integer, byte[]> {
+        private final int index;
+        private final TreeMap<Integer, byte[]> read = new TreeMap<>();
+        private final TreeMap<Integer, FATBSubEntry> unread;
+
+        private Directory(int index, FATBEntry entry) {
+            this.index = index;
+            this.unread = new TreeMap<>(entry.subEntries);
+        }
+
+        private boolean isUnread(int subIndex) {
+            return unread.containsKey(subIndex);
+        }
+
+        private Set<Integer> subIndices() {
+            if (unread.isEmpty()) {
+                return read.keySet();
+            }
+            Set<Integer> subIndices = new TreeSet<>(read.keySet());
+            subIndices.addAll(unread.keySet());
+            return subIndices;
+        }
+
+        @Override
+        public byte[] get(Object key) {
+            byte[] file = read.get(key);
+            if (file == null) {
+                FATBSubEntry subEntry = unread.remove(key);
+                if (subEntry != null) {
+                    int subIndex = (Integer) key;
+                    file = readSubfile(index, subIndex, subEntry);
+                    read.put(subIndex, file);
+                }
+            }
+            return file;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return read.containsKey(key) || unread.containsKey(key);
+        }
+
+        @Override
+        public byte[] put(Integer key, byte[] value) {
+            unread.remove(key);
+            return read.put(key, value);
+        }
+
+        @Override
+        public byte[] remove(Object key) {
+            unread.remove(key);
+            return read.remove(key);
+        }
+
+        @Override
+        public int size() {
+            return read.size() + unread.size();
+        }
+
+        @Override
+        public Set<Entry<Integer, byte[]>> entrySet() {
+            for (int subIndex : new ArrayList<>(unread.keySet())) {
+                get(subIndex);
+            }
+            return read.entrySet();
+        }
+    }
+
     private class GARCFrame {
         int headerSize;
         int endianness;
@@ -25,9 +25,12 @@ import com.dabomstew.pkrandom.FileFunctions;
 import com.dabomstew.pkrandom.SysConstants;
 import com.dabomstew.pkrandom.exceptions.EncryptedROMException;
 import com.dabomstew.pkrandom.exceptions.RomIOException;
+import com.dabomstew.pkrandom.romhandlers.RomFileHeader;
 import cuecompressors.BLZCoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -52,6 +55,11 @@ public class NCCH {
     private boolean writingEnabled;
     private boolean codeCompressed, codeOpen, codeChanged;
     private byte[] codeRamstored;
+    // the whole ROM file, mapped read-only in chunks, since a 3DS ROM can be larger than a single mapping.
+    // Copies share the mapping, so they share the OS's page cache of it instead of keeping their own copies of
+    // what they read. The mapping keeps the file locked on Windows, which is fine since a 3DS ROM is never saved
+    // over the file it was loaded from (see GUI.cantOverwriteDS)
+    private final ByteBuffer[] romImage;
 
     // Public so the base game can read it from the game update NCCH
     public long originalCodeCRC, originalRomfsHeaderCRC;
@@ -68,6 +76,8 @@ public class NCCH {
     private static final int romfs_magic_2 = 0x00000100;
     private static final int level3_header_size = 0x28;
     private static final int metadata_unused = 0xFFFFFFFF;
+    private static final int copy_buffer_size = 0x100000;
+    private static final long map_chunk_size = 0x40000000L;
 
     public NCCH(String filename, String productCode, String titleId) throws IOException {
         this.romFilename = filename;
@@ -76,6 +86,7 @@ public class NCCH {
         this.productCode = productCode;
         this.titleId = titleId;
         this.romOpen = true;
+        this.romImage = mapRomImage(baseRom);
 
         if (this.ncchStartingOffset != -1) {
             this.version = this.readVersionFromFile();
@@ -113,6 +124,71 @@ public class NCCH {
         }
     }
 
+    /**
+     * Creates a copy of the given NCCH as it was when first opened, i.e. without any of its changes.
+     * Only the (small) file system tables are read again. The original contents of .code and of romfs files
+     * are read through the memory-mapped ROM file, which is shared between all copies of the same template.
+     * Copies keep their changes in RAM, since they would otherwise share a tmp folder.
+     */
+    public NCCH(NCCH template) throws IOException {
+        this.romFilename = template.romFilename;
+        this.baseRom = new RandomAccessFile(romFilename, "r");
+        this.ncchStartingOffset = template.ncchStartingOffset;
+        this.productCode = template.productCode;
+        this.titleId = template.titleId;
+        this.version = template.version;
+        this.romOpen = true;
+        this.writingEnabled = false;
+        this.romImage = new ByteBuffer[template.romImage.length];
+        for (int i = 0; i < romImage.length; i++) {
+            romImage[i] = template.romImage[i].duplicate();
+        }
+        readFileSystem();
+    }
+
+    private static ByteBuffer[] mapRomImage(RandomAccessFile file) throws IOException {
+        long length = file.length();
+        ByteBuffer[] image = new ByteBuffer[(int) ((length + map_chunk_size - 1) / map_chunk_size)];
+        for (int i = 0; i < image.length; i++) {
+            long start = i * map_chunk_size;
+            image[i] = file.getChannel().map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(map_chunk_size, length - start));
+        }
+        return image;
+    }
+
+    /**
+     * Reads unmodified data from the memory-mapped ROM file.
+     * The returned array is always a fresh one, which the caller may modify.
+     */
+    byte[] readOriginal(long offset, int size) throws IOException {
+        long romLength = romImage.length == 0 ? 0
+                : (romImage.length - 1) * map_chunk_size + romImage[romImage.length - 1].limit();
+        if (offset < 0 || size < 0 || offset + size > romLength) {
+            throw new EOFException(String.format("Cannot read 0x%X bytes at 0x%X, past the end of the ROM.",
+                    size, offset));
+        }
+        byte[] buf = new byte[size];
+        int done = 0;
+        while (done < size) {
+            long position = offset + done;
+            ByteBuffer chunk = romImage[(int) (position / map_chunk_size)];
+            int index = (int) (position % map_chunk_size);
+            int length = Math.min(size - done, chunk.limit() - index);
+            chunk.get(index, buf, done, length);
+            done += length;
+        }
+        return buf;
+    }
+
+    private byte[] readFromBaseRom(long offset, int size) throws IOException {
+        reopenROM();
+        byte[] buf = new byte[size];
+        baseRom.seek(offset);
+        baseRom.readFully(buf);
+        return buf;
+    }
+
     public void reopenROM() throws IOException {
         if (!this.romOpen) {
             baseRom = new RandomAccessFile(this.romFilename, "r");
@@ -318,20 +394,14 @@ public class NCCH {
         fNew.seek(0x1B4);
         fNew.write((int) newRomfsLength / media_unit_size);
 
-        // Lastly, reconstruct the superblock hashes
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        // Lastly, reconstruct the superblock hashes. The hash regions only cover the exefs/romfs headers
+        // (and the romfs master hash), so they are small
         int exefsHashRegionSize = FileFunctions.readIntFromFile(baseRom, ncchStartingOffset + 0x1A8) * media_unit_size;
-        byte[] exefsDataToHash = new byte[exefsHashRegionSize];
-        fNew.seek(newExefsOffset);
-        fNew.readFully(exefsDataToHash);
-        byte[] exefsSuperblockHash = digest.digest(exefsDataToHash);
+        byte[] exefsSuperblockHash = hashRegion(fNew, newExefsOffset, exefsHashRegionSize);
         fNew.seek(0x1C0);
         fNew.write(exefsSuperblockHash);
         int romfsHashRegionSize = FileFunctions.readIntFromFile(baseRom, ncchStartingOffset + 0x1B8) * media_unit_size;
-        byte[] romfsDataToHash = new byte[romfsHashRegionSize];
-        fNew.seek(newRomfsOffset);
-        fNew.readFully(romfsDataToHash);
-        byte[] romfsSuperblockHash = digest.digest(romfsDataToHash);
+        byte[] romfsSuperblockHash = hashRegion(fNew, newRomfsOffset, romfsHashRegionSize);
         fNew.seek(0x1E0);
         fNew.write(romfsSuperblockHash);
 
@@ -343,6 +413,20 @@ public class NCCH {
         fNew.close();
     }
 
+    private byte[] hashRegion(RandomAccessFile file, long offset, long length)
+            throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buf = new byte[(int) Math.min(length, 64 * 1024)];
+        file.seek(offset);
+        while (length > 0) {
+            int read = (int) Math.min(length, buf.length);
+            file.readFully(buf, 0, read);
+            digest.update(buf, 0, read);
+            length -= read;
+        }
+        return digest.digest();
+    }
+
     private long rebuildExefs(RandomAccessFile fNew, long newExefsOffset) throws IOException, NoSuchAlgorithmException {
         System.out.println("NCCH: Rebuilding exefs...");
         byte[] code = getCode();
@@ -425,65 +509,88 @@ public class NCCH {
         long level3Offset = romfsOffset + alignLong(0x60 + masterHashSize, level3HashBlockSize);
         long newLevel3Offset = newRomfsOffset + alignLong(0x60 + masterHashSize, level3HashBlockSize);
 
-        // Copy the level 3 header straight from the original ROM. Since we're not adding or
+        // Read the level 3 header straight from the original ROM. Since we're not adding or
         // removing any files, the File/Directory tables should have the same offsets and lengths
         byte[] level3HeaderData = new byte[level3_header_size];
         baseRom.seek(level3Offset);
         baseRom.readFully(level3HeaderData);
-        fNew.seek(newLevel3Offset);
-        fNew.write(level3HeaderData);
 
-        // Write out both hash tables and the directory metadata table. Since we're not adding or removing
-        // any files/directories, we can just use what's in the base ROM for this.
+        // Both hash tables and the directory metadata table can be taken from the base ROM for the same reason.
+        // The file metadata table needs to be reconstructed, since files may have grown or shrunk.
         int directoryHashTableOffset = FileFunctions.readFullInt(level3HeaderData, 0x04);
         int directoryHashTableLength = FileFunctions.readFullInt(level3HeaderData, 0x08);
         int directoryMetadataTableOffset = FileFunctions.readFullInt(level3HeaderData, 0x0C);
         int directoryMetadataTableLength = FileFunctions.readFullInt(level3HeaderData, 0x10);
         int fileHashTableOffset = FileFunctions.readFullInt(level3HeaderData, 0x14);
         int fileHashTableLength = FileFunctions.readFullInt(level3HeaderData, 0x18);
-        byte[] directoryHashTable = new byte[directoryHashTableLength];
-        baseRom.seek(level3Offset + directoryHashTableOffset);
-        baseRom.readFully(directoryHashTable);
-        fNew.seek(newLevel3Offset + directoryHashTableOffset);
-        fNew.write(directoryHashTable);
-        byte[] directoryMetadataTable = new byte[directoryMetadataTableLength];
-        baseRom.seek(level3Offset + directoryMetadataTableOffset);
-        baseRom.readFully(directoryMetadataTable);
-        fNew.seek(newLevel3Offset + directoryMetadataTableOffset);
-        fNew.write(directoryMetadataTable);
-        byte[] fileHashTable = new byte[fileHashTableLength];
-        baseRom.seek(level3Offset + fileHashTableOffset);
-        baseRom.readFully(fileHashTable);
-        fNew.seek(newLevel3Offset + fileHashTableOffset);
-        fNew.write(fileHashTable);
-
-        // Now reconstruct the file metadata table. It may need to be changed if any file grew or shrunk
         int fileMetadataTableOffset = FileFunctions.readFullInt(level3HeaderData, 0x1C);
         int fileMetadataTableLength = FileFunctions.readFullInt(level3HeaderData, 0x20);
+        int fileDataOffset = FileFunctions.readFullInt(level3HeaderData, 0x24);
         byte[] newFileMetadataTable = updateFileMetadataTable(fileMetadataTableLength);
-        fNew.seek(newLevel3Offset + fileMetadataTableOffset);
-        fNew.write(newFileMetadataTable);
+        SortedMap<Integer, byte[]> level3Tables = new TreeMap<>();
+        level3Tables.put(0, level3HeaderData);
+        level3Tables.put(directoryHashTableOffset, readFromBaseRom(level3Offset + directoryHashTableOffset,
+                directoryHashTableLength));
+        level3Tables.put(directoryMetadataTableOffset, readFromBaseRom(level3Offset + directoryMetadataTableOffset,
+                directoryMetadataTableLength));
+        level3Tables.put(fileHashTableOffset, readFromBaseRom(level3Offset + fileHashTableOffset,
+                fileHashTableLength));
+        level3Tables.put(fileMetadataTableOffset, newFileMetadataTable);
+
+        // All the level sizes, and so their offsets, are known up front from the new file metadata table.
+        // Note that in the ROM, level 1 comes *before* level 2.
+        long newLevel3HashdataSize = fileDataOffset;
+        if (!fileMetadataList.isEmpty()) {
+            FileMetadata last = fileMetadataList.get(fileMetadataList.size() - 1);
+            newLevel3HashdataSize += last.fileDataOffset + last.fileDataLength;
+        }
+        long numberOfLevel3HashBlocks = alignLong(newLevel3HashdataSize, level3HashBlockSize) / level3HashBlockSize;
+        int level2HashBlockSize = 1 << FileFunctions.readFullInt(romfsHeaderData, 0x34);
+        long newLevel2HashdataSize = numberOfLevel3HashBlocks * 0x20;
+        long numberOfLevel2HashBlocks = alignLong(newLevel2HashdataSize, level2HashBlockSize) / level2HashBlockSize;
+        int level1HashBlockSize = 1 << FileFunctions.readFullInt(romfsHeaderData, 0x1C);
+        long newLevel1HashdataSize = numberOfLevel2HashBlocks * 0x20;
+        long numberOfLevel1HashBlocks = alignLong(newLevel1HashdataSize, level1HashBlockSize) / level1HashBlockSize;
+        long newLevel1Offset = newLevel3Offset + alignLong(newLevel3HashdataSize, level3HashBlockSize);
+        long newLevel2Offset = newLevel1Offset + alignLong(newLevel1HashdataSize, level1HashBlockSize);
+        long newFileEndingOffset = alignLong(newLevel2Offset + newLevel2HashdataSize, level2HashBlockSize);
 
-        // Using the new file metadata table, output the file data
-        int fileDataOffset = FileFunctions.readFullInt(level3HeaderData, 0x24);
-        long endOfFileDataOffset = 0;
+        // Level 3 (the tables and file data) is written in a single pass, and hashed as it is written.
+        // Its hashes make up level 2, whose hashes make up level 1, whose hashes make up the master hash;
+        // each level is written out and hashed in turn as soon as one of its blocks is filled.
+        FileChannel newChannel = fNew.getChannel();
+        ByteArrayOutputStream masterHash = new ByteArrayOutputStream();
+        IvfcLevel level1 = new IvfcLevel(newChannel, newLevel1Offset, level1HashBlockSize, masterHash::writeBytes);
+        IvfcLevel level2 = new IvfcLevel(newChannel, newLevel2Offset, level2HashBlockSize, level1::update);
+        IvfcLevel level3 = new IvfcLevel(null, newLevel3Offset, level3HashBlockSize, level2::update);
+        fNew.seek(newLevel3Offset);
+        long level3Position = 0;
+        for (Map.Entry<Integer, byte[]> table : level3Tables.entrySet()) {
+            level3Position = writeLevel3Padding(fNew, level3, level3Position, table.getKey());
+            fNew.write(table.getValue());
+            level3.update(table.getValue());
+            level3Position += table.getValue().length;
+        }
+        level3Position = writeLevel3Padding(fNew, level3, level3Position, fileDataOffset);
+
+        // Using the new file metadata table, output the file data. Unchanged files are copied straight
+        // from the base ROM, through one reused buffer.
+        FileChannel baseChannel = baseRom.getChannel();
+        ByteBuffer copyBuffer = ByteBuffer.allocateDirect(copy_buffer_size);
         for (FileMetadata metadata : fileMetadataList) {
             System.out.println("NCCH: Writing file " + metadata.file.fullPath + " to romfs");
             // Users have sent us bug reports with really bizarre errors here that seem to indicate
             // broken metadata; do this in a try-catch solely so we can log the metadata if we fail
             try {
-                byte[] fileData;
                 if (metadata.file.fileChanged) {
-                    fileData = metadata.file.getOverrideContents();
+                    byte[] fileData = metadata.file.getOverrideContents();
+                    fNew.write(fileData);
+                    level3.update(fileData);
                 } else {
-                    fileData = new byte[metadata.file.size];
-                    baseRom.seek(metadata.file.offset);
-                    baseRom.readFully(fileData);
+                    copyAndHash(baseChannel, metadata.file.offset, metadata.file.size, newChannel, level3,
+                            copyBuffer);
                 }
-                long currentDataOffset = newLevel3Offset + fileDataOffset + metadata.fileDataOffset;
-                fNew.seek(currentDataOffset);
-                fNew.write(fileData);
-                endOfFileDataOffset = currentDataOffset + fileData.length;
+                level3Position += metadata.fileDataLength;
             } catch (Exception e) {
                 String message = String.format("Error when building romfs: File: %s, offset: %s, size: %s",
                         metadata.file.fullPath, metadata.offset, metadata.file.size);
@@ -491,52 +598,12 @@ public class NCCH {
             }
         }
 
-        // Now that level 3 (file data) is done, construct level 2 (hashes of file data)
-        // Note that in the ROM, level 1 comes *before* level 2, so we need to calculate
-        // level 1 length and offset as well.
-        long newLevel3EndingOffset = endOfFileDataOffset;
-        long newLevel3HashdataSize = newLevel3EndingOffset - newLevel3Offset;
-        long numberOfLevel3HashBlocks = alignLong(newLevel3HashdataSize, level3HashBlockSize) / level3HashBlockSize;
-        int level2HashBlockSize = 1 << FileFunctions.readFullInt(romfsHeaderData, 0x34);
-        long newLevel2HashdataSize = numberOfLevel3HashBlocks * 0x20;
-        long numberOfLevel2HashBlocks = alignLong(newLevel2HashdataSize, level2HashBlockSize) / level2HashBlockSize;
-        int level1HashBlockSize = 1 << FileFunctions.readFullInt(romfsHeaderData, 0x1C);
-        long newLevel1HashdataSize = numberOfLevel2HashBlocks * 0x20;
-        long newLevel1Offset = newLevel3Offset + alignLong(newLevel3HashdataSize, level3HashBlockSize);
-        long newLevel2Offset = newLevel1Offset + alignLong(newLevel1HashdataSize, level1HashBlockSize);
-        long newFileEndingOffset = alignLong(newLevel2Offset + newLevel2HashdataSize, level2HashBlockSize);
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] dataToHash = new byte[level3HashBlockSize];
-        for (long i = 0; i < numberOfLevel3HashBlocks; i++) {
-            fNew.seek(newLevel3Offset + (i * level3HashBlockSize));
-            fNew.readFully(dataToHash);
-            byte[] hash = digest.digest(dataToHash);
-            fNew.seek(newLevel2Offset + (i * 0x20));
-            fNew.write(hash);
-        }
-        while (fNew.getFilePointer() != newFileEndingOffset) {
-            fNew.writeByte(0);
-        }
-
-        // Now that level 2 (hashes of file data) is done, construct level 1 (hashes of
-        // hashes of file data) and the master hash/level 0 (hashes of level 1)
-        dataToHash = new byte[level2HashBlockSize];
-        for (long i = 0; i < numberOfLevel2HashBlocks; i++) {
-            fNew.seek(newLevel2Offset + (i * level2HashBlockSize));
-            fNew.readFully(dataToHash);
-            byte[] hash = digest.digest(dataToHash);
-            fNew.seek(newLevel1Offset + (i * 0x20));
-            fNew.write(hash);
-        }
-        long numberOfLevel1HashBlocks = alignLong(newLevel1HashdataSize, level1HashBlockSize) / level1HashBlockSize;
-        dataToHash = new byte[level1HashBlockSize];
-        for (long i = 0; i < numberOfLevel1HashBlocks; i++) {
-            fNew.seek(newLevel1Offset + (i * level1HashBlockSize));
-            fNew.readFully(dataToHash);
-            byte[] hash = digest.digest(dataToHash);
-            fNew.seek(newRomfsOffset + 0x60 + (i * 0x20));
-            fNew.write(hash);
-        }
+        // Pad each level out to a whole number of blocks, which completes the levels above it
+        level3.finish();
+        level2.finish();
+        level1.finish();
+        fNew.seek(newRomfsOffset + 0x60);
+        fNew.write(masterHash.toByteArray());
 
         // Lastly, update the header and return the size of the new romfs
         long level1LogicalOffset = 0;
@@ -554,14 +621,45 @@ public class NCCH {
         long currentLength = newFileEndingOffset - newRomfsOffset;
         long newRomfsLength = alignLong(currentLength, media_unit_size);
         fNew.seek(newFileEndingOffset);
-        while (fNew.getFilePointer() < newRomfsOffset + newRomfsLength) {
-            fNew.writeByte(0);
-        }
+        fNew.write(new byte[(int) (newRomfsOffset + newRomfsLength - newFileEndingOffset)]);
 
         System.out.println("NCCH: Done rebuilding romfs");
         return newRomfsLength;
     }
 
+    // copies unchanged data from the base ROM to the current position of "to", hashing it on the way
+    private static void copyAndHash(FileChannel from, long offset, long size, FileChannel to, IvfcLevel level3,
+                                    ByteBuffer buffer) throws IOException {
+        long position = offset;
+        long end = offset + size;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = from.read(buffer, position);
+            if (read <= 0) {
+                throw new EOFException("Unexpected end of base ROM");
+            }
+            position += read;
+            buffer.flip();
+            level3.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                to.write(buffer);
+            }
+        }
+    }
+
+    // writes zeroes to level 3, up to the given position in it
+    private long writeLevel3Padding(RandomAccessFile fNew, IvfcLevel level3, long position, long newPosition)
+            throws IOException {
+        if (newPosition < position) {
+            throw new RomIOException(String.format("Romfs level 3 tables overlap at 0x%X", newPosition));
+        }
+        byte[] padding = new byte[(int) (newPosition - position)];
+        fNew.write(padding);
+        level3.update(padding);
+        return newPosition;
+    }
+
     private byte[] updateFileMetadataTable(int fileMetadataTableLength) {
         fileMetadataList.sort((FileMetadata f1, FileMetadata f2) -> (int) (f1.fileDataOffset - f2.fileDataOffset));
         byte[] fileMetadataTable = new byte[fileMetadataTableLength];
@@ -662,12 +760,10 @@ public class NCCH {
     public byte[] getCode() throws IOException {
         if (!codeOpen) {
             codeOpen = true;
-            byte[] code = new byte[codeFileHeader.size];
-
             // File header offsets are from the start of the exefs but *exclude* the
             // size of the exefs header, so we need to add it back ourselves.
-            baseRom.seek(exefsOffset + exefs_header_size + codeFileHeader.offset);
-            baseRom.readFully(code);
+            byte[] code = readOriginal(exefsOffset + exefs_header_size + codeFileHeader.offset,
+                    codeFileHeader.size);
             originalCodeCRC = FileFunctions.getCRC32(code);
 
             if (codeCompressed) {
@@ -875,48 +971,48 @@ public class NCCH {
     // firmware updates, among other things. This function's determines the location
     // of the CXI regardless of the container.
     public static long getCXIOffsetInFile(String filename) {
-        try {
-            RandomAccessFile rom = new RandomAccessFile(filename, "r");
-            int ciaHeaderSize = FileFunctions.readIntFromFile(rom, 0x00);
-            if (ciaHeaderSize == cia_header_size) {
-                // This *might* be a CIA; let's do our best effort to try to get
-                // a CXI out of this.
-                int certChainSize = FileFunctions.readIntFromFile(rom, 0x08);
-                int ticketSize = FileFunctions.readIntFromFile(rom, 0x0C);
-                int tmdFileSize = FileFunctions.readIntFromFile(rom, 0x10);
-
-                // If this is *really* a CIA, we'll find our CXI at the beginning of the
-                // content section, which is after the certificate chain, ticket, and TMD
-                long certChainOffset = NCCH.alignLong(ciaHeaderSize, 64);
-                long ticketOffset = NCCH.alignLong(certChainOffset + certChainSize, 64);
-                long tmdOffset = NCCH.alignLong(ticketOffset + ticketSize, 64);
-                long contentOffset = NCCH.alignLong(tmdOffset + tmdFileSize, 64);
-                int magic = FileFunctions.readBigEndianIntFromFile(rom, contentOffset + ncch_and_ncsd_magic_offset);
-                if (magic == ncch_magic) {
-                    // This CIA's content contains a valid CXI!
-                    return contentOffset;
-                }
-            }
+        return getCXIOffset(RomFileHeader.read(filename));
+    }
 
-            // We don't put the following code in an else-block because there *might*
-            // exist a totally-valid CXI or CCI whose first four bytes just so
-            // *happen* to be the same as the first four bytes of a CIA file.
-            int magic = FileFunctions.readBigEndianIntFromFile(rom, ncch_and_ncsd_magic_offset);
-            rom.close();
-            if (magic == ncch_magic) {
-                // Magic is NCCH, so this just a straight-up NCCH/CXI; there is no container
-                // around the game data. Thus, the CXI offset is the beginning of the file.
-                return 0;
-            } else if (magic == ncsd_magic) {
-                // Magic is NCSD, so this is almost certainly a CCI. The CXI is always
-                // a fixed distance away from the start.
-                return 0x4000;
-            } else {
-                // This doesn't seem to be a valid 3DS file.
-                return -1;
+    public static long getCXIOffset(RomFileHeader header) {
+        if (header.has(0, 0x14) && header.readInt(0x00) == cia_header_size) {
+            // This *might* be a CIA; let's do our best effort to try to get
+            // a CXI out of this.
+            int certChainSize = header.readInt(0x08);
+            int ticketSize = header.readInt(0x0C);
+            int tmdFileSize = header.readInt(0x10);
+
+            // If this is *really* a CIA, we'll find our CXI at the beginning of the
+            // content section, which is after the certificate chain, ticket, and TMD
+            long certChainOffset = NCCH.alignLong(cia_header_size, 64);
+            long ticketOffset = NCCH.alignLong(certChainOffset + (certChainSize & 0xFFFFFFFFL), 64);
+            long tmdOffset = NCCH.alignLong(ticketOffset + (ticketSize & 0xFFFFFFFFL), 64);
+            long contentOffset = NCCH.alignLong(tmdOffset + (tmdFileSize & 0xFFFFFFFFL), 64);
+            if (header.has(contentOffset + ncch_and_ncsd_magic_offset, 4)
+                    && header.readBigEndianInt(contentOffset + ncch_and_ncsd_magic_offset) == ncch_magic) {
+                // This CIA's content contains a valid CXI!
+                return contentOffset;
             }
-        } catch (IOException e) {
-            throw new RomIOException(e);
+        }
+
+        // We don't put the following code in an else-block because there *might*
+        // exist a totally-valid CXI or CCI whose first four bytes just so
+        // *happen* to be the same as the first four bytes of a CIA file.
+        if (!header.has(ncch_and_ncsd_magic_offset, 4)) {
+            return -1;
+        }
+        int magic = header.readBigEndianInt(ncch_and_ncsd_magic_offset);
+        if (magic == ncch_magic) {
+            // Magic is NCCH, so this just a straight-up NCCH/CXI; there is no container
+            // around the game data. Thus, the CXI offset is the beginning of the file.
+            return 0;
+        } else if (magic == ncsd_magic) {
+            // Magic is NCSD, so this is almost certainly a CCI. The CXI is always
+            // a fixed distance away from the start.
+            return 0x4000;
+        } else {
+            // This doesn't seem to be a valid 3DS file.
+            return -1;
         }
     }
 
@@ -949,6 +1045,76 @@ public class NCCH {
         }
     }
 
+    /**
+     * One level of a romfs IVFC hash tree, which is hashed block by block as its data is written sequentially.
+     * The hash of each block is passed on to the level above; the last block is padded with zeroes.
+     */
+    private static class IvfcLevel {
+        private final FileChannel out;
+        private long outOffset;
+        private final int blockSize;
+        private final byte[] block;
+        private int blockFill;
+        private final MessageDigest digest;
+        private final HashConsumer next;
+
+        /**
+         * @param out The channel to write this level's data to, or null if the data is written elsewhere.
+         * @param next Receives the hash of each block of this level.
+         */
+        IvfcLevel(FileChannel out, long outOffset, int blockSize, HashConsumer next)
+                throws NoSuchAlgorithmException {
+            this.out = out;
+            this.outOffset = outOffset;
+            this.blockSize = blockSize;
+            this.block = out == null ? null : new byte[blockSize];
+            this.digest = MessageDigest.getInstance("SHA-256");
+            this.next = next;
+        }
+
+        void update(byte[] data) throws IOException {
+            update(ByteBuffer.wrap(data));
+        }
+
+        void update(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                int length = Math.min(data.remaining(), blockSize - blockFill);
+                ByteBuffer chunk = data.slice(data.position(), length);
+                if (block != null) {
+                    chunk.duplicate().get(block, blockFill, length);
+                }
+                digest.update(chunk);
+                data.position(data.position() + length);
+                blockFill += length;
+                if (blockFill == blockSize) {
+                    finishBlock();
+                }
+            }
+        }
+
+        void finish() throws IOException {
+            if (blockFill > 0) {
+                update(new byte[blockSize - blockFill]);
+            }
+        }
+
+        private void finishBlock() throws IOException {
+            if (out != null) {
+                // positional writes, so whatever is being written sequentially to the same file isn't disturbed
+                ByteBuffer toWrite = ByteBuffer.wrap(block);
+                while (toWrite.hasRemaining()) {
+                    outOffset += out.write(toWrite, outOffset);
+                }
+            }
+            next.accept(digest.digest());
+            blockFill = 0;
+        }
+    }
+
+    private interface HashConsumer {
+        void accept(byte[] hash) throws IOException;
+    }
+
     private class DirectoryMetadata {
         public int parentDirectoryOffset;
         public int siblingDirectoryOffset;
@@ -26,7 +26,6 @@ import com.dabomstew.pkrandom.FileFunctions;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
 public class RomfsFile {
 
@@ -47,11 +46,7 @@ public class RomfsFile {
     public byte[] getContents() throws IOException {
         if (this.status == Extracted.NOT) {
             // extract file
-            parent.reopenROM();
-            RandomAccessFile rom = parent.getBaseRom();
-            byte[] buf = new byte[this.size];
-            rom.seek(this.offset);
-            rom.readFully(buf);
+            byte[] buf = parent.readOriginal(this.offset, this.size);
             originalCRC = FileFunctions.getCRC32(buf);
             if (parent.isWritingEnabled()) {
                 // make a file
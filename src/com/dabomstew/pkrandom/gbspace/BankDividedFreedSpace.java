@@ -1,6 +1,7 @@
 package com.dabomstew.pkrandom.gbspace;
 
-import java.util.ListIterator;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A {@link FreedSpace} with bank functionality.<br>
@@ -9,7 +10,8 @@ import java.util.ListIterator;
  * system.<br>
  * {@link #findAndUnfree(int)} can only find freed space in banks that are NOT reserved.<br>
  * {@link #findAndUnfreeInBank(int, int)} on the other hand lets you specify a bank, assuming you only use it for
- * bank-specific data.
+ * bank-specific data.<br>
+ * Each bank has its own tree of freed chunks, so chunks never merge over bank borders.
  *
  */
 public class BankDividedFreedSpace extends FreedSpace {
@@ -17,6 +19,7 @@ public class BankDividedFreedSpace extends FreedSpace {
     private final int bankSize;
     private final int numberOfBanks;
     private final boolean[] reservedBanks;
+    private final FreedChunkTree[] bankChunks;
 
     public BankDividedFreedSpace(int bankSize, int numberOfBanks, int[] reservedBanks) {
         if (bankSize <= 0) {
@@ -28,6 +31,10 @@ public class BankDividedFreedSpace extends FreedSpace {
         for (int i : reservedBanks) {
             this.reservedBanks[i] = true;
         }
+        this.bankChunks = new FreedChunkTree[numberOfBanks];
+        for (int i = 0; i < numberOfBanks; i++) {
+            bankChunks[i] = new FreedChunkTree();
+        }
     }
 
     @Override
@@ -38,7 +45,6 @@ public class BankDividedFreedSpace extends FreedSpace {
                     "to prevent bad usage of free().");
         }
         super.free(start, length);
-        splitFreedChunksAtBankBoundaries();
         //System.out.println("after:\t" + this);
     }
 
@@ -48,28 +54,19 @@ public class BankDividedFreedSpace extends FreedSpace {
         return startBank != endBank;
     }
 
-    private void splitFreedChunksAtBankBoundaries() {
-        int bank = 0;
-
-        ListIterator<FreedChunk> iterator = freedChunks.listIterator();
-        while (iterator.hasNext()) {
-            FreedChunk fs = iterator.next();
-            while (freedChunkStartBank(fs) > bank) {
-                bank++;
-            }
-
-            int startOfNextBank = (bank + 1) * bankSize;
-            if (fs.end >= startOfNextBank) {
-                FreedChunk splitOff = new FreedChunk(startOfNextBank, fs.end);
-                fs.end = startOfNextBank - 1;
-                iterator.add(splitOff);
-                iterator.previous();
-            }
+    @Override
+    protected FreedChunkTree getChunksAt(int offset) {
+        int bank = offset / bankSize;
+        if (offset < 0 || bank >= numberOfBanks) {
+            throw new IllegalArgumentException(String.format("Offset 0x%x is outside the %d banks.",
+                    offset, numberOfBanks));
         }
+        return bankChunks[bank];
     }
 
-    private int freedChunkStartBank(FreedChunk fc) {
-        return fc.start / bankSize;
+    @Override
+    protected List<FreedChunkTree> getAllChunks() {
+        return Arrays.asList(bankChunks);
     }
 
     /**
@@ -79,13 +76,13 @@ public class BankDividedFreedSpace extends FreedSpace {
     public int findAndUnfree(int length) {
         for (int i = 0; i < numberOfBanks; i++) {
             if (!isBankReserved(i)) {
-                int offset = findAndUnfreeInBank(length, i);
+                int offset = unfreeFirstFit(bankChunks[i], length);
                 if (offset != -1) {
-                    return offset;
+                    return countAllocation(offset, length);
                 }
             }
         }
-        return -1;
+        return countAllocation(-1, length);
     }
 
     private boolean isBankReserved(int bank) {
@@ -97,25 +94,11 @@ public class BankDividedFreedSpace extends FreedSpace {
         if (length < 1) {
             throw new IllegalArgumentException("length must be at least 1");
         }
-        FreedChunk found = findInBank(length, bank);
-        if (found == null) {
-            return -1;
-        }
-        int offset = found.start;
-        unfree(found, length);
+        int offset = countAllocation(unfreeFirstFit(bankChunks[bank], length), length);
         //System.out.println("after:\t" + this);
         return offset;
     }
 
-    private FreedChunk findInBank(int length, int bank) {
-        for (FreedChunk fc : freedChunks) {
-            if (fc.getLength() >= length && freedChunkStartBank(fc) == bank) {
-                return fc;
-            }
-        }
-        return null;
-    }
-
     public String toString() {
         return super.toString() + "(bank size: " + bankSize + " bytes)";
     }
@@ -0,0 +1,246 @@
+package com.dabomstew.pkrandom.gbspace;
+
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The freed chunks of a {@link FreedSpace}, in a treap ordered by offset. Each node also knows the length of the
+ * longest chunk in its subtree, so the first chunk (by offset) of at least some length is found in O(log n), as are
+ * the neighbors of a chunk about to be freed.
+ */
+class FreedChunkTree {
+
+    static class FreedChunk {
+
+        int start, end;
+
+        private FreedChunk left, right;
+        private final int priority;
+        private int maxLength;
+
+        private FreedChunk(int start, int end, int priority) {
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+        }
+
+        int getLength() {
+            return end - start + 1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%x-%x", start, end);
+        }
+
+    }
+
+    private FreedChunk root;
+    private int size;
+    private int lengthSum;
+    // xorshift state for the treap priorities; the shape of the tree never affects which chunk is found
+    private int seed = 0x2545F491;
+
+    int size() {
+        return size;
+    }
+
+    int getLengthSum() {
+        return lengthSum;
+    }
+
+    int getMaxLength() {
+        return root == null ? 0 : root.maxLength;
+    }
+
+    /**
+     * Returns the chunk with the greatest start below the given offset, or null if there is none.
+     */
+    FreedChunk lower(int offset) {
+        FreedChunk found = null;
+        FreedChunk node = root;
+        while (node != null) {
+            if (node.start < offset) {
+                found = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the chunk with the least start at or above the given offset, or null if there is none.
+     */
+    FreedChunk ceiling(int offset) {
+        FreedChunk found = null;
+        FreedChunk node = root;
+        while (node != null) {
+            if (node.start >= offset) {
+                found = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the chunk with the lowest start which is at least the given length, or null if there is none.
+     */
+    FreedChunk firstFit(int length) {
+        FreedChunk node = root;
+        if (node == null || node.maxLength < length) {
+            return null;
+        }
+        while (true) {
+            if (node.left != null && node.left.maxLength >= length) {
+                node = node.left;
+            } else if (node.getLength() >= length) {
+                return node;
+            } else {
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Adds a chunk, which must not overlap any chunk already in the tree.
+     */
+    void add(int start, int end) {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        FreedChunk chunk = new FreedChunk(start, end, seed);
+        update(chunk);
+        FreedChunk[] split = split(root, start);
+        root = merge(merge(split[0], chunk), split[1]);
+        size++;
+        lengthSum += chunk.getLength();
+    }
+
+    /**
+     * Removes a chunk, which must be in the tree.
+     */
+    void remove(FreedChunk chunk) {
+        root = remove(root, chunk);
+        size--;
+        lengthSum -= chunk.getLength();
+    }
+
+    /**
+     * Changes the start and end of a chunk in the tree. It must not come to overlap any other chunk.
+     */
+    void resize(FreedChunk chunk, int start, int end) {
+        remove(chunk);
+        if (start <= end) {
+            add(start, end);
+        }
+    }
+
+    List<FreedChunk> toList() {
+        List<FreedChunk> chunks = new ArrayList<>(size);
+        addInOrder(root, chunks);
+        return chunks;
+    }
+
+    private static void addInOrder(FreedChunk node, List<FreedChunk> chunks) {
+        while (node != null) {
+            addInOrder(node.left, chunks);
+            chunks.add(node);
+            node = node.right;
+        }
+    }
+
+    private static FreedChunk remove(FreedChunk node, FreedChunk chunk) {
+        if (node == chunk) {
+            return merge(node.left, node.right);
+        }
+        if (chunk.start < node.start) {
+            node.left = remove(node.left, chunk);
+        } else {
+            node.right = remove(node.right, chunk);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * Splits into the chunks starting below the offset, and those starting at or above it.
+     */
+    private static FreedChunk[] split(FreedChunk node, int offset) {
+        if (node == null) {
+            return new FreedChunk[2];
+        }
+        FreedChunk[] split;
+        if (node.start < offset) {
+            split = split(node.right, offset);
+            node.right = split[0];
+            split[0] = node;
+        } else {
+            split = split(node.left, offset);
+            node.left = split[1];
+            split[1] = node;
+        }
+        update(node);
+        return split;
+    }
+
+    /**
+     * Merges two treaps, where all chunks in the first start below all chunks in the second.
+     */
+    private static FreedChunk merge(FreedChunk first, FreedChunk second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        } else {
+            second.left = merge(first, second.left);
+            update(second);
+            return second;
+        }
+    }
+
+    private static void update(FreedChunk node) {
+        int maxLength = node.getLength();
+        if (node.left != null) {
+            maxLength = Math.max(maxLength, node.left.maxLength);
+        }
+        if (node.right != null) {
+            maxLength = Math.max(maxLength, node.right.maxLength);
+        }
+        node.maxLength = maxLength;
+    }
+
+}
@@ -22,12 +22,18 @@ package com.dabomstew.pkrandom.gbspace;
 /*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
 /*----------------------------------------------------------------------------*/
 
-import java.util.LinkedList;
-import java.util.ListIterator;
+import com.dabomstew.pkrandom.gbspace.FreedChunkTree.FreedChunk;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents/handles all the manually freed bytes in a ROM. If bytes are manually freed (using free())
  * we know they should be available for writing at a later time, at which point we can findAndUnfree() them.
+ * <br><br>
+ * Freed chunks are kept in {@link FreedChunkTree}s, so freeing (and merging with neighbors) and finding the first
+ * chunk large enough both take O(log n), even with the thousands of small chunks repointing text and movesets
+ * can give.
  **/
 public class FreedSpace {
 
@@ -35,27 +41,13 @@ public class FreedSpace {
             "This is a safety measure to prevent bad usage of free()." +
             "\n%s overlaps with existing freed chunk %s";
 
-    protected static class FreedChunk {
-
-        public int start, end;
-
-        public FreedChunk(int offset, int end) {
-            this.start = offset;
-            this.end = end;
-        }
-
-        public int getLength() {
-            return end - start + 1;
-        }
-
-        @Override
-        public String toString() {
-            return String.format("%x-%x", start, end);
-        }
-
-    }
+    private final FreedChunkTree freedChunks = new FreedChunkTree();
 
-    protected final LinkedList<FreedChunk> freedChunks = new LinkedList<>();
+    private int frees;
+    private long bytesFreed;
+    private int allocations;
+    private long bytesAllocated;
+    private int failedAllocations;
 
     public void free(int start, int length) {
         if (length < 1) {
@@ -63,103 +55,130 @@ public class FreedSpace {
         }
 
         int end = start + length - 1;
-        FreedChunk toFree = new FreedChunk(start, end);
-
-        boolean freedChunkAdded = false;
-        ListIterator<FreedChunk> iterator = freedChunks.listIterator();
-        while (iterator.hasNext() && !freedChunkAdded) {
-            FreedChunk neighbor = iterator.next();
-
-            if (toFree.start < neighbor.start) {
-                addChunkBeforeOrMergeWithRightNeighbor(toFree, neighbor, iterator);
-                freedChunkAdded = true;
-
-            } else if (neighbor.end == toFree.start - 1) {
-                mergeChunkWithLeftOrBothNeighbors(toFree, neighbor, iterator);
-                freedChunkAdded = true;
-
-            } else if (neighbor.end >= toFree.start) {
-                throw new RuntimeException(String.format(ALREADY_FREED_EXCEPTION_MESSAGE, toFree, neighbor));
-            }
+        FreedChunkTree chunks = getChunksAt(start);
+        FreedChunk leftNeighbor = chunks.lower(start);
+        FreedChunk rightNeighbor = chunks.ceiling(start);
+        if (leftNeighbor != null && leftNeighbor.end >= start) {
+            throw new RuntimeException(String.format(ALREADY_FREED_EXCEPTION_MESSAGE,
+                    String.format("%x-%x", start, end), leftNeighbor));
         }
-
-        if (!freedChunkAdded) {
-            freedChunks.add(toFree);
+        if (rightNeighbor != null && rightNeighbor.start <= end) {
+            throw new RuntimeException(String.format(ALREADY_FREED_EXCEPTION_MESSAGE,
+                    String.format("%x-%x", start, end), rightNeighbor));
         }
-    }
 
-    protected final void addChunkBeforeOrMergeWithRightNeighbor(FreedChunk toFree, FreedChunk rightNeighbor,
-                                                                ListIterator<FreedChunk> iterator) {
-        if (toFree.end >= rightNeighbor.start) {
-            throw new RuntimeException(String.format(ALREADY_FREED_EXCEPTION_MESSAGE, toFree, rightNeighbor));
+        if (rightNeighbor != null && rightNeighbor.start == end + 1) {
+            end = rightNeighbor.end;
+            chunks.remove(rightNeighbor);
         }
-
-        if (toFree.end == rightNeighbor.start - 1) {
-            rightNeighbor.start = toFree.start;
+        if (leftNeighbor != null && leftNeighbor.end == start - 1) {
+            chunks.resize(leftNeighbor, leftNeighbor.start, end);
         } else {
-            iterator.previous();
-            iterator.add(toFree);
+            chunks.add(start, end);
         }
+        frees++;
+        bytesFreed += length;
     }
 
-    protected final void mergeChunkWithLeftOrBothNeighbors(FreedChunk toFree, FreedChunk leftNeighbor,
-                                                           ListIterator<FreedChunk> iterator) {
-        if (iterator.hasNext()) {
-            FreedChunk rightNeighbor = iterator.next();
-
-            if (toFree.end >= rightNeighbor.start) {
-                throw new RuntimeException(String.format(ALREADY_FREED_EXCEPTION_MESSAGE, toFree, rightNeighbor));
-            } else if (toFree.end == rightNeighbor.start - 1) {
-                leftNeighbor.end = rightNeighbor.end;
-                iterator.remove();
-            } else {
-                leftNeighbor.end = toFree.end;
-            }
-            iterator.previous();
+    /**
+     * Returns the tree holding the freed chunks around the given offset. Chunks are only merged within one tree.
+     */
+    protected FreedChunkTree getChunksAt(int offset) {
+        return freedChunks;
+    }
 
-        } else {
-            leftNeighbor.end = toFree.end;
-        }
+    /**
+     * Returns all trees of freed chunks, ordered by offset.
+     */
+    protected List<FreedChunkTree> getAllChunks() {
+        return List.of(freedChunks);
     }
 
+    /**
+     * Finds the first freed chunk (by offset) of at least the given length, and unfrees its start.
+     * @return The offset of the unfreed bytes, or -1 if there is no chunk long enough.
+     */
     public int findAndUnfree(int length) {
-        FreedChunk found = find(length);
+        return countAllocation(unfreeFirstFit(freedChunks, length), length);
+    }
+
+    /**
+     * Like {@link #findAndUnfree(int)} within a single tree, but without counting the allocation.
+     */
+    protected final int unfreeFirstFit(FreedChunkTree chunks, int length) {
+        FreedChunk found = chunks.firstFit(length);
         if (found == null) {
             return -1;
         }
         int offset = found.start;
-        unfree(found, length);
+        // System.out.println("unfreeing " + length + " bytes starting from 0x" + Integer.toHexString(offset));
+        chunks.resize(found, offset + length, found.end);
         return offset;
     }
 
-    protected final FreedChunk find(int length) {
-        for (FreedChunk fc : freedChunks) {
-            if (fc.getLength() >= length) {
-                return fc;
-            }
-        }
-        return null;
-    }
-
-    protected final void unfree(FreedChunk toUnfree, int length) {
-        // System.out.println("unfreeing " + length + " bytes starting from 0x" + Integer.toHexString(toUnfree.start));
-        toUnfree.start += length;
-        if (toUnfree.start > toUnfree.end) {
-            freedChunks.remove(toUnfree);
+    /**
+     * Counts an allocation for the statistics, then returns its offset.
+     */
+    protected final int countAllocation(int offset, int length) {
+        if (offset == -1) {
+            failedAllocations++;
+        } else {
+            allocations++;
+            bytesAllocated += length;
         }
+        return offset;
     }
 
     public int getLengthSum() {
         int sum = 0;
-        for (FreedChunk fs : freedChunks) {
-            sum += fs.getLength();
+        for (FreedChunkTree chunks : getAllChunks()) {
+            sum += chunks.getLengthSum();
         }
         return sum;
     }
 
+    public int getChunkCount() {
+        int count = 0;
+        for (FreedChunkTree chunks : getAllChunks()) {
+            count += chunks.size();
+        }
+        return count;
+    }
+
+    public int getLargestChunkLength() {
+        int largest = 0;
+        for (FreedChunkTree chunks : getAllChunks()) {
+            largest = Math.max(largest, chunks.getMaxLength());
+        }
+        return largest;
+    }
+
+    /**
+     * Returns how fragmented the freed space is, from 0 (one chunk, or none) towards 1 (many tiny chunks);
+     * the share of freed bytes outside the largest chunk.
+     */
+    public double getFragmentation() {
+        int sum = getLengthSum();
+        return sum == 0 ? 0 : 1 - (double) getLargestChunkLength() / sum;
+    }
+
+    /**
+     * Returns a one-line summary of the frees/allocations so far and the space left, for the log.
+     */
+    public String getStatistics() {
+        return String.format("%d frees (%d bytes), %d allocations (%d bytes), %d failed allocations; " +
+                        "%d bytes left in %d chunks, largest %d bytes, fragmentation %.1f%%",
+                frees, bytesFreed, allocations, bytesAllocated, failedAllocations,
+                getLengthSum(), getChunkCount(), getLargestChunkLength(), getFragmentation() * 100);
+    }
+
     @Override
     public String toString() {
-		return getLengthSum() + " bytes, " + freedChunks.size() + " chunks, " + freedChunks;
+        List<FreedChunk> chunks = new ArrayList<>();
+        for (FreedChunkTree tree : getAllChunks()) {
+            chunks.addAll(tree.toList());
+        }
+		return getLengthSum() + " bytes, " + chunks.size() + " chunks, " + chunks;
 	}
 
 }
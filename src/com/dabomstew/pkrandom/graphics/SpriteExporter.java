@@ -0,0 +1,181 @@
+package com.dabomstew.pkrandom.graphics;
+
+import com.dabomstew.pkrandom.JsonFunctions;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Writes out many images, e.g. all Pokemon sprites of a ROM, decoding and PNG-encoding them on several threads.
+ * <br>
+ * The images are given as {@link Supplier}s, so each is only decoded when a thread gets to it. Tasks wait in a
+ * bounded queue; when it is full, the submitting thread runs the next task itself, so only about
+ * threads + queue capacity images are being worked on at any time.
+ * <br>
+ * Images can either be written as one PNG file each, or packed into a single atlas PNG, with a JSON index giving
+ * where each image is:
+ * <pre>
+ * {"image":"gen1_atlas.png","width":448,"height":336,"sprites":[
+ * {"name":"001_d","x":0,"y":0,"width":112,"height":112},
+ * ...
+ * ]}
+ * </pre>
+ * Suppliers that give null (e.g. images that could not be read) are left out.
+ * <br><br>
+ * To export the Pokemon images of a loaded ROM, e.g. for a spoiler site, pass it
+ * {@link com.dabomstew.pkrandom.romhandlers.RomHandler#getAllPokemonImageSuppliers()}.
+ */
+public class SpriteExporter {
+
+    private final int threads;
+    private final int queueCapacity;
+
+    public SpriteExporter() {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public SpriteExporter(int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("threads and queueCapacity must be positive");
+        }
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Writes each image to its own PNG file in dir, named by names.apply(index) + ".png".
+     */
+    public void writeFiles(List<? extends Supplier<BufferedImage>> images, IntFunction<String> names, File dir)
+            throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create directory " + dir);
+        }
+        run(images.size(), i -> {
+            BufferedImage image = images.get(i).get();
+            if (image != null) {
+                ImageIO.write(image, "png", new File(dir, names.apply(i) + ".png"));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Packs all images into one PNG file, atlasFile, and writes the JSON index to indexFile.
+     * The images are laid out in rows, in order, with the rows about as wide as the atlas is tall.
+     * Since the layout depends on the sizes of all images, the decoded images are kept until the atlas is drawn.
+     */
+    public void writeAtlas(List<? extends Supplier<BufferedImage>> images, IntFunction<String> names,
+                           File atlasFile, File indexFile) throws IOException {
+        List<BufferedImage> decoded = run(images.size(), i -> images.get(i).get());
+
+        long area = 0;
+        int maxWidth = 1;
+        for (BufferedImage image : decoded) {
+            if (image != null) {
+                area += (long) image.getWidth() * image.getHeight();
+                maxWidth = Math.max(maxWidth, image.getWidth());
+            }
+        }
+        int rowWidth = Math.max(maxWidth, (int) Math.ceil(Math.sqrt(area)));
+
+        int[][] positions = new int[decoded.size()][];
+        int x = 0, y = 0, rowHeight = 0, width = 1;
+        for (int i = 0; i < decoded.size(); i++) {
+            BufferedImage image = decoded.get(i);
+            if (image == null) {
+                continue;
+            }
+            if (x + image.getWidth() > rowWidth) {
+                x = 0;
+                y += rowHeight;
+                rowHeight = 0;
+            }
+            positions[i] = new int[]{x, y, image.getWidth(), image.getHeight()};
+            x += image.getWidth();
+            rowHeight = Math.max(rowHeight, image.getHeight());
+            width = Math.max(width, x);
+        }
+        int height = Math.max(1, y + rowHeight);
+
+        BufferedImage atlas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = atlas.createGraphics();
+        try {
+            for (int i = 0; i < decoded.size(); i++) {
+                if (positions[i] != null) {
+                    g.drawImage(decoded.get(i), positions[i][0], positions[i][1], null);
+                    decoded.set(i, null);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        ImageIO.write(atlas, "png", atlasFile);
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(indexFile),
+                StandardCharsets.UTF_8))) {
+            out.write("{\"image\":" + JsonFunctions.quote(atlasFile.getName()) + ",\"width\":" + width
+                    + ",\"height\":" + height + ",\"sprites\":[\n");
+            boolean first = true;
+            for (int i = 0; i < positions.length; i++) {
+                if (positions[i] == null) {
+                    continue;
+                }
+                if (!first) {
+                    out.write(",\n");
+                }
+                first = false;
+                out.write("{\"name\":" + JsonFunctions.quote(names.apply(i)) + ",\"x\":" + positions[i][0] + ",\"y\":"
+                        + positions[i][1] + ",\"width\":" + positions[i][2] + ",\"height\":" + positions[i][3] + "}");
+            }
+            out.write("\n]}\n");
+        }
+    }
+
+    private interface Task<T> {
+        T run(int index) throws IOException;
+    }
+
+    /**
+     * Runs task for each index 0 to count-1 on the thread pool, and returns the results in order.
+     */
+    private <T> List<T> run(int count, Task<T> task) throws IOException {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            List<Future<T>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final int index = i;
+                futures.add(pool.submit(() -> task.run(index)));
+            }
+            List<T> results = new ArrayList<>(count);
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            } else if (cause instanceof RuntimeException re) {
+                throw re;
+            } else if (cause instanceof Error err) {
+                throw err;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exporting images");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+}
@@ -267,44 +267,43 @@ public class PresetLoadDialog extends JDialog {
         int returnVal = romFileChooser.showOpenDialog(this);
         if (returnVal == JFileChooser.APPROVE_OPTION) {
             final File fh = romFileChooser.getSelectedFile();
-            for (RomHandler.Factory rhf : parentGUI.checkHandlers) {
-                if (rhf.isLoadable(fh.getAbsolutePath())) {
-                    final RomHandler checkHandler = rhf.create();
-                    if (!RandomizerGUI.usedLauncher && checkHandler instanceof Abstract3DSRomHandler) {
-                        String message = bundle.getString("GUI.pleaseUseTheLauncher");
-                        Object[] messages = {message};
-                        JOptionPane.showMessageDialog(this, messages);
-                        return;
+            RomHandler.Factory rhf = parentGUI.romDetector.detect(fh.getAbsolutePath());
+            if (rhf != null) {
+                final RomHandler checkHandler = rhf.create();
+                if (!RandomizerGUI.usedLauncher && checkHandler instanceof Abstract3DSRomHandler) {
+                    String message = bundle.getString("GUI.pleaseUseTheLauncher");
+                    Object[] messages = {message};
+                    JOptionPane.showMessageDialog(this, messages);
+                    return;
+                }
+                final JDialog opDialog = new OperationDialog(bundle.getString("GUI.loadingText"), this,
+                        true);
+                Thread t = new Thread(() -> {
+                    SwingUtilities.invokeLater(() -> opDialog.setVisible(true));
+                    try {
+                        checkHandler.loadRom(fh.getAbsolutePath());
+                    } catch (Exception ex) {
+                        JOptionPane.showMessageDialog(PresetLoadDialog.this,
+                                bundle.getString("GUI.loadFailedNoLog"));
                     }
-                    final JDialog opDialog = new OperationDialog(bundle.getString("GUI.loadingText"), this,
-                            true);
-                    Thread t = new Thread(() -> {
-                        SwingUtilities.invokeLater(() -> opDialog.setVisible(true));
-                        try {
-                            checkHandler.loadRom(fh.getAbsolutePath());
-                        } catch (Exception ex) {
-                            JOptionPane.showMessageDialog(PresetLoadDialog.this,
-                                    bundle.getString("GUI.loadFailedNoLog"));
+                    SwingUtilities.invokeLater(() -> {
+                        opDialog.setVisible(false);
+                        if (checkHandler.getROMName().equals(requiredName)) {
+                            // Got it
+                            romFileField.setText(fh.getAbsolutePath());
+                            currentROM = checkHandler;
+                            acceptButton.setEnabled(true);
+                            return;
+                        } else {
+                            JOptionPane.showMessageDialog(PresetLoadDialog.this, String.format(
+                                    bundle.getString("PresetLoadDialog.notRequiredROM"), requiredName,
+                                    checkHandler.getROMName()));
+                            return;
                         }
-                        SwingUtilities.invokeLater(() -> {
-                            opDialog.setVisible(false);
-                            if (checkHandler.getROMName().equals(requiredName)) {
-                                // Got it
-                                romFileField.setText(fh.getAbsolutePath());
-                                currentROM = checkHandler;
-                                acceptButton.setEnabled(true);
-                                return;
-                            } else {
-                                JOptionPane.showMessageDialog(PresetLoadDialog.this, String.format(
-                                        bundle.getString("PresetLoadDialog.notRequiredROM"), requiredName,
-                                        checkHandler.getROMName()));
-                                return;
-                            }
-                        });
                     });
-                    t.start();
-                    return;
-                }
+                });
+                t.start();
+                return;
             }
             JOptionPane.showMessageDialog(this,
                     String.format(bundle.getString("GUI.unsupportedRom"), fh.getName()));
@@ -31,6 +31,8 @@ import com.dabomstew.pkrandom.exceptions.EncryptedROMException;
 import com.dabomstew.pkrandom.exceptions.InvalidSupplementFilesException;
 import com.dabomstew.pkrandom.exceptions.RandomizationException;
 import com.dabomstew.pkrandom.graphics.packs.*;
+import com.dabomstew.pkrandom.log.SpoilerLog;
+import com.dabomstew.pkrandom.log.TextLogSink;
 import com.dabomstew.pkrandom.pokemon.ExpCurve;
 import com.dabomstew.pkrandom.pokemon.GenRestrictions;
 import com.dabomstew.pkrandom.pokemon.Pokemon;
@@ -358,6 +360,7 @@ public class RandomizerGUI {
 
     private ResourceBundle bundle;
     protected RomHandler.Factory[] checkHandlers;
+    protected RomDetector romDetector;
     private RomHandler romHandler;
 
     private boolean presetMode = false;
@@ -401,6 +404,7 @@ public class RandomizerGUI {
         checkHandlers = new RomHandler.Factory[] { new Gen1RomHandler.Factory(), new Gen2RomHandler.Factory(),
                 new Gen3RomHandler.Factory(), new Gen4RomHandler.Factory(), new Gen5RomHandler.Factory(),
                 new Gen6RomHandler.Factory(), new Gen7RomHandler.Factory() };
+        romDetector = new RomDetector(16, checkHandlers);
 
         haveCheckedCustomNames = false;
         attemptReadConfig();
@@ -835,45 +839,44 @@ public class RandomizerGUI {
                 }
             }
 
-            for (RomHandler.Factory rhf : checkHandlers) {
-                if (rhf.isLoadable(fh.getAbsolutePath())) {
-                    this.romHandler = rhf.create();
-                    if (!usedLauncher && this.romHandler instanceof Abstract3DSRomHandler) {
-                        String message = bundle.getString("GUI.pleaseUseTheLauncher");
-                        Object[] messages = {message};
-                        JOptionPane.showMessageDialog(frame, messages);
-                        this.romHandler = null;
-                        return;
+            RomHandler.Factory rhf = romDetector.detect(fh.getAbsolutePath());
+            if (rhf != null) {
+                this.romHandler = rhf.create();
+                if (!usedLauncher && this.romHandler instanceof Abstract3DSRomHandler) {
+                    String message = bundle.getString("GUI.pleaseUseTheLauncher");
+                    Object[] messages = {message};
+                    JOptionPane.showMessageDialog(frame, messages);
+                    this.romHandler = null;
+                    return;
+                }
+                opDialog = new OperationDialog(bundle.getString("GUI.loadingText"), frame, true);
+                Thread t = new Thread(() -> {
+                    boolean romLoaded = false;
+                    SwingUtilities.invokeLater(() -> opDialog.setVisible(true));
+                    try {
+                        this.romHandler.loadRom(fh.getAbsolutePath());
+                        if (gameUpdates.containsKey(this.romHandler.getROMCode())) {
+                            this.romHandler.loadGameUpdate(gameUpdates.get(this.romHandler.getROMCode()));
+                        }
+                        romLoaded = true;
+                    } catch (EncryptedROMException ex) {
+                        JOptionPane.showMessageDialog(mainPanel,
+                                String.format(bundle.getString("GUI.encryptedRom"), fh.getAbsolutePath()));
+                    } catch (Exception ex) {
+                        attemptToLogException(ex, "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
                     }
-                    opDialog = new OperationDialog(bundle.getString("GUI.loadingText"), frame, true);
-                    Thread t = new Thread(() -> {
-                        boolean romLoaded = false;
-                        SwingUtilities.invokeLater(() -> opDialog.setVisible(true));
-                        try {
-                            this.romHandler.loadRom(fh.getAbsolutePath());
-                            if (gameUpdates.containsKey(this.romHandler.getROMCode())) {
-                                this.romHandler.loadGameUpdate(gameUpdates.get(this.romHandler.getROMCode()));
-                            }
-                            romLoaded = true;
-                        } catch (EncryptedROMException ex) {
-                            JOptionPane.showMessageDialog(mainPanel,
-                                    String.format(bundle.getString("GUI.encryptedRom"), fh.getAbsolutePath()));
-                        } catch (Exception ex) {
-                            attemptToLogException(ex, "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
+                    final boolean loadSuccess = romLoaded;
+                    SwingUtilities.invokeLater(() -> {
+                        this.opDialog.setVisible(false);
+                        this.initialState();
+                        if (loadSuccess) {
+                            this.romLoaded();
                         }
-                        final boolean loadSuccess = romLoaded;
-                        SwingUtilities.invokeLater(() -> {
-                            this.opDialog.setVisible(false);
-                            this.initialState();
-                            if (loadSuccess) {
-                                this.romLoaded();
-                            }
-                        });
                     });
-                    t.start();
+                });
+                t.start();
 
-                    return;
-                }
+                return;
             }
             JOptionPane.showMessageDialog(mainPanel,
                     String.format(bundle.getString("GUI.unsupportedRom"), fh.getName()));
@@ -1079,6 +1082,10 @@ public class RandomizerGUI {
         log = new PrintStream(baos, false, StandardCharsets.UTF_8);
 
         final PrintStream verboseLog = log;
+        // the log is never shown in race mode, so don't spend time writing it
+        final SpoilerLog spoilerLog = raceMode
+                || (batchRandomization && !batchRandomizationSettings.shouldGenerateLogFile())
+                ? SpoilerLog.discard() : new SpoilerLog(new TextLogSink(verboseLog));
 
         try {
             final AtomicInteger finishedCV = new AtomicInteger(0);
@@ -1088,7 +1095,7 @@ public class RandomizerGUI {
                 boolean succeededSave = false;
                 try {
                     finishedCV.set(new GameRandomizer(settings, romHandler, bundle, saveAsDirectory).randomize(filename,
-                            verboseLog, seed));
+                            spoilerLog, seed));
                     succeededSave = true;
                 } catch (RandomizationException ex) {
                     attemptToLogException(ex, "GUI.saveFailedMessage",
@@ -1475,34 +1482,33 @@ public class RandomizerGUI {
     // you're doing.
     private void reinitializeRomHandler(boolean batchRandomization) {
         String currentFN = this.romHandler.loadedFilename();
-        for (RomHandler.Factory rhf : checkHandlers) {
-            if (rhf.isLoadable(currentFN)) {
-                this.romHandler = rhf.create();
-                opDialog = new OperationDialog(bundle.getString("GUI.loadingText"), frame, true);
-                Thread t = new Thread(() -> {
-                    SwingUtilities.invokeLater(() -> opDialog.setVisible(!batchRandomization));
-                    try {
-                        this.romHandler.loadRom(currentFN);
-                        if (gameUpdates.containsKey(this.romHandler.getROMCode())) {
-                            this.romHandler.loadGameUpdate(gameUpdates.get(this.romHandler.getROMCode()));
-                        }
-                    } catch (Exception ex) {
-                        attemptToLogException(ex, "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
+        RomHandler.Factory rhf = romDetector.detect(currentFN);
+        if (rhf != null) {
+            this.romHandler = rhf.create();
+            opDialog = new OperationDialog(bundle.getString("GUI.loadingText"), frame, true);
+            Thread t = new Thread(() -> {
+                SwingUtilities.invokeLater(() -> opDialog.setVisible(!batchRandomization));
+                try {
+                    this.romHandler.loadRom(currentFN);
+                    if (gameUpdates.containsKey(this.romHandler.getROMCode())) {
+                        this.romHandler.loadGameUpdate(gameUpdates.get(this.romHandler.getROMCode()));
                     }
-                    SwingUtilities.invokeLater(() -> {
-                        this.opDialog.setVisible(false);
-                    });
+                } catch (Exception ex) {
+                    attemptToLogException(ex, "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
+                }
+                SwingUtilities.invokeLater(() -> {
+                    this.opDialog.setVisible(false);
                 });
-                t.start();
-                if (batchRandomization) {
-                    try {
-                        t.join();
-                    } catch(InterruptedException ex) {
-                        attemptToLogException(ex, "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
-                    }
+            });
+            t.start();
+            if (batchRandomization) {
+                try {
+                    t.join();
+                } catch(InterruptedException ex) {
+                    attemptToLogException(ex, "GUI.loadFailed", "GUI.loadFailedNoLog", null, null);
                 }
-                return;
             }
+            return;
         }
     }
 
@@ -3799,6 +3805,9 @@ public class RandomizerGUI {
                         if (key.equals("batchrandomization.startingindex")){
                             batchRandomizationSettings.setStartingIndex(Integer.parseInt(tokens[1].trim()));
                         }
+                        if (key.equals("batchrandomization.numberofthreads")){
+                            batchRandomizationSettings.setNumberOfThreads(Integer.parseInt(tokens[1].trim()));
+                        }
                         if (key.equals("batchrandomization.filenameprefix")){
                             batchRandomizationSettings.setFileNamePrefix(tokens[1].trim());
                         }
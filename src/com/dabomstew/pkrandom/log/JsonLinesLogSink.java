@@ -0,0 +1,96 @@
+package com.dabomstew.pkrandom.log;
+
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.JsonFunctions;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the log as JSON lines, one object per event, for tools that want to process logs without parsing the
+ * text layout:
+ * <pre>
+ * {"type":"section","title":"Wild Pokemon"}
+ * {"type":"line","section":"Wild Pokemon","text":"Set #1 - Route 1 (rate=25)"}
+ * </pre>
+ * Lines outside any section have no "section" key. Empty lines are only there for layout, and are left out.
+ */
+public class JsonLinesLogSink implements LogSink {
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder();
+    private String section;
+
+    public JsonLinesLogSink(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void beginSection(String title) throws IOException {
+        endLine();
+        section = title;
+        out.write("{\"type\":\"section\",\"title\":" + JsonFunctions.quote(title) + "}\n");
+    }
+
+    @Override
+    public void endSection() throws IOException {
+        endLine();
+        section = null;
+    }
+
+    @Override
+    public void write(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                endLine();
+            } else {
+                line.append(c);
+            }
+        }
+    }
+
+    private void endLine() throws IOException {
+        if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        if (!line.isEmpty()) {
+            out.write("{\"type\":\"line\"" + (section == null ? "" : ",\"section\":" + JsonFunctions.quote(section))
+                    + ",\"text\":" + JsonFunctions.quote(line.toString()) + "}\n");
+            line.setLength(0);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        endLine();
+        out.close();
+    }
+}
@@ -0,0 +1,49 @@
+package com.dabomstew.pkrandom.log;
+
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Where a {@link SpoilerLog} ends up. The log is handed over as the raw text the randomizer writes, plus markers
+ * for where each section (e.g. "Wild Pokemon") begins and ends; a sink can use the markers to add structure,
+ * or ignore them.
+ */
+public interface LogSink extends Closeable {
+
+    /**
+     * Begins a section with the given title. Any text written before the next {@link #endSection()} belongs to it.
+     */
+    void beginSection(String title) throws IOException;
+
+    void endSection() throws IOException;
+
+    /**
+     * Writes a piece of text, which may hold several lines, or only part of one.
+     */
+    void write(String text) throws IOException;
+
+    void flush() throws IOException;
+}
@@ -0,0 +1,180 @@
+package com.dabomstew.pkrandom.log;
+
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The log written while randomizing, which tells the player what was changed. Text is passed on to a
+ * {@link LogSink} as it is written, instead of being collected first, so the whole log never has to be held in
+ * memory (unless the sink itself does so).
+ * <br><br>
+ * A log from {@link #discard()} drops everything; since {@link #isEnabled()} is false for it, the code writing
+ * the log can skip building its text altogether. Like {@link PrintStream}, a SpoilerLog never throws
+ * {@link IOException}; if writing fails it stops writing, and {@link #checkError()} returns true.
+ */
+public class SpoilerLog implements Closeable {
+
+    public enum Format {
+        TEXT("log"), JSON_LINES("log.jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final SpoilerLog DISCARD = new SpoilerLog(null);
+
+    private final LogSink sink;
+    private boolean error;
+
+    public SpoilerLog(LogSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Returns a log which drops everything written to it.
+     */
+    public static SpoilerLog discard() {
+        return DISCARD;
+    }
+
+    /**
+     * Opens a log file next to the given output ROM, named "[filename].log" (or ".log.jsonl"), with ".gz" added
+     * if compressed. Text logs start with a UTF-8 BOM, so Windows editors read them correctly.
+     */
+    public static SpoilerLog toFile(String filename, Format format, boolean compressed) throws IOException {
+        String logFilename = getFilename(filename, format, compressed);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(logFilename));
+        if (compressed) {
+            out = new GZIPOutputStream(out);
+        }
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        if (format == Format.TEXT) {
+            writer.write('\uFEFF');
+            return new SpoilerLog(new TextLogSink(writer));
+        } else {
+            return new SpoilerLog(new JsonLinesLogSink(writer));
+        }
+    }
+
+    public static String getFilename(String filename, Format format, boolean compressed) {
+        return filename + "." + format.getExtension() + (compressed ? ".gz" : "");
+    }
+
+    public boolean isEnabled() {
+        return sink != null;
+    }
+
+    /**
+     * Begins a section with the given title; in a text log, this is the "--Title--" line.
+     */
+    public void beginSection(String title) {
+        if (isEnabled() && !error) {
+            try {
+                sink.beginSection(title);
+            } catch (IOException e) {
+                error = true;
+            }
+        }
+    }
+
+    public void endSection() {
+        if (isEnabled() && !error) {
+            try {
+                sink.endSection();
+            } catch (IOException e) {
+                error = true;
+            }
+        }
+    }
+
+    public void print(Object o) {
+        if (isEnabled()) {
+            write(String.valueOf(o));
+        }
+    }
+
+    public void println() {
+        write(System.lineSeparator());
+    }
+
+    public void println(Object o) {
+        if (isEnabled()) {
+            write(o + System.lineSeparator());
+        }
+    }
+
+    public void printf(String format, Object... args) {
+        if (isEnabled()) {
+            write(String.format(format, args));
+        }
+    }
+
+    private void write(String text) {
+        if (isEnabled() && !error) {
+            try {
+                sink.write(text);
+            } catch (IOException e) {
+                error = true;
+            }
+        }
+    }
+
+    public void flush() {
+        if (isEnabled() && !error) {
+            try {
+                sink.flush();
+            } catch (IOException e) {
+                error = true;
+            }
+        }
+    }
+
+    /**
+     * Returns true if writing to the sink has failed at some point, after which nothing more is written.
+     */
+    public boolean checkError() {
+        return error;
+    }
+
+    @Override
+    public void close() {
+        if (isEnabled()) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                error = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.dabomstew.pkrandom.log;
+
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes the log as plain text, in the same format the randomizer has always used: each section starts with a
+ * "--Title--" line, and all text is passed on as is.
+ */
+public class TextLogSink implements LogSink {
+
+    private final Appendable out;
+
+    public TextLogSink(Appendable out) {
+        this.out = out;
+    }
+
+    @Override
+    public void beginSection(String title) throws IOException {
+        out.append("--").append(title).append("--").append(System.lineSeparator());
+    }
+
+    @Override
+    public void endSection() {
+    }
+
+    @Override
+    public void write(String text) throws IOException {
+        out.append(text);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out instanceof Flushable flushable) {
+            flushable.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.dabomstew.pkrandom.newnds;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The NARCs of an {@link NDSRom}, each parsed once and handed out as a shared instance, so changes made to one
+ * are seen by later reads of the same path. NARCs given to {@link #writeNARC(String, NARCArchive)} are "dirty",
+ * and are only turned back into bytes when their file is read as raw bytes, or when the cache is flushed before
+ * saving the ROM.
+ */
+public class NARCCache {
+
+    private final NDSRom rom;
+    private final Map<String, NARCArchive> narcs = new HashMap<>();
+    private final Set<String> dirty = new LinkedHashSet<>();
+
+    public NARCCache(NDSRom rom) {
+        this.rom = rom;
+    }
+
+    /**
+     * Returns the NARC at the given path. The same instance is returned until the file is overwritten with
+     * {@link #writeFile(String, byte[])}.
+     */
+    public NARCArchive getNARC(String subpath) throws IOException {
+        NARCArchive narc = narcs.get(subpath);
+        if (narc == null) {
+            narc = new NARCArchive(rom.getFile(subpath));
+            narcs.put(subpath, narc);
+        }
+        return narc;
+    }
+
+    /**
+     * Marks the NARC as changed, so writing the same NARC several times is cheap.
+     */
+    public void writeNARC(String subpath, NARCArchive narc) {
+        narcs.put(subpath, narc);
+        dirty.add(subpath);
+    }
+
+    /**
+     * Returns the raw bytes of the file, turning its NARC back into bytes first if it is dirty.
+     */
+    public byte[] getFile(String subpath) throws IOException {
+        flush(subpath);
+        return rom.getFile(subpath);
+    }
+
+    /**
+     * Overwrites the file, dropping its cached NARC along with any unsaved changes to it.
+     */
+    public void writeFile(String subpath, byte[] data) throws IOException {
+        narcs.remove(subpath);
+        dirty.remove(subpath);
+        rom.writeFile(subpath, data);
+    }
+
+    /**
+     * Turns all dirty NARCs back into bytes, so the ROM can be saved.
+     */
+    public void flush() throws IOException {
+        for (String subpath : new ArrayList<>(dirty)) {
+            flush(subpath);
+        }
+    }
+
+    private void flush(String subpath) throws IOException {
+        if (dirty.remove(subpath)) {
+            rom.writeFile(subpath, narcs.get(subpath).getBytes());
+        }
+    }
+
+}
@@ -3,7 +3,7 @@ package com.dabomstew.pkrandom.newnds;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 import com.dabomstew.pkrandom.FileFunctions;
 
@@ -44,33 +44,14 @@ public class NDSFile {
     }
 
     public byte[] getContents() throws IOException {
-        if (this.status == Extracted.NOT) {
-            // extract file
-            parent.reopenROM();
-            RandomAccessFile rom = parent.getBaseRom();
-            byte[] buf = new byte[this.size];
-            rom.seek(this.offset);
-            rom.readFully(buf);
-            originalCRC = FileFunctions.getCRC32(buf);
-            if (parent.isWritingEnabled()) {
-                // make a file
-                String tmpDir = parent.getTmpFolder();
-                this.extFilename = fullPath.replaceAll("[^A-Za-z0-9_]+", "");
-                File tmpFile = new File(tmpDir + extFilename);
-                FileOutputStream fos = new FileOutputStream(tmpFile);
-                fos.write(buf);
-                fos.close();
-                tmpFile.deleteOnExit();
-                this.status = Extracted.TO_FILE;
-                this.data = null;
-                return buf;
-            } else {
-                this.status = Extracted.TO_RAM;
-                this.data = buf;
-                byte[] newcopy = new byte[buf.length];
-                System.arraycopy(buf, 0, newcopy, 0, buf.length);
-                return newcopy;
+        if (this.status == Extracted.NOT || this.status == Extracted.ORIGINAL) {
+            // unchanged files are read straight from the (memory-mapped) ROM every time
+            byte[] buf = parent.readOriginal(this.offset, this.size);
+            if (this.status == Extracted.NOT) {
+                originalCRC = FileFunctions.getCRC32(buf);
+                this.status = Extracted.ORIGINAL;
             }
+            return buf;
         } else if (this.status == Extracted.TO_RAM) {
             byte[] newcopy = new byte[this.data.length];
             System.arraycopy(this.data, 0, newcopy, 0, this.data.length);
@@ -81,39 +62,59 @@ public class NDSFile {
         }
     }
 
+    /**
+     * Returns a read-only view of the contents. Unlike {@link #getContents()}, this does not copy them
+     * if the file is unchanged.
+     */
+    public ByteBuffer getContentsBuffer() throws IOException {
+        if (this.status == Extracted.NOT) {
+            getContents();
+        }
+        if (this.status == Extracted.ORIGINAL) {
+            return parent.readOriginalBuffer(this.offset, this.size);
+        }
+        return ByteBuffer.wrap(getContents()).asReadOnlyBuffer();
+    }
+
     public void writeOverride(byte[] data) throws IOException {
         if (status == Extracted.NOT) {
-            // temp extract
+            // read the original, for its CRC
             getContents();
         }
-        if (status == Extracted.TO_FILE) {
+        if (parent.isWritingEnabled()) {
             String tmpDir = parent.getTmpFolder();
-            FileOutputStream fos = new FileOutputStream(new File(tmpDir + this.extFilename));
+            this.extFilename = fullPath.replaceAll("[^A-Za-z0-9_]+", "");
+            File tmpFile = new File(tmpDir + this.extFilename);
+            FileOutputStream fos = new FileOutputStream(tmpFile);
             fos.write(data);
             fos.close();
+            if (status != Extracted.TO_FILE) {
+                tmpFile.deleteOnExit();
+                this.status = Extracted.TO_FILE;
+            }
         } else {
-            if (this.data.length == data.length) {
+            if (status == Extracted.TO_RAM && this.data.length == data.length) {
                 // copy new in
                 System.arraycopy(data, 0, this.data, 0, data.length);
             } else {
                 // make new array
-                this.data = null;
                 this.data = new byte[data.length];
                 System.arraycopy(data, 0, this.data, 0, data.length);
+                this.status = Extracted.TO_RAM;
             }
         }
     }
 
     // returns null if no override
     public byte[] getOverrideContents() throws IOException {
-        if (status == Extracted.NOT) {
+        if (status == Extracted.NOT || status == Extracted.ORIGINAL) {
             return null;
         }
         return getContents();
     }
 
     private enum Extracted {
-        NOT, TO_FILE, TO_RAM
+        NOT, ORIGINAL, TO_FILE, TO_RAM
     }
 
 }
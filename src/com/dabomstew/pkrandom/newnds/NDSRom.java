@@ -1,6 +1,8 @@
 package com.dabomstew.pkrandom.newnds;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -46,6 +48,7 @@ public class NDSRom {
     private Map<Integer, NDSY9Entry> arm9overlaysByFileID;
     private NDSY9Entry[] arm9overlays;
     private byte[] fat;
+    private byte[] arm9_ovl_table;
     private String tmpFolder;
     private boolean writingEnabled;
     private boolean arm9_open, arm9_changed, arm9_has_footer;
@@ -55,6 +58,10 @@ public class NDSRom {
     private byte[] arm9_footer;
     private byte[] arm9_ramstored;
     private long originalArm9CRC;
+    // the whole ROM file, mapped read-only. Copies share the mapping, so they share the OS's page cache of it.
+    // The mapping keeps the file locked on Windows, which is fine since a DS ROM is never saved over the file it
+    // was loaded from (see GUI.cantOverwriteDS)
+    private final ByteBuffer romImage;
 
     private static final int arm9_align = 0x1FF, arm7_align = 0x1FF;
     private static final int fnt_align = 0x1FF, fat_align = 0x1FF;
@@ -64,6 +71,7 @@ public class NDSRom {
         this.romFilename = filename;
         this.baseRom = new RandomAccessFile(filename, "r");
         this.romOpen = true;
+        this.romImage = baseRom.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, baseRom.length());
         // TMP folder?
         String rawFilename = new File(filename).getName();
         String dataFolder = "tmp_" + rawFilename.substring(0, rawFilename.lastIndexOf('.'));
@@ -84,6 +92,67 @@ public class NDSRom {
         arm9_ramstored = null;
     }
 
+    /**
+     * Creates a copy of the given NDSRom as it was when first opened, i.e. without any of its changes.
+     * The file system tables are taken from the template instead of being read again, and the memory-mapped
+     * ROM file is shared between all copies of the same template. Copies keep their changes in RAM, since they
+     * would otherwise share a tmp folder.
+     */
+    public NDSRom(NDSRom template) {
+        this.romFilename = template.romFilename;
+        this.romOpen = false;
+        this.romCode = template.romCode;
+        this.version = template.version;
+        this.arm9_ramoffset = template.arm9_ramoffset;
+        this.fat = template.fat; // never written to
+        this.writingEnabled = false;
+        this.romImage = template.romImage.duplicate();
+
+        files = new HashMap<>();
+        filesByID = new HashMap<>();
+        for (NDSFile templateFile : template.filesByID.values()) {
+            NDSFile nf = new NDSFile(this);
+            nf.offset = templateFile.offset;
+            nf.size = templateFile.size;
+            nf.fullPath = templateFile.fullPath;
+            nf.fileID = templateFile.fileID;
+            files.put(nf.fullPath, nf);
+            filesByID.put(nf.fileID, nf);
+        }
+
+        this.arm9_ovl_table = template.arm9_ovl_table;
+        parseOverlays();
+        arm9_open = false;
+        arm9_changed = false;
+        arm9_ramstored = null;
+    }
+
+    /**
+     * Reads unmodified data from the memory-mapped ROM file.
+     * The returned array is always a fresh one, which the caller may modify.
+     */
+    byte[] readOriginal(int offset, int size) throws IOException {
+        checkOriginalBounds(offset, size);
+        byte[] buf = new byte[size];
+        romImage.get(offset, buf);
+        return buf;
+    }
+
+    /**
+     * Returns a read-only view of unmodified data in the memory-mapped ROM file, without copying it.
+     */
+    ByteBuffer readOriginalBuffer(int offset, int size) throws IOException {
+        checkOriginalBounds(offset, size);
+        return romImage.slice(offset, size);
+    }
+
+    private void checkOriginalBounds(int offset, int size) throws EOFException {
+        if (offset < 0 || size < 0 || (long) offset + size > romImage.limit()) {
+            throw new EOFException(String.format("Cannot read 0x%X bytes at 0x%X, past the end of the ROM.",
+                    size, offset));
+        }
+    }
+
     public void reopenROM() throws IOException {
         if (!this.romOpen) {
             this.baseRom = new RandomAccessFile(this.romFilename, "r");
@@ -197,17 +266,19 @@ public class NDSRom {
         // arm9 overlays
         int arm9_ovl_table_offset = readFromFile(baseRom, 0x50, 4);
         int arm9_ovl_table_size = readFromFile(baseRom, 0x54, 4);
-        int arm9_ovl_count = arm9_ovl_table_size / 32;
-        byte[] y9table = new byte[arm9_ovl_table_size];
-        arm9overlays = new NDSY9Entry[arm9_ovl_count];
-        arm9overlaysByFileID = new HashMap<>();
+        arm9_ovl_table = new byte[arm9_ovl_table_size];
         baseRom.seek(arm9_ovl_table_offset);
-        baseRom.readFully(y9table);
+        baseRom.readFully(arm9_ovl_table);
+        parseOverlays();
+    }
 
-        // parse overlays
+    private void parseOverlays() {
+        int arm9_ovl_count = arm9_ovl_table.length / 32;
+        arm9overlays = new NDSY9Entry[arm9_ovl_count];
+        arm9overlaysByFileID = new HashMap<>();
         for (int i = 0; i < arm9_ovl_count; i++) {
             NDSY9Entry overlay = new NDSY9Entry(this);
-            int fileID = readFromByteArr(y9table, i * 32 + 24, 4);
+            int fileID = readFromByteArr(arm9_ovl_table, i * 32 + 24, 4);
             int start = readFromByteArr(fat, fileID * 8, 4);
             int end = readFromByteArr(fat, fileID * 8 + 4, 4);
             overlay.offset = start;
@@ -215,13 +286,13 @@ public class NDSRom {
             overlay.original_size = end - start;
             overlay.fileID = fileID;
             overlay.overlay_id = i;
-            overlay.ram_address = readFromByteArr(y9table, i * 32 + 4, 4);
-            overlay.ram_size = readFromByteArr(y9table, i * 32 + 8, 4);
-            overlay.bss_size = readFromByteArr(y9table, i * 32 + 12, 4);
-            overlay.static_start = readFromByteArr(y9table, i * 32 + 16, 4);
-            overlay.static_end = readFromByteArr(y9table, i * 32 + 20, 4);
-            overlay.compressed_size = readFromByteArr(y9table, i * 32 + 28, 3);
-            overlay.compress_flag = y9table[i * 32 + 31] & 0xFF;
+            overlay.ram_address = readFromByteArr(arm9_ovl_table, i * 32 + 4, 4);
+            overlay.ram_size = readFromByteArr(arm9_ovl_table, i * 32 + 8, 4);
+            overlay.bss_size = readFromByteArr(arm9_ovl_table, i * 32 + 12, 4);
+            overlay.static_start = readFromByteArr(arm9_ovl_table, i * 32 + 16, 4);
+            overlay.static_end = readFromByteArr(arm9_ovl_table, i * 32 + 20, 4);
+            overlay.compressed_size = readFromByteArr(arm9_ovl_table, i * 32 + 28, 3);
+            overlay.compress_flag = arm9_ovl_table[i * 32 + 31] & 0xFF;
             arm9overlays[i] = overlay;
             arm9overlaysByFileID.put(fileID, overlay);
         }
@@ -234,8 +305,7 @@ public class NDSRom {
         RandomAccessFile fNew = new RandomAccessFile(filename, "rw");
 
         int headersize = readFromFile(this.baseRom, 0x84, 4);
-        this.baseRom.seek(0);
-        copy(this.baseRom, fNew, headersize);
+        copy(0, fNew, headersize);
 
         // arm9
         int arm9_offset = ((int) (fNew.getFilePointer() + arm9_align)) & (~arm9_align);
@@ -262,9 +332,8 @@ public class NDSRom {
 
         } else {
             // copy arm9+footer
-            this.baseRom.seek(old_arm9_offset);
             fNew.seek(arm9_offset);
-            copy(this.baseRom, fNew, arm9_size + 12);
+            copy(old_arm9_offset, fNew, arm9_size + 12);
         }
 
         // arm9 ovl
@@ -278,9 +347,8 @@ public class NDSRom {
         int old_arm7_offset = readFromFile(this.baseRom, 0x30, 4);
         int arm7_size = readFromFile(this.baseRom, 0x3C, 4);
         // copy arm7
-        this.baseRom.seek(old_arm7_offset);
         fNew.seek(arm7_offset);
-        copy(this.baseRom, fNew, arm7_size);
+        copy(old_arm7_offset, fNew, arm7_size);
 
         // arm7 ovl
         int arm7_ovl_offset = (int) fNew.getFilePointer();
@@ -288,27 +356,24 @@ public class NDSRom {
         int arm7_ovl_size = readFromFile(this.baseRom, 0x5C, 4);
 
         // copy arm7 ovl
-        this.baseRom.seek(old_arm7_ovl_offset);
         fNew.seek(arm7_ovl_offset);
-        copy(this.baseRom, fNew, arm7_ovl_size);
+        copy(old_arm7_ovl_offset, fNew, arm7_ovl_size);
 
         // banner
         int banner_offset = ((int) (fNew.getFilePointer() + banner_align)) & (~banner_align);
         int old_banner_offset = readFromFile(this.baseRom, 0x68, 4);
         int banner_size = 0x840;
         // copy banner
-        this.baseRom.seek(old_banner_offset);
         fNew.seek(banner_offset);
-        copy(this.baseRom, fNew, banner_size);
+        copy(old_banner_offset, fNew, banner_size);
 
         // filename table (doesn't change)
         int fnt_offset = ((int) (fNew.getFilePointer() + fnt_align)) & (~fnt_align);
         int old_fnt_offset = readFromFile(this.baseRom, 0x40, 4);
         int fnt_size = readFromFile(this.baseRom, 0x44, 4);
         // copy fnt
-        this.baseRom.seek(old_fnt_offset);
         fNew.seek(fnt_offset);
-        copy(this.baseRom, fNew, fnt_size);
+        copy(old_fnt_offset, fNew, fnt_size);
 
         // make space for the FAT table
         int fat_offset = ((int) (fNew.getFilePointer() + fat_align)) & (~fat_align);
@@ -362,9 +427,8 @@ public class NDSRom {
                 int file_starts = readFromByteArr(fat, fid * 8, 4);
                 int file_ends = readFromByteArr(fat, fid * 8 + 4, 4);
                 file_len = file_ends - file_starts;
-                this.baseRom.seek(file_starts);
                 fNew.seek(offset_of_file);
-                copy(this.baseRom, fNew, file_len);
+                copy(file_starts, fNew, file_len);
             }
             // write to new FAT
             writeToByteArr(newfat, fid * 8, 4, offset_of_file);
@@ -434,14 +498,19 @@ public class NDSRom {
         closeROM();
     }
 
-    private void copy(RandomAccessFile from, RandomAccessFile to, int bytes) throws IOException {
-        int sizeof_copybuf = Math.min(256 * 1024, bytes);
-        byte[] copybuf = new byte[sizeof_copybuf];
+    // copies from the base ROM to the current position of "to", letting the OS do the copying where it can
+    private void copy(int fromOffset, RandomAccessFile to, int bytes) throws IOException {
+        FileChannel from = this.baseRom.getChannel();
+        FileChannel toChannel = to.getChannel();
+        long position = fromOffset;
         while (bytes > 0) {
-            int size2 = (bytes >= sizeof_copybuf) ? sizeof_copybuf : bytes;
-            int read = from.read(copybuf, 0, size2);
-            to.write(copybuf, 0, read);
-            bytes -= read;
+            long transferred = from.transferTo(position, bytes, toChannel);
+            if (transferred <= 0) {
+                throw new EOFException(String.format("Cannot copy 0x%X bytes at 0x%X, past the end of the ROM.",
+                        bytes, position));
+            }
+            position += transferred;
+            bytes -= (int) transferred;
         }
     }
 
@@ -463,6 +532,18 @@ public class NDSRom {
         }
     }
 
+    /**
+     * Returns a read-only view of the file's contents, or null if it doesn't exist. Unlike {@link #getFile(String)},
+     * this does not copy the contents if the file is unchanged.
+     */
+    public ByteBuffer getFileBuffer(String filename) throws IOException {
+        if (files.containsKey(filename)) {
+            return files.get(filename).getContentsBuffer();
+        } else {
+            return null;
+        }
+    }
+
     public byte[] getOverlay(int number) throws IOException {
         if (number >= 0 && number < arm9overlays.length) {
             return arm9overlays[number].getContents();
@@ -482,20 +563,17 @@ public class NDSRom {
     public byte[] getARM9() throws IOException {
         if (!arm9_open) {
             arm9_open = true;
-            this.reopenROM();
-            int arm9_offset = readFromFile(this.baseRom, 0x20, 4);
-            int arm9_size = readFromFile(this.baseRom, 0x2C, 4);
-            byte[] arm9 = new byte[arm9_size];
-            this.baseRom.seek(arm9_offset);
-            this.baseRom.readFully(arm9);
+            byte[] header = readOriginal(0x20, 0x10);
+            int arm9_offset = readFromByteArr(header, 0, 4);
+            int arm9_size = readFromByteArr(header, 0xC, 4);
+            byte[] arm9 = readOriginal(arm9_offset, arm9_size);
             originalArm9CRC = FileFunctions.getCRC32(arm9);
             // footer check
-            int nitrocode = readFromFile(this.baseRom, 4);
+            byte[] footer = readOriginal(arm9_offset + arm9_size, 12);
+            int nitrocode = readFromByteArr(footer, 0, 4);
             if (nitrocode == 0xDEC00621) {
                 // found a footer
-                arm9_footer = new byte[12];
-                writeToByteArr(arm9_footer, 0, 4, 0xDEC00621);
-                this.baseRom.readFully(arm9_footer, 4, 8);
+                arm9_footer = footer;
                 arm9_has_footer = true;
             } else {
                 arm9_has_footer = false;
@@ -539,30 +617,12 @@ public class NDSRom {
                 arm9 = new BLZCoder(null).BLZ_DecodePub(arm9, "arm9.bin");
             }
 
-            // Now actually make the copy or w/e
-            if (writingEnabled) {
-                File arm9file = new File(tmpFolder + "arm9.bin");
-                FileOutputStream fos = new FileOutputStream(arm9file);
-                fos.write(arm9);
-                fos.close();
-                arm9file.deleteOnExit();
-                this.arm9_ramstored = null;
-                return arm9;
-            } else {
-                this.arm9_ramstored = arm9;
-                byte[] newcopy = new byte[arm9.length];
-                System.arraycopy(arm9, 0, newcopy, 0, arm9.length);
-                return newcopy;
-            }
-        } else {
-            if (writingEnabled) {
-                return FileFunctions.readFileFullyIntoBuffer(tmpFolder + "arm9.bin");
-            } else {
-                byte[] newcopy = new byte[this.arm9_ramstored.length];
-                System.arraycopy(this.arm9_ramstored, 0, newcopy, 0, this.arm9_ramstored.length);
-                return newcopy;
-            }
+            // Keep the decompressed arm9 in RAM; it is small, and read often
+            this.arm9_ramstored = arm9;
         }
+        byte[] newcopy = new byte[this.arm9_ramstored.length];
+        System.arraycopy(this.arm9_ramstored, 0, newcopy, 0, this.arm9_ramstored.length);
+        return newcopy;
     }
 
     // returns null if file doesn't exist
@@ -583,20 +643,14 @@ public class NDSRom {
             getARM9();
         }
         arm9_changed = true;
-        if (writingEnabled) {
-            FileOutputStream fos = new FileOutputStream(new File(tmpFolder + "arm9.bin"));
-            fos.write(arm9);
-            fos.close();
+        if (this.arm9_ramstored.length == arm9.length) {
+            // copy new in
+            System.arraycopy(arm9, 0, this.arm9_ramstored, 0, arm9.length);
         } else {
-            if (this.arm9_ramstored.length == arm9.length) {
-                // copy new in
-                System.arraycopy(arm9, 0, this.arm9_ramstored, 0, arm9.length);
-            } else {
-                // make new array
-                this.arm9_ramstored = null;
-                this.arm9_ramstored = new byte[arm9.length];
-                System.arraycopy(arm9, 0, this.arm9_ramstored, 0, arm9.length);
-            }
+            // make new array
+            this.arm9_ramstored = null;
+            this.arm9_ramstored = new byte[arm9.length];
+            System.arraycopy(arm9, 0, this.arm9_ramstored, 0, arm9.length);
         }
     }
 
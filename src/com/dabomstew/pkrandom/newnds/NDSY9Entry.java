@@ -3,7 +3,6 @@ package com.dabomstew.pkrandom.newnds;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
 import com.dabomstew.pkrandom.FileFunctions;
 
@@ -54,38 +53,24 @@ public class NDSY9Entry {
     public byte[] getContents() throws IOException {
         if (this.status == Extracted.NOT) {
             // extract file
-            parent.reopenROM();
-            RandomAccessFile rom = parent.getBaseRom();
-            byte[] buf = new byte[this.original_size];
-            rom.seek(this.offset);
-            rom.readFully(buf);
+            byte[] buf = parent.readOriginal(this.offset, this.original_size);
             originalCRC = FileFunctions.getCRC32(buf);
+            this.status = Extracted.ORIGINAL;
             // Compression?
             if (compress_flag != 0 && this.original_size == this.compressed_size && this.compressed_size != 0) {
                 buf = new BLZCoder(null).BLZ_DecodePub(buf, "overlay " + overlay_id);
                 decompressed_data = true;
-            }
-            if (parent.isWritingEnabled()) {
-                // make a file
-                String tmpDir = parent.getTmpFolder();
-                String fullPath = String.format("overlay_%04d", overlay_id);
-                this.extFilename = fullPath.replaceAll("[^A-Za-z0-9_]+", "");
-                File tmpFile = new File(tmpDir + extFilename);
-                FileOutputStream fos = new FileOutputStream(tmpFile);
-                fos.write(buf);
-                fos.close();
-                tmpFile.deleteOnExit();
-                this.status = Extracted.TO_FILE;
-                this.data = null;
-                return buf;
-            } else {
-                this.status = Extracted.TO_RAM;
+                // keep the decompressed overlay, so it is only decompressed once
                 this.data = buf;
                 byte[] newcopy = new byte[buf.length];
                 System.arraycopy(buf, 0, newcopy, 0, buf.length);
                 return newcopy;
             }
-        } else if (this.status == Extracted.TO_RAM) {
+            return buf;
+        } else if (this.status == Extracted.ORIGINAL && !decompressed_data) {
+            // uncompressed and unchanged overlays are read straight from the (memory-mapped) ROM every time
+            return parent.readOriginal(this.offset, this.original_size);
+        } else if (this.status == Extracted.ORIGINAL || this.status == Extracted.TO_RAM) {
             byte[] newcopy = new byte[this.data.length];
             System.arraycopy(this.data, 0, newcopy, 0, this.data.length);
             return newcopy;
@@ -97,31 +82,39 @@ public class NDSY9Entry {
 
     public void writeOverride(byte[] data) throws IOException {
         if (status == Extracted.NOT) {
-            // temp extract
+            // read the original, for its CRC and to know whether it was compressed
             getContents();
         }
         size = data.length;
-        if (status == Extracted.TO_FILE) {
+        if (parent.isWritingEnabled()) {
             String tmpDir = parent.getTmpFolder();
-            FileOutputStream fos = new FileOutputStream(new File(tmpDir + this.extFilename));
+            String fullPath = String.format("overlay_%04d", overlay_id);
+            this.extFilename = fullPath.replaceAll("[^A-Za-z0-9_]+", "");
+            File tmpFile = new File(tmpDir + extFilename);
+            FileOutputStream fos = new FileOutputStream(tmpFile);
             fos.write(data);
             fos.close();
+            if (status != Extracted.TO_FILE) {
+                tmpFile.deleteOnExit();
+                this.status = Extracted.TO_FILE;
+                this.data = null;
+            }
         } else {
-            if (this.data.length == data.length) {
+            if (this.data != null && this.data.length == data.length) {
                 // copy new in
                 System.arraycopy(data, 0, this.data, 0, data.length);
             } else {
                 // make new array
-                this.data = null;
                 this.data = new byte[data.length];
                 System.arraycopy(data, 0, this.data, 0, data.length);
             }
+            this.status = Extracted.TO_RAM;
         }
     }
 
     // returns null if no override
     public byte[] getOverrideContents() throws IOException {
-        if (status == Extracted.NOT) {
+        if (status == Extracted.NOT || status == Extracted.ORIGINAL) {
             return null;
         }
         byte[] buf = getContents();
@@ -134,7 +127,7 @@ public class NDSY9Entry {
     }
 
     private enum Extracted {
-        NOT, TO_FILE, TO_RAM
+        NOT, ORIGINAL, TO_FILE, TO_RAM
     }
 
 }
@@ -0,0 +1,256 @@
+package com.dabomstew.pkrandom.pokemon;
+
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TM/HM or Move Tutor compatibility for all Pokemon, as one bit per Pokemon and move.<br>
+ * Rows are indexed by {@link Pokemon#getNumber()} and stored as {@code long[]} words, so whole rows can be
+ * copied or combined at once. Columns are 0-indexed positions in the list of moves the matrix covers,
+ * e.g. the TMs followed by the HMs.<br><br>
+ * Only Pokemon which have been added through {@link #addPokemon(Pokemon)} have a row; accessing any other
+ * Pokemon throws an {@link IllegalArgumentException}.
+ */
+public class MoveCompatibilityMatrix {
+
+    private final int moveCount;
+    private final int words;
+    private final Pokemon[] pokemon;
+    private final long[][] rows;
+
+    /**
+     * @param size      one more than the highest Pokemon number the matrix can hold
+     * @param moveCount the number of moves (columns)
+     */
+    public MoveCompatibilityMatrix(int size, int moveCount) {
+        if (moveCount < 0) {
+            throw new IllegalArgumentException("Negative move count: " + moveCount);
+        }
+        this.moveCount = moveCount;
+        this.words = (moveCount + 63) >>> 6;
+        this.pokemon = new Pokemon[size];
+        this.rows = new long[size][];
+    }
+
+    /**
+     * Adds an empty (incompatible with all moves) row for the given Pokemon, if it does not have one already.
+     */
+    public void addPokemon(Pokemon pk) {
+        int number = pk.getNumber();
+        if (number < 0 || number >= rows.length) {
+            throw new IllegalArgumentException("Pokemon number " + number + " out of bounds for matrix of size "
+                    + rows.length);
+        }
+        if (rows[number] == null) {
+            pokemon[number] = pk;
+            rows[number] = new long[words];
+        }
+    }
+
+    /**
+     * Returns all Pokemon with a row, ordered by number.
+     */
+    public List<Pokemon> getPokemon() {
+        List<Pokemon> list = new ArrayList<>();
+        for (Pokemon pk : pokemon) {
+            if (pk != null) {
+                list.add(pk);
+            }
+        }
+        return list;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public boolean get(Pokemon pk, int move) {
+        checkMove(move);
+        return (row(pk)[move >>> 6] & (1L << move)) != 0;
+    }
+
+    public void set(Pokemon pk, int move, boolean compatible) {
+        checkMove(move);
+        long[] row = row(pk);
+        if (compatible) {
+            row[move >>> 6] |= 1L << move;
+        } else {
+            row[move >>> 6] &= ~(1L << move);
+        }
+    }
+
+    /**
+     * Makes "to" compatible with exactly the same moves as "from".
+     */
+    public void copy(Pokemon from, Pokemon to) {
+        System.arraycopy(row(from), 0, row(to), 0, words);
+    }
+
+    /**
+     * Makes "to" compatible with all moves "from" is compatible with, in addition to its own.
+     */
+    public void or(Pokemon from, Pokemon to) {
+        or(to, row(from));
+    }
+
+    /**
+     * Makes the Pokemon compatible with all moves in the mask, in addition to its own.
+     *
+     * @param mask a mask as created by {@link #newMask()}
+     */
+    public void or(Pokemon pk, long[] mask) {
+        long[] row = row(pk);
+        for (int i = 0; i < words; i++) {
+            row[i] |= mask[i];
+        }
+    }
+
+    /**
+     * Returns an empty mask to be used with {@link #or(Pokemon, long[])}.
+     */
+    public long[] newMask() {
+        return new long[words];
+    }
+
+    /**
+     * Returns a mask containing the moves in the range [from, to).
+     */
+    public long[] rangeMask(int from, int to) {
+        if (from < 0 || to > moveCount || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for "
+                    + moveCount + " moves");
+        }
+        long[] mask = newMask();
+        for (int move = from; move < to; move++) {
+            mask[move >>> 6] |= 1L << move;
+        }
+        return mask;
+    }
+
+    /**
+     * Adds the move to the mask.
+     */
+    public void addToMask(long[] mask, int move) {
+        checkMove(move);
+        mask[move >>> 6] |= 1L << move;
+    }
+
+    /**
+     * Makes every Pokemon compatible with all moves in the mask.
+     */
+    public void orAll(long[] mask) {
+        for (long[] row : rows) {
+            if (row != null) {
+                for (int i = 0; i < words; i++) {
+                    row[i] |= mask[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the compatibility with up to 64 consecutive moves, starting at "move", as the lowest bits of a long.
+     * Moves past the end of the matrix read as incompatible.
+     */
+    public long getBits(Pokemon pk, int move, int count) {
+        long[] row = row(pk);
+        count = Math.min(count, moveCount - move);
+        if (move < 0 || count > 64) {
+            throw new IndexOutOfBoundsException("Bits [" + move + ", " + (move + count) + ") out of bounds");
+        }
+        if (count <= 0) {
+            return 0;
+        }
+        int word = move >>> 6;
+        int shift = move & 63;
+        long bits = row[word] >>> shift;
+        if (shift != 0 && word + 1 < words) {
+            bits |= row[word + 1] << (64 - shift);
+        }
+        return count == 64 ? bits : bits & ((1L << count) - 1);
+    }
+
+    /**
+     * Sets the compatibility with up to 64 consecutive moves, starting at "move", from the lowest bits of a long.
+     * Bits which would fall past the end of the matrix are ignored.
+     */
+    public void setBits(Pokemon pk, int move, int count, long bits) {
+        long[] row = row(pk);
+        count = Math.min(count, moveCount - move);
+        if (move < 0 || count > 64) {
+            throw new IndexOutOfBoundsException("Bits [" + move + ", " + (move + count) + ") out of bounds");
+        }
+        if (count <= 0) {
+            return;
+        }
+        long mask = count == 64 ? -1L : (1L << count) - 1;
+        bits &= mask;
+        int word = move >>> 6;
+        int shift = move & 63;
+        row[word] = (row[word] & ~(mask << shift)) | (bits << shift);
+        if (shift != 0 && shift + count > 64) {
+            row[word + 1] = (row[word + 1] & ~(mask >>> (64 - shift))) | (bits >>> (64 - shift));
+        }
+    }
+
+    /**
+     * Reads the compatibility with "count" moves, starting at "move", from bit flags in the data.
+     * Bit 0 of the byte at "offset" is the first move, bit 1 the second, etc.
+     */
+    public void readBytes(Pokemon pk, int move, int count, byte[] data, int offset) {
+        for (int i = 0; i * 8 < count; i++) {
+            setBits(pk, move + i * 8, Math.min(8, count - i * 8), data[offset + i] & 0xFF);
+        }
+    }
+
+    /**
+     * Writes the compatibility with "count" moves, starting at "move", as bit flags into "length" bytes of the
+     * data, in the same format as {@link #readBytes(Pokemon, int, int, byte[], int)}.
+     * Bits past "count" are written as 0.
+     */
+    public void writeBytes(Pokemon pk, int move, int count, byte[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            int bitCount = Math.max(0, Math.min(8, count - i * 8));
+            data[offset + i] = (byte) getBits(pk, move + i * 8, bitCount);
+        }
+    }
+
+    private long[] row(Pokemon pk) {
+        int number = pk.getNumber();
+        long[] row = number >= 0 && number < rows.length ? rows[number] : null;
+        if (row == null) {
+            throw new IllegalArgumentException("No compatibility data for " + pk);
+        }
+        return row;
+    }
+
+    private void checkMove(int move) {
+        if (move < 0 || move >= moveCount) {
+            throw new IndexOutOfBoundsException("Move " + move + " out of bounds for " + moveCount + " moves");
+        }
+    }
+
+}
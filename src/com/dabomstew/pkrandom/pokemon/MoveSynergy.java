@@ -29,15 +29,17 @@ import com.dabomstew.pkrandom.constants.Abilities;
 import com.dabomstew.pkrandom.constants.Moves;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.util.stream.Collectors.toCollection;
 
 public class MoveSynergy {
 
     public static List<Move> getSoftAbilityMoveSynergy(int ability, List<Move> moveList, Type pkType1, Type pkType2) {
-        List<Integer> synergisticMoves = new ArrayList<>();
+        Set<Integer> synergisticMoves = new HashSet<>();
 
         switch(ability) {
             case Abilities.drizzle:
@@ -156,7 +158,7 @@ public class MoveSynergy {
     }
 
     public static List<Move> getSoftAbilityMoveAntiSynergy(int ability, List<Move> moveList) {
-        List<Integer> antiSynergisticMoves = new ArrayList<>();
+        Set<Integer> antiSynergisticMoves = new HashSet<>();
 
         switch (ability) {
             case Abilities.drizzle -> antiSynergisticMoves.addAll(moveList
@@ -185,7 +187,7 @@ public class MoveSynergy {
 
     public static List<Move> getHardAbilityMoveSynergy(int ability, Type pkType1, Type pkType2, List<Move> moveList,
                                                        int generation, int perfectAccuracy) {
-        List<Integer> synergisticMoves = new ArrayList<>();
+        Set<Integer> synergisticMoves = new HashSet<>();
 
         switch(ability) {
             case Abilities.drizzle:
@@ -563,7 +565,7 @@ public class MoveSynergy {
     }
 
     public static List<Move> getHardAbilityMoveAntiSynergy(int ability, List<Move> moveList) {
-        List<Integer> antiSynergisticMoves = new ArrayList<>();
+        Set<Integer> antiSynergisticMoves = new HashSet<>();
 
         switch(ability) {
             case Abilities.primordialSea:
@@ -714,7 +716,7 @@ public class MoveSynergy {
     }
 
     public static List<Move> getStatMoveSynergy(Pokemon pk, List<Move> moveList) {
-        List<Integer> synergisticMoves = new ArrayList<>();
+        Set<Integer> synergisticMoves = new HashSet<>();
 
         if ((double) pk.getHp() / (double)pk.bst() < 1.0/8) {
             synergisticMoves.add(Moves.painSplit);
@@ -756,7 +758,7 @@ public class MoveSynergy {
     }
 
     public static List<Move> getStatMoveAntiSynergy(Pokemon pk, List<Move> moveList) {
-        List<Integer> antiSynergisticMoves = new ArrayList<>();
+        Set<Integer> antiSynergisticMoves = new HashSet<>();
 
         if ((double) pk.getHp() / (double)pk.bst() >= 1.0/4) {
             antiSynergisticMoves.add(Moves.painSplit);
@@ -791,7 +793,7 @@ public class MoveSynergy {
     }
 
     public static List<Move> getMoveSynergy(Move mv1, List<Move> moveList, int generation) {
-        List<Integer> synergisticMoves = new ArrayList<>();
+        Set<Integer> synergisticMoves = new HashSet<>();
 
         if ((mv1.statChangeMoveType == StatChangeMoveType.DAMAGE_TARGET &&
                 mv1.hasSpecificStatChange(StatChangeType.SPEED, false)) ||
@@ -1020,7 +1022,7 @@ public class MoveSynergy {
     }
 
     public static List<Move> getSoftMoveSynergy(Move mv1, List<Move> moveList, TypeTable typeTable) {
-        List<Integer> synergisticMoves = new ArrayList<>();
+        Set<Integer> synergisticMoves = new HashSet<>();
 
         if (mv1.category != MoveCategory.STATUS) {
             List<Type> notVeryEffective = new ArrayList<>();
@@ -1064,7 +1066,7 @@ public class MoveSynergy {
     }
 
     public static List<Move> getHardMoveAntiSynergy(Move mv1, List<Move> moveList) {
-        List<Integer> antiSynergisticMoves = new ArrayList<>();
+        Set<Integer> antiSynergisticMoves = new HashSet<>();
 
 
         if (mv1.category == MoveCategory.STATUS && mv1.statusType != StatusType.NONE) {
@@ -1131,7 +1133,7 @@ public class MoveSynergy {
     }
 
     public static List<Move> getSoftMoveAntiSynergy(Move mv1, List<Move> moveList) {
-        List<Integer> antiSynergisticMoves = new ArrayList<>();
+        Set<Integer> antiSynergisticMoves = new HashSet<>();
 
 
         if (mv1.category != MoveCategory.STATUS) {
@@ -1163,7 +1165,7 @@ public class MoveSynergy {
     }
 
     public static List<Move> requiresOtherMove(Move mv1, List<Move> moveList) {
-        List<Integer> requiresMove = new ArrayList<>();
+        Set<Integer> requiresMove = new HashSet<>();
         switch (mv1.number) {
             case Moves.spitUp, Moves.swallow -> requiresMove.add(Moves.stockpile);
             case Moves.dreamEater, Moves.nightmare -> requiresMove.addAll(moveList
@@ -0,0 +1,172 @@
+package com.dabomstew.pkrandom.pokemon;
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * The relations of {@link MoveSynergy}, worked out once against all moves of a ROM and kept as bitsets indexed by
+ * move number. A lookup then only has to check the moves of the given list against a bitset, instead of running
+ * every synergy rule over the list again.
+ * <br><br>
+ * Rows are filled in the first time a move/ability/Pokemon is looked up. The index does not follow changes to the
+ * moves, type table or Pokemon stats after it is created, so it should only be created once those are final.
+ */
+public class MoveSynergyIndex {
+
+    private final List<Move> allMoves;
+    private final int generation;
+    private final int perfectAccuracy;
+    private final TypeTable typeTable;
+
+    private final BitSet[] moveSynergy;
+    private final BitSet[] softMoveSynergy;
+    private final BitSet[] hardMoveAntiSynergy;
+    private final BitSet[] softMoveAntiSynergy;
+
+    private final Map<Integer, BitSet> hardAbilityMoveSynergy = new HashMap<>();
+    private final Map<Integer, BitSet> softAbilityMoveSynergy = new HashMap<>();
+    private final Map<Integer, BitSet> hardAbilityMoveAntiSynergy = new HashMap<>();
+    private final Map<Integer, BitSet> softAbilityMoveAntiSynergy = new HashMap<>();
+
+    private final Map<Pokemon, BitSet> statMoveSynergy = new HashMap<>();
+    private final Map<Pokemon, BitSet> statMoveAntiSynergy = new HashMap<>();
+
+    /**
+     * @param moves All moves of the ROM, as from {@link com.dabomstew.pkrandom.romhandlers.RomHandler#getMoves()}.
+     *              May contain nulls.
+     */
+    public MoveSynergyIndex(List<Move> moves, int generation, int perfectAccuracy, TypeTable typeTable) {
+        this.allMoves = moves.stream().filter(Objects::nonNull).toList();
+        this.generation = generation;
+        this.perfectAccuracy = perfectAccuracy;
+        this.typeTable = typeTable;
+        int size = allMoves.stream().mapToInt(mv -> mv.number + 1).max().orElse(0);
+        this.moveSynergy = new BitSet[size];
+        this.softMoveSynergy = new BitSet[size];
+        this.hardMoveAntiSynergy = new BitSet[size];
+        this.softMoveAntiSynergy = new BitSet[size];
+    }
+
+    public List<Move> getSoftAbilityMoveSynergy(int ability, Type pkType1, Type pkType2, List<Move> moveList) {
+        BitSet row = softAbilityMoveSynergy.computeIfAbsent(abilityKey(ability, pkType1, pkType2),
+                key -> toBitSet(MoveSynergy.getSoftAbilityMoveSynergy(ability, allMoves, pkType1, pkType2)));
+        return filter(row, moveList);
+    }
+
+    public List<Move> getSoftAbilityMoveAntiSynergy(int ability, List<Move> moveList) {
+        BitSet row = softAbilityMoveAntiSynergy.computeIfAbsent(ability,
+                key -> toBitSet(MoveSynergy.getSoftAbilityMoveAntiSynergy(ability, allMoves)));
+        return filter(row, moveList);
+    }
+
+    public List<Move> getHardAbilityMoveSynergy(int ability, Type pkType1, Type pkType2, List<Move> moveList) {
+        BitSet row = hardAbilityMoveSynergy.computeIfAbsent(abilityKey(ability, pkType1, pkType2),
+                key -> toBitSet(MoveSynergy.getHardAbilityMoveSynergy(ability, pkType1, pkType2, allMoves,
+                        generation, perfectAccuracy)));
+        return filter(row, moveList);
+    }
+
+    public List<Move> getHardAbilityMoveAntiSynergy(int ability, List<Move> moveList) {
+        BitSet row = hardAbilityMoveAntiSynergy.computeIfAbsent(ability,
+                key -> toBitSet(MoveSynergy.getHardAbilityMoveAntiSynergy(ability, allMoves)));
+        return filter(row, moveList);
+    }
+
+    public List<Move> getStatMoveSynergy(Pokemon pk, List<Move> moveList) {
+        BitSet row = statMoveSynergy.computeIfAbsent(pk,
+                key -> toBitSet(MoveSynergy.getStatMoveSynergy(pk, allMoves)));
+        return filter(row, moveList);
+    }
+
+    public List<Move> getStatMoveAntiSynergy(Pokemon pk, List<Move> moveList) {
+        BitSet row = statMoveAntiSynergy.computeIfAbsent(pk,
+                key -> toBitSet(MoveSynergy.getStatMoveAntiSynergy(pk, allMoves)));
+        return filter(row, moveList);
+    }
+
+    public List<Move> getMoveSynergy(Move mv1, List<Move> moveList) {
+        return filter(row(moveSynergy, mv1,
+                mv -> MoveSynergy.getMoveSynergy(mv, allMoves, generation)), moveList);
+    }
+
+    public List<Move> getSoftMoveSynergy(Move mv1, List<Move> moveList) {
+        return filter(row(softMoveSynergy, mv1,
+                mv -> MoveSynergy.getSoftMoveSynergy(mv, allMoves, typeTable)), moveList);
+    }
+
+    public List<Move> getHardMoveAntiSynergy(Move mv1, List<Move> moveList) {
+        return filter(row(hardMoveAntiSynergy, mv1,
+                mv -> MoveSynergy.getHardMoveAntiSynergy(mv, allMoves)), moveList);
+    }
+
+    public List<Move> getSoftMoveAntiSynergy(Move mv1, List<Move> moveList) {
+        return filter(row(softMoveAntiSynergy, mv1,
+                mv -> MoveSynergy.getSoftMoveAntiSynergy(mv, allMoves)), moveList);
+    }
+
+    private static BitSet row(BitSet[] matrix, Move mv1, Function<Move, List<Move>> synergy) {
+        if (matrix[mv1.number] == null) {
+            matrix[mv1.number] = toBitSet(synergy.apply(mv1));
+        }
+        return matrix[mv1.number];
+    }
+
+    private static int abilityKey(int ability, Type pkType1, Type pkType2) {
+        return (ability << 16) | (typeKey(pkType1) << 8) | typeKey(pkType2);
+    }
+
+    private static int typeKey(Type type) {
+        return type == null ? 0xFF : type.ordinal();
+    }
+
+    private static BitSet toBitSet(List<Move> moves) {
+        BitSet bits = new BitSet();
+        for (Move mv : moves) {
+            bits.set(mv.number);
+        }
+        return bits;
+    }
+
+    /**
+     * Returns the moves of moveList which are in the row, without duplicates and in the order they first appear in
+     * moveList; the same list the matching {@link MoveSynergy} method would return.
+     */
+    private static List<Move> filter(BitSet row, List<Move> moveList) {
+        List<Move> filtered = new ArrayList<>();
+        BitSet seen = new BitSet();
+        for (Move mv : moveList) {
+            if (row.get(mv.number) && !seen.get(mv.number)) {
+                seen.set(mv.number);
+                filtered.add(mv);
+            }
+        }
+        return filtered;
+    }
+}
@@ -0,0 +1,85 @@
+package com.dabomstew.pkrandom.pokemon;
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts how many times each Pokemon has been placed, e.g. on trainers when using the "Distributed" setting.
+ * <br><br>
+ * The average is kept up to date as Pokemon are placed, and the placed Pokemon are grouped by their count,
+ * so filtering a pool down to the Pokemon placed fewer times than some threshold only has to remove the
+ * (usually few) groups at or above it.
+ */
+public class PlacementHistory {
+
+    private final Map<Pokemon, Integer> counts = new HashMap<>();
+    /**
+     * byCount.get(c) holds the Pokemon placed exactly c times. Index 0 is unused.
+     */
+    private final List<PokemonSet<Pokemon>> byCount = new ArrayList<>();
+    private long totalPlacements;
+
+    public void place(Pokemon pk) {
+        int count = getCount(pk);
+        if (count > 0) {
+            byCount.get(count).remove(pk);
+        }
+        count++;
+        counts.put(pk, count);
+        while (byCount.size() <= count) {
+            byCount.add(new PokemonSet<>());
+        }
+        byCount.get(count).add(pk);
+        totalPlacements++;
+    }
+
+    public int getCount(Pokemon pk) {
+        return counts.getOrDefault(pk, 0);
+    }
+
+    /**
+     * Returns the average number of times each placed Pokemon has been placed, or 0 if none have.
+     * Pokemon which have never been placed do not count towards the average.
+     */
+    public double getAverage() {
+        return counts.isEmpty() ? 0 : (double) totalPlacements / counts.size();
+    }
+
+    /**
+     * Returns the Pokemon in the pool that have been placed fewer times than the threshold.
+     */
+    public PokemonSet<Pokemon> filterPlacedLessThan(PokemonSet<Pokemon> pool, double threshold) {
+        if (threshold <= 0) {
+            return new PokemonSet<>();
+        }
+        PokemonSet<Pokemon> filtered = new PokemonSet<>(pool);
+        for (int count = Math.max(1, (int) Math.ceil(threshold)); count < byCount.size(); count++) {
+            filtered.removeAll(byCount.get(count));
+        }
+        return filtered;
+    }
+}
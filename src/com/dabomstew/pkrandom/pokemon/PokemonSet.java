@@ -14,17 +14,20 @@ import java.util.function.Predicate;
  * parameter. The "filter" methods also return new PokemonSet objects. <br>
  * <br>
  * For more complex operations, use .stream() and finally collect it into a new
- * PokemonSet using .collect(Collectors.toCollection(PokemonSet::new)).
+ * PokemonSet using .collect(Collectors.toCollection(PokemonSet::new)). <br>
+ * <br>
+ * Internally, this is a bitset indexed by {@link Pokemon#getNumber()}, which is dense within a ROM (alt formes
+ * included). This makes contains/add/remove O(1), and lets addAll/removeAll/retainAll/containsAll between two
+ * PokemonSets work on 64 Pokemon at a time. Iteration is in order of number. The elements themselves are kept in
+ * an array indexed the same way, which is shared between a PokemonSet and the sets copied/filtered from it,
+ * and only copied once one of them needs to write a different element to it.
+ * Like {@link Pokemon#equals(Object)}, this considers two Pokemon with the same number to be the same,
+ * so PokemonSets should not mix Pokemon from different ROMs.
  */
-public class PokemonSet<T extends Pokemon> extends HashSet<T> {
+public class PokemonSet<T extends Pokemon> extends AbstractSet<T> {
 
-	/**
-	 * How much of {@link #randomPickableFrom} must consist of removed elements before its recreated.<br>
-	 * This value was found through experimentation but is not very precise, anything from 0.25-0.5 seemed to give
-	 * about the same algorithm speeds. Feel free to do the maths to find the optimal, though in practice it should
-	 * not do much of a difference.
-	 */
-	private static final double LOAD_FACTOR = 0.5;
+	private static final long[] EMPTY_WORDS = new long[0];
+	private static final Object[] EMPTY_ELEMENTS = new Object[0];
 
 	// has to be static (instead of a constructor) because EncounterArea is not
 	// generic, leading to bad type conversions
@@ -88,11 +91,30 @@ public class PokemonSet<T extends Pokemon> extends HashSet<T> {
 			}
 		}
 
+		@Override
+		public boolean addAll(Collection<? extends T> c) {
+			if (unmodifiable) {
+				throw new UnsupportedOperationException();
+			} else {
+				return super.addAll(c);
+			}
+		}
+
 		@Override
 		public boolean remove(Object o) {
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		public boolean removeAll(Collection<?> c) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean retainAll(Collection<?> c) {
+			throw new UnsupportedOperationException();
+		}
+
 		@Override
 		public void clear() {
 			throw new UnsupportedOperationException();
@@ -126,8 +148,18 @@ public class PokemonSet<T extends Pokemon> extends HashSet<T> {
 		}
 	}
 
-	private ArrayList<T> randomPickableFrom = new ArrayList<>();
-	private Set<Object> recentlyRemoved = new HashSet<>();
+	private long[] words = EMPTY_WORDS;
+	/**
+	 * Indexed by number. Only the elements whose bit is set in {@link #words} are part of the set; other slots may
+	 * hold stale elements, which is harmless since they are always replaced before their bit is set again.
+	 */
+	private Object[] elements = EMPTY_ELEMENTS;
+	/**
+	 * Whether {@link #elements} may be referenced by another PokemonSet, and thus must be copied before written to.
+	 */
+	private boolean elementsShared;
+	private int size;
+	private int modCount;
 
 	public PokemonSet() {
 	}
@@ -145,7 +177,7 @@ public class PokemonSet<T extends Pokemon> extends HashSet<T> {
 	 * a subclass of it.
 	 */
 	public PokemonSet(PokemonSet<? extends T> pokemonSet) {
-		addAll(pokemonSet);
+		copyFrom(pokemonSet);
 	}
 
 	/**
@@ -171,11 +203,19 @@ public class PokemonSet<T extends Pokemon> extends HashSet<T> {
 		}
 	}
 
+	@SuppressWarnings("unchecked")
 	public PokemonSet<T> filter(Predicate<T> predicate) {
 		PokemonSet<T> filtered = new PokemonSet<>();
-		for (T pk : this) {
-			if (predicate.test(pk)) {
-				filtered.add(pk);
+		filtered.words = new long[words.length];
+		filtered.elements = shareElements();
+		filtered.elementsShared = true;
+		for (int i = 0; i < words.length; i++) {
+			for (long w = words[i]; w != 0; w &= w - 1) {
+				int number = (i << 6) + Long.numberOfTrailingZeros(w);
+				if (predicate.test((T) elements[number])) {
+					filtered.words[i] |= 1L << number;
+					filtered.size++;
+				}
 			}
 		}
 		return filtered;
@@ -227,6 +267,25 @@ public class PokemonSet<T extends Pokemon> extends HashSet<T> {
 		return filter(Pokemon::isActuallyCosmetic);
 	}
 
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Pokemon pk)) {
+			return false;
+		}
+		int number = pk.getNumber();
+		return hasBit(number) && elements[number].equals(pk);
+	}
+
 	@Override
 	public boolean add(T pk) {
 		// does not add null, and the return of add()
@@ -234,20 +293,200 @@ public class PokemonSet<T extends Pokemon> extends HashSet<T> {
 		if (pk == null) {
 			return false;
 		}
-        boolean added = super.add(pk);
-        if (added && !recentlyRemoved.remove(pk)) {
-            randomPickableFrom.add(pk);
-        }
-		return added;
+		int number = pk.getNumber();
+		ensureCapacity(number);
+		if (hasBit(number)) {
+			return false;
+		}
+		setElement(number, pk);
+		words[number >>> 6] |= 1L << number;
+		size++;
+		modCount++;
+		return true;
 	}
 
 	@Override
 	public boolean remove(Object o) {
-		boolean removed = super.remove(o);
-		if (removed) {
-			recentlyRemoved.add(o);
+		if (!contains(o)) {
+			return false;
+		}
+		clearBit(((Pokemon) o).getNumber());
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(words, 0);
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends T> c) {
+		if (!(c instanceof PokemonSet<?> other)) {
+			return super.addAll(c);
+		}
+		if (other.isEmpty()) {
+			return false;
+		}
+		if (isEmpty()) {
+			copyFrom(other);
+			modCount++;
+			return true;
+		}
+		ensureCapacity(other.elements.length - 1);
+		boolean changed = false;
+		for (int i = 0; i < other.words.length; i++) {
+			long added = other.words[i] & ~words[i];
+			if (added != 0) {
+				if (elements != other.elements) {
+					for (long w = added; w != 0; w &= w - 1) {
+						int number = (i << 6) + Long.numberOfTrailingZeros(w);
+						setElement(number, other.elements[number]);
+					}
+				}
+				words[i] |= added;
+				size += Long.bitCount(added);
+				changed = true;
+			}
+		}
+		if (changed) {
+			modCount++;
+		}
+		return changed;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		boolean changed = false;
+		if (c instanceof PokemonSet<?> other) {
+			int length = Math.min(words.length, other.words.length);
+			for (int i = 0; i < length; i++) {
+				long removed = words[i] & other.words[i];
+				if (removed != 0) {
+					words[i] &= ~removed;
+					size -= Long.bitCount(removed);
+					changed = true;
+				}
+			}
+			if (changed) {
+				modCount++;
+			}
+		} else {
+			for (Object o : c) {
+				changed |= remove(o);
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		if (!(c instanceof PokemonSet<?> other)) {
+			return super.retainAll(c);
+		}
+		boolean changed = false;
+		for (int i = 0; i < words.length; i++) {
+			long kept = i < other.words.length ? words[i] & other.words[i] : 0;
+			if (kept != words[i]) {
+				size -= Long.bitCount(words[i] & ~kept);
+				words[i] = kept;
+				changed = true;
+			}
+		}
+		if (changed) {
+			modCount++;
+		}
+		return changed;
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> c) {
+		if (!(c instanceof PokemonSet<?> other)) {
+			return super.containsAll(c);
+		}
+		for (int i = 0; i < other.words.length; i++) {
+			long own = i < words.length ? words[i] : 0;
+			if ((other.words[i] & ~own) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean removeIf(Predicate<? super T> filter) {
+		boolean changed = false;
+		for (int i = 0; i < words.length; i++) {
+			for (long w = words[i]; w != 0; w &= w - 1) {
+				int number = (i << 6) + Long.numberOfTrailingZeros(w);
+				if (filter.test((T) elements[number])) {
+					clearBit(number);
+					changed = true;
+				}
+			}
+		}
+		return changed;
+	}
+
+	private boolean hasBit(int number) {
+		return number < elements.length && (words[number >>> 6] & (1L << number)) != 0;
+	}
+
+	private void clearBit(int number) {
+		words[number >>> 6] &= ~(1L << number);
+		size--;
+		modCount++;
+	}
+
+	private void ensureCapacity(int number) {
+		if (number >= elements.length) {
+			int length = Math.max(number + 1, elements.length * 2);
+			length = (length + 63) & ~63;
+			elements = Arrays.copyOf(elements, length);
+			words = Arrays.copyOf(words, length >>> 6);
+			elementsShared = false;
+		}
+	}
+
+	private void setElement(int number, Object pk) {
+		if (elements[number] != pk) {
+			if (elementsShared) {
+				elements = elements.clone();
+				elementsShared = false;
+			}
+			elements[number] = pk;
+		}
+	}
+
+	private Object[] shareElements() {
+		elementsShared = true;
+		return elements;
+	}
+
+	private void copyFrom(PokemonSet<?> other) {
+		words = other.words.clone();
+		elements = other.shareElements();
+		elementsShared = true;
+		size = other.size;
+	}
+
+	private int nextSetBit(int from) {
+		int i = from >>> 6;
+		if (i >= words.length) {
+			return -1;
+		}
+		long w = words[i] & (-1L << from);
+		while (true) {
+			if (w != 0) {
+				return (i << 6) + Long.numberOfTrailingZeros(w);
+			}
+			if (++i == words.length) {
+				return -1;
+			}
+			w = words[i];
 		}
-		return removed;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -260,23 +499,27 @@ public class PokemonSet<T extends Pokemon> extends HashSet<T> {
 	}
 
 	/**
-	 * Returns a random element, or null if the PokemonSet is empty.
+	 * Returns a random element, or null if the PokemonSet is empty.<br>
+	 * Always makes exactly one call to the {@link Random}.
 	 */
+	@SuppressWarnings("unchecked")
 	public T getRandom(Random random) {
-		if (size() == 0) {
+		if (size == 0) {
 			return null;
 		}
 
-		if (1.0 - ((double) recentlyRemoved.size() / (double) randomPickableFrom.size()) < LOAD_FACTOR) {
-			randomPickableFrom = new ArrayList<>(this);
-			recentlyRemoved.clear();
+		int rank = random.nextInt(size);
+		int i = 0;
+		int count = Long.bitCount(words[i]);
+		while (rank >= count) {
+			rank -= count;
+			count = Long.bitCount(words[++i]);
 		}
-
-		T picked;
-		do {
-			picked = randomPickableFrom.get(random.nextInt(randomPickableFrom.size()));
-		} while (recentlyRemoved.contains(picked));
-		return picked;
+		long w = words[i];
+		for (int j = 0; j < rank; j++) {
+			w &= w - 1;
+		}
+		return (T) elements[(i << 6) + Long.numberOfTrailingZeros(w)];
 	}
 
 	@Override
@@ -285,28 +528,43 @@ public class PokemonSet<T extends Pokemon> extends HashSet<T> {
 	}
 
 	/**
-	 * A custom {@link Iterator} which makes sure to add an element to {@link #recentlyRemoved} when {@link #remove()}
-	 * is called.
+	 * Iterates over the set bits in order, and supports {@link #remove()}.
 	 */
 	private class PokemonSetIterator implements Iterator<T> {
-		private final Iterator<T> innerIterator = PokemonSet.super.iterator();
-		private T current;
+		private int next = nextSetBit(0);
+		private int current = -1;
+		private int expectedModCount = modCount;
 
 		@Override
 		public boolean hasNext() {
-			return innerIterator.hasNext();
+			return next != -1;
 		}
 
+		@SuppressWarnings("unchecked")
 		@Override
 		public T next() {
-			current = innerIterator.next();
-			return current;
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next == -1) {
+				throw new NoSuchElementException();
+			}
+			current = next;
+			next = nextSetBit(current + 1);
+			return (T) elements[current];
 		}
 
 		@Override
 		public void remove() {
-			innerIterator.remove();
-			recentlyRemoved.add(current);
+			if (current == -1) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			clearBit(current);
+			expectedModCount = modCount;
+			current = -1;
 		}
 	}
 
@@ -0,0 +1,133 @@
+package com.dabomstew.pkrandom.pokemon;
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.constants.Abilities;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * A pool of Pokemon sorted by {@link Pokemon#bstForPowerLevels()}, so the ones within a BST window can be found
+ * by binary search instead of by scanning the whole pool. Pokemon without Wonder Guard are also kept on their own,
+ * since low-level trainers may not be allowed to use it.
+ * <br><br>
+ * The index does not follow changes to the pool, or to the stats/abilities of its Pokemon, after it is created.
+ */
+public class PowerLevelIndex {
+
+    private final Bucket all;
+    private final Bucket withoutWonderGuard;
+
+    public PowerLevelIndex(Collection<? extends Pokemon> pool) {
+        Pokemon[] sorted = pool.toArray(new Pokemon[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(Pokemon::bstForPowerLevels));
+        this.all = new Bucket(sorted);
+        this.withoutWonderGuard = new Bucket(Arrays.stream(sorted).filter(pk -> !hasWonderGuard(pk))
+                .toArray(Pokemon[]::new));
+    }
+
+    private static boolean hasWonderGuard(Pokemon pk) {
+        return pk.getAbility1() == Abilities.wonderGuard || pk.getAbility2() == Abilities.wonderGuard
+                || pk.getAbility3() == Abilities.wonderGuard;
+    }
+
+    /**
+     * Returns a new, empty {@link Window} into this index.
+     */
+    public Window window(boolean wonderGuardAllowed) {
+        return new Window(wonderGuardAllowed ? all : withoutWonderGuard);
+    }
+
+    /**
+     * A BST window into a {@link PowerLevelIndex}, which can only be widened. Each widening only looks at the
+     * Pokemon that weren't covered by the window before.
+     */
+    public static class Window {
+        private final Bucket bucket;
+        private int from;
+        private int to;
+
+        private Window(Bucket bucket) {
+            this.bucket = bucket;
+        }
+
+        /**
+         * Widens the window to cover [minBST, maxBST], adding the newly covered Pokemon which are also in
+         * "allowed" to "results".
+         */
+        public void widen(int minBST, int maxBST, PokemonSet<Pokemon> allowed, PokemonSet<Pokemon> results) {
+            int newFrom = bucket.indexOf(minBST);
+            int newTo = bucket.indexOf(maxBST + 1);
+            if (from == to) {
+                bucket.addAllowed(newFrom, newTo, allowed, results);
+            } else {
+                bucket.addAllowed(newFrom, Math.min(from, newTo), allowed, results);
+                bucket.addAllowed(Math.max(to, newFrom), newTo, allowed, results);
+                newFrom = Math.min(from, newFrom);
+                newTo = Math.max(to, newTo);
+            }
+            from = newFrom;
+            to = newTo;
+        }
+    }
+
+    private static class Bucket {
+        private final Pokemon[] pokemon;
+        private final int[] bsts;
+
+        private Bucket(Pokemon[] pokemon) {
+            this.pokemon = pokemon;
+            this.bsts = new int[pokemon.length];
+            for (int i = 0; i < pokemon.length; i++) {
+                bsts[i] = pokemon[i].bstForPowerLevels();
+            }
+        }
+
+        /**
+         * Returns the index of the first Pokemon with a BST of at least the given one.
+         */
+        private int indexOf(int bst) {
+            int low = 0;
+            int high = bsts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (bsts[mid] < bst) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void addAllowed(int from, int to, PokemonSet<Pokemon> allowed, PokemonSet<Pokemon> results) {
+            for (int i = from; i < to; i++) {
+                if (allowed.contains(pokemon[i])) {
+                    results.add(pokemon[i]);
+                }
+            }
+        }
+    }
+}
@@ -74,6 +74,18 @@ public class EvolutionRandomizer extends Randomizer {
 
         private Map<Pokemon, List<Evolution>> allOriginalEvos;
 
+        /**
+         * The original evolution each new evolution replaces, so it can be redone if its Pokemon gets taken.
+         */
+        private final Map<Evolution, Evolution> replacedEvos = new IdentityHashMap<>();
+        /**
+         * The longest chain of pre-evolutions / evolutions of each Pokemon, capped at the stage limit.
+         * Kept up to date as evolutions are added and removed, so the stage limit can be checked without
+         * walking the evolution graph. The evolutions count also looks ahead, see {@link #evolutionsLookahead}.
+         */
+        private final Map<Pokemon, Integer> preEvoDepths = new HashMap<>();
+        private final Map<Pokemon, Integer> evoDepths = new HashMap<>();
+
         public InnerRandomizer(PokemonSet<Pokemon> pokemonPool, PokemonSet<Pokemon> banned,
                                    boolean similarStrength, boolean sameType,
                                    boolean limitToThreeStages, boolean noConvergence,
@@ -102,13 +114,15 @@ public class EvolutionRandomizer extends Randomizer {
         public void randomizeEvolutions() {
             allOriginalEvos = cacheOriginalEvolutions();
 
+            // Dead ends are normally repaired locally (see replaceEvolution), so this only retries when
+            // a repair is impossible.
             boolean succeeded = false;
             int tries = 0;
             while (!succeeded && tries < MAX_TRIES) {
                 succeeded = randomizeEvolutionsInner();
                 tries++;
             }
-            if (tries == MAX_TRIES) {
+            if (!succeeded) {
                 throw new RandomizationException("Could not randomize Evolutions in " + MAX_TRIES + " tries.");
             }
         }
@@ -120,21 +134,142 @@ public class EvolutionRandomizer extends Randomizer {
             for (Pokemon from : pokemonPool) {
                 List<Evolution> originalEvos = getOriginalEvos(from);
                 for (Evolution evo : originalEvos) {
-                    PokemonSet<Pokemon> possible = findPossibleReplacements(from, evo);
-                    if (possible.isEmpty()) {
+                    if (!replaceEvolution(from, evo)) {
                         return false;
                     }
-                    Pokemon picked = similarStrength ? pickEvoPowerLvlReplacement(possible, evo.getTo())
-                            : possible.getRandom(random);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Gives "from" a new evolution in place of the original "evo".<br>
+         * If no Pokemon is possible, and the only thing in the way is that the would-be evolutions are already
+         * taken by other Pokemon (because of noConvergence), one of them is taken from its current pre-evolution,
+         * which is then given a new evolution in turn. Each Pokemon is taken at most once per call, so this ends
+         * after at most as many steps as there are Pokemon.
+         *
+         * @return Whether it succeeded. If not, the evolutions are left half-done and must be cleared.
+         */
+        private boolean replaceEvolution(Pokemon from, Evolution evo) {
+            Deque<Evolution> toReplace = new ArrayDeque<>();
+            toReplace.push(evo);
+            Map<Evolution, Pokemon> fromOf = new IdentityHashMap<>();
+            fromOf.put(evo, from);
+            PokemonSet<Pokemon> taken = new PokemonSet<>();
+
+            while (!toReplace.isEmpty()) {
+                Evolution current = toReplace.pop();
+                Pokemon currentFrom = fromOf.get(current);
+
+                PokemonSet<Pokemon> possible = findPossibleReplacements(currentFrom, current, false);
+                if (!possible.isEmpty()) {
+                    addEvolution(currentFrom, current, pickReplacement(possible, current));
+                    continue;
+                }
+                if (!noConvergence) {
+                    return false;
+                }
 
-                    Evolution newEvo = prepareNewEvolution(from, evo, picked);
-                    from.getEvolutionsFrom().add(newEvo);
-                    picked.getEvolutionsTo().add(newEvo);
+                PokemonSet<Pokemon> takeable = findPossibleReplacements(currentFrom, current, true);
+                takeable.removeAll(taken);
+                if (takeable.isEmpty()) {
+                    return false;
                 }
+                Pokemon picked = pickReplacement(takeable, current);
+                taken.add(picked);
+
+                Evolution displaced = picked.getEvolutionsTo().get(0);
+                Evolution displacedOriginal = replacedEvos.get(displaced);
+                removeEvolution(displaced);
+                addEvolution(currentFrom, current, picked);
+                toReplace.push(displacedOriginal);
+                fromOf.put(displacedOriginal, displaced.getFrom());
             }
             return true;
         }
 
+        private Pokemon pickReplacement(PokemonSet<Pokemon> possible, Evolution evo) {
+            return similarStrength ? pickEvoPowerLvlReplacement(possible, evo.getTo()) : possible.getRandom(random);
+        }
+
+        private void addEvolution(Pokemon from, Evolution evo, Pokemon picked) {
+            Evolution newEvo = prepareNewEvolution(from, evo, picked);
+            from.getEvolutionsFrom().add(newEvo);
+            picked.getEvolutionsTo().add(newEvo);
+            replacedEvos.put(newEvo, evo);
+
+            if (!evolveEveryLevel) {
+                raisePreEvoDepth(picked, preEvoDepths.get(from) + 1);
+                raiseEvoDepth(from, evoDepths.get(picked) + 1);
+            }
+        }
+
+        private void removeEvolution(Evolution newEvo) {
+            newEvo.getFrom().getEvolutionsFrom().removeIf(ev -> ev == newEvo);
+            newEvo.getTo().getEvolutionsTo().removeIf(ev -> ev == newEvo);
+            replacedEvos.remove(newEvo);
+
+            if (!evolveEveryLevel) {
+                updatePreEvoDepth(newEvo.getTo());
+                updateEvoDepth(newEvo.getFrom());
+            }
+        }
+
+        private void raisePreEvoDepth(Pokemon pk, int depth) {
+            depth = Math.min(depth, stageLimit);
+            if (depth > preEvoDepths.get(pk)) {
+                preEvoDepths.put(pk, depth);
+                for (Evolution ev : pk.getEvolutionsFrom()) {
+                    raisePreEvoDepth(ev.getTo(), depth + 1);
+                }
+            }
+        }
+
+        private void raiseEvoDepth(Pokemon pk, int depth) {
+            depth = Math.min(depth, stageLimit);
+            if (depth > evoDepths.get(pk)) {
+                evoDepths.put(pk, depth);
+                for (Evolution ev : pk.getEvolutionsTo()) {
+                    raiseEvoDepth(ev.getFrom(), depth + 1);
+                }
+            }
+        }
+
+        private void updatePreEvoDepth(Pokemon pk) {
+            int depth = 0;
+            for (Evolution ev : pk.getEvolutionsTo()) {
+                depth = Math.max(depth, Math.min(preEvoDepths.get(ev.getFrom()) + 1, stageLimit));
+            }
+            if (depth != preEvoDepths.get(pk)) {
+                preEvoDepths.put(pk, depth);
+                for (Evolution ev : pk.getEvolutionsFrom()) {
+                    updatePreEvoDepth(ev.getTo());
+                }
+            }
+        }
+
+        private void updateEvoDepth(Pokemon pk) {
+            int depth = evolutionsLookahead(pk);
+            for (Evolution ev : pk.getEvolutionsFrom()) {
+                depth = Math.max(depth, Math.min(evoDepths.get(ev.getTo()) + 1, stageLimit));
+            }
+            if (depth != evoDepths.get(pk)) {
+                evoDepths.put(pk, depth);
+                for (Evolution ev : pk.getEvolutionsTo()) {
+                    updateEvoDepth(ev.getFrom());
+                }
+            }
+        }
+
+        /**
+         * The evolution depth of a Pokemon without (new) evolutions; looks ahead to see if an evo MUST be given
+         * to it in the future.
+         */
+        private int evolutionsLookahead(Pokemon pk) {
+            return allOriginalEvos.get(pk).isEmpty() ? 0 : 1;
+        }
+
         private Map<Pokemon, List<Evolution>> cacheOriginalEvolutions() {
             Map<Pokemon, List<Evolution>> originalEvos = new HashMap<>();
             for (Pokemon pk : pokemonPool) {
@@ -147,7 +282,10 @@ public class EvolutionRandomizer extends Randomizer {
             for (Pokemon pk : pokemonPool) {
                 pk.getEvolutionsFrom().clear();
                 pk.getEvolutionsTo().clear();
+                preEvoDepths.put(pk, 0);
+                evoDepths.put(pk, evolutionsLookahead(pk));
             }
+            replacedEvos.clear();
         }
 
         private List<Evolution> getOriginalEvos(Pokemon from) {
@@ -213,7 +351,11 @@ public class EvolutionRandomizer extends Randomizer {
             }
         }
 
-        private PokemonSet<Pokemon> findPossibleReplacements(Pokemon from, Evolution evo) {
+        /**
+         * @param taken If true, returns the Pokemon which would be possible if they weren't already evolved into,
+         *              instead of the possible ones. Only used with noConvergence.
+         */
+        private PokemonSet<Pokemon> findPossibleReplacements(Pokemon from, Evolution evo, boolean taken) {
             List<Predicate<Pokemon>> filters = new ArrayList<>();
             filters.add(to -> !banned.contains(to));
             filters.add(to -> !to.equals(from));
@@ -221,11 +363,13 @@ public class EvolutionRandomizer extends Randomizer {
             filters.add(to -> !isAlreadyChosenAsOtherSplitEvo(from, to));
 
             if (!evolveEveryLevel) {
-                filters.add(to -> !createsCycle(from, to));
-                filters.add(to -> !breaksStageLimit(from, to));
+                Set<Pokemon> ancestors = ancestorsOf(from);
+                int maxEvoDepth = stageLimit - 2 - preEvoDepths.get(from);
+                filters.add(to -> !ancestors.contains(to));
+                filters.add(to -> evoDepths.get(to) <= maxEvoDepth);
             }
             if (noConvergence) {
-                filters.add(to -> to.getEvolutionsTo().isEmpty());
+                filters.add(to -> to.getEvolutionsTo().isEmpty() != taken);
             }
             if (forceChange) {
                 filters.add(to -> !isAnOriginalEvo(from, to));
@@ -255,81 +399,21 @@ public class EvolutionRandomizer extends Randomizer {
         }
 
         /**
-         * Check whether adding an evolution from one Pokemon to another will cause
-         * an evolution cycle.
-         *
-         * @param from Pokemon that is evolving
-         * @param to   Pokemon to evolve to
-         * @return True if there is an evolution cycle, else false
+         * Returns the Pokemon which "from" evolves from, directly or not. Evolving "from" into any of these
+         * would cause an evolution cycle.
          */
-        private boolean createsCycle(Pokemon from, Pokemon to) {
-            Evolution tempEvo = new Evolution(from, to, false, EvolutionType.NONE, 0);
-            from.getEvolutionsFrom().add(tempEvo);
-            Set<Pokemon> visited = new HashSet<>();
-            Set<Pokemon> recStack = new HashSet<>();
-            boolean recur = isCyclic(from, visited, recStack);
-            from.getEvolutionsFrom().remove(tempEvo);
-            return recur;
-        }
-
-        private boolean isCyclic(Pokemon pk, Set<Pokemon> visited, Set<Pokemon> recStack) {
-            if (!visited.contains(pk)) {
-                visited.add(pk);
-                recStack.add(pk);
-                for (Evolution ev : pk.getEvolutionsFrom()) {
-                    if (!visited.contains(ev.getTo()) && isCyclic(ev.getTo(), visited, recStack)) {
-                        return true;
-                    } else if (recStack.contains(ev.getTo())) {
-                        return true;
+        private Set<Pokemon> ancestorsOf(Pokemon from) {
+            Set<Pokemon> ancestors = new HashSet<>();
+            Deque<Pokemon> toVisit = new ArrayDeque<>();
+            toVisit.push(from);
+            while (!toVisit.isEmpty()) {
+                for (Evolution ev : toVisit.pop().getEvolutionsTo()) {
+                    if (ancestors.add(ev.getFrom())) {
+                        toVisit.push(ev.getFrom());
                     }
                 }
             }
-            recStack.remove(pk);
-            return false;
-        }
-
-        private boolean breaksStageLimit(Pokemon from, Pokemon to) {
-            int maxFrom = numPreEvolutions(from, stageLimit);
-            int maxTo = numEvolutions(to, stageLimit);
-            return maxFrom + maxTo + 2 > stageLimit;
-        }
-
-        // Return the max depth of pre-evolutions a Pokemon has
-        private int numPreEvolutions(Pokemon pk, int maxInterested) {
-            return numPreEvolutions(pk, 0, maxInterested);
-        }
-
-        private int numPreEvolutions(Pokemon pk, int depth, int maxInterested) {
-            if (pk.getEvolutionsTo().size() == 0) {
-                return 0;
-            }
-            if (depth == maxInterested - 1) {
-                return 1;
-            }
-            int maxPreEvos = 0;
-            for (Evolution ev : pk.getEvolutionsTo()) {
-                maxPreEvos = Math.max(maxPreEvos, numPreEvolutions(ev.getFrom(), depth + 1, maxInterested) + 1);
-            }
-            return maxPreEvos;
-        }
-
-        private int numEvolutions(Pokemon pk, int maxInterested) {
-            return numEvolutions(pk, 0, maxInterested);
-        }
-
-        private int numEvolutions(Pokemon pk, int depth, int maxInterested) {
-            if (pk.getEvolutionsFrom().size() == 0) {
-                // looks ahead to see if an evo MUST be given to this Pokemon in the future
-                return allOriginalEvos.get(pk).isEmpty() ? 0 : 1;
-            }
-            if (depth == maxInterested - 1) {
-                return 1;
-            }
-            int maxEvos = 0;
-            for (Evolution ev : pk.getEvolutionsFrom()) {
-                maxEvos = Math.max(maxEvos, numEvolutions(ev.getTo(), depth + 1, maxInterested) + 1);
-            }
-            return maxEvos;
+            return ancestors;
         }
 
         private boolean isAnOriginalEvo(Pokemon from, Pokemon to) {
@@ -2,12 +2,14 @@ package com.dabomstew.pkrandom.randomizers;
 
 import com.dabomstew.pkrandom.Settings;
 import com.dabomstew.pkrandom.pokemon.Move;
+import com.dabomstew.pkrandom.pokemon.MoveCompatibilityMatrix;
 import com.dabomstew.pkrandom.pokemon.MoveLearnt;
 import com.dabomstew.pkrandom.pokemon.Pokemon;
 import com.dabomstew.pkrandom.pokemon.Type;
 import com.dabomstew.pkrandom.romhandlers.RomHandler;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -42,55 +44,63 @@ public class TMHMTutorCompatibilityRandomizer extends Randomizer {
         // Get current compatibility
         // increase HM chances if required early on
         List<Integer> requiredEarlyOn = romHandler.getEarlyRequiredHMMoves();
-        Map<Pokemon, boolean[]> compat = romHandler.getTMHMCompatibility();
+        MoveCompatibilityMatrix compat = romHandler.getTMHMCompatibility();
         List<Integer> tmHMs = new ArrayList<>(romHandler.getTMMoves());
         tmHMs.addAll(romHandler.getHMMoves());
 
-        if (followEvolutions) {
-            copyUpEvolutionsHelper.apply(true, false,
-                    pk -> randomizePokemonMoveCompatibility(pk, compat.get(pk), tmHMs, requiredEarlyOn, preferSameType),
-                    (evFrom, evTo, toMonIsFinalEvo) -> copyPokemonMoveCompatibilityUpEvolutions(evFrom, evTo,
-                            compat.get(evFrom), compat.get(evTo), tmHMs, preferSameType));
-        } else {
-            for (Map.Entry<Pokemon, boolean[]> compatEntry : compat.entrySet()) {
-                randomizePokemonMoveCompatibility(compatEntry.getKey(), compatEntry.getValue(), tmHMs, requiredEarlyOn,
-                        preferSameType);
-            }
-        }
+        randomizeCompatibility(compat, tmHMs, requiredEarlyOn, preferSameType, followEvolutions, false);
 
         // Set the new compatibility
         romHandler.setTMHMCompatibility(compat);
         tmhmChangesMade = true;
     }
 
-    private void randomizePokemonMoveCompatibility(Pokemon pkmn, boolean[] moveCompatibilityFlags,
-                                                   List<Integer> moveIDs, List<Integer> prioritizedMoves,
-                                                   boolean preferSameType) {
+    private void randomizeCompatibility(MoveCompatibilityMatrix compat, List<Integer> moveIDs,
+                                        List<Integer> prioritizedMoves, boolean preferSameType,
+                                        boolean followEvolutions, boolean copySplitEvos) {
         List<Move> moveData = romHandler.getMoves();
-        for (int i = 1; i <= moveIDs.size(); i++) {
-            int move = moveIDs.get(i - 1);
-            Move mv = moveData.get(move);
+        Move[] moves = new Move[moveIDs.size()];
+        boolean[] prioritized = new boolean[moveIDs.size()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = moveData.get(moveIDs.get(i));
+            prioritized[i] = prioritizedMoves.contains(moveIDs.get(i));
+        }
+
+        if (followEvolutions) {
+            copyUpEvolutionsHelper.apply(true, copySplitEvos,
+                    pk -> randomizePokemonMoveCompatibility(pk, compat, moves, prioritized, preferSameType),
+                    (evFrom, evTo, toMonIsFinalEvo) -> copyPokemonMoveCompatibilityUpEvolutions(evFrom, evTo,
+                            compat, moves, preferSameType));
+        } else {
+            for (Pokemon pk : compat.getPokemon()) {
+                randomizePokemonMoveCompatibility(pk, compat, moves, prioritized, preferSameType);
+            }
+        }
+    }
+
+    private void randomizePokemonMoveCompatibility(Pokemon pkmn, MoveCompatibilityMatrix compat, Move[] moves,
+                                                   boolean[] prioritized, boolean preferSameType) {
+        for (int i = 0; i < moves.length; i++) {
             double probability = getMoveCompatibilityProbability(
                     pkmn,
-                    mv,
-                    prioritizedMoves.contains(move),
+                    moves[i],
+                    prioritized[i],
                     preferSameType
             );
-            moveCompatibilityFlags[i] = (this.random.nextDouble() < probability);
+            compat.set(pkmn, i, this.random.nextDouble() < probability);
         }
     }
 
-    private void copyPokemonMoveCompatibilityUpEvolutions(Pokemon evFrom, Pokemon evTo, boolean[] prevCompatibilityFlags,
-                                                          boolean[] toCompatibilityFlags, List<Integer> moveIDs,
+    private void copyPokemonMoveCompatibilityUpEvolutions(Pokemon evFrom, Pokemon evTo,
+                                                          MoveCompatibilityMatrix compat, Move[] moves,
                                                           boolean preferSameType) {
-        List<Move> moveData = romHandler.getMoves();
-        for (int i = 1; i <= moveIDs.size(); i++) {
-            if (!prevCompatibilityFlags[i]) {
+        compat.copy(evFrom, evTo);
+        for (int i = 0; i < moves.length; i++) {
+            if (!compat.get(evFrom, i)) {
                 // Slight chance to gain TM/HM compatibility for a move if not learned by an earlier evolution step
                 // Without prefer same type: 25% chance
                 // With prefer same type:    10% chance, 90% chance for a type new to this evolution
-                int move = moveIDs.get(i - 1);
-                Move mv = moveData.get(move);
+                Move mv = moves[i];
                 double probability = 0.25;
                 if (preferSameType) {
                     probability = 0.1;
@@ -101,10 +111,7 @@ public class TMHMTutorCompatibilityRandomizer extends Randomizer {
                         probability = 0.9;
                     }
                 }
-                toCompatibilityFlags[i] = (this.random.nextDouble() < probability);
-            }
-            else {
-                toCompatibilityFlags[i] = prevCompatibilityFlags[i];
+                compat.set(evTo, i, this.random.nextDouble() < probability);
             }
         }
     }
@@ -129,13 +136,8 @@ public class TMHMTutorCompatibilityRandomizer extends Randomizer {
     }
 
     public void fullTMHMCompatibility() {
-        Map<Pokemon, boolean[]> compat = romHandler.getTMHMCompatibility();
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compat.entrySet()) {
-            boolean[] flags = compatEntry.getValue();
-            for (int i = 1; i < flags.length; i++) {
-                flags[i] = true;
-            }
-        }
+        MoveCompatibilityMatrix compat = romHandler.getTMHMCompatibility();
+        compat.orAll(compat.rangeMask(0, compat.getMoveCount()));
         romHandler.setTMHMCompatibility(compat);
     }
 
@@ -143,48 +145,43 @@ public class TMHMTutorCompatibilityRandomizer extends Randomizer {
      * if a pokemon learns a move in its moveset and there is a TM of that move, make sure that TM can be learned.
      */
     public void ensureTMCompatSanity() {
-        //
-        Map<Pokemon, boolean[]> compat = romHandler.getTMHMCompatibility();
+        MoveCompatibilityMatrix compat = romHandler.getTMHMCompatibility();
+        ensureLevelUpMovesCompatible(compat, romHandler.getTMMoves());
+        romHandler.setTMHMCompatibility(compat);
+        tmhmChangesMade = true;
+    }
+
+    private void ensureLevelUpMovesCompatible(MoveCompatibilityMatrix compat, List<Integer> compatMoves) {
         Map<Integer, List<MoveLearnt>> movesets = romHandler.getMovesLearnt();
-        List<Integer> tmMoves = romHandler.getTMMoves();
-        for (Pokemon pkmn : compat.keySet()) {
-            List<MoveLearnt> moveset = movesets.get(pkmn.getNumber());
-            boolean[] pkmnCompat = compat.get(pkmn);
-            for (MoveLearnt ml : moveset) {
-                if (tmMoves.contains(ml.move)) {
-                    int tmIndex = tmMoves.indexOf(ml.move);
-                    pkmnCompat[tmIndex + 1] = true;
+        Map<Integer, Integer> indexOfMove = new HashMap<>();
+        for (int i = 0; i < compatMoves.size(); i++) {
+            indexOfMove.putIfAbsent(compatMoves.get(i), i);
+        }
+        for (Pokemon pkmn : compat.getPokemon()) {
+            long[] mask = compat.newMask();
+            for (MoveLearnt ml : movesets.get(pkmn.getNumber())) {
+                Integer index = indexOfMove.get(ml.move);
+                if (index != null) {
+                    compat.addToMask(mask, index);
                 }
             }
+            compat.or(pkmn, mask);
         }
-        romHandler.setTMHMCompatibility(compat);
-        tmhmChangesMade = true;
     }
 
     public void ensureTMEvolutionSanity() {
-        Map<Pokemon, boolean[]> compat = romHandler.getTMHMCompatibility();
+        MoveCompatibilityMatrix compat = romHandler.getTMHMCompatibility();
         // Don't do anything with the base, just copy upwards to ensure later evolutions
         // retain learn compatibility
         copyUpEvolutionsHelper.apply(true, true, pk -> {},
-                (evFrom, evTo, toMonIsFinalEvo) -> {
-                    boolean[] fromCompat = compat.get(evFrom);
-                    boolean[] toCompat = compat.get(evTo);
-                    for (int i = 1; i < toCompat.length; i++) {
-                        toCompat[i] |= fromCompat[i];
-                    }
-                });
+                (evFrom, evTo, toMonIsFinalEvo) -> compat.or(evFrom, evTo));
         romHandler.setTMHMCompatibility(compat);
         tmhmChangesMade = true;
     }
 
     public void fullHMCompatibility() {
-        Map<Pokemon, boolean[]> compat = romHandler.getTMHMCompatibility();
-        int tmCount = romHandler.getTMCount();
-        for (boolean[] flags : compat.values()) {
-            for (int i = tmCount + 1; i < flags.length; i++) {
-                flags[i] = true;
-            }
-        }
+        MoveCompatibilityMatrix compat = romHandler.getTMHMCompatibility();
+        compat.orAll(compat.rangeMask(romHandler.getTMCount(), compat.getMoveCount()));
 
         // Set the new compatibility
         romHandler.setTMHMCompatibility(compat);
@@ -192,21 +189,18 @@ public class TMHMTutorCompatibilityRandomizer extends Randomizer {
     }
 
     public void copyTMCompatibilityToCosmeticFormes() {
-        Map<Pokemon, boolean[]> compat = romHandler.getTMHMCompatibility();
+        MoveCompatibilityMatrix compat = romHandler.getTMHMCompatibility();
+        copyCompatibilityToCosmeticFormes(compat);
+        romHandler.setTMHMCompatibility(compat);
+        tmhmChangesMade = true;
+    }
 
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compat.entrySet()) {
-            Pokemon pkmn = compatEntry.getKey();
-            boolean[] flags = compatEntry.getValue();
+    private void copyCompatibilityToCosmeticFormes(MoveCompatibilityMatrix compat) {
+        for (Pokemon pkmn : compat.getPokemon()) {
             if (pkmn.isActuallyCosmetic()) {
-                boolean[] baseFlags = compat.get(pkmn.getBaseForme());
-                for (int i = 1; i < flags.length; i++) {
-                    flags[i] = baseFlags[i];
-                }
+                compat.copy(pkmn.getBaseForme(), pkmn);
             }
         }
-
-        romHandler.setTMHMCompatibility(compat);
-        tmhmChangesMade = true;
     }
 
     public void randomizeMoveTutorCompatibility() {
@@ -217,23 +211,13 @@ public class TMHMTutorCompatibilityRandomizer extends Randomizer {
             return;
         }
         // Get current compatibility
-        Map<Pokemon, boolean[]> compat = romHandler.getMoveTutorCompatibility();
+        MoveCompatibilityMatrix compat = romHandler.getMoveTutorCompatibility();
         List<Integer> mts = romHandler.getMoveTutorMoves();
 
         // Empty list
         List<Integer> priorityTutors = new ArrayList<>();
 
-        if (followEvolutions) {
-            copyUpEvolutionsHelper.apply(true, true,
-                    pk -> randomizePokemonMoveCompatibility(pk, compat.get(pk), mts, priorityTutors, preferSameType),
-                    (evFrom, evTo, toMonIsFinalEvo) -> copyPokemonMoveCompatibilityUpEvolutions(evFrom, evTo,
-                            compat.get(evFrom), compat.get(evTo), mts, preferSameType));
-        }
-        else {
-            for (Map.Entry<Pokemon, boolean[]> compatEntry : compat.entrySet()) {
-                randomizePokemonMoveCompatibility(compatEntry.getKey(), compatEntry.getValue(), mts, priorityTutors, preferSameType);
-            }
-        }
+        randomizeCompatibility(compat, mts, priorityTutors, preferSameType, followEvolutions, true);
 
         // Set the new compatibility
         romHandler.setMoveTutorCompatibility(compat);
@@ -244,13 +228,8 @@ public class TMHMTutorCompatibilityRandomizer extends Randomizer {
         if (!romHandler.hasMoveTutors()) {
             return;
         }
-        Map<Pokemon, boolean[]> compat = romHandler.getMoveTutorCompatibility();
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compat.entrySet()) {
-            boolean[] flags = compatEntry.getValue();
-            for (int i = 1; i < flags.length; i++) {
-                flags[i] = true;
-            }
-        }
+        MoveCompatibilityMatrix compat = romHandler.getMoveTutorCompatibility();
+        compat.orAll(compat.rangeMask(0, compat.getMoveCount()));
         romHandler.setMoveTutorCompatibility(compat);
         tutorChangesMade = true;
     }
@@ -262,19 +241,8 @@ public class TMHMTutorCompatibilityRandomizer extends Randomizer {
         // if a pokemon learns a move in its moveset
         // and there is a tutor of that move, make sure
         // that tutor can be learned.
-        Map<Pokemon, boolean[]> compat = romHandler.getMoveTutorCompatibility();
-        Map<Integer, List<MoveLearnt>> movesets = romHandler.getMovesLearnt();
-        List<Integer> mtMoves = romHandler.getMoveTutorMoves();
-        for (Pokemon pkmn : compat.keySet()) {
-            List<MoveLearnt> moveset = movesets.get(pkmn.getNumber());
-            boolean[] pkmnCompat = compat.get(pkmn);
-            for (MoveLearnt ml : moveset) {
-                if (mtMoves.contains(ml.move)) {
-                    int mtIndex = mtMoves.indexOf(ml.move);
-                    pkmnCompat[mtIndex + 1] = true;
-                }
-            }
-        }
+        MoveCompatibilityMatrix compat = romHandler.getMoveTutorCompatibility();
+        ensureLevelUpMovesCompatible(compat, romHandler.getMoveTutorMoves());
         romHandler.setMoveTutorCompatibility(compat);
         tutorChangesMade = true;
     }
@@ -283,34 +251,17 @@ public class TMHMTutorCompatibilityRandomizer extends Randomizer {
         if (!romHandler.hasMoveTutors()) {
             return;
         }
-        Map<Pokemon, boolean[]> compat = romHandler.getMoveTutorCompatibility();
+        MoveCompatibilityMatrix compat = romHandler.getMoveTutorCompatibility();
         // Don't do anything with the base, just copy upwards to ensure later evolutions retain learn compatibility
         copyUpEvolutionsHelper.apply(true, true, pk -> {},
-                (evFrom, evTo, toMonIsFinalEvo) -> {
-                    boolean[] fromCompat = compat.get(evFrom);
-                    boolean[] toCompat = compat.get(evTo);
-                    for (int i = 1; i < toCompat.length; i++) {
-                        toCompat[i] |= fromCompat[i];
-                    }
-                });
+                (evFrom, evTo, toMonIsFinalEvo) -> compat.or(evFrom, evTo));
         romHandler.setMoveTutorCompatibility(compat);
         tutorChangesMade = true;
     }
 
     public void copyMoveTutorCompatibilityToCosmeticFormes() {
-        Map<Pokemon, boolean[]> compat = romHandler.getMoveTutorCompatibility();
-
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compat.entrySet()) {
-            Pokemon pkmn = compatEntry.getKey();
-            boolean[] flags = compatEntry.getValue();
-            if (pkmn.isActuallyCosmetic()) {
-                boolean[] baseFlags = compat.get(pkmn.getBaseForme());
-                for (int i = 1; i < flags.length; i++) {
-                    flags[i] = baseFlags[i];
-                }
-            }
-        }
-
+        MoveCompatibilityMatrix compat = romHandler.getMoveTutorCompatibility();
+        copyCompatibilityToCosmeticFormes(compat);
         romHandler.setMoveTutorCompatibility(compat);
         tutorChangesMade = true;
     }
@@ -13,8 +13,9 @@ public class TrainerMovesetRandomizer extends Randomizer {
 
     private Map<Integer, List<MoveLearnt>> allLevelUpMoves;
     private Map<Integer, List<Integer>> allEggMoves;
-    private Map<Pokemon, boolean[]> allTMCompat, allTutorCompat;
+    private MoveCompatibilityMatrix allTMCompat, allTutorCompat;
     private List<Integer> allTMMoves, allTutorMoves;
+    private MoveSynergyIndex synergyIndex;
 
     public TrainerMovesetRandomizer(RomHandler romHandler, Settings settings, Random random) {
         super(romHandler, settings, random);
@@ -26,6 +27,9 @@ public class TrainerMovesetRandomizer extends Randomizer {
 
         List<Trainer> trainers = romHandler.getTrainers();
 
+        synergyIndex = new MoveSynergyIndex(romHandler.getMoves(), romHandler.generationOfPokemon(),
+                romHandler.getPerfectAccuracy(), romHandler.getTypeTable());
+
         for (Trainer t : trainers) {
             t.setPokemonHaveCustomMoves(true);
 
@@ -88,13 +92,11 @@ public class TrainerMovesetRandomizer extends Randomizer {
 
                 // Hard ability/move synergy
 
-                List<Move> abilityMoveSynergyList = MoveSynergy.getHardAbilityMoveSynergy(
+                List<Move> abilityMoveSynergyList = synergyIndex.getHardAbilityMoveSynergy(
                         romHandler.getAbilityForTrainerPokemon(tp),
                         pk.getPrimaryType(),
                         pk.getSecondaryType(),
-                        movesAtLevel,
-                        romHandler.generationOfPokemon(),
-                        romHandler.getPerfectAccuracy());
+                        movesAtLevel);
                 Collections.shuffle(abilityMoveSynergyList, random);
                 for (int i = 0; i < hardAbilityMoveBias * abilityMoveSynergyList.size(); i++) {
                     int j = i % abilityMoveSynergyList.size();
@@ -103,11 +105,11 @@ public class TrainerMovesetRandomizer extends Randomizer {
 
                 // Soft ability/move synergy
 
-                List<Move> softAbilityMoveSynergyList = MoveSynergy.getSoftAbilityMoveSynergy(
+                List<Move> softAbilityMoveSynergyList = synergyIndex.getSoftAbilityMoveSynergy(
                         romHandler.getAbilityForTrainerPokemon(tp),
-                        movesAtLevel,
                         pk.getPrimaryType(),
-                        pk.getSecondaryType());
+                        pk.getSecondaryType(),
+                        movesAtLevel);
 
                 Collections.shuffle(softAbilityMoveSynergyList, random);
                 for (int i = 0; i < softAbilityMoveBias * softAbilityMoveSynergyList.size(); i++) {
@@ -117,7 +119,7 @@ public class TrainerMovesetRandomizer extends Randomizer {
 
                 // Soft ability/move anti-synergy
 
-                List<Move> softAbilityMoveAntiSynergyList = MoveSynergy.getSoftAbilityMoveAntiSynergy(
+                List<Move> softAbilityMoveAntiSynergyList = synergyIndex.getSoftAbilityMoveAntiSynergy(
                         romHandler.getAbilityForTrainerPokemon(tp), movesAtLevel);
                 List<Move> withoutSoftAntiSynergy = new ArrayList<>(movesAtLevel);
                 for (Move mv : softAbilityMoveAntiSynergyList) {
@@ -144,7 +146,7 @@ public class TrainerMovesetRandomizer extends Randomizer {
 
                 // Stat/move synergy
 
-                List<Move> statSynergyList = MoveSynergy.getStatMoveSynergy(pk, movesAtLevel);
+                List<Move> statSynergyList = synergyIndex.getStatMoveSynergy(pk, movesAtLevel);
                 Collections.shuffle(statSynergyList, random);
                 for (int i = 0; i < statBias * statSynergyList.size(); i++) {
                     int j = i % statSynergyList.size();
@@ -153,7 +155,7 @@ public class TrainerMovesetRandomizer extends Randomizer {
 
                 // Stat/move anti-synergy
 
-                List<Move> statAntiSynergyList = MoveSynergy.getStatMoveAntiSynergy(pk, movesAtLevel);
+                List<Move> statAntiSynergyList = synergyIndex.getStatMoveAntiSynergy(pk, movesAtLevel);
                 List<Move> withoutStatAntiSynergy = new ArrayList<>(movesAtLevel);
                 for (Move mv : statAntiSynergyList) {
                     withoutStatAntiSynergy.remove(mv);
@@ -270,7 +272,7 @@ public class TrainerMovesetRandomizer extends Randomizer {
 
                     movesAtLevel.removeAll(Collections.singletonList(move));
 
-                    movesAtLevel.removeAll(MoveSynergy.getHardMoveAntiSynergy(move, movesAtLevel));
+                    movesAtLevel.removeAll(synergyIndex.getHardMoveAntiSynergy(move, movesAtLevel));
 
                     distinctMoveList = movesAtLevel.stream().distinct().collect(Collectors.toList());
                     movesLeft = distinctMoveList.size();
@@ -280,27 +282,21 @@ public class TrainerMovesetRandomizer extends Randomizer {
                         break;
                     }
 
-                    List<Move> hardMoveSynergyList = MoveSynergy.getMoveSynergy(
-                            move,
-                            movesAtLevel,
-                            romHandler.generationOfPokemon());
+                    List<Move> hardMoveSynergyList = synergyIndex.getMoveSynergy(move, movesAtLevel);
                     Collections.shuffle(hardMoveSynergyList, random);
                     for (int j = 0; j < hardMoveBias * hardMoveSynergyList.size(); j++) {
                         int k = j % hardMoveSynergyList.size();
                         movesAtLevel.add(hardMoveSynergyList.get(k));
                     }
 
-                    List<Move> softMoveSynergyList = MoveSynergy.getSoftMoveSynergy(
-                            move,
-                            movesAtLevel,
-                            romHandler.getTypeTable());
+                    List<Move> softMoveSynergyList = synergyIndex.getSoftMoveSynergy(move, movesAtLevel);
                     Collections.shuffle(softMoveSynergyList, random);
                     for (int j = 0; j < softMoveBias * softMoveSynergyList.size(); j++) {
                         int k = j % softMoveSynergyList.size();
                         movesAtLevel.add(softMoveSynergyList.get(k));
                     }
 
-                    List<Move> softMoveAntiSynergyList = MoveSynergy.getSoftMoveAntiSynergy(move, movesAtLevel);
+                    List<Move> softMoveAntiSynergyList = synergyIndex.getSoftMoveAntiSynergy(move, movesAtLevel);
                     Collections.shuffle(softMoveAntiSynergyList, random);
                     for (int j = 0; j < softMoveAntiBias * softMoveAntiSynergyList.size(); j++) {
                         distinctMoveList = movesAtLevel.stream().distinct().collect(Collectors.toList());
@@ -413,7 +409,7 @@ public class TrainerMovesetRandomizer extends Randomizer {
         // Remove hard ability anti-synergy moves
 
         List<Move> withoutHardAntiSynergy = new ArrayList<>(movesAtLevel);
-        withoutHardAntiSynergy.removeAll(MoveSynergy.getHardAbilityMoveAntiSynergy(
+        withoutHardAntiSynergy.removeAll(synergyIndex.getHardAbilityMoveAntiSynergy(
                 romHandler.getAbilityForTrainerPokemon(tp),
                 movesAtLevel));
 
@@ -597,9 +593,9 @@ public class TrainerMovesetRandomizer extends Randomizer {
         }
 
         // TM Moves
-        boolean[] tmCompat = allTMCompat.get(romHandler.getAltFormeOfPokemon(tp.pokemon, tp.forme));
+        Pokemon tmPokemon = romHandler.getAltFormeOfPokemon(tp.pokemon, tp.forme);
         for (int tmMove: allTMMoves) {
-            if (tmCompat[allTMMoves.indexOf(tmMove) + 1]) {
+            if (allTMCompat.get(tmPokemon, allTMMoves.indexOf(tmMove))) {
                 Move thisMove = moves.get(tmMove);
                 if (thisMove.power > 1 && tp.level * 3 > thisMove.power * thisMove.hitCount &&
                         this.random.nextDouble() < tmMoveProbability) {
@@ -613,9 +609,9 @@ public class TrainerMovesetRandomizer extends Randomizer {
 
         // Move Tutor Moves
         if (romHandler.hasMoveTutors()) {
-            boolean[] tutorCompat = allTutorCompat.get(romHandler.getAltFormeOfPokemon(tp.pokemon, tp.forme));
+            Pokemon tutorPokemon = romHandler.getAltFormeOfPokemon(tp.pokemon, tp.forme);
             for (int tutorMove: allTutorMoves) {
-                if (tutorCompat[allTutorMoves.indexOf(tutorMove) + 1]) {
+                if (allTutorCompat.get(tutorPokemon, allTutorMoves.indexOf(tutorMove))) {
                     Move thisMove = moves.get(tutorMove);
                     if (thisMove.power > 1 && tp.level * 3 > thisMove.power * thisMove.hitCount &&
                             this.random.nextDouble() < tutorMoveProbability) {
@@ -20,10 +20,14 @@ public class TrainerPokemonRandomizer extends Randomizer {
     private PokemonSet<Pokemon> banned = new PokemonSet<>();
     private final PokemonSet<Pokemon> usedAsUnique = new PokemonSet<>();
 
+    // built lazily, since they are only needed with "similar strength"
+    private PowerLevelIndex allByPowerLevel;
+    private final Map<Type, PowerLevelIndex> byTypeAndPowerLevel = new EnumMap<>(Type.class);
+
     private Map<Type, Integer> typeWeightings;
     private int totalTypeWeighting;
 
-    private final Map<Pokemon, Integer> placementHistory = new HashMap<>();
+    private final PlacementHistory placementHistory = new PlacementHistory();
 
     private int fullyEvolvedRandomSeed = -1;
 
@@ -67,6 +71,8 @@ public class TrainerPokemonRandomizer extends Randomizer {
 
         // Set up Pokemon pool
         cachedReplacements = new TreeMap<>();
+        allByPowerLevel = null;
+        byTypeAndPowerLevel.clear();
         cachedAll = new PokemonSet<>(rPokeService.getPokemon(noLegendaries, includeFormes, false));
 
         if (useLocalPokemon) {
@@ -307,7 +313,7 @@ public class TrainerPokemonRandomizer extends Randomizer {
 
                 // Chosen Pokemon is locked in past here
                 if (distributionSetting || (mainPlaythroughSetting && mainPlaythroughTrainers.contains(t.index))) {
-                    setPlacementHistory(newPK);
+                    placementHistory.place(newPK);
                 }
                 tp.pokemon = newPK;
                 setFormeForTrainerPokemon(tp, newPK);
@@ -376,6 +382,7 @@ public class TrainerPokemonRandomizer extends Randomizer {
                                                boolean banIrregularAltFormes) {
         PokemonSet<Pokemon> pickFrom;
         PokemonSet<Pokemon> withoutBannedPokemon;
+        Type poolType = null;
 
         if (swapMegaEvos) {
             pickFrom = rPokeService.getMegaEvolutions()
@@ -389,8 +396,7 @@ public class TrainerPokemonRandomizer extends Randomizer {
 
         if (usePlacementHistory) {
             // "Distributed" settings
-            double placementAverage = getPlacementAverage();
-            pickFrom = pickFrom.filter(pk -> getPlacementHistory(pk) < placementAverage * 2);
+            pickFrom = placementHistory.filterPlacedLessThan(pickFrom, placementHistory.getAverage() * 2);
             if (pickFrom.isEmpty()) {
                 pickFrom = cachedAll;
             }
@@ -409,6 +415,7 @@ public class TrainerPokemonRandomizer extends Randomizer {
                 }
                 cachedReplacements.put(type, pokemonOfType);
             }
+            poolType = type;
             if (swapMegaEvos) {
                 pickFrom = cachedReplacements.get(type).filter(pickFrom::contains);
                 if (pickFrom.isEmpty()) {
@@ -419,7 +426,8 @@ public class TrainerPokemonRandomizer extends Randomizer {
             }
         }
 
-        withoutBannedPokemon = pickFrom.filter(pk -> !banned.contains(pk));
+        withoutBannedPokemon = new PokemonSet<>(pickFrom);
+        withoutBannedPokemon.removeAll(banned);
         if (!withoutBannedPokemon.isEmpty()) {
             pickFrom = withoutBannedPokemon;
         }
@@ -430,17 +438,11 @@ public class TrainerPokemonRandomizer extends Randomizer {
             int currentBST = current.bstForPowerLevels();
             int minTarget = currentBST - currentBST / 10;
             int maxTarget = currentBST + currentBST / 10;
+            PowerLevelIndex.Window window = getPowerLevelIndex(poolType).window(wonderGuardAllowed);
             PokemonSet<Pokemon> canPick = new PokemonSet<>();
             int expandRounds = 0;
             while (canPick.isEmpty() || (canPick.size() < 3 && expandRounds < 2)) {
-                for (Pokemon pk : pickFrom) {
-                    if (pk.bstForPowerLevels() >= minTarget
-                            && pk.bstForPowerLevels() <= maxTarget
-                            && (wonderGuardAllowed || (pk.getAbility1() != Abilities.wonderGuard
-                            && pk.getAbility2() != Abilities.wonderGuard && pk.getAbility3() != Abilities.wonderGuard))) {
-                        canPick.add(pk);
-                    }
-                }
+                window.widen(minTarget, maxTarget, pickFrom, canPick);
                 minTarget -= currentBST / 20;
                 maxTarget += currentBST / 20;
                 expandRounds++;
@@ -452,8 +454,8 @@ public class TrainerPokemonRandomizer extends Randomizer {
 
             Pokemon chosenPokemon = canPick.getRandom(random);
             if (usePlacementHistory) {
-                double placementAverage = getPlacementAverage();
-                PokemonSet<Pokemon> filteredPickList = canPick.filter(pk -> getPlacementHistory(pk) < placementAverage);
+                PokemonSet<Pokemon> filteredPickList = placementHistory.filterPlacedLessThan(canPick,
+                        placementHistory.getAverage());
                 if (filteredPickList.isEmpty()) {
                     filteredPickList = canPick;
                 }
@@ -475,6 +477,20 @@ public class TrainerPokemonRandomizer extends Randomizer {
         }
     }
 
+    /**
+     * Returns an index over a superset of the Pokemon that can be picked from; the whole ROM if type is null,
+     * else the cached replacements for that type.
+     */
+    private PowerLevelIndex getPowerLevelIndex(Type type) {
+        if (type == null) {
+            if (allByPowerLevel == null) {
+                allByPowerLevel = new PowerLevelIndex(romHandler.getPokemonSetInclFormes());
+            }
+            return allByPowerLevel;
+        }
+        return byTypeAndPowerLevel.computeIfAbsent(type, t -> new PowerLevelIndex(cachedReplacements.get(t)));
+    }
+
     /**
      * Picks a type, sometimes based on frequency of non-banned Pokémon of that type. Compare with randomType().
      * Never picks a type with no non-banned Pokémon, even when weightByFrequency == false.
@@ -737,19 +753,6 @@ public class TrainerPokemonRandomizer extends Randomizer {
         }
     }
 
-    private void setPlacementHistory(Pokemon newPK) {
-        int history = getPlacementHistory(newPK);
-        placementHistory.put(newPK, history + 1);
-    }
-
-    private int getPlacementHistory(Pokemon newPK) {
-        return placementHistory.getOrDefault(newPK, 0);
-    }
-
-    private double getPlacementAverage() {
-        return placementHistory.values().stream().mapToInt(e -> e).average().orElse(0);
-    }
-
     public void makeRivalCarryStarter() {
         List<Trainer> currentTrainers = romHandler.getTrainers();
         rivalCarriesStarterUpdate(currentTrainers, "RIVAL", romHandler.isORAS() ? 0 : 1);
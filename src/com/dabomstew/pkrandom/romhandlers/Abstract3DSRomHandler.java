@@ -31,14 +31,17 @@ import com.dabomstew.pkrandom.pokemon.Pokemon;
 import com.dabomstew.pkrandom.pokemon.Type;
 
 import java.awt.image.BufferedImage;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * An abstract base class for 3DS {@link RomHandler}s, which standardises common 3DS functions.
@@ -48,15 +51,24 @@ public abstract class Abstract3DSRomHandler extends AbstractRomHandler {
 	private NCCH baseRom;
 	private NCCH gameUpdate;
 	private String loadedFN;
+	// GARCs as read, by path and decompression setting. Only copies of these are handed out by readGARC,
+	// so changes to a copy are not seen by later reads until it is written with writeGARC
+	private final Map<GARCKey, GARCArchive> garcCache = new HashMap<>();
+
+	// compressThese is null for GARCs read with just skipDecompression
+	private record GARCKey(String subpath, boolean skipDecompression, List<Boolean> compressThese) {
+	}
 
 	@Override
 	public boolean loadRom(String filename) {
-		String productCode = getProductCodeFromFile(filename);
-		String titleId = getTitleIdFromFile(filename);
+		RomFileHeader header = RomFileHeader.read(filename);
+		String productCode = getProductCode(header);
+		String titleId = getTitleId(header);
 		if (!this.detect3DSRom(productCode, titleId)) {
 			return false;
 		}
 		// Load inner rom
+		garcCache.clear();
 		try {
 			baseRom = new NCCH(filename, productCode, titleId);
 			if (!baseRom.isDecrypted()) {
@@ -70,6 +82,84 @@ public abstract class Abstract3DSRomHandler extends AbstractRomHandler {
 		return true;
 	}
 
+	@Override
+	protected boolean parseSnapshot(RomSnapshot snapshot) {
+		if (!(snapshot instanceof CTRRomSnapshot ctrSnapshot)) {
+			throw new IllegalArgumentException("Not a 3DS ROM snapshot: " + snapshot);
+		}
+		NCCH template = ctrSnapshot.template;
+		if (!this.detect3DSRom(template.getProductCode(), template.getTitleId())) {
+			return false;
+		}
+		garcCache.clear();
+		try {
+			baseRom = new NCCH(template);
+			gameUpdate = ctrSnapshot.gameUpdateTemplate == null ? null : new NCCH(ctrSnapshot.gameUpdateTemplate);
+		} catch (IOException e) {
+			throw new RomIOException(e);
+		}
+		loadedFN = ctrSnapshot.getFilename();
+		this.loadedROM(template.getProductCode(), template.getTitleId());
+		return true;
+	}
+
+	@Override
+	protected AbstractRomHandler copyAsTemplate() {
+		Abstract3DSRomHandler template = (Abstract3DSRomHandler) super.copyAsTemplate();
+		// like those of the snapshot, the template's NCCHs are only copied, never read from
+		try {
+			template.baseRom.closeROM();
+			if (template.gameUpdate != null) {
+				template.gameUpdate.closeROM();
+			}
+		} catch (IOException e) {
+			throw new RomIOException(e);
+		}
+		return template;
+	}
+
+	@Override
+	protected Map<Class<?>, UnaryOperator<Object>> getCopiers() {
+		Map<Class<?>, UnaryOperator<Object>> copiers = super.getCopiers();
+		// loading never writes to the ROM, so copying the template's gives the files as read from the ROM file
+		copiers.put(NCCH.class, ncch -> {
+			try {
+				return new NCCH((NCCH) ncch);
+			} catch (IOException e) {
+				throw new RomIOException(e);
+			}
+		});
+		return copiers;
+	}
+
+	@Override
+	public RomSnapshot getRomSnapshot() {
+		try {
+			NCCH template = new NCCH(baseRom);
+			template.closeROM();
+			NCCH gameUpdateTemplate = null;
+			if (gameUpdate != null) {
+				gameUpdateTemplate = new NCCH(gameUpdate);
+				gameUpdateTemplate.closeROM();
+			}
+			return new CTRRomSnapshot(loadedFN, template, gameUpdateTemplate);
+		} catch (IOException e) {
+			throw new RomIOException(e);
+		}
+	}
+
+	private static class CTRRomSnapshot extends AbstractRomSnapshot {
+		// never read from directly, only copied, so the copies share its mapping of the ROM file
+		private final NCCH template;
+		private final NCCH gameUpdateTemplate;
+
+		private CTRRomSnapshot(String filename, NCCH template, NCCH gameUpdateTemplate) {
+			super(filename);
+			this.template = template;
+			this.gameUpdateTemplate = gameUpdateTemplate;
+		}
+	}
+
 	protected abstract boolean detect3DSRom(String productCode, String titleId);
 
 	@Override
@@ -115,8 +205,10 @@ public abstract class Abstract3DSRomHandler extends AbstractRomHandler {
 
 	@Override
 	public boolean loadGameUpdate(String filename) {
-		String productCode = getProductCodeFromFile(filename);
-		String titleId = getTitleIdFromFile(filename);
+		RomFileHeader header = RomFileHeader.read(filename);
+		String productCode = getProductCode(header);
+		String titleId = getTitleId(header);
+		garcCache.clear();
 		try {
 			gameUpdate = new NCCH(filename, productCode, titleId);
 			if (!gameUpdate.isDecrypted()) {
@@ -136,6 +228,7 @@ public abstract class Abstract3DSRomHandler extends AbstractRomHandler {
 	@Override
 	public void removeGameUpdate() {
 		gameUpdate = null;
+		garcCache.clear();
 		this.loadedROM(baseRom.getProductCode(), baseRom.getTitleId());
 	}
 
@@ -173,11 +266,23 @@ public abstract class Abstract3DSRomHandler extends AbstractRomHandler {
 		baseRom.writeCode(data);
 	}
 	protected GARCArchive readGARC(String subpath, boolean skipDecompression) throws IOException {
-		return new GARCArchive(readFile(subpath), skipDecompression);
+		GARCKey key = new GARCKey(subpath, skipDecompression, null);
+		GARCArchive template = garcCache.get(key);
+		if (template == null) {
+			template = new GARCArchive(readFile(subpath), skipDecompression);
+			garcCache.put(key, template);
+		}
+		return new GARCArchive(template);
 	}
 
 	protected GARCArchive readGARC(String subpath, List<Boolean> compressThese) throws IOException {
-		return new GARCArchive(readFile(subpath), compressThese);
+		GARCKey key = new GARCKey(subpath, false, List.copyOf(compressThese));
+		GARCArchive template = garcCache.get(key);
+		if (template == null) {
+			template = new GARCArchive(readFile(subpath), compressThese);
+			garcCache.put(key, template);
+		}
+		return new GARCArchive(template);
 	}
 
 	protected void writeGARC(String subpath, GARCArchive garc) throws IOException {
@@ -241,43 +346,34 @@ public abstract class Abstract3DSRomHandler extends AbstractRomHandler {
 		if (gameUpdate != null && gameUpdate.hasFile(location)) {
 			gameUpdate.writeFile(location, data);
 		}
+		garcCache.keySet().removeIf(key -> key.subpath().equals(location));
 	}
 
 	public String getTitleIdFromLoadedROM() {
 		return baseRom.getTitleId();
 	}
 
-	protected static String getProductCodeFromFile(String filename) {
-		try {
-			long ncchStartingOffset = NCCH.getCXIOffsetInFile(filename);
-			if (ncchStartingOffset == -1) {
-				return null;
-			}
-			FileInputStream fis = new FileInputStream(filename);
-			fis.skip(ncchStartingOffset + 0x150);
-			byte[] productCode = FileFunctions.readFullyIntoBuffer(fis, 0x10);
-			fis.close();
-			return new String(productCode, StandardCharsets.UTF_8).trim();
-		} catch (IOException e) {
-			throw new RomIOException(e);
+	protected static String getProductCode(RomFileHeader header) {
+		long ncchStartingOffset = NCCH.getCXIOffset(header);
+		if (ncchStartingOffset == -1 || !header.has(ncchStartingOffset + 0x150, 0x10)) {
+			return null;
 		}
+		byte[] productCode = header.read(ncchStartingOffset + 0x150, 0x10);
+		return new String(productCode, StandardCharsets.UTF_8).trim();
 	}
 
 	public static String getTitleIdFromFile(String filename) {
-		try {
-			long ncchStartingOffset = NCCH.getCXIOffsetInFile(filename);
-			if (ncchStartingOffset == -1) {
-				return null;
-			}
-			FileInputStream fis = new FileInputStream(filename);
-			fis.skip(ncchStartingOffset + 0x118);
-			byte[] programId = FileFunctions.readFullyIntoBuffer(fis, 0x8);
-			fis.close();
-			reverseArray(programId);
-			return bytesToHex(programId);
-		} catch (IOException e) {
-			throw new RomIOException(e);
+		return getTitleId(RomFileHeader.read(filename));
+	}
+
+	protected static String getTitleId(RomFileHeader header) {
+		long ncchStartingOffset = NCCH.getCXIOffset(header);
+		if (ncchStartingOffset == -1 || !header.has(ncchStartingOffset + 0x118, 0x8)) {
+			return null;
 		}
+		byte[] programId = header.read(ncchStartingOffset + 0x118, 0x8);
+		reverseArray(programId);
+		return bytesToHex(programId);
 	}
 
 	private static void reverseArray(byte[] bytes) {
@@ -351,8 +447,8 @@ public abstract class Abstract3DSRomHandler extends AbstractRomHandler {
 	}
 
 	@Override
-	public List<BufferedImage> getAllPokemonImages() {
-		List<BufferedImage> bims = new ArrayList<>();
+	public List<Supplier<BufferedImage>> getAllPokemonImageSuppliers() {
+		List<Supplier<BufferedImage>> suppliers = new ArrayList<>();
 
 		String GARCPath = getGARCPath("PokemonGraphics");
 		GARCArchive pokeGraphicsGARC;
@@ -362,11 +458,12 @@ public abstract class Abstract3DSRomHandler extends AbstractRomHandler {
 			throw new RomIOException(e);
 		}
 
+		// the GARC only decompresses an icon when it is first read, so nothing is decoded up front
 		for (int i = 1; i < pokeGraphicsGARC.files.size(); i++) {
-			BufferedImage icon = getPokemonIcon(i, pokeGraphicsGARC, false, true);
-			bims.add(icon);
+			final int iconIndex = i;
+			suppliers.add(() -> getPokemonIcon(iconIndex, pokeGraphicsGARC, false, true));
 		}
-		return bims;
+		return suppliers;
 	}
 
 	public int getIconGARCSize() {
@@ -7,6 +7,7 @@ import com.dabomstew.pkrandom.exceptions.CannotWriteToLocationException;
 import com.dabomstew.pkrandom.exceptions.RomIOException;
 import com.dabomstew.pkrandom.graphics.palettes.Palette;
 import com.dabomstew.pkrandom.newnds.NARCArchive;
+import com.dabomstew.pkrandom.newnds.NARCCache;
 import com.dabomstew.pkrandom.newnds.NDSRom;
 import com.dabomstew.pkrandom.pokemon.Pokemon;
 import com.dabomstew.pkrandom.pokemon.Type;
@@ -15,11 +16,12 @@ import com.dabomstew.pkrandom.romhandlers.romentries.AbstractDSRomEntry;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * An abstract base class for DS {@link RomHandler}s, which standardises common DS functions.
@@ -36,12 +38,14 @@ public abstract class AbstractDSRomHandler extends AbstractRomHandler {
     private NDSRom baseRom;
     private String loadedFN;
     private boolean arm9Extended = false;
+    private NARCCache narcCache;
 
     protected abstract boolean detectNDSRom(String ndsCode, byte version);
 
     @Override
     public boolean loadRom(String filename) {
-        if (!this.detectNDSRom(getROMCodeFromFile(filename), getVersionFromFile(filename))) {
+        RomFileHeader header = RomFileHeader.read(filename);
+        if (!this.detectNDSRom(getROMCode(header), getVersion(header))) {
             return false;
         }
         // Load inner rom
@@ -50,11 +54,50 @@ public abstract class AbstractDSRomHandler extends AbstractRomHandler {
         } catch (IOException e) {
             throw new RomIOException(e);
         }
+        narcCache = new NARCCache(baseRom);
         loadedFN = filename;
         loadedROM(baseRom.getCode(), baseRom.getVersion());
         return true;
     }
 
+    @Override
+    protected boolean parseSnapshot(RomSnapshot snapshot) {
+        if (!(snapshot instanceof DSRomSnapshot dsSnapshot)) {
+            throw new IllegalArgumentException("Not a DS ROM snapshot: " + snapshot);
+        }
+        if (!this.detectNDSRom(dsSnapshot.template.getCode(), dsSnapshot.template.getVersion())) {
+            return false;
+        }
+        baseRom = new NDSRom(dsSnapshot.template);
+        narcCache = new NARCCache(baseRom);
+        loadedFN = dsSnapshot.getFilename();
+        loadedROM(baseRom.getCode(), baseRom.getVersion());
+        return true;
+    }
+
+    @Override
+    protected Map<Class<?>, UnaryOperator<Object>> getCopiers() {
+        Map<Class<?>, UnaryOperator<Object>> copiers = super.getCopiers();
+        // loading never writes to the ROM, so copying the template's gives the files as read from the ROM file
+        copiers.put(NDSRom.class, rom -> new NDSRom((NDSRom) rom));
+        return copiers;
+    }
+
+    @Override
+    public RomSnapshot getRomSnapshot() {
+        return new DSRomSnapshot(loadedFN, new NDSRom(baseRom));
+    }
+
+    private static class DSRomSnapshot extends AbstractRomSnapshot {
+        // never read from directly, only copied, so the copies share its memory-mapped ROM file
+        private final NDSRom template;
+
+        private DSRomSnapshot(String filename, NDSRom template) {
+            super(filename);
+            this.template = template;
+        }
+    }
+
     @Override
     public String loadedFilename() {
         return loadedFN;
@@ -73,6 +116,7 @@ public abstract class AbstractDSRomHandler extends AbstractRomHandler {
     @Override
     public boolean saveRomFile(String filename, long seed) {
         try {
+            narcCache.flush();
             baseRom.saveTo(filename);
         } catch (IOException e) {
             if (e.getMessage().contains("Access is denied")) {
@@ -129,36 +173,35 @@ public abstract class AbstractDSRomHandler extends AbstractRomHandler {
         return true;
     }
 
+    /**
+     * Returns the NARC at the given path. The same instance is returned until the ROM is reloaded or the file
+     * is overwritten with {@link #writeFile(String, byte[])}, so changes made to it are seen by later reads
+     * even before it is written with {@link #writeNARC(String, NARCArchive)}.
+     */
     public NARCArchive readNARC(String subpath) throws IOException {
-        return new NARCArchive(readFile(subpath));
+        return narcCache.getNARC(subpath);
     }
 
+    /**
+     * Marks the NARC as changed. It is only turned into bytes when the ROM is saved, or when the file is
+     * read with {@link #readFile(String)}, so writing the same NARC several times is cheap.
+     */
     public void writeNARC(String subpath, NARCArchive narc) throws IOException {
-        this.writeFile(subpath, narc.getBytes());
+        narcCache.writeNARC(subpath, narc);
     }
 
-    protected static String getROMCodeFromFile(String filename) {
-        try {
-            FileInputStream fis = new FileInputStream(filename);
-            fis.skip(0x0C);
-            byte[] sig = FileFunctions.readFullyIntoBuffer(fis, 4);
-            fis.close();
-            return new String(sig, StandardCharsets.US_ASCII);
-        } catch (IOException e) {
-            throw new RomIOException(e);
+    protected static String getROMCode(RomFileHeader header) {
+        if (!header.has(0x0C, 4)) {
+            return null;
         }
+        return new String(header.read(0x0C, 4), StandardCharsets.US_ASCII);
     }
 
-    protected static byte getVersionFromFile(String filename) {
-        try {
-            FileInputStream fis = new FileInputStream(filename);
-            fis.skip(0x1E);
-            byte[] version = FileFunctions.readFullyIntoBuffer(fis, 1);
-            fis.close();
-            return version[0];
-        } catch (IOException e) {
-            throw new RomIOException(e);
+    protected static byte getVersion(RomFileHeader header) {
+        if (!header.has(0x1E, 1)) {
+            return -1;
         }
+        return header.read(0x1E, 1)[0];
     }
 
     protected int readByte(byte[] data, int offset) { return data[offset] & 0xFF; }
@@ -198,7 +241,7 @@ public abstract class AbstractDSRomHandler extends AbstractRomHandler {
     }
 
     protected byte[] readFile(String location) throws IOException {
-        return baseRom.getFile(location);
+        return narcCache.getFile(location);
     }
 
     protected void writeFile(String location, byte[] data) throws IOException {
@@ -211,7 +254,7 @@ public abstract class AbstractDSRomHandler extends AbstractRomHandler {
             System.arraycopy(data, offset, newData, 0, length);
             data = newData;
         }
-        baseRom.writeFile(location, data);
+        narcCache.writeFile(location, data);
     }
 
     protected byte[] readARM9() throws IOException {
@@ -464,9 +507,9 @@ public abstract class AbstractDSRomHandler extends AbstractRomHandler {
     protected abstract void saveGraphicalFormePokemonPalettes(Pokemon pk);
 
     @Override
-    public List<BufferedImage> getAllPokemonImages() {
+    public List<Supplier<BufferedImage>> getAllPokemonImageSuppliers() {
 //        ripAllOtherPokes();
-        List<BufferedImage> bims = new ArrayList<>();
+        List<Supplier<BufferedImage>> suppliers = new ArrayList<>();
 
 		String NARCPath = getRomEntry().getFile("PokemonGraphics");
 		NARCArchive pokeGraphicsNARC;
@@ -478,9 +521,12 @@ public abstract class AbstractDSRomHandler extends AbstractRomHandler {
 
         for (Pokemon pk : getPokemonSet()) {
             DSPokemonImageGetter pig = createPokemonImageGetter(pk).setPokeGraphicsNARC(pokeGraphicsNARC);
-            bims.add(pig.getFull());
+            // reads any other NARCs the getter needs now, since the NARC cache is not safe to use from
+            // several threads
+            pig.beforeGet();
+            suppliers.add(pig::getFull);
         }
-        return bims;
+        return suppliers;
     }
 
     private void ripAllOtherPokes() {
@@ -17,10 +17,14 @@ import java.io.*;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * An abstract base class for GB/GBA {@link RomHandler}s, which standardises common GB(A) functions.
@@ -28,9 +32,8 @@ import java.util.function.Function;
 public abstract class AbstractGBRomHandler extends AbstractRomHandler {
 
     protected byte[] rom;
-    protected byte[] originalRom;
+    private RomImage originalRom;
     private String loadedFileName;
-    private long actualCRC32;
 
     @Override
     public boolean loadRom(String filename) {
@@ -50,11 +53,52 @@ public abstract class AbstractGBRomHandler extends AbstractRomHandler {
         if (!detectRom(loaded)) {
             throw new RomIOException("Could not detect ROM.");
         }
-        this.rom = loaded;
-        this.originalRom = new byte[rom.length];
-        System.arraycopy(rom, 0, originalRom, 0, rom.length);
+        this.originalRom = new RomImage(loaded);
+        this.rom = originalRom.copy();
         loadedFileName = filename;
-        this.actualCRC32 = FileFunctions.getCRC32(rom);
+    }
+
+    @Override
+    public RomSnapshot getRomSnapshot() {
+        return new GBRomSnapshot(loadedFileName, originalRom);
+    }
+
+    @Override
+    protected boolean parseSnapshot(RomSnapshot snapshot) {
+        if (!(snapshot instanceof GBRomSnapshot gbSnapshot)) {
+            throw new IllegalArgumentException("Not a GB(A) ROM snapshot: " + snapshot);
+        }
+        try {
+            this.rom = gbSnapshot.originalRom.copy();
+            if (!detectRom(rom)) {
+                throw new RomIOException("Could not detect ROM.");
+            }
+            this.originalRom = gbSnapshot.originalRom;
+            loadedFileName = gbSnapshot.getFilename();
+            midLoadingSetUp();
+            loadGameData();
+            return true;
+        } catch (RomIOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    protected Map<Class<?>, UnaryOperator<Object>> getCopiers() {
+        Map<Class<?>, UnaryOperator<Object>> copiers = super.getCopiers();
+        // originalRom is never written to, so it can be shared by all handlers loaded from the same snapshot
+        copiers.put(RomImage.class, UnaryOperator.identity());
+        return copiers;
+    }
+
+    private static class GBRomSnapshot extends AbstractRomSnapshot {
+        private final RomImage originalRom;
+
+        private GBRomSnapshot(String filename, RomImage originalRom) {
+            super(filename);
+            this.originalRom = originalRom;
+        }
     }
 
     /**
@@ -111,6 +155,9 @@ public abstract class AbstractGBRomHandler extends AbstractRomHandler {
 
     @Override
     public boolean saveRomFile(String filename, long seed) {
+        if (isPatchFilename(filename)) {
+            return saveRomPatch(filename);
+        }
         try {
             FileOutputStream fos = new FileOutputStream(filename);
             fos.write(rom);
@@ -124,6 +171,38 @@ public abstract class AbstractGBRomHandler extends AbstractRomHandler {
         }
     }
 
+    /**
+     * Returns whether {@link #saveRom(String, long, boolean)} saves to the given file as a patch rather than as a
+     * full ROM, i.e. whether it ends with ".ips" or ".bps".
+     */
+    public static boolean isPatchFilename(String filename) {
+        String lowerCase = filename.toLowerCase();
+        return lowerCase.endsWith(".ips") || lowerCase.endsWith(".bps");
+    }
+
+    /**
+     * Saves only the changes made to the ROM, as a patch to be applied to the loaded ROM file. The patch is a BPS
+     * patch if the filename ends with ".bps", and an IPS patch otherwise. IPS patches can't hold changes past the
+     * first 16MB of the ROM.
+     */
+    private boolean saveRomPatch(String filename) {
+        try {
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(filename))) {
+                if (filename.toLowerCase().endsWith(".bps")) {
+                    originalRom.writeBPSPatch(rom, os);
+                } else {
+                    originalRom.writeIPSPatch(rom, os);
+                }
+            }
+            return true;
+        } catch (IOException ex) {
+            if (ex.getMessage() != null && ex.getMessage().contains("Access is denied")) {
+                throw new CannotWriteToLocationException("The randomizer cannot write to this location: " + filename);
+            }
+            return false;
+        }
+    }
+
     @Override
     public boolean saveRomDirectory(String filename) {
         // do nothing, because GB games don't really have a concept of a filesystem
@@ -156,8 +235,8 @@ public abstract class AbstractGBRomHandler extends AbstractRomHandler {
     public void printRomDiagnostics(PrintStream logStream) {
         Path p = Paths.get(loadedFileName);
         logStream.println("File name: " + p.getFileName().toString());
-        long crc = FileFunctions.getCRC32(originalRom);
-        logStream.println("Original ROM CRC32: " + String.format("%08X", crc));
+        logStream.println("Original ROM CRC32: " + String.format("%08X", originalRom.getCRC32()));
+        logStream.println("Freed space: " + getFreedSpace().getStatistics());
     }
 
     @Override
@@ -194,25 +273,6 @@ public abstract class AbstractGBRomHandler extends AbstractRomHandler {
         }
     }
 
-    protected static byte[] loadFilePartial(String filename, int maxBytes) {
-        try {
-            File fh = new File(filename);
-            if (!fh.exists() || !fh.isFile() || !fh.canRead()) {
-                return new byte[0];
-            }
-            long fileSize = fh.length();
-            if (fileSize > Integer.MAX_VALUE) {
-                return new byte[0];
-            }
-            FileInputStream fis = new FileInputStream(filename);
-            byte[] file = FileFunctions.readFullyIntoBuffer(fis, Math.min((int) fileSize, maxBytes));
-            fis.close();
-            return file;
-        } catch (IOException ex) {
-            return new byte[0];
-        }
-    }
-
     protected void readByteIntoFlags(boolean[] flags, int offsetIntoFlags, int offsetIntoROM) {
         int thisByte = rom[offsetIntoROM] & 0xFF;
         for (int i = 0; i < 8 && (i + offsetIntoFlags) < flags.length; i++) {
@@ -369,9 +429,7 @@ public abstract class AbstractGBRomHandler extends AbstractRomHandler {
 		if (length < 1) {
 			throw new IllegalArgumentException("length must be at least 1.");
 		}
-		for (int i = 0; i < length; i++) {
-			writeByte(offset + i, getFreeSpaceByte());
-		}
+		Arrays.fill(rom, offset, offset + length, getFreeSpaceByte());
         getFreedSpace().free(offset, length);
 	}
 
@@ -439,12 +497,12 @@ public abstract class AbstractGBRomHandler extends AbstractRomHandler {
     }
 
     @Override
-	public List<BufferedImage> getAllPokemonImages() {
-		List<BufferedImage> bims = new ArrayList<>();
+	public List<Supplier<BufferedImage>> getAllPokemonImageSuppliers() {
+		List<Supplier<BufferedImage>> suppliers = new ArrayList<>();
 		for (Pokemon pk : getPokemonSet()) {
-			bims.add(createPokemonImageGetter(pk).getFull());
+			suppliers.add(() -> createPokemonImageGetter(pk).getFull());
 		}
-		return bims;
+		return suppliers;
 	}
 
     @Override
@@ -476,7 +534,7 @@ public abstract class AbstractGBRomHandler extends AbstractRomHandler {
 
     @Override
     public boolean isRomValid() {
-        return getRomEntry().getExpectedCRC32() == actualCRC32;
+        return getRomEntry().getExpectedCRC32() == originalRom.getCRC32();
     }
 
 }
@@ -33,17 +33,19 @@ import com.dabomstew.pkrandom.RomFunctions;
 import com.dabomstew.pkrandom.Settings;
 import com.dabomstew.pkrandom.constants.GlobalConstants;
 import com.dabomstew.pkrandom.exceptions.RomIOException;
+import com.dabomstew.pkrandom.graphics.SpriteExporter;
 import com.dabomstew.pkrandom.graphics.packs.GraphicsPack;
 import com.dabomstew.pkrandom.pokemon.*;
 import com.dabomstew.pkrandom.romhandlers.romentries.RomEntry;
 import com.dabomstew.pkrandom.services.RestrictedPokemonService;
 import com.dabomstew.pkrandom.services.TypeService;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * An abstract base class for {@link RomHandler}s, with default implementations for many of the interface's methods.
@@ -67,6 +69,51 @@ public abstract class AbstractRomHandler implements RomHandler {
         return typeService;
     }
 
+    @Override
+    public boolean loadRom(RomSnapshot snapshot) {
+        if (!(snapshot instanceof AbstractRomSnapshot romSnapshot)) {
+            throw new IllegalArgumentException("Not a snapshot taken by a RomHandler: " + snapshot);
+        }
+        AbstractRomHandler template;
+        synchronized (romSnapshot) {
+            template = romSnapshot.getTemplate();
+            if (template == null) {
+                // the first RomHandler loaded from the snapshot parses the ROM, and the others copy what it parsed
+                if (!parseSnapshot(romSnapshot)) {
+                    return false;
+                }
+                romSnapshot.setTemplate(copyAsTemplate());
+                return true;
+            }
+        }
+        if (template.getClass() != getClass()) {
+            return false;
+        }
+        DeepCopier.copyInto(template, this, getCopiers());
+        return true;
+    }
+
+    /**
+     * Loads the ROM held by the snapshot by parsing it, as {@link #loadRom(String)} does with the ROM file.
+     */
+    protected abstract boolean parseSnapshot(RomSnapshot snapshot);
+
+    /**
+     * Returns a copy of this RomHandler, right after it parsed a {@link RomSnapshot}, for the RomHandlers loaded from
+     * the same snapshot to copy.
+     */
+    protected AbstractRomHandler copyAsTemplate() {
+        return DeepCopier.copy(this, getCopiers());
+    }
+
+    /**
+     * Returns copiers for the objects held by this RomHandler which {@link DeepCopier} can't copy field by field,
+     * by class. Subclasses add copiers for e.g. their open ROM file.
+     */
+    protected Map<Class<?>, UnaryOperator<Object>> getCopiers() {
+        return new HashMap<>();
+    }
+
     @Override
     public PokemonSet<Pokemon> getPokemonSet() {
         return PokemonSet.unmodifiable(getPokemon());
@@ -507,19 +554,12 @@ public abstract class AbstractRomHandler implements RomHandler {
 
     // just for testing
     public final void dumpAllPokemonImages() {
-        List<BufferedImage> bims = getAllPokemonImages();
-
-        for (int i = 0; i < bims.size(); i++) {
-            String fileAdress = "Pokemon_image_dump/gen" + generationOfPokemon() + "/"
-                    + String.format("%03d_d.png", i + 1);
-            File outputfile = new File(fileAdress);
-            try {
-                ImageIO.write(bims.get(i), "png", outputfile);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        try {
+            new SpriteExporter().writeFiles(getAllPokemonImageSuppliers(), i -> String.format("%03d_d", i + 1),
+                    new File("Pokemon_image_dump/gen" + generationOfPokemon()));
+        } catch (IOException e) {
+            throw new RomIOException(e);
         }
-
     }
 
     @Override
@@ -527,7 +567,14 @@ public abstract class AbstractRomHandler implements RomHandler {
         throw new UnsupportedOperationException(); // default: assumes no resource files are needed
     }
 
-    public abstract List<BufferedImage> getAllPokemonImages();
+    @Override
+    public List<BufferedImage> getAllPokemonImages() {
+        List<BufferedImage> bims = new ArrayList<>();
+        for (Supplier<BufferedImage> supplier : getAllPokemonImageSuppliers()) {
+            bims.add(supplier.get());
+        }
+        return bims;
+    }
 
     public abstract void savePokemonPalettes();
 
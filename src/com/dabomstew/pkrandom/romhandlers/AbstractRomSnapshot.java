@@ -0,0 +1,34 @@
+package com.dabomstew.pkrandom.romhandlers;
+
+/**
+ * A base class for {@link RomSnapshot}s, which also keeps the first {@link RomHandler} loaded from the snapshot, as it
+ * was right after parsing the ROM. The RomHandlers loaded after it copy that one, instead of parsing the ROM again.
+ */
+abstract class AbstractRomSnapshot implements RomSnapshot {
+
+    private final String filename;
+    // never changed once set, so it can be copied by several threads at once
+    private AbstractRomHandler template;
+
+    protected AbstractRomSnapshot(String filename) {
+        this.filename = filename;
+    }
+
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Returns the RomHandler to copy, or null if no RomHandler has been loaded from this snapshot yet.
+     * Only to be called while synchronized on the snapshot, as is {@link #setTemplate(AbstractRomHandler)}.
+     */
+    AbstractRomHandler getTemplate() {
+        return template;
+    }
+
+    void setTemplate(AbstractRomHandler template) {
+        this.template = template;
+    }
+
+}
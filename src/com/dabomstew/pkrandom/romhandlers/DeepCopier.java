@@ -0,0 +1,287 @@
+package com.dabomstew.pkrandom.romhandlers;
+
+import sun.reflect.ReflectionFactory;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Deep copies the state of a loaded {@link RomHandler}, so more RomHandlers can be loaded from a {@link RomSnapshot}
+ * without parsing the ROM again. Objects referenced more than once are copied once, so e.g. the Pokemon of an
+ * Evolution stay the ones in the Pokemon list of the copy.
+ * <br><br>
+ * Objects of the randomizer's own classes are copied field by field, without running their constructors.
+ * Strings, boxed primitives, enums, records and the JDK's comparators are shared, as they can't be changed.
+ * Collections of the JDK are copied through their public methods, where unmodifiable ones and those of non-public
+ * classes become their modifiable equivalents. Any other JDK object is an error, rather than being shared by accident.
+ * Objects that need copying some other way, e.g. those holding open files, are given to a copier for their class.
+ */
+public class DeepCopier {
+
+    private static final Set<Class<?>> IMMUTABLE_JDK_CLASSES = Set.of(String.class, Boolean.class, Character.class,
+            Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, Class.class);
+
+    private static final ClassValue<CopyableClass> COPYABLE_CLASSES = new ClassValue<>() {
+        @Override
+        protected CopyableClass computeValue(Class<?> type) {
+            return new CopyableClass(type);
+        }
+    };
+
+    /**
+     * The constructor and fields of one of the randomizer's own classes.
+     */
+    private static class CopyableClass {
+        private final Constructor<?> constructor;
+        private final Field[] fields;
+
+        private CopyableClass(Class<?> type) {
+            try {
+                constructor = ReflectionFactory.getReflectionFactory()
+                        .newConstructorForSerialization(type, Object.class.getDeclaredConstructor());
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+                boolean jdkClass = isJDKClass(c);
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers)) {
+                        continue;
+                    }
+                    if (jdkClass) {
+                        // e.g. the cached views of an AbstractMap, which are rebuilt when needed
+                        if (!Modifier.isTransient(modifiers)) {
+                            throw new IllegalArgumentException("Cannot copy a " + type.getName()
+                                    + ", as it extends " + c.getName() + " which has fields");
+                        }
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            this.fields = fields.toArray(new Field[0]);
+        }
+    }
+
+    private final Map<Class<?>, UnaryOperator<Object>> copiers;
+    private final Map<Object, Object> copies = new IdentityHashMap<>();
+    // copies whose contents are yet to be copied, done one at a time rather than recursively, as the paths through
+    // e.g. the Pokemon and their evolutions can be long
+    private final Deque<Runnable> unfilled = new ArrayDeque<>();
+    // hashed and sorted collections are only filled once all other objects are copied, as the hash codes and
+    // orderings of their elements depend on the contents of the elements
+    private final List<Runnable> unfilledHashed = new ArrayList<>();
+
+    private DeepCopier(Map<Class<?>, UnaryOperator<Object>> copiers) {
+        this.copiers = copiers;
+    }
+
+    /**
+     * Returns a deep copy of the object.
+     *
+     * @param copiers Copiers for objects which can't be copied field by field, by their exact class.
+     */
+    public static <T> T copy(T original, Map<Class<?>, UnaryOperator<Object>> copiers) {
+        DeepCopier copier = new DeepCopier(copiers);
+        @SuppressWarnings("unchecked")
+        T copy = (T) copier.copyValue(original);
+        copier.fillAll();
+        return copy;
+    }
+
+    /**
+     * Deep copies the contents of one object into another of the same class, so the target becomes a copy of the
+     * source. References to the source within its contents become references to the target.
+     *
+     * @param copiers Copiers for objects which can't be copied field by field, by their exact class.
+     */
+    public static void copyInto(Object source, Object target, Map<Class<?>, UnaryOperator<Object>> copiers) {
+        if (source.getClass() != target.getClass()) {
+            throw new IllegalArgumentException("Cannot copy a " + source.getClass().getName() + " into a "
+                    + target.getClass().getName());
+        }
+        DeepCopier copier = new DeepCopier(copiers);
+        copier.copies.put(source, target);
+        copier.fillFields(source, target, COPYABLE_CLASSES.get(source.getClass()));
+        copier.fillAll();
+    }
+
+    private static boolean isJDKClass(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+                || name.startsWith("sun.");
+    }
+
+    private void fillAll() {
+        while (!unfilled.isEmpty()) {
+            unfilled.pop().run();
+        }
+        // collections found inside others were registered later, and must be filled first
+        for (int i = unfilledHashed.size() - 1; i >= 0; i--) {
+            unfilledHashed.get(i).run();
+        }
+    }
+
+    private Object copyValue(Object original) {
+        if (original == null) {
+            return null;
+        }
+        Object copy = copies.get(original);
+        if (copy != null) {
+            return copy;
+        }
+        Class<?> type = original.getClass();
+        UnaryOperator<Object> copier = copiers.get(type);
+        if (copier != null) {
+            copy = copier.apply(original);
+        } else if (isImmutable(type)) {
+            copy = original;
+        } else if (type.isArray()) {
+            copy = copyArray(original);
+        } else if (original instanceof Collection<?> collection && isJDKClass(type)) {
+            copy = copyCollection(collection);
+        } else if (original instanceof Map<?, ?> map && isJDKClass(type)) {
+            copy = copyMap(map);
+        } else if (type == Object.class) {
+            copy = new Object();
+        } else if (isJDKClass(type)) {
+            throw new IllegalArgumentException("Cannot copy a " + type.getName());
+        } else {
+            copy = copyObject(original);
+        }
+        copies.put(original, copy);
+        return copy;
+    }
+
+    private static boolean isImmutable(Class<?> type) {
+        return IMMUTABLE_JDK_CLASSES.contains(type) || Enum.class.isAssignableFrom(type) || type.isRecord()
+                || type.isHidden() // lambdas
+                || (Comparator.class.isAssignableFrom(type) && isJDKClass(type)); // e.g. Comparator.reverseOrder()
+    }
+
+    private Object copyObject(Object original) {
+        CopyableClass copyable = COPYABLE_CLASSES.get(original.getClass());
+        Object copy;
+        try {
+            copy = copyable.constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        unfilled.push(() -> fillFields(original, copy, copyable));
+        return copy;
+    }
+
+    private void fillFields(Object original, Object copy, CopyableClass copyable) {
+        try {
+            for (Field field : copyable.fields) {
+                Class<?> fieldType = field.getType();
+                if (fieldType.isPrimitive()) {
+                    field.set(copy, field.get(original));
+                } else {
+                    field.set(copy, copyValue(field.get(original)));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Object copyArray(Object original) {
+        int length = Array.getLength(original);
+        Object copy = Array.newInstance(original.getClass().getComponentType(), length);
+        if (original.getClass().getComponentType().isPrimitive()) {
+            System.arraycopy(original, 0, copy, 0, length);
+        } else {
+            unfilled.push(() -> {
+                Object[] from = (Object[]) original;
+                Object[] to = (Object[]) copy;
+                for (int i = 0; i < length; i++) {
+                    to[i] = copyValue(from[i]);
+                }
+            });
+        }
+        return copy;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object copyCollection(Collection<?> original) {
+        Collection copy;
+        if (original instanceof EnumSet<?> enumSet) {
+            return EnumSet.copyOf(enumSet);
+        } else if (original instanceof SortedSet<?> sortedSet) {
+            copy = new TreeSet<>((Comparator) copyValue(sortedSet.comparator()));
+        } else if (hasPublicConstructor(original.getClass())) {
+            copy = (Collection) newInstance(original.getClass());
+        } else if (original instanceof Set<?>) {
+            copy = new LinkedHashSet<>();
+        } else {
+            copy = new ArrayList<>();
+        }
+        unfilled.push(() -> {
+            if (copy instanceof List<?>) {
+                for (Object element : original) {
+                    copy.add(copyValue(element));
+                }
+            } else {
+                List<Object> elements = new ArrayList<>(original.size());
+                for (Object element : original) {
+                    elements.add(copyValue(element));
+                }
+                unfilledHashed.add(() -> copy.addAll(elements));
+            }
+        });
+        return copy;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object copyMap(Map<?, ?> original) {
+        Map copy;
+        if (original instanceof EnumMap<?, ?> enumMap) {
+            copy = new EnumMap<>(enumMap);
+        } else if (original instanceof SortedMap<?, ?> sortedMap) {
+            copy = new TreeMap<>((Comparator) copyValue(sortedMap.comparator()));
+        } else if (hasPublicConstructor(original.getClass())) {
+            copy = (Map) newInstance(original.getClass());
+        } else {
+            copy = new LinkedHashMap<>();
+        }
+        unfilled.push(() -> {
+            List<Object> entries = new ArrayList<>(original.size() * 2);
+            for (Map.Entry<?, ?> entry : original.entrySet()) {
+                entries.add(copyValue(entry.getKey()));
+                entries.add(copyValue(entry.getValue()));
+            }
+            unfilledHashed.add(() -> {
+                for (int i = 0; i < entries.size(); i += 2) {
+                    copy.put(entries.get(i), entries.get(i + 1));
+                }
+            });
+        });
+        return copy;
+    }
+
+    private static boolean hasPublicConstructor(Class<?> type) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        try {
+            type.getConstructor();
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static Object newInstance(Class<?> type) {
+        try {
+            return type.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
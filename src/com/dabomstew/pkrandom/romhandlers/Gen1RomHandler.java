@@ -33,12 +33,12 @@ import com.dabomstew.pkrandom.graphics.palettes.SGBPaletteID;
 import com.dabomstew.pkrandom.pokemon.*;
 import com.dabomstew.pkrandom.romhandlers.romentries.GBCTMTextEntry;
 import com.dabomstew.pkrandom.romhandlers.romentries.Gen1RomEntry;
+import com.dabomstew.pkrandom.romhandlers.romentries.IniEntryIndex;
 import compressors.Gen1Cmp;
 import compressors.Gen1Decmp;
 
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -54,12 +54,13 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
             return new Gen1RomHandler();
         }
 
-        public boolean isLoadable(String filename) {
-            long fileLength = new File(filename).length();
+        @Override
+        public boolean isLoadable(RomFileHeader header) {
+            long fileLength = header.length();
             if (fileLength > 8 * 1024 * 1024) {
                 return false;
             }
-            byte[] loaded = loadFilePartial(filename, 0x1000);
+            byte[] loaded = header.getStart(0x1000);
             // nope
             return loaded.length != 0 && detectRomInner(loaded, (int) fileLength);
         }
@@ -73,7 +74,7 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
     private int[] moveRomToNumTable;
     private int pokedexCount;
 
-    private static List<Gen1RomEntry> roms;
+    private static IniEntryIndex<Gen1RomEntry> roms;
 
     static {
         loadRomEntries();
@@ -81,7 +82,7 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
 
     private static void loadRomEntries() {
         try {
-            roms = Gen1RomEntry.READER.readEntriesFromFile("gen1_offsets.ini");
+            roms = Gen1RomEntry.READER.indexEntriesFromFile("gen1_offsets.ini");
         } catch (IOException e) {
             throw new RuntimeException("Could not read Rom Entries.", e);
         }
@@ -106,7 +107,7 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
 
     public static boolean detectRomInner(byte[] rom, int romSize) {
         // size check
-        return romSize >= GBConstants.minRomSize && romSize <= GBConstants.maxRomSize && checkRomEntry(rom) != null;
+        return romSize >= GBConstants.minRomSize && romSize <= GBConstants.maxRomSize && findRomEntryStub(rom) != null;
     }
 
     @Override
@@ -124,7 +125,7 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
 
     @Override
     protected void initRomEntry() {
-        romEntry = checkRomEntry(this.rom);
+        romEntry = new Gen1RomEntry(roms.resolve(findRomEntryStub(this.rom))); // clone so we can modify
 
         addPlayerFrontImagePointersToRomEntry();
         addPlayerBackImageBankOffsetsToRomEntry();
@@ -193,7 +194,9 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
         }
     }
 
-    private static Gen1RomEntry checkRomEntry(byte[] rom) {
+    // finds the stub entry for the ROM, only looking at its identifying values, so detection doesn't parse
+    // the full entry
+    private static Gen1RomEntry findRomEntryStub(byte[] rom) {
         int version = rom[GBConstants.versionOffset] & 0xFF;
         int nonjap = rom[GBConstants.jpFlagOffset] & 0xFF;
         // Check for specific CRC first
@@ -201,13 +204,13 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
         for (Gen1RomEntry re : roms) {
             if (romSig(rom, re.getRomCode()) && re.getVersion() == version && re.getNonJapanese() == nonjap
                     && re.getCRCInHeader() == crcInHeader) {
-                return new Gen1RomEntry(re);
+                return re;
             }
         }
         // Now check for non-specific-CRC entries
         for (Gen1RomEntry re : roms) {
             if (romSig(rom, re.getRomCode()) && re.getVersion() == version && re.getNonJapanese() == nonjap && re.getCRCInHeader() == -1) {
-                return new Gen1RomEntry(re);
+                return re;
             }
         }
         // Not found
@@ -1619,35 +1622,29 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getTMHMCompatibility() {
-        Map<Pokemon, boolean[]> compat = new TreeMap<>();
+    public MoveCompatibilityMatrix getTMHMCompatibility() {
+        int moveCount = Gen1Constants.tmCount + Gen1Constants.hmCount;
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, moveCount);
         int pokeStatsOffset = romEntry.getIntValue("PokemonStatsOffset");
         for (int i = 1; i <= pokedexCount; i++) {
             int baseStatsOffset = (romEntry.isYellow() || i != Species.mew) ? (pokeStatsOffset + (i - 1)
                     * Gen1Constants.baseStatsEntrySize) : romEntry.getIntValue("MewStatsOffset");
             Pokemon pkmn = pokes[i];
-            boolean[] flags = new boolean[Gen1Constants.tmCount + Gen1Constants.hmCount + 1];
-            for (int j = 0; j < 7; j++) {
-                readByteIntoFlags(flags, j * 8 + 1, baseStatsOffset + Gen1Constants.bsTMHMCompatOffset + j);
-            }
-            compat.put(pkmn, flags);
+            compat.addPokemon(pkmn);
+            compat.readBytes(pkmn, 0, moveCount, rom, baseStatsOffset + Gen1Constants.bsTMHMCompatOffset);
         }
         return compat;
     }
 
     @Override
-    public void setTMHMCompatibility(Map<Pokemon, boolean[]> compatData) {
+    public void setTMHMCompatibility(MoveCompatibilityMatrix compatData) {
         int pokeStatsOffset = romEntry.getIntValue("PokemonStatsOffset");
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compatData.entrySet()) {
-            Pokemon pkmn = compatEntry.getKey();
-            boolean[] flags = compatEntry.getValue();
+        for (Pokemon pkmn : compatData.getPokemon()) {
             int baseStatsOffset = (romEntry.isYellow() || pkmn.getNumber() != Species.mew) ? (pokeStatsOffset + (pkmn.getNumber() - 1)
                     * Gen1Constants.baseStatsEntrySize)
                     : romEntry.getIntValue("MewStatsOffset");
-            for (int j = 0; j < 7; j++) {
-                writeByte(baseStatsOffset + Gen1Constants.bsTMHMCompatOffset + j,
-                        getByteFromFlags(flags, j * 8 + 1));
-            }
+            compatData.writeBytes(pkmn, 0, compatData.getMoveCount(), rom,
+                    baseStatsOffset + Gen1Constants.bsTMHMCompatOffset, 7);
         }
     }
 
@@ -1667,12 +1664,12 @@ public class Gen1RomHandler extends AbstractGBCRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getMoveTutorCompatibility() {
-        return new TreeMap<>();
+    public MoveCompatibilityMatrix getMoveTutorCompatibility() {
+        return new MoveCompatibilityMatrix(pokes.length, 0);
     }
 
     @Override
-    public void setMoveTutorCompatibility(Map<Pokemon, boolean[]> compatData) {
+    public void setMoveTutorCompatibility(MoveCompatibilityMatrix compatData) {
         // Do nothing
     }
 
@@ -34,12 +34,12 @@ import com.dabomstew.pkrandom.graphics.palettes.Palette;
 import com.dabomstew.pkrandom.pokemon.*;
 import com.dabomstew.pkrandom.romhandlers.romentries.GBCTMTextEntry;
 import com.dabomstew.pkrandom.romhandlers.romentries.Gen2RomEntry;
+import com.dabomstew.pkrandom.romhandlers.romentries.IniEntryIndex;
 import compressors.Gen2Cmp;
 import compressors.Gen2Decmp;
 
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -55,18 +55,19 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
             return new Gen2RomHandler();
         }
 
-        public boolean isLoadable(String filename) {
-            long fileLength = new File(filename).length();
+        @Override
+        public boolean isLoadable(RomFileHeader header) {
+            long fileLength = header.length();
             if (fileLength > 8 * 1024 * 1024) {
                 return false;
             }
-            byte[] loaded = loadFilePartial(filename, 0x1000);
+            byte[] loaded = header.getStart(0x1000);
             // nope
             return loaded.length != 0 && detectRomInner(loaded, (int) fileLength);
         }
     }
 
-    private static List<Gen2RomEntry> roms;
+    private static IniEntryIndex<Gen2RomEntry> roms;
 
     static {
         loadROMInfo();
@@ -74,7 +75,7 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
 
     private static void loadROMInfo() {
         try {
-            roms = Gen2RomEntry.READER.readEntriesFromFile("gen2_offsets.ini");
+            roms = Gen2RomEntry.READER.indexEntriesFromFile("gen2_offsets.ini");
         } catch (IOException e) {
             throw new RuntimeException("Could not read Rom Entries.", e);
         }
@@ -102,7 +103,7 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
 
     private static boolean detectRomInner(byte[] rom, int romSize) {
         // size check
-        return romSize >= GBConstants.minRomSize && romSize <= GBConstants.maxRomSize && checkRomEntry(rom) != null;
+        return romSize >= GBConstants.minRomSize && romSize <= GBConstants.maxRomSize && findRomEntryStub(rom) != null;
     }
 
     @Override
@@ -127,7 +128,7 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
 
     @Override
     protected void initRomEntry() {
-        romEntry = checkRomEntry(this.rom);
+        romEntry = new Gen2RomEntry(roms.resolve(findRomEntryStub(this.rom))); // clone so we can modify
         if (romEntry.getName().equals("Crystal (J)")
                 && rom[Gen2Constants.vietCrystalCheckOffset] == Gen2Constants.vietCrystalCheckValue) {
             readTextTable("vietcrystal");
@@ -178,7 +179,9 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
         }
     }
 
-    private static Gen2RomEntry checkRomEntry(byte[] rom) {
+    // finds the stub entry for the ROM, only looking at its identifying values, so detection doesn't parse
+    // the full entry
+    private static Gen2RomEntry findRomEntryStub(byte[] rom) {
         int version = rom[GBConstants.versionOffset] & 0xFF;
         int nonjap = rom[GBConstants.jpFlagOffset] & 0xFF;
         // Check for specific CRC first
@@ -186,13 +189,13 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
         for (Gen2RomEntry re : roms) {
             if (romCode(rom, re.getRomCode()) && re.getVersion() == version && re.getNonJapanese() == nonjap
                     && re.getCRCInHeader() == crcInHeader) {
-                return new Gen2RomEntry(re);
+                return re;
             }
         }
         // Now check for non-specific-CRC entries
         for (Gen2RomEntry re : roms) {
             if (romCode(rom, re.getRomCode()) && re.getVersion() == version && re.getNonJapanese() == nonjap && re.getCRCInHeader() == -1) {
-                return new Gen2RomEntry(re);
+                return re;
             }
         }
         // Not found
@@ -1622,41 +1625,37 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getTMHMCompatibility() {
-        Map<Pokemon, boolean[]> compat = new TreeMap<>();
+    public MoveCompatibilityMatrix getTMHMCompatibility() {
+        int moveCount = Gen2Constants.tmCount + Gen2Constants.hmCount;
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, moveCount);
         for (int i = 1; i <= Gen2Constants.pokemonCount; i++) {
             int baseStatsOffset = romEntry.getIntValue("PokemonStatsOffset") + (i - 1) * Gen2Constants.baseStatsEntrySize;
             Pokemon pkmn = pokes[i];
-            boolean[] flags = new boolean[Gen2Constants.tmCount + Gen2Constants.hmCount + 1];
-            for (int j = 0; j < 8; j++) {
-                readByteIntoFlags(flags, j * 8 + 1, baseStatsOffset + Gen2Constants.bsTMHMCompatOffset + j);
-            }
-            compat.put(pkmn, flags);
+            compat.addPokemon(pkmn);
+            compat.readBytes(pkmn, 0, moveCount, rom, baseStatsOffset + Gen2Constants.bsTMHMCompatOffset);
         }
         return compat;
     }
 
     @Override
-    public void setTMHMCompatibility(Map<Pokemon, boolean[]> compatData) {
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compatData.entrySet()) {
-            Pokemon pkmn = compatEntry.getKey();
-            boolean[] flags = compatEntry.getValue();
+    public void setTMHMCompatibility(MoveCompatibilityMatrix compatData) {
+        for (Pokemon pkmn : compatData.getPokemon()) {
             int baseStatsOffset = romEntry.getIntValue("PokemonStatsOffset") + (pkmn.getNumber() - 1)
                     * Gen2Constants.baseStatsEntrySize;
-            for (int j = 0; j < 8; j++) {
-                if (!romEntry.isCrystal() || j != 7) {
-                    writeByte(baseStatsOffset + Gen2Constants.bsTMHMCompatOffset + j,
-                            getByteFromFlags(flags, j * 8 + 1));
-                } else {
-                    // Move tutor data
-                    // bits 1,2,3 of byte 7
-                    int changedByte = getByteFromFlags(flags, j * 8 + 1) & 0xFF;
-                    int currentByte = rom[baseStatsOffset + Gen2Constants.bsTMHMCompatOffset + j];
-                    changedByte |= ((currentByte >> 1) & 0x01) << 1;
-                    changedByte |= ((currentByte >> 2) & 0x01) << 2;
-                    changedByte |= ((currentByte >> 3) & 0x01) << 3;
-                    writeByte(baseStatsOffset + 0x18 + j, (byte) changedByte);
-                }
+            if (!romEntry.isCrystal()) {
+                compatData.writeBytes(pkmn, 0, compatData.getMoveCount(), rom,
+                        baseStatsOffset + Gen2Constants.bsTMHMCompatOffset, 8);
+            } else {
+                compatData.writeBytes(pkmn, 0, compatData.getMoveCount(), rom,
+                        baseStatsOffset + Gen2Constants.bsTMHMCompatOffset, 7);
+                // Move tutor data
+                // bits 1,2,3 of byte 7
+                int changedByte = (int) compatData.getBits(pkmn, 7 * 8, 8);
+                int currentByte = rom[baseStatsOffset + Gen2Constants.bsTMHMCompatOffset + 7];
+                changedByte |= ((currentByte >> 1) & 0x01) << 1;
+                changedByte |= ((currentByte >> 2) & 0x01) << 2;
+                changedByte |= ((currentByte >> 3) & 0x01) << 3;
+                writeByte(baseStatsOffset + 0x18 + 7, (byte) changedByte);
             }
         }
     }
@@ -1732,39 +1731,32 @@ public class Gen2RomHandler extends AbstractGBCRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getMoveTutorCompatibility() {
+    public MoveCompatibilityMatrix getMoveTutorCompatibility() {
         if (!romEntry.isCrystal()) {
-            return new TreeMap<>();
+            return new MoveCompatibilityMatrix(pokes.length, 0);
         }
-        Map<Pokemon, boolean[]> compat = new TreeMap<>();
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, Gen2Constants.mtCount);
         for (int i = 1; i <= Gen2Constants.pokemonCount; i++) {
             int baseStatsOffset = romEntry.getIntValue("PokemonStatsOffset") + (i - 1) * Gen2Constants.baseStatsEntrySize;
             Pokemon pkmn = pokes[i];
-            boolean[] flags = new boolean[4];
+            compat.addPokemon(pkmn);
             int mtByte = rom[baseStatsOffset + Gen2Constants.bsMTCompatOffset] & 0xFF;
-            for (int j = 1; j <= 3; j++) {
-                flags[j] = ((mtByte >> j) & 0x01) > 0;
-            }
-            compat.put(pkmn, flags);
+            compat.setBits(pkmn, 0, Gen2Constants.mtCount, mtByte >> 1);
         }
         return compat;
     }
 
     @Override
-    public void setMoveTutorCompatibility(Map<Pokemon, boolean[]> compatData) {
+    public void setMoveTutorCompatibility(MoveCompatibilityMatrix compatData) {
         if (!romEntry.isCrystal()) {
             return;
         }
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compatData.entrySet()) {
-            Pokemon pkmn = compatEntry.getKey();
-            boolean[] flags = compatEntry.getValue();
+        for (Pokemon pkmn : compatData.getPokemon()) {
             int baseStatsOffset = romEntry.getIntValue("PokemonStatsOffset") + (pkmn.getNumber() - 1)
                     * Gen2Constants.baseStatsEntrySize;
             int origMtByte = rom[baseStatsOffset + Gen2Constants.bsMTCompatOffset] & 0xFF;
             int mtByte = origMtByte & 0x01;
-            for (int j = 1; j <= 3; j++) {
-                mtByte |= flags[j] ? (1 << j) : 0;
-            }
+            mtByte |= (int) compatData.getBits(pkmn, 0, Gen2Constants.mtCount) << 1;
             writeByte(baseStatsOffset + Gen2Constants.bsMTCompatOffset, (byte) mtByte);
         }
     }
@@ -38,13 +38,13 @@ import com.dabomstew.pkrandom.graphics.palettes.Palette;
 import com.dabomstew.pkrandom.pokemon.*;
 import com.dabomstew.pkrandom.romhandlers.romentries.Gen3EventTextEntry;
 import com.dabomstew.pkrandom.romhandlers.romentries.Gen3RomEntry;
+import com.dabomstew.pkrandom.romhandlers.romentries.IniEntryIndex;
 import com.dabomstew.pkrandom.romhandlers.romentries.RomEntry;
 import compressors.DSCmp;
 import compressors.DSDecmp;
 
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -65,18 +65,19 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
             return new Gen3RomHandler();
         }
 
-        public boolean isLoadable(String filename) {
-            long fileLength = new File(filename).length();
+        @Override
+        public boolean isLoadable(RomFileHeader header) {
+            long fileLength = header.length();
             if (fileLength > 32 * 1024 * 1024) {
                 return false;
             }
-            byte[] loaded = loadFilePartial(filename, 0x100000);
+            byte[] loaded = header.getStart(0x1000);
             // nope
             return loaded.length != 0 && detectRomInner(loaded, (int) fileLength);
         }
     }
 
-    private static List<Gen3RomEntry> roms;
+    private static IniEntryIndex<Gen3RomEntry> roms;
 
     static {
         loadROMInfo();
@@ -84,7 +85,7 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
 
     private static void loadROMInfo() {
         try {
-            roms = Gen3RomEntry.READER.readEntriesFromFile("gen3_offsets.ini");
+            roms = Gen3RomEntry.READER.indexEntriesFromFile("gen3_offsets.ini");
         } catch (IOException e) {
             throw new RuntimeException("Could not read Rom Entries.", e);
         }
@@ -192,7 +193,7 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
     protected void initRomEntry() {
         for (Gen3RomEntry re : roms) {
             if (romCode(rom, re.getRomCode()) && (rom[0xBC] & 0xFF) == re.getVersion()) {
-                romEntry = new Gen3RomEntry(re); // clone so we can modify
+                romEntry = new Gen3RomEntry(roms.resolve(re)); // clone so we can modify
                 break;
             }
         }
@@ -2398,31 +2399,25 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getTMHMCompatibility() {
-        Map<Pokemon, boolean[]> compat = new TreeMap<>();
+    public MoveCompatibilityMatrix getTMHMCompatibility() {
+        int moveCount = Gen3Constants.tmCount + Gen3Constants.hmCount;
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, moveCount);
         int offset = romEntry.getIntValue("PokemonTMHMCompat");
         for (int i = 1; i <= numRealPokemon; i++) {
             Pokemon pkmn = pokemonList.get(i);
             int compatOffset = offset + (pokedexToInternal[pkmn.getNumber()]) * 8;
-            boolean[] flags = new boolean[Gen3Constants.tmCount + Gen3Constants.hmCount + 1];
-            for (int j = 0; j < 8; j++) {
-                readByteIntoFlags(flags, j * 8 + 1, compatOffset + j);
-            }
-            compat.put(pkmn, flags);
+            compat.addPokemon(pkmn);
+            compat.readBytes(pkmn, 0, moveCount, rom, compatOffset);
         }
         return compat;
     }
 
     @Override
-    public void setTMHMCompatibility(Map<Pokemon, boolean[]> compatData) {
+    public void setTMHMCompatibility(MoveCompatibilityMatrix compatData) {
         int offset = romEntry.getIntValue("PokemonTMHMCompat");
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compatData.entrySet()) {
-            Pokemon pkmn = compatEntry.getKey();
-            boolean[] flags = compatEntry.getValue();
+        for (Pokemon pkmn : compatData.getPokemon()) {
             int compatOffset = offset + (pokedexToInternal[pkmn.getNumber()]) * 8;
-            for (int j = 0; j < 8; j++) {
-                writeByte(compatOffset + j, getByteFromFlags(flags, j * 8 + 1));
-            }
+            compatData.writeBytes(pkmn, 0, compatData.getMoveCount(), rom, compatOffset, 8);
         }
     }
 
@@ -2526,41 +2521,34 @@ public class Gen3RomHandler extends AbstractGBRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getMoveTutorCompatibility() {
+    public MoveCompatibilityMatrix getMoveTutorCompatibility() {
         if (!hasMoveTutors()) {
-            return new TreeMap<>();
+            return new MoveCompatibilityMatrix(pokes.length, 0);
         }
-        Map<Pokemon, boolean[]> compat = new TreeMap<>();
         int moveCount = romEntry.getIntValue("MoveTutorMoves");
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, moveCount);
         int offset = romEntry.getIntValue("MoveTutorCompatibility");
         int bytesRequired = ((moveCount + 7) & ~7) / 8;
         for (int i = 1; i <= numRealPokemon; i++) {
             Pokemon pkmn = pokemonList.get(i);
             int compatOffset = offset + pokedexToInternal[pkmn.getNumber()] * bytesRequired;
-            boolean[] flags = new boolean[moveCount + 1];
-            for (int j = 0; j < bytesRequired; j++) {
-                readByteIntoFlags(flags, j * 8 + 1, compatOffset + j);
-            }
-            compat.put(pkmn, flags);
+            compat.addPokemon(pkmn);
+            compat.readBytes(pkmn, 0, moveCount, rom, compatOffset);
         }
         return compat;
     }
 
     @Override
-    public void setMoveTutorCompatibility(Map<Pokemon, boolean[]> compatData) {
+    public void setMoveTutorCompatibility(MoveCompatibilityMatrix compatData) {
         if (!hasMoveTutors()) {
             return;
         }
         int moveCount = romEntry.getIntValue("MoveTutorMoves");
         int offset = romEntry.getIntValue("MoveTutorCompatibility");
         int bytesRequired = ((moveCount + 7) & ~7) / 8;
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compatData.entrySet()) {
-            Pokemon pkmn = compatEntry.getKey();
-            boolean[] flags = compatEntry.getValue();
+        for (Pokemon pkmn : compatData.getPokemon()) {
             int compatOffset = offset + pokedexToInternal[pkmn.getNumber()] * bytesRequired;
-            for (int j = 0; j < bytesRequired; j++) {
-                writeByte(compatOffset + j, getByteFromFlags(flags, j * 8 + 1));
-            }
+            compatData.writeBytes(pkmn, 0, moveCount, rom, compatOffset, bytesRequired);
         }
     }
 
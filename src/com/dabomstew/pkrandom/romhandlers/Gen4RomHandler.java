@@ -30,6 +30,7 @@ import com.dabomstew.pkrandom.newnds.NARCArchive;
 import com.dabomstew.pkrandom.pokemon.*;
 import com.dabomstew.pkrandom.romhandlers.romentries.DSStaticPokemon;
 import com.dabomstew.pkrandom.romhandlers.romentries.Gen4RomEntry;
+import com.dabomstew.pkrandom.romhandlers.romentries.IniEntryIndex;
 import com.dabomstew.pkrandom.romhandlers.romentries.InFileEntry;
 import thenewpoketext.PokeTextData;
 import thenewpoketext.TextToPoke;
@@ -53,12 +54,13 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 			return new Gen4RomHandler();
 		}
 
-		public boolean isLoadable(String filename) {
-			return detectNDSRomInner(getROMCodeFromFile(filename), getVersionFromFile(filename));
+		@Override
+		public boolean isLoadable(RomFileHeader header) {
+			return detectNDSRomInner(getROMCode(header), getVersion(header));
 		}
 	}
 
-	private static List<Gen4RomEntry> roms;
+	private static IniEntryIndex<Gen4RomEntry> roms;
 
 	static {
 		loadROMInfo();
@@ -67,7 +69,7 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 
 	private static void loadROMInfo() {
 		try {
-			roms = Gen4RomEntry.READER.readEntriesFromFile("gen4_offsets.ini");
+			roms = Gen4RomEntry.READER.indexEntriesFromFile("gen4_offsets.ini");
 		} catch (IOException e) {
 			throw new RuntimeException("Could not read Rom Entries.", e);
 		}
@@ -103,10 +105,15 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 	}
 
 	private static boolean detectNDSRomInner(String ndsCode, byte version) {
-		return entryFor(ndsCode, version) != null;
+		return stubFor(ndsCode, version) != null;
 	}
 
-	private static Gen4RomEntry entryFor(String ndsCode, byte version) {
+	// finds the stub entry for the ROM, only looking at its identifying values, so detection doesn't parse the
+	// full entry
+	private static Gen4RomEntry stubFor(String ndsCode, byte version) {
+		if (ndsCode == null) {
+			return null;
+		}
 		for (Gen4RomEntry re : roms) {
 			if (ndsCode.equals(re.getRomCode()) && version == re.getVersion()) {
 				return re;
@@ -117,7 +124,7 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 
 	@Override
 	protected void loadedROM(String romCode, byte version) {
-		this.romEntry = entryFor(romCode, version);
+		this.romEntry = roms.resolve(stubFor(romCode, version));
 		try {
 			arm9 = readARM9();
 		} catch (IOException e) {
@@ -3370,9 +3377,9 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 	private Set<Integer> getCompatibleTutorMoves(Pokemon pk) {
 		Set<Integer> moveIDs = new HashSet<>();
 		List<Integer> tutorMoves = getMoveTutorMoves();
-		boolean[] comp = getMoveTutorCompatibility().get(pk);
+		MoveCompatibilityMatrix comp = getMoveTutorCompatibility();
 		for (int i = 0; i < tutorMoves.size(); i++) {
-			if (comp[i + 1]) {
+			if (comp.get(pk, i)) {
 				moveIDs.add(tutorMoves.get(i));
 			}
 		}
@@ -3382,9 +3389,9 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 	private Set<Integer> getCompatibleTMMoves(Pokemon pk) {
 		Set<Integer> moveIDs = new HashSet<>();
 		List<Integer> tmMoves = getTMMoves();
-		boolean[] comp = getTMHMCompatibility().get(pk);
+		MoveCompatibilityMatrix comp = getTMHMCompatibility();
 		for (int i = 0; i < tmMoves.size(); i++) {
-			if (comp[i + 1]) {
+			if (comp.get(pk, i)) {
 				moveIDs.add(tmMoves.get(i));
 			}
 		}
@@ -3660,8 +3667,9 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 	}
 
 	@Override
-	public Map<Pokemon, boolean[]> getTMHMCompatibility() {
-		Map<Pokemon, boolean[]> compat = new TreeMap<>();
+	public MoveCompatibilityMatrix getTMHMCompatibility() {
+		int moveCount = Gen4Constants.tmCount + Gen4Constants.hmCount;
+		MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, moveCount);
 		int formeCount = Gen4Constants.getFormeCount(romEntry.getRomType());
 		for (int i = 1; i <= Gen4Constants.pokemonCount + formeCount; i++) {
 			byte[] data;
@@ -3671,24 +3679,17 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 				data = pokeNarc.files.get(i);
 			}
 			Pokemon pkmn = pokes[i];
-			boolean[] flags = new boolean[Gen4Constants.tmCount + Gen4Constants.hmCount + 1];
-			for (int j = 0; j < 13; j++) {
-				readByteIntoFlags(data, flags, j * 8 + 1, Gen4Constants.bsTMHMCompatOffset + j);
-			}
-			compat.put(pkmn, flags);
+			compat.addPokemon(pkmn);
+			compat.readBytes(pkmn, 0, moveCount, data, Gen4Constants.bsTMHMCompatOffset);
 		}
 		return compat;
 	}
 
 	@Override
-	public void setTMHMCompatibility(Map<Pokemon, boolean[]> compatData) {
-		for (Map.Entry<Pokemon, boolean[]> compatEntry : compatData.entrySet()) {
-			Pokemon pkmn = compatEntry.getKey();
-			boolean[] flags = compatEntry.getValue();
+	public void setTMHMCompatibility(MoveCompatibilityMatrix compatData) {
+		for (Pokemon pkmn : compatData.getPokemon()) {
 			byte[] data = pokeNarc.files.get(pkmn.getNumber());
-			for (int j = 0; j < 13; j++) {
-				data[Gen4Constants.bsTMHMCompatOffset + j] = getByteFromFlags(flags, j * 8 + 1);
-			}
+			compatData.writeBytes(pkmn, 0, compatData.getMoveCount(), data, Gen4Constants.bsTMHMCompatOffset, 13);
 		}
 	}
 
@@ -3758,12 +3759,12 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 	}
 
 	@Override
-	public Map<Pokemon, boolean[]> getMoveTutorCompatibility() {
+	public MoveCompatibilityMatrix getMoveTutorCompatibility() {
 		if (!hasMoveTutors()) {
-			return new TreeMap<>();
+			return new MoveCompatibilityMatrix(pokes.length, 0);
 		}
-		Map<Pokemon, boolean[]> compat = new TreeMap<>();
 		int amount = romEntry.getIntValue("MoveTutorCount");
+		MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, amount);
 		int baseOffset = romEntry.getIntValue("MoveTutorCompatOffset");
 		int bytesPer = romEntry.getIntValue("MoveTutorCompatBytesCount");
 		try {
@@ -3776,15 +3777,8 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 			int formeCount = Gen4Constants.getFormeCount(romEntry.getRomType());
 			for (int i = 1; i <= Gen4Constants.pokemonCount + formeCount; i++) {
 				Pokemon pkmn = pokes[i];
-				boolean[] flags = new boolean[amount + 1];
-				for (int j = 0; j < bytesPer; j++) {
-					if (i > Gen4Constants.pokemonCount) {
-						readByteIntoFlags(mtcFile, flags, j * 8 + 1, baseOffset + (i - 1) * bytesPer + j);
-					} else {
-						readByteIntoFlags(mtcFile, flags, j * 8 + 1, baseOffset + (i - 1) * bytesPer + j);
-					}
-				}
-				compat.put(pkmn, flags);
+				compat.addPokemon(pkmn);
+				compat.readBytes(pkmn, 0, Math.min(amount, bytesPer * 8), mtcFile, baseOffset + (i - 1) * bytesPer);
 			}
 		} catch (IOException e) {
 			throw new RomIOException(e);
@@ -3793,7 +3787,7 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 	}
 
 	@Override
-	public void setMoveTutorCompatibility(Map<Pokemon, boolean[]> compatData) {
+	public void setMoveTutorCompatibility(MoveCompatibilityMatrix compatData) {
 		if (!hasMoveTutors()) {
 			return;
 		}
@@ -3807,17 +3801,15 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 			} else {
 				mtcFile = readOverlay(romEntry.getIntValue("MoveTutorCompatOvlNumber"));
 			}
-			for (Map.Entry<Pokemon, boolean[]> compatEntry : compatData.entrySet()) {
-				Pokemon pkmn = compatEntry.getKey();
-				boolean[] flags = compatEntry.getValue();
+			for (Pokemon pkmn : compatData.getPokemon()) {
 				for (int j = 0; j < bytesPer; j++) {
 					int offsHere = baseOffset + (pkmn.getNumber() - 1) * bytesPer + j;
+					int newByte = (int) compatData.getBits(pkmn, j * 8, 8);
 					if (j * 8 + 8 <= amount) {
 						// entirely new byte
-						mtcFile[offsHere] = getByteFromFlags(flags, j * 8 + 1);
+						mtcFile[offsHere] = (byte) newByte;
 					} else if (j * 8 < amount) {
 						// need some of the original byte
-						int newByte = getByteFromFlags(flags, j * 8 + 1) & 0xFF;
 						int oldByteParts = (mtcFile[offsHere] >>> (8 - amount + j * 8)) << (8 - amount + j * 8);
 						mtcFile[offsHere] = (byte) (newByte | oldByteParts);
 					}
@@ -5623,6 +5615,11 @@ public class Gen4RomHandler extends AbstractDSRomHandler {
 			writePalette(NARC, palettes[0][palID], pk.getNormalPalette(palID));
 			writePalette(NARC, palettes[1][palID], pk.getShinyPalette(palID));
 		}
+		try {
+			writeNARC(NARCpath, NARC);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
     }
 
 	public Gen4PokemonImageGetter createPokemonImageGetter(Pokemon pk) {
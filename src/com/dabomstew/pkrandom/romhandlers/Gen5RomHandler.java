@@ -30,6 +30,7 @@ import com.dabomstew.pkrandom.newnds.NARCArchive;
 import com.dabomstew.pkrandom.pokemon.*;
 import com.dabomstew.pkrandom.romhandlers.romentries.DSStaticPokemon;
 import com.dabomstew.pkrandom.romhandlers.romentries.Gen5RomEntry;
+import com.dabomstew.pkrandom.romhandlers.romentries.IniEntryIndex;
 import com.dabomstew.pkrandom.romhandlers.romentries.InFileEntry;
 import compressors.DSDecmp;
 import pptxt.PPTxtHandler;
@@ -56,12 +57,13 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
             return new Gen5RomHandler();
         }
 
-        public boolean isLoadable(String filename) {
-            return detectNDSRomInner(getROMCodeFromFile(filename), getVersionFromFile(filename));
+        @Override
+        public boolean isLoadable(RomFileHeader header) {
+            return detectNDSRomInner(getROMCode(header), getVersion(header));
         }
     }
 
-    private static List<Gen5RomEntry> roms;
+    private static IniEntryIndex<Gen5RomEntry> roms;
 
     static {
         loadROMInfo();
@@ -69,7 +71,7 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
 
     private static void loadROMInfo() {
         try {
-            roms = Gen5RomEntry.READER.readEntriesFromFile("gen5_offsets.ini");
+            roms = Gen5RomEntry.READER.indexEntriesFromFile("gen5_offsets.ini");
         } catch (IOException e) {
             throw new RuntimeException("Could not read Rom Entries.", e);
         }
@@ -108,10 +110,12 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
     }
 
     private static boolean detectNDSRomInner(String ndsCode, byte version) {
-        return entryFor(ndsCode, version) != null;
+        return stubFor(ndsCode, version) != null;
     }
 
-    private static Gen5RomEntry entryFor(String ndsCode, byte version) {
+    // finds the stub entry for the ROM, only looking at its identifying values, so detection doesn't parse the
+    // full entry
+    private static Gen5RomEntry stubFor(String ndsCode, byte version) {
         if (ndsCode == null) {
             return null;
         }
@@ -126,7 +130,7 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
 
     @Override
     protected void loadedROM(String romCode, byte version) {
-        this.romEntry = entryFor(romCode, version);
+        this.romEntry = roms.resolve(stubFor(romCode, version));
         try {
             arm9 = readARM9();
         } catch (IOException e) {
@@ -2444,8 +2448,9 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getTMHMCompatibility() {
-        Map<Pokemon, boolean[]> compat = new TreeMap<>();
+    public MoveCompatibilityMatrix getTMHMCompatibility() {
+        int moveCount = Gen5Constants.tmCount + Gen5Constants.hmCount;
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, moveCount);
         int formeCount = Gen5Constants.getFormeCount(romEntry.getRomType());
         int formeOffset = Gen5Constants.getFormeOffset(romEntry.getRomType());
         for (int i = 1; i <= Gen5Constants.pokemonCount + formeCount; i++) {
@@ -2456,29 +2461,22 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
                 data = pokeNarc.files.get(i);
             }
             Pokemon pkmn = pokes[i];
-            boolean[] flags = new boolean[Gen5Constants.tmCount + Gen5Constants.hmCount + 1];
-            for (int j = 0; j < 13; j++) {
-                readByteIntoFlags(data, flags, j * 8 + 1, Gen5Constants.bsTMHMCompatOffset + j);
-            }
-            compat.put(pkmn, flags);
+            compat.addPokemon(pkmn);
+            compat.readBytes(pkmn, 0, moveCount, data, Gen5Constants.bsTMHMCompatOffset);
         }
         return compat;
     }
 
     @Override
-    public void setTMHMCompatibility(Map<Pokemon, boolean[]> compatData) {
+    public void setTMHMCompatibility(MoveCompatibilityMatrix compatData) {
         int formeOffset = Gen5Constants.getFormeOffset(romEntry.getRomType());
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compatData.entrySet()) {
-            Pokemon pkmn = compatEntry.getKey();
-            boolean[] flags = compatEntry.getValue();
+        for (Pokemon pkmn : compatData.getPokemon()) {
             int number = pkmn.getNumber();
             if (number > Gen5Constants.pokemonCount) {
                 number += formeOffset;
             }
             byte[] data = pokeNarc.files.get(number);
-            for (int j = 0; j < 13; j++) {
-                data[Gen5Constants.bsTMHMCompatOffset + j] = getByteFromFlags(flags, j * 8 + 1);
-            }
+            compatData.writeBytes(pkmn, 0, compatData.getMoveCount(), data, Gen5Constants.bsTMHMCompatOffset, 13);
         }
     }
 
@@ -2530,11 +2528,11 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getMoveTutorCompatibility() {
+    public MoveCompatibilityMatrix getMoveTutorCompatibility() {
         if (!hasMoveTutors()) {
-            return new TreeMap<>();
+            return new MoveCompatibilityMatrix(pokes.length, 0);
         }
-        Map<Pokemon, boolean[]> compat = new TreeMap<>();
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, Gen5Constants.bw2MoveTutorCount);
         int[] countsPersonalOrder = new int[] { 15, 17, 13, 15 };
         int[] countsMoveOrder = new int[] { 13, 15, 15, 17 };
         int[] personalToMoveOrder = new int[] { 1, 3, 0, 2 };
@@ -2548,25 +2546,21 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
                 data = pokeNarc.files.get(i);
             }
             Pokemon pkmn = pokes[i];
-            boolean[] flags = new boolean[Gen5Constants.bw2MoveTutorCount + 1];
+            compat.addPokemon(pkmn);
             for (int mt = 0; mt < 4; mt++) {
-                boolean[] mtflags = new boolean[countsPersonalOrder[mt] + 1];
-                for (int j = 0; j < 4; j++) {
-                    readByteIntoFlags(data, mtflags, j * 8 + 1, Gen5Constants.bsMTCompatOffset + mt * 4 + j);
-                }
                 int offsetOfThisData = 0;
                 for (int cmoIndex = 0; cmoIndex < personalToMoveOrder[mt]; cmoIndex++) {
                     offsetOfThisData += countsMoveOrder[cmoIndex];
                 }
-                System.arraycopy(mtflags, 1, flags, offsetOfThisData + 1, countsPersonalOrder[mt]);
+                compat.readBytes(pkmn, offsetOfThisData, countsPersonalOrder[mt], data,
+                        Gen5Constants.bsMTCompatOffset + mt * 4);
             }
-            compat.put(pkmn, flags);
         }
         return compat;
     }
 
     @Override
-    public void setMoveTutorCompatibility(Map<Pokemon, boolean[]> compatData) {
+    public void setMoveTutorCompatibility(MoveCompatibilityMatrix compatData) {
         if (!hasMoveTutors()) {
             return;
         }
@@ -2577,9 +2571,7 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
         int[] countsPersonalOrder = new int[] { 15, 17, 13, 15 };
         int[] countsMoveOrder = new int[] { 13, 15, 15, 17 };
         int[] personalToMoveOrder = new int[] { 1, 3, 0, 2 };
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compatData.entrySet()) {
-            Pokemon pkmn = compatEntry.getKey();
-            boolean[] flags = compatEntry.getValue();
+        for (Pokemon pkmn : compatData.getPokemon()) {
             int number = pkmn.getNumber();
             if (number > Gen5Constants.pokemonCount) {
                 number += formeOffset;
@@ -2590,11 +2582,8 @@ public class Gen5RomHandler extends AbstractDSRomHandler {
                 for (int cmoIndex = 0; cmoIndex < personalToMoveOrder[mt]; cmoIndex++) {
                     offsetOfThisData += countsMoveOrder[cmoIndex];
                 }
-                boolean[] mtflags = new boolean[countsPersonalOrder[mt] + 1];
-                System.arraycopy(flags, offsetOfThisData + 1, mtflags, 1, countsPersonalOrder[mt]);
-                for (int j = 0; j < 4; j++) {
-                    data[Gen5Constants.bsMTCompatOffset + mt * 4 + j] = getByteFromFlags(mtflags, j * 8 + 1);
-                }
+                compatData.writeBytes(pkmn, offsetOfThisData, countsPersonalOrder[mt], data,
+                        Gen5Constants.bsMTCompatOffset + mt * 4, 4);
             }
         }
     }
@@ -30,6 +30,7 @@ import com.dabomstew.pkrandom.exceptions.RomIOException;
 import com.dabomstew.pkrandom.graphics.palettes.Palette;
 import com.dabomstew.pkrandom.pokemon.*;
 import com.dabomstew.pkrandom.romhandlers.romentries.Gen6RomEntry;
+import com.dabomstew.pkrandom.romhandlers.romentries.IniEntryIndex;
 import com.dabomstew.pkrandom.romhandlers.romentries.ThreeDSLinkedEncounter;
 import pptxt.N3DSTxtHandler;
 
@@ -52,21 +53,21 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
             return new Gen6RomHandler();
         }
 
-        public boolean isLoadable(String filename) {
-            return detect3DSRomInner(getProductCodeFromFile(filename), getTitleIdFromFile(filename));
+        @Override
+        public boolean isLoadable(RomFileHeader header) {
+            return detect3DSRomInner(getProductCode(header), getTitleId(header));
         }
     }
 
-    private static List<Gen6RomEntry> roms;
+    private static IniEntryIndex<Gen6RomEntry> roms;
 
     static {
         loadROMInfo();
     }
 
     private static void loadROMInfo() {
-        roms = new ArrayList<>();
         try {
-            roms = Gen6RomEntry.READER.readEntriesFromFile("gen6_offsets.ini");
+            roms = Gen6RomEntry.READER.indexEntriesFromFile("gen6_offsets.ini");
         } catch (IOException e) {
             throw new RuntimeException("Could not read Rom Entries.", e);
         }
@@ -103,10 +104,12 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
     }
 
     private static boolean detect3DSRomInner(String productCode, String titleId) {
-        return entryFor(productCode, titleId) != null;
+        return stubFor(productCode, titleId) != null;
     }
 
-    private static Gen6RomEntry entryFor(String productCode, String titleID) {
+    // finds the stub entry for the ROM, only looking at its identifying values, so detection doesn't parse the
+    // full entry
+    private static Gen6RomEntry stubFor(String productCode, String titleID) {
         if (productCode == null || titleID == null) {
             return null;
         }
@@ -121,7 +124,7 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
 
     @Override
     protected void loadedROM(String productCode, String titleId) {
-        this.romEntry = entryFor(productCode, titleId);
+        this.romEntry = roms.resolve(stubFor(productCode, titleId));
 
         try {
             code = readCode();
@@ -428,7 +431,7 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
     private void setStrings(GARCArchive textGARC, int index, List<String> strings) {
         byte[] oldRawFile = textGARC.files.get(index).get(0);
         try {
-            byte[] newRawFile = N3DSTxtHandler.saveEntry(oldRawFile, strings, romEntry.getRomType());
+            byte[] newRawFile = N3DSTxtHandler.saveEntry(oldRawFile, strings, true, romEntry.getRomType());
             textGARC.setFile(index, newRawFile);
         } catch (IOException e) {
             e.printStackTrace();
@@ -2719,31 +2722,25 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getTMHMCompatibility() {
-        Map<Pokemon, boolean[]> compat = new TreeMap<>();
+    public MoveCompatibilityMatrix getTMHMCompatibility() {
+        int moveCount = Gen6Constants.tmCount + Gen6Constants.getHMCount(romEntry.getRomType());
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, moveCount);
         int formeCount = Gen6Constants.getFormeCount(romEntry.getRomType());
         for (int i = 1; i <= Gen6Constants.pokemonCount + formeCount; i++) {
             byte[] data;
             data = pokeGarc.files.get(i).get(0);
             Pokemon pkmn = pokes[i];
-            boolean[] flags = new boolean[Gen6Constants.tmCount + Gen6Constants.getHMCount(romEntry.getRomType()) + 1];
-            for (int j = 0; j < 14; j++) {
-                readByteIntoFlags(data, flags, j * 8 + 1, Gen6Constants.bsTMHMCompatOffset + j);
-            }
-            compat.put(pkmn, flags);
+            compat.addPokemon(pkmn);
+            compat.readBytes(pkmn, 0, moveCount, data, Gen6Constants.bsTMHMCompatOffset);
         }
         return compat;
     }
 
     @Override
-    public void setTMHMCompatibility(Map<Pokemon, boolean[]> compatData) {
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compatData.entrySet()) {
-            Pokemon pkmn = compatEntry.getKey();
-            boolean[] flags = compatEntry.getValue();
+    public void setTMHMCompatibility(MoveCompatibilityMatrix compatData) {
+        for (Pokemon pkmn : compatData.getPokemon()) {
             byte[] data = pokeGarc.files.get(pkmn.getNumber()).get(0);
-            for (int j = 0; j < 14; j++) {
-                data[Gen6Constants.bsTMHMCompatOffset + j] = getByteFromFlags(flags, j * 8 + 1);
-            }
+            compatData.writeBytes(pkmn, 0, compatData.getMoveCount(), data, Gen6Constants.bsTMHMCompatOffset, 14);
         }
     }
 
@@ -2802,29 +2799,26 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getMoveTutorCompatibility() {
-        Map<Pokemon, boolean[]> compat = new TreeMap<>();
+    public MoveCompatibilityMatrix getMoveTutorCompatibility() {
         int[] sizes = Gen6Constants.tutorSize;
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, Arrays.stream(sizes).sum());
         int formeCount = Gen6Constants.getFormeCount(romEntry.getRomType());
         for (int i = 1; i <= Gen6Constants.pokemonCount + formeCount; i++) {
             byte[] data;
             data = pokeGarc.files.get(i).get(0);
             Pokemon pkmn = pokes[i];
-            boolean[] flags = new boolean[Arrays.stream(sizes).sum() + 1];
+            compat.addPokemon(pkmn);
             int offset = 0;
             for (int mt = 0; mt < 4; mt++) {
-                for (int j = 0; j < 4; j++) {
-                    readByteIntoFlags(data, flags, offset + j * 8 + 1, Gen6Constants.bsMTCompatOffset + mt * 4 + j);
-                }
+                compat.readBytes(pkmn, offset, sizes[mt], data, Gen6Constants.bsMTCompatOffset + mt * 4);
                 offset += sizes[mt];
             }
-            compat.put(pkmn, flags);
         }
         return compat;
     }
 
     @Override
-    public void setMoveTutorCompatibility(Map<Pokemon, boolean[]> compatData) {
+    public void setMoveTutorCompatibility(MoveCompatibilityMatrix compatData) {
         if (!hasMoveTutors()) return;
         int[] sizes = Gen6Constants.tutorSize;
         int formeCount = Gen6Constants.getFormeCount(romEntry.getRomType());
@@ -2832,14 +2826,9 @@ public class Gen6RomHandler extends Abstract3DSRomHandler {
             byte[] data;
             data = pokeGarc.files.get(i).get(0);
             Pokemon pkmn = pokes[i];
-            boolean[] flags = compatData.get(pkmn);
             int offset = 0;
             for (int mt = 0; mt < 4; mt++) {
-                boolean[] mtflags = new boolean[sizes[mt] + 1];
-                System.arraycopy(flags, offset + 1, mtflags, 1, sizes[mt]);
-                for (int j = 0; j < 4; j++) {
-                    data[Gen6Constants.bsMTCompatOffset + mt * 4 + j] = getByteFromFlags(mtflags, j * 8 + 1);
-                }
+                compatData.writeBytes(pkmn, offset, sizes[mt], data, Gen6Constants.bsMTCompatOffset + mt * 4, 4);
                 offset += sizes[mt];
             }
         }
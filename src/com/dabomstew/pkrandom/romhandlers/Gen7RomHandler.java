@@ -33,6 +33,7 @@ import com.dabomstew.pkrandom.ctr.Mini;
 import com.dabomstew.pkrandom.exceptions.RomIOException;
 import com.dabomstew.pkrandom.pokemon.*;
 import com.dabomstew.pkrandom.romhandlers.romentries.Gen7RomEntry;
+import com.dabomstew.pkrandom.romhandlers.romentries.IniEntryIndex;
 import com.dabomstew.pkrandom.romhandlers.romentries.ThreeDSLinkedEncounter;
 import pptxt.N3DSTxtHandler;
 
@@ -54,12 +55,13 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
             return new Gen7RomHandler();
         }
 
-        public boolean isLoadable(String filename) {
-            return detect3DSRomInner(getProductCodeFromFile(filename), getTitleIdFromFile(filename));
+        @Override
+        public boolean isLoadable(RomFileHeader header) {
+            return detect3DSRomInner(getProductCode(header), getTitleId(header));
         }
     }
     
-    private static List<Gen7RomEntry> roms;
+    private static IniEntryIndex<Gen7RomEntry> roms;
 
     static {
         loadROMInfo();
@@ -67,7 +69,7 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
 
     private static void loadROMInfo() {
         try {
-            roms = Gen7RomEntry.READER.readEntriesFromFile("gen7_offsets.ini");
+            roms = Gen7RomEntry.READER.indexEntriesFromFile("gen7_offsets.ini");
         } catch (IOException e) {
             throw new RuntimeException("Could not read Rom Entries.", e);
         }
@@ -100,10 +102,12 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
     }
 
     private static boolean detect3DSRomInner(String productCode, String titleId) {
-        return entryFor(productCode, titleId) != null;
+        return stubFor(productCode, titleId) != null;
     }
 
-    private static Gen7RomEntry entryFor(String productCode, String titleId) {
+    // finds the stub entry for the ROM, only looking at its identifying values, so detection doesn't parse the
+    // full entry
+    private static Gen7RomEntry stubFor(String productCode, String titleId) {
         if (productCode == null || titleId == null) {
             return null;
         }
@@ -118,7 +122,7 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
 
     @Override
     protected void loadedROM(String productCode, String titleId) {
-        this.romEntry = entryFor(productCode, titleId);
+        this.romEntry = roms.resolve(stubFor(productCode, titleId));
 
         try {
             code = readCode();
@@ -172,7 +176,7 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
     private void setStrings(GARCArchive textGARC, int index, List<String> strings) {
         byte[] oldRawFile = textGARC.files.get(index).get(0);
         try {
-            byte[] newRawFile = N3DSTxtHandler.saveEntry(oldRawFile, strings, romEntry.getRomType());
+            byte[] newRawFile = N3DSTxtHandler.saveEntry(oldRawFile, strings, true, romEntry.getRomType());
             textGARC.setFile(index, newRawFile);
         } catch (IOException e) {
             e.printStackTrace();
@@ -2403,32 +2407,25 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getTMHMCompatibility() {
-        Map<Pokemon, boolean[]> compat = new TreeMap<>();
+    public MoveCompatibilityMatrix getTMHMCompatibility() {
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, Gen7Constants.tmCount);
         int pokemonCount = Gen7Constants.getPokemonCount(romEntry.getRomType());
         int formeCount = Gen7Constants.getFormeCount(romEntry.getRomType());
         for (int i = 1; i <= pokemonCount + formeCount; i++) {
             byte[] data;
             data = pokeGarc.files.get(i).get(0);
             Pokemon pkmn = pokes[i];
-            boolean[] flags = new boolean[Gen7Constants.tmCount + 1];
-            for (int j = 0; j < 13; j++) {
-                readByteIntoFlags(data, flags, j * 8 + 1, Gen7Constants.bsTMHMCompatOffset + j);
-            }
-            compat.put(pkmn, flags);
+            compat.addPokemon(pkmn);
+            compat.readBytes(pkmn, 0, Gen7Constants.tmCount, data, Gen7Constants.bsTMHMCompatOffset);
         }
         return compat;
     }
 
     @Override
-    public void setTMHMCompatibility(Map<Pokemon, boolean[]> compatData) {
-        for (Map.Entry<Pokemon, boolean[]> compatEntry : compatData.entrySet()) {
-            Pokemon pkmn = compatEntry.getKey();
-            boolean[] flags = compatEntry.getValue();
+    public void setTMHMCompatibility(MoveCompatibilityMatrix compatData) {
+        for (Pokemon pkmn : compatData.getPokemon()) {
             byte[] data = pokeGarc.files.get(pkmn.getNumber()).get(0);
-            for (int j = 0; j < 13; j++) {
-                data[Gen7Constants.bsTMHMCompatOffset + j] = getByteFromFlags(flags, j * 8 + 1);
-            }
+            compatData.writeBytes(pkmn, 0, compatData.getMoveCount(), data, Gen7Constants.bsTMHMCompatOffset, 13);
         }
     }
 
@@ -2480,25 +2477,22 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
     }
 
     @Override
-    public Map<Pokemon, boolean[]> getMoveTutorCompatibility() {
-        Map<Pokemon, boolean[]> compat = new TreeMap<>();
+    public MoveCompatibilityMatrix getMoveTutorCompatibility() {
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(pokes.length, Gen7Constants.tutorMoveCount);
         int pokemonCount = Gen7Constants.getPokemonCount(romEntry.getRomType());
         int formeCount = Gen7Constants.getFormeCount(romEntry.getRomType());
         for (int i = 1; i <= pokemonCount + formeCount; i++) {
             byte[] data;
             data = pokeGarc.files.get(i).get(0);
             Pokemon pkmn = pokes[i];
-            boolean[] flags = new boolean[Gen7Constants.tutorMoveCount + 1];
-            for (int j = 0; j < 10; j++) {
-                readByteIntoFlags(data, flags, j * 8 + 1, Gen7Constants.bsMTCompatOffset + j);
-            }
-            compat.put(pkmn, flags);
+            compat.addPokemon(pkmn);
+            compat.readBytes(pkmn, 0, Gen7Constants.tutorMoveCount, data, Gen7Constants.bsMTCompatOffset);
         }
         return compat;
     }
 
     @Override
-    public void setMoveTutorCompatibility(Map<Pokemon, boolean[]> compatData) {
+    public void setMoveTutorCompatibility(MoveCompatibilityMatrix compatData) {
         if (!hasMoveTutors()) return;
         int pokemonCount = Gen7Constants.getPokemonCount(romEntry.getRomType());
         int formeCount = Gen7Constants.getFormeCount(romEntry.getRomType());
@@ -2506,10 +2500,7 @@ public class Gen7RomHandler extends Abstract3DSRomHandler {
             byte[] data;
             data = pokeGarc.files.get(i).get(0);
             Pokemon pkmn = pokes[i];
-            boolean[] flags = compatData.get(pkmn);
-            for (int j = 0; j < 10; j++) {
-                data[Gen7Constants.bsMTCompatOffset + j] = getByteFromFlags(flags, j * 8 + 1);
-            }
+            compatData.writeBytes(pkmn, 0, compatData.getMoveCount(), data, Gen7Constants.bsMTCompatOffset, 10);
         }
     }
 
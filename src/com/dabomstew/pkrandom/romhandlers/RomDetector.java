@@ -0,0 +1,95 @@
+package com.dabomstew.pkrandom.romhandlers;
+
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Finds which of a set of {@link RomHandler.Factory}s can load a file. The start of the file is read only once, as a
+ * {@link RomFileHeader}, and handed to each Factory in turn, so the first one that accepts it wins like it would when
+ * calling {@link RomHandler.Factory#isLoadable(String)} on each.
+ * <br><br>
+ * Results are cached by the absolute path, size and modification time of the file, so asking again about a file
+ * which has not changed does not read it at all.
+ */
+public class RomDetector {
+
+    private static final int NO_FACTORY = -1;
+
+    private record FileKey(String path, long length, long lastModified) {
+    }
+
+    private final RomHandler.Factory[] factories;
+    private final Map<FileKey, Integer> cache;
+
+    public RomDetector(int cacheSize, RomHandler.Factory... factories) {
+        this.factories = factories.clone();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FileKey, Integer> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the first Factory which can load the file, or null if none can.
+     */
+    public RomHandler.Factory detect(String filename) {
+        File fh = new File(filename).getAbsoluteFile();
+        if (!fh.isFile()) {
+            return null;
+        }
+        FileKey key = new FileKey(fh.getPath(), fh.length(), fh.lastModified());
+        Integer cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached == null) {
+            cached = findFactory(RomFileHeader.read(fh.getPath()));
+            synchronized (cache) {
+                cache.put(key, cached);
+            }
+        }
+        return cached == NO_FACTORY ? null : factories[cached];
+    }
+
+    private int findFactory(RomFileHeader header) {
+        for (int i = 0; i < factories.length; i++) {
+            if (factories[i].isLoadable(header)) {
+                return i;
+            }
+        }
+        return NO_FACTORY;
+    }
+
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+}
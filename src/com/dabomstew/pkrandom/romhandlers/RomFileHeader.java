@@ -0,0 +1,140 @@
+package com.dabomstew.pkrandom.romhandlers;
+
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.exceptions.RomIOException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The start of a ROM file, read once so that every {@link RomHandler.Factory} can check whether it can load the file,
+ * without each of them opening and reading it again.
+ * <br><br>
+ * The first {@value #READ_SIZE} bytes are read up front. This covers the GB, GBA and DS headers, and the NCCH header
+ * of a 3DS cartridge dump (CCI), which is at 0x4000. Anything further into the file, e.g. the NCCH header of a CIA,
+ * is read when asked for, and kept in case it is asked for again.
+ */
+public class RomFileHeader {
+
+    static final int READ_SIZE = 0x4200;
+    private static final int EXTRA_READ_SIZE = 0x200;
+
+    private final String filename;
+    private final long length;
+    private final byte[] start;
+
+    private long extraOffset = -1;
+    private byte[] extra;
+
+    private RomFileHeader(String filename, long length, byte[] start) {
+        this.filename = filename;
+        this.length = length;
+        this.start = start;
+    }
+
+    /**
+     * Reads the start of a file. A file that does not exist or can't be read gives an empty header, which no
+     * {@link RomHandler.Factory} accepts.
+     */
+    public static RomFileHeader read(String filename) {
+        File fh = new File(filename);
+        if (!fh.exists() || !fh.isFile() || !fh.canRead()) {
+            return new RomFileHeader(filename, 0, new byte[0]);
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            long length = channel.size();
+            return new RomFileHeader(filename, length, readFully(channel, 0, (int) Math.min(length, READ_SIZE)));
+        } catch (IOException e) {
+            throw new RomIOException(e);
+        }
+    }
+
+    private static byte[] readFully(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, offset + buf.position()) < 0) {
+                break;
+            }
+        }
+        return buf.position() == length ? buf.array() : Arrays.copyOf(buf.array(), buf.position());
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Returns a copy of the first bytes of the file; as many as there are, up to {@code maxBytes} or
+     * {@value #READ_SIZE}, whichever is smaller.
+     */
+    public byte[] getStart(int maxBytes) {
+        return Arrays.copyOf(start, Math.min(start.length, maxBytes));
+    }
+
+    /**
+     * Whether the file is long enough to hold {@code length} bytes at {@code offset}.
+     */
+    public boolean has(long offset, int length) {
+        return offset >= 0 && offset + length <= this.length;
+    }
+
+    public byte[] read(long offset, int length) {
+        if (!has(offset, length)) {
+            throw new RomIOException("Tried to read past the end of " + filename);
+        }
+        if (offset + length <= start.length) {
+            return Arrays.copyOfRange(start, (int) offset, (int) offset + length);
+        }
+        if (extra == null || offset < extraOffset || offset + length > extraOffset + extra.length) {
+            try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+                extra = readFully(channel, offset, (int) Math.min(Math.max(length, EXTRA_READ_SIZE),
+                        this.length - offset));
+                extraOffset = offset;
+            } catch (IOException e) {
+                throw new RomIOException(e);
+            }
+        }
+        return Arrays.copyOfRange(extra, (int) (offset - extraOffset), (int) (offset - extraOffset) + length);
+    }
+
+    public int readInt(long offset) {
+        return FileFunctions.readFullInt(read(offset, 4), 0);
+    }
+
+    public int readBigEndianInt(long offset) {
+        return FileFunctions.readFullIntBigEndian(read(offset, 4), 0);
+    }
+
+}
@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * Responsible for direct handling a Rom/game file, and the data therein.
@@ -63,7 +64,15 @@ public interface RomHandler {
     abstract class Factory {
         public abstract RomHandler create();
 
-        public abstract boolean isLoadable(String filename);
+        public boolean isLoadable(String filename) {
+            return isLoadable(RomFileHeader.read(filename));
+        }
+
+        /**
+         * Checks whether a file can be loaded by the RomHandlers this creates, from the start of the file only.
+         * The same {@link RomFileHeader} can be given to several Factories, so it must not be changed.
+         */
+        public abstract boolean isLoadable(RomFileHeader header);
     }
 
     // =======================
@@ -71,6 +80,19 @@ public interface RomHandler {
     // =======================
 
     boolean loadRom(String filename);
+
+    /**
+     * Loads the ROM held by a {@link RomSnapshot}, as if it was loaded with {@link #loadRom(String)}, but without
+     * reading the ROM file again. The snapshot has to come from a RomHandler created by the same {@link Factory}.
+     * Only the first RomHandler loaded from a snapshot parses the ROM; later ones copy what it parsed.
+     */
+    boolean loadRom(RomSnapshot snapshot);
+
+    /**
+     * Returns a {@link RomSnapshot} of the loaded ROM, as it was when loaded. Changes made to this RomHandler,
+     * before or after the snapshot is taken, are not part of it.
+     */
+    RomSnapshot getRomSnapshot();
     
     boolean saveRom(String filename, long seed, boolean saveAsDirectory);
 
@@ -310,18 +332,18 @@ public interface RomHandler {
     int getHMCount();
 
     /**
-     * Get TM/HM compatibility data from this rom. The result should contain a
-     * boolean array for each Pokemon indexed as such:
+     * Get TM/HM compatibility data from this rom. The matrix has a row for each Pokemon, and its columns are
+     * indexed as such:
      * <br>
-     * 0: blank (false) / 1 - (getTMCount()) : TM compatibility /
-     * (getTMCount()+1) - (getTMCount()+getHMCount()) - HM compatibility
+     * 0 - (getTMCount()-1) : TM compatibility /
+     * getTMCount() - (getTMCount()+getHMCount()-1) : HM compatibility
      * 
-     * @return Map of TM/HM compatibility
+     * @return Matrix of TM/HM compatibility
      */
 
-    Map<Pokemon, boolean[]> getTMHMCompatibility();
+    MoveCompatibilityMatrix getTMHMCompatibility();
 
-    void setTMHMCompatibility(Map<Pokemon, boolean[]> compatData);
+    void setTMHMCompatibility(MoveCompatibilityMatrix compatData);
 
     // ===========
     // Move Tutors
@@ -333,9 +355,15 @@ public interface RomHandler {
 
     void setMoveTutorMoves(List<Integer> moves);
 
-    Map<Pokemon, boolean[]> getMoveTutorCompatibility();
+    /**
+     * Get Move Tutor compatibility data from this rom. The matrix has a row for each Pokemon, and its columns
+     * are in the same order as {@link #getMoveTutorMoves()}.
+     *
+     * @return Matrix of Move Tutor compatibility
+     */
+    MoveCompatibilityMatrix getMoveTutorCompatibility();
 
-    void setMoveTutorCompatibility(Map<Pokemon, boolean[]> compatData);
+    void setMoveTutorCompatibility(MoveCompatibilityMatrix compatData);
 
     // =============
     // Trainer Names
@@ -574,6 +602,12 @@ public interface RomHandler {
 
     List<BufferedImage> getAllPokemonImages();
 
+    /**
+     * Returns one {@link Supplier} per image {@link #getAllPokemonImages()} would give, each decoding its image
+     * when called. Different suppliers may be called at the same time from different threads.
+     */
+    List<Supplier<BufferedImage>> getAllPokemonImageSuppliers();
+
     // ======
     // Types
     // ======
@@ -0,0 +1,228 @@
+package com.dabomstew.pkrandom.romhandlers;
+
+
+/*----------------------------------------------------------------------------*/
+/*--  Part of "Universal Pokemon Randomizer ZX" by the UPR-ZX team          --*/
+/*--  Originally part of "Universal Pokemon Randomizer" by Dabomstew        --*/
+/*--  Pokemon and any associated names and the like are                     --*/
+/*--  trademark and (C) Nintendo 1996-2020.                                 --*/
+/*--                                                                        --*/
+/*--  The custom code written here is licensed under the terms of the GPL:  --*/
+/*--                                                                        --*/
+/*--  This program is free software: you can redistribute it and/or modify  --*/
+/*--  it under the terms of the GNU General Public License as published by  --*/
+/*--  the Free Software Foundation, either version 3 of the License, or     --*/
+/*--  (at your option) any later version.                                   --*/
+/*--                                                                        --*/
+/*--  This program is distributed in the hope that it will be useful,       --*/
+/*--  but WITHOUT ANY WARRANTY; without even the implied warranty of        --*/
+/*--  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the          --*/
+/*--  GNU General Public License for more details.                          --*/
+/*--                                                                        --*/
+/*--  You should have received a copy of the GNU General Public License     --*/
+/*--  along with this program. If not, see <http://www.gnu.org/licenses/>.  --*/
+/*----------------------------------------------------------------------------*/
+
+import com.dabomstew.pkrandom.FileFunctions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The unmodified bytes of a loaded GB/GBC/GBA ROM. The bytes are never written to, so one image can be shared by
+ * all {@link AbstractGBRomHandler}s loaded from the same {@link RomSnapshot}, while each handler edits its own copy.
+ * <br><br>
+ * Unlike the NDS ROM file (see {@link com.dabomstew.pkrandom.newnds.NDSRom}), the file is read into memory rather
+ * than memory-mapped: a GB ROM may be saved over the file it was loaded from, which a mapping would keep locked
+ * on Windows.
+ * <br><br>
+ * An edited copy can be compared to the image in {@link #PAGE_SIZE} pages, and the changed pages written as an
+ * IPS or BPS patch, without touching the unchanged parts of the ROM.
+ */
+public class RomImage {
+
+    public static final int PAGE_SIZE = 0x1000;
+
+    private static final int IPS_MAX_OFFSET = 0xFFFFFF;
+    private static final int IPS_MAX_RECORD_SIZE = 0xFFFF;
+    private static final int IPS_EOF = 0x454F46;
+    // A run of unchanged bytes shorter than this is cheaper to include in a record than to start a new one
+    private static final int MERGE_GAP = 6;
+
+    private final byte[] data;
+    private final long crc32;
+
+    /**
+     * Creates an image of the given bytes. The array is not copied, so it must not be written to afterwards.
+     */
+    public RomImage(byte[] data) {
+        this.data = data;
+        this.crc32 = FileFunctions.getCRC32(data);
+    }
+
+    public int length() {
+        return data.length;
+    }
+
+    public long getCRC32() {
+        return crc32;
+    }
+
+    /**
+     * Returns a new, writable copy of the image's bytes.
+     */
+    public byte[] copy() {
+        return Arrays.copyOf(data, data.length);
+    }
+
+    /**
+     * Returns the indexes of the pages where the given ROM differs from the image.
+     */
+    public BitSet getChangedPages(byte[] rom) {
+        checkLength(rom);
+        BitSet changed = new BitSet();
+        for (int page = 0; page * PAGE_SIZE < data.length; page++) {
+            int from = page * PAGE_SIZE;
+            int to = Math.min(from + PAGE_SIZE, data.length);
+            if (Arrays.mismatch(data, from, to, rom, from, to) != -1) {
+                changed.set(page);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Writes the differences between the image and the given ROM as an IPS patch.
+     *
+     * @throws IOException if writing fails, or if the ROM differs past the 16MB IPS patches can address.
+     */
+    public void writeIPSPatch(byte[] rom, OutputStream out) throws IOException {
+        List<int[]> runs = getChangedRuns(rom);
+        out.write(new byte[]{'P', 'A', 'T', 'C', 'H'});
+        for (int[] run : runs) {
+            int offset = run[0];
+            int end = run[1];
+            if (offset == IPS_EOF) {
+                // would be read as the end of the patch, so start one (unchanged) byte earlier
+                offset--;
+            }
+            while (offset < end) {
+                if (offset > IPS_MAX_OFFSET) {
+                    throw new IOException("ROM changed at 0x" + Integer.toHexString(offset)
+                            + ", past what an IPS patch can address.");
+                }
+                int size = Math.min(end - offset, IPS_MAX_RECORD_SIZE);
+                if (offset + size == IPS_EOF) {
+                    // the next record can't start there either, so end this one a byte earlier or later
+                    size += size > 1 ? -1 : 1;
+                }
+                out.write(offset >> 16);
+                out.write(offset >> 8);
+                out.write(offset);
+                out.write(size >> 8);
+                out.write(size);
+                out.write(rom, offset, size);
+                offset += size;
+            }
+        }
+        out.write(new byte[]{'E', 'O', 'F'});
+    }
+
+    /**
+     * Writes the differences between the image and the given ROM as a BPS patch.
+     */
+    public void writeBPSPatch(byte[] rom, OutputStream out) throws IOException {
+        List<int[]> runs = getChangedRuns(rom);
+        ByteArrayOutputStream patch = new ByteArrayOutputStream();
+        patch.write(new byte[]{'B', 'P', 'S', '1'});
+        writeBPSNumber(patch, data.length);
+        writeBPSNumber(patch, rom.length);
+        writeBPSNumber(patch, 0); // no metadata
+        int offset = 0;
+        for (int[] run : runs) {
+            if (run[0] > offset) {
+                // SourceRead: copy the unchanged bytes from the same offset of the original
+                writeBPSNumber(patch, (long) (run[0] - offset - 1) << 2);
+            }
+            // TargetRead: the changed bytes follow
+            writeBPSNumber(patch, ((long) (run[1] - run[0] - 1) << 2) | 1);
+            patch.write(rom, run[0], run[1] - run[0]);
+            offset = run[1];
+        }
+        if (offset < rom.length) {
+            writeBPSNumber(patch, (long) (rom.length - offset - 1) << 2);
+        }
+        writeBPSCRC(patch, crc32);
+        writeBPSCRC(patch, FileFunctions.getCRC32(rom));
+        CRC32 patchCRC = new CRC32();
+        patchCRC.update(patch.toByteArray());
+        writeBPSCRC(patch, patchCRC.getValue());
+        patch.writeTo(out);
+    }
+
+    private static void writeBPSNumber(OutputStream out, long number) throws IOException {
+        while (true) {
+            int x = (int) (number & 0x7F);
+            number >>>= 7;
+            if (number == 0) {
+                out.write(0x80 | x);
+                return;
+            }
+            out.write(x);
+            number--;
+        }
+    }
+
+    private static void writeBPSCRC(OutputStream out, long crc) throws IOException {
+        for (int i = 0; i < 4; i++) {
+            out.write((int) (crc >>> (8 * i)));
+        }
+    }
+
+    /**
+     * Returns the [start, end) ranges where the ROM differs from the image, ordered by offset.
+     * Ranges separated by only a few unchanged bytes are merged.
+     */
+    private List<int[]> getChangedRuns(byte[] rom) {
+        BitSet changedPages = getChangedPages(rom);
+        List<int[]> runs = new ArrayList<>();
+        for (int page = changedPages.nextSetBit(0); page >= 0; page = changedPages.nextSetBit(page + 1)) {
+            int from = page * PAGE_SIZE;
+            int to = Math.min(from + PAGE_SIZE, data.length);
+            int i = from;
+            while (i < to) {
+                int mismatch = Arrays.mismatch(data, i, to, rom, i, to);
+                if (mismatch == -1) {
+                    break;
+                }
+                int start = i + mismatch;
+                int end = start + 1;
+                while (end < to && data[end] != rom[end]) {
+                    end++;
+                }
+                int[] last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+                if (last != null && start - last[1] < MERGE_GAP) {
+                    last[1] = end;
+                } else {
+                    runs.add(new int[]{start, end});
+                }
+                i = end;
+            }
+        }
+        return runs;
+    }
+
+    private void checkLength(byte[] rom) {
+        if (rom.length != data.length) {
+            throw new IllegalArgumentException("ROM length " + rom.length + " differs from the original length "
+                    + data.length + ".");
+        }
+    }
+
+}
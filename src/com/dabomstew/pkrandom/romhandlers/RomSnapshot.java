@@ -0,0 +1,20 @@
+package com.dabomstew.pkrandom.romhandlers;
+
+/**
+ * The unmodified data of a loaded ROM, kept in memory so more {@link RomHandler}s can be loaded from it without
+ * reading the ROM file again. Get one using {@link RomHandler#getRomSnapshot()}, and load it into a new RomHandler
+ * created by the same {@link RomHandler.Factory} using {@link RomHandler#loadRom(RomSnapshot)}. The first RomHandler
+ * loaded from a snapshot parses the ROM as usual, and is kept as it was right after, so the ones loaded later are
+ * copies of it instead of parsing the ROM again.
+ * <br><br>
+ * A snapshot is never changed by the RomHandlers loaded from it, so one can be shared by several threads,
+ * e.g. when batch randomizing.
+ */
+public interface RomSnapshot {
+
+    /**
+     * The name of the ROM file the snapshot was taken from.
+     */
+    String getFilename();
+
+}
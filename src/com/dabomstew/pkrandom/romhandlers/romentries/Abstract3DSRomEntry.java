@@ -22,6 +22,7 @@ public abstract class Abstract3DSRomEntry extends RomEntry {
             putKeySuffixMethod("Offset", this::addIntValue);
             putKeySuffixMethod("Count", this::addIntValue);
             putKeySuffixMethod("Number", this::addIntValue);
+            markIdentifyingKey("TitleId");
         }
     }
 
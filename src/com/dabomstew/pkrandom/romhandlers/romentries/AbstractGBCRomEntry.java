@@ -18,6 +18,8 @@ public abstract class AbstractGBCRomEntry extends AbstractGBRomEntry {
             putSpecialKeyMethod("CRCInHeader", AbstractGBCRomEntry::setCRCInHeader);
             putSpecialKeyMethod("TMText[]", AbstractGBCRomEntry::addTMText);
             putKeyPrefixMethod("BankEndFreeSpaceMargin<", AbstractGBCRomEntry::addBankEndFreeSpaceMargin);
+            markIdentifyingKey("NonJapanese");
+            markIdentifyingKey("CRCInHeader");
         }
     }
 
@@ -0,0 +1,95 @@
+package com.dabomstew.pkrandom.romhandlers.romentries;
+
+import java.util.*;
+
+/**
+ * The entries of an .ini file, indexed but not yet fully parsed. Iterating over an {@code IniEntryIndex} gives
+ * "stub" entries, which only hold their name and identifying values (e.g. rom code and version), so that the right
+ * entry can be found cheaply. {@link #resolve(IniEntry)} then gives the full entry, parsing it (and any entries it
+ * copies from) the first time it is asked for.
+ * <br>
+ * Created by {@link IniEntryReader#indexEntriesFromFile(String)}.
+ *
+ * @param <T>
+ */
+public class IniEntryIndex<T extends IniEntry> implements Iterable<T> {
+
+    private final IniEntryReader<T> reader;
+    private final String fileName;
+    private final List<IniEntryReader.Section> sections;
+    private final List<T> stubs;
+    private final List<T> resolved;
+
+    IniEntryIndex(IniEntryReader<T> reader, String fileName, List<IniEntryReader.Section> sections, List<T> stubs) {
+        this.reader = reader;
+        this.fileName = fileName;
+        this.sections = sections;
+        this.stubs = Collections.unmodifiableList(stubs);
+        this.resolved = new ArrayList<>(Collections.nCopies(stubs.size(), null));
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return stubs.iterator();
+    }
+
+    public int size() {
+        return stubs.size();
+    }
+
+    /**
+     * Returns the fully parsed entry a stub from this index stands for. The result is cached, so callers that
+     * modify it should make a copy first.
+     */
+    public T resolve(T stub) {
+        for (int i = 0; i < stubs.size(); i++) {
+            if (stubs.get(i) == stub) {
+                return resolve(i);
+            }
+        }
+        throw new IllegalArgumentException("Entry " + stub.getName() + " is not a stub from " + fileName);
+    }
+
+    /**
+     * Returns all entries fully parsed, same as {@link IniEntryReader#readEntriesFromFile(String)} would.
+     */
+    public List<T> resolveAll() {
+        List<T> all = new ArrayList<>(stubs.size());
+        for (int i = 0; i < stubs.size(); i++) {
+            all.add(resolve(i));
+        }
+        return all;
+    }
+
+    private T resolve(int index) {
+        synchronized (reader) {
+            T entry = resolved.get(index);
+            if (entry == null) {
+                entry = parse(index);
+                resolved.set(index, entry);
+            }
+            return entry;
+        }
+    }
+
+    private T parse(int index) {
+        IniEntryReader.Section section = sections.get(index);
+        // CopyFrom can only see the entries above it, and matches them by name or identifying values,
+        // which the stubs have. Those that match are parsed first, the rest are left as stubs.
+        for (String value : reader.copyFromValues(section)) {
+            for (int i = 0; i < index; i++) {
+                if (reader.matchesCopyFromValue(stubs.get(i), value)) {
+                    resolve(i);
+                }
+            }
+        }
+        List<T> previous = new ArrayList<>(index);
+        for (int i = 0; i < index; i++) {
+            T entry = resolved.get(i);
+            previous.add(entry != null ? entry : stubs.get(i));
+        }
+        reader.setFileName(fileName);
+        return reader.readEntry(section, previous);
+    }
+
+}
@@ -1,8 +1,6 @@
 package com.dabomstew.pkrandom.romhandlers.romentries;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.StringReader;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.function.BiConsumer;
@@ -17,6 +15,10 @@ import java.util.function.BiConsumer;
  * {@link #putSpecialKeyMethod(String, BiConsumer) putSpecialKeyMethod()},
  * {@link #putKeyPrefixMethod(String, BiConsumer) putKeyPrefixMethod()}, and
  * {@link #putKeySuffixMethod(String, BiConsumer) putKeySuffixMethod()}.
+ * <br>
+ * Entries can either be read all at once, or indexed with {@link #indexEntriesFromFile(String)}. The latter only
+ * parses the keys marked by {@link #markIdentifyingKey(String)} up front, and leaves the rest of each entry to be
+ * parsed when it is first asked for.
  *
  * @param <T>
  */
@@ -78,6 +80,12 @@ public abstract class IniEntryReader<T extends IniEntry> {
 
     private static final String COMMENT_PREFIX = "//";
 
+    /**
+     * The raw lines of one entry, comments and empty lines already stripped.
+     */
+    record Section(String name, List<String> lines) {
+    }
+
     private final DefaultReadMode defaultReadMode;
     private String fileName;
     private T current;
@@ -86,6 +94,7 @@ public abstract class IniEntryReader<T extends IniEntry> {
     private final Map<String, BiConsumer<T, String[]>> keyPrefixMethods = new HashMap<>();
     private final Map<String, BiConsumer<T, String[]>> keySuffixMethods = new HashMap<>();
     private final Map<String, BiConsumer<T, String>> specialKeyMethods = new HashMap<>();
+    private final Set<String> identifyingKeys = new HashSet<>();
 
     public IniEntryReader(DefaultReadMode defaultReadMode) {
         this.defaultReadMode = defaultReadMode;
@@ -103,6 +112,17 @@ public abstract class IniEntryReader<T extends IniEntry> {
         specialKeyMethods.put(key, method);
     }
 
+    /**
+     * Marks a key whose special key method sets something needed to tell entries apart (e.g. a rom code), so that
+     * it is parsed even when the rest of the entry is not. Identifying values must not come from CopyFrom.
+     */
+    protected void markIdentifyingKey(String key) {
+        if (!specialKeyMethods.containsKey(key)) {
+            throw new IllegalArgumentException("No special key method for identifying key " + key);
+        }
+        identifyingKeys.add(key);
+    }
+
     protected void putArrayAlias(String oldKey, String newKey) {
         putSpecialKeyMethod(oldKey, (entry, value) -> addArrayValue(entry, newKey, value));
     }
@@ -119,22 +139,68 @@ public abstract class IniEntryReader<T extends IniEntry> {
         this.fileName = fileName;
     }
 
+    protected InputStream openFile(String fileName) throws FileNotFoundException {
+        return new FileInputStream(fileName);
+    }
+
     public List<T> readEntriesFromFile(String fileName) throws FileNotFoundException {
-        Scanner scanner = new Scanner(new FileInputStream(fileName), StandardCharsets.UTF_8);
         setFileName(fileName);
-        return readEntriesFromScanner(scanner);
+        return readEntries(readSectionsFromFile(fileName));
     }
 
     public List<T> readFromString(String string) {
-        Scanner scanner = new Scanner(new StringReader(string));
-        return readEntriesFromScanner(scanner);
+        return readEntries(readSections(new BufferedReader(new StringReader(string))));
     }
 
     public List<T> readEntriesFromScanner(Scanner scanner) {
-        this.iniEntries = new ArrayList<>();
-
+        List<String> lines = new ArrayList<>();
         while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
+            lines.add(scanner.nextLine());
+        }
+        return readEntries(readSections(lines));
+    }
+
+    /**
+     * Splits the file into its entries, but only parses the identifying keys of each. The full entries are parsed
+     * by the returned {@link IniEntryIndex} when first looked up.
+     */
+    public IniEntryIndex<T> indexEntriesFromFile(String fileName) throws FileNotFoundException {
+        List<Section> sections = readSectionsFromFile(fileName);
+        List<T> stubs = new ArrayList<>(sections.size());
+        for (Section section : sections) {
+            stubs.add(readIdentifyingValues(section));
+        }
+        return new IniEntryIndex<>(this, fileName, sections, stubs);
+    }
+
+    private List<Section> readSectionsFromFile(String fileName) throws FileNotFoundException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(openFile(fileName),
+                StandardCharsets.UTF_8))) {
+            return readSections(reader);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Section> readSections(BufferedReader reader) {
+        try {
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return readSections(lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Section> readSections(List<String> lines) {
+        List<Section> sections = new ArrayList<>();
+        List<String> sectionLines = null;
+        for (String line : lines) {
             line = removeComments(line);
 
             if (line.isEmpty()) {
@@ -142,21 +208,74 @@ public abstract class IniEntryReader<T extends IniEntry> {
             }
 
             if (isEntryStart(line)) {
-                startNewEntry(line);
-            } else if (current != null) {
-                parseAndAddValuePair(line);
+                sectionLines = new ArrayList<>();
+                sections.add(new Section(line.substring(1, line.length() - 1), sectionLines));
+            } else if (sectionLines != null) {
+                sectionLines.add(line);
             }
+        }
+        return sections;
+    }
 
+    private List<T> readEntries(List<Section> sections) {
+        this.iniEntries = new ArrayList<>();
+        for (Section section : sections) {
+            startNewEntry(section.name());
+            for (String line : section.lines()) {
+                parseAndAddValuePair(line);
+            }
         }
         return iniEntries;
     }
 
+    /**
+     * Parses a single entry, with {@code previous} standing in for the entries before it in the file.
+     * Any of those that CopyFrom could match must already be fully parsed.
+     */
+    T readEntry(Section section, List<T> previous) {
+        this.iniEntries = new ArrayList<>(previous);
+        startNewEntry(section.name());
+        for (String line : section.lines()) {
+            parseAndAddValuePair(line);
+        }
+        return current;
+    }
+
+    private T readIdentifyingValues(Section section) {
+        T entry = initiateEntry(section.name());
+        for (String line : section.lines()) {
+            String key = keyOf(line);
+            if (identifyingKeys.contains(key)) {
+                specialKeyMethods.get(key).accept(entry, line.substring(line.indexOf('=') + 1).trim());
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the CopyFrom values of an entry, in the order they appear.
+     */
+    List<String> copyFromValues(Section section) {
+        List<String> values = new ArrayList<>();
+        for (String line : section.lines()) {
+            if ("CopyFrom".equals(keyOf(line))) {
+                values.add(line.substring(line.indexOf('=') + 1).trim());
+            }
+        }
+        return values;
+    }
+
+    private String keyOf(String line) {
+        int equals = line.indexOf('=');
+        return equals == -1 ? null : line.substring(0, equals).trim();
+    }
+
     private boolean isEntryStart(String line) {
         return line.startsWith("[") && line.endsWith("]");
     }
 
-    private void startNewEntry(String line) {
-        current = initiateEntry(line.substring(1, line.length() - 1));
+    private void startNewEntry(String name) {
+        current = initiateEntry(name);
         iniEntries.add(current);
         putSpecialKeyMethod("CopyFrom", this::copyFrom);
     }
@@ -3,11 +3,9 @@ package com.dabomstew.pkrandom.romhandlers.romentries;
 import com.dabomstew.pkrandom.constants.Gen2Constants;
 
 import java.io.FileNotFoundException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 
 import static com.dabomstew.pkrandom.FileFunctions.openConfig;
 
@@ -35,13 +33,13 @@ public abstract class RomEntry extends IniEntry {
             putSpecialKeyMethod("Version", RomEntry::setVersion);
             putSpecialKeyMethod("Type", RomEntry::setRomType);
             putKeySuffixMethod("Tweak", RomEntry::putTweakFile);
+            markIdentifyingKey("Game");
+            markIdentifyingKey("Version");
         }
 
         @Override
-        public List<T> readEntriesFromFile(String fileName) throws FileNotFoundException {
-            Scanner scanner = new Scanner(openConfig(fileName), StandardCharsets.UTF_8);
-            setFileName(fileName);
-            return readEntriesFromScanner(scanner);
+        protected InputStream openFile(String fileName) throws FileNotFoundException {
+            return openConfig(fileName);
         }
 
         @Override
@@ -3,8 +3,9 @@ package compressors;
 import com.dabomstew.pkrandom.graphics.images.GBCImage;
 
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * Pokémon Gen 1 compressor. Since it is only used for image compression in the games,
@@ -20,38 +21,72 @@ public class Gen1Cmp {
     private static final int MAX_DIMENSION = 15;
     private static final int BLACK = 0xFF000000;
 
-    private final GBCImage image;
+    // What the bitplanes become after the xor/delta step. All six (mode, order) combinations are made up of
+    // these four, so each is only encoded once.
+    private static final int DELTA_1 = 0;
+    private static final int DELTA_2 = 1;
+    private static final int XORED = 2;
+    private static final int DELTA_XORED = 3;
 
     private final int width;
     private final int height;
-    private int[][] bp1;
-    private int[][] bp2;
+    private final int[][][] transformed = new int[4][][];
+    private final BitWriteStream[] encoded = new BitWriteStream[4];
 
     public static byte[] compress(GBCImage image) {
         return new Gen1Cmp(image).compressInner();
     }
 
+    /**
+     * Compresses several images at once, in parallel. The results are in the same order as the images.
+     * <br>
+     * The same {@link GBCImage} instance must not be in the list twice, as a GBCImage lazily prepares its
+     * bitplane images the first time they are asked for, which is not thread-safe.
+     */
+    public static List<byte[]> compressAll(List<GBCImage> images) {
+        byte[][] compressed = new byte[images.size()][];
+        IntStream.range(0, images.size()).parallel().forEach(i -> compressed[i] = compress(images.get(i)));
+        return Arrays.asList(compressed);
+    }
+
     public Gen1Cmp(GBCImage image) {
-        this.image = image;
         this.width = image.getWidth();
         this.height = image.getHeight();
         if (image.getWidthInTiles() > MAX_DIMENSION || image.getHeightInTiles() > MAX_DIMENSION) {
             throw new IllegalArgumentException("Image dimensions (in tiles) of " + image.getWidthInTiles() + "x" + image.getHeightInTiles() +
                     " exceeds " + MAX_DIMENSION + "x" + MAX_DIMENSION + ".");
         }
+        int[][] bp1 = bitplaneFromImage(image.getBitplane1Image());
+        int[][] bp2 = bitplaneFromImage(image.getBitplane2Image());
+        int[][] xored = xor(bp1, bp2);
+        transformed[DELTA_1] = deltaEncode(bp1);
+        transformed[DELTA_2] = deltaEncode(bp2);
+        transformed[XORED] = xored;
+        transformed[DELTA_XORED] = deltaEncode(xored);
     }
 
+    /**
+     * Picks the shortest of the six (mode, order) combinations. Since the image dimensions, the order bit,
+     * and the mode bits have fixed lengths, the length of each combination is known from the lengths of its two
+     * encoded bitplanes, and only the shortest one has to be written out.
+     */
     private byte[] compressInner() {
-        byte[] shortest = null;
+        int bestMode = 0;
+        boolean bestOrder = false;
+        int bestLength = Integer.MAX_VALUE;
         for (int mode = 0; mode <= 2; mode++) {
             for (int order = 0; order <= 1; order++) {
-                byte[] compressed = compressUsingModeAndOrder(mode, order == 1);
-                if (shortest == null || compressed.length < shortest.length) {
-                    shortest = compressed;
+                int bits = 8 + 1 + getEncoded(firstBitplane(order == 1)).length()
+                        + (mode == 0 ? 1 : 2) + getEncoded(secondBitplane(mode, order == 1)).length();
+                int length = (bits + 7) / 8;
+                if (length < bestLength) {
+                    bestMode = mode;
+                    bestOrder = order == 1;
+                    bestLength = length;
                 }
             }
         }
-        return shortest;
+        return compressUsingModeAndOrder(bestMode, bestOrder);
     }
 
     public byte[] compressUsingModeAndOrder(int mode, boolean order) {
@@ -59,37 +94,40 @@ public class Gen1Cmp {
             throw new IllegalArgumentException("Invalid mode: " + mode + ". Must be 0, 1, or 2.");
         }
 
-        prepareBitplanes(mode, order);
-
         BitWriteStream bws = new BitWriteStream();
 
         writeImageDimensions(bws);
         bws.writeBit(order ? 1 : 0);
-        compressAndWriteBitplane(bp1, bws);
+        bws.append(getEncoded(firstBitplane(order)));
         writeMode(mode, bws);
-        compressAndWriteBitplane(bp2, bws);
+        bws.append(getEncoded(secondBitplane(mode, order)));
 
-        byte[] compressed = bws.toByteArray();
-        BitReadStream brs = new BitReadStream(compressed);
-        BitWriteStream bws2 = new BitWriteStream();
-        while (brs.hasNext()) {
-            bws2.writeBit(brs.readBit());
-        }
         return bws.toByteArray();
     }
 
-    private void prepareBitplanes(int mode, boolean order) {
-        initBitplanes(order);
-        xorAndDeltaEncodeBitplanes(mode);
+    private int firstBitplane(boolean order) {
+        return order ? DELTA_2 : DELTA_1;
     }
 
-    private void initBitplanes(boolean order) {
-        bp1 = bitplaneFromImage(order ? image.getBitplane2Image() : image.getBitplane1Image());
-        bp2 = bitplaneFromImage(order ? image.getBitplane1Image() : image.getBitplane2Image());
+    private int secondBitplane(int mode, boolean order) {
+        return switch (mode) {
+            case 0 -> order ? DELTA_1 : DELTA_2;
+            case 1 -> XORED; // xor is symmetric, so the order does not matter
+            default -> DELTA_XORED;
+        };
+    }
+
+    private BitWriteStream getEncoded(int bitplane) {
+        if (encoded[bitplane] == null) {
+            BitWriteStream bws = new BitWriteStream();
+            compressAndWriteBitplane(transformed[bitplane], bws);
+            encoded[bitplane] = bws;
+        }
+        return encoded[bitplane];
     }
 
     private int[][] bitplaneFromImage(BufferedImage image) {
-        int[][] bitplane = new int[image.getWidth()][image.getWidth()];
+        int[][] bitplane = new int[image.getWidth()][image.getHeight()];
         for (int x = 0; x < image.getWidth(); x++) {
             for (int y = 0; y < image.getHeight(); y++) {
                 bitplane[x][y] = image.getRGB(x, y) == BLACK ? 1 : 0;
@@ -98,18 +136,6 @@ public class Gen1Cmp {
         return bitplane;
     }
 
-    private void xorAndDeltaEncodeBitplanes(int mode) {
-
-        if (mode != 0) {
-            bp2 = xor(bp1, bp2);
-        }
-
-        bp1 = deltaEncode(bp1);
-        if (mode != 1) {
-            bp2 = deltaEncode(bp2);
-        }
-    }
-
     private int[][] xor(int[][] a, int[][] b) {
         int[][] xored = new int[width][height];
         for (int x = 0; x < width; x++) {
@@ -231,19 +257,15 @@ public class Gen1Cmp {
 
     private static class BitWriteStream {
 
-        List<Byte> bytes = new ArrayList<>();
-        int currentBit = 0;
-        byte currentByte = 0;
+        byte[] bytes = new byte[64];
+        int bitLength = 0;
 
         public void writeBit(int bit) {
-            if (currentBit == 8 || bytes.isEmpty()) {
-                currentBit = 0;
-                currentByte = 0;
-                bytes.add(currentByte);
+            if (bitLength == bytes.length * 8) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
             }
-            currentByte += (bit << (7 - currentBit));
-            bytes.set(bytes.size() - 1, currentByte);
-            currentBit++;
+            bytes[bitLength >> 3] |= (byte) (bit << (7 - (bitLength & 7)));
+            bitLength++;
         }
 
         public void writeBitPair(int bitPair) {
@@ -257,56 +279,29 @@ public class Gen1Cmp {
             }
         }
 
-        public byte[] toByteArray() {
-            byte[] byteArray = new byte[bytes.size()];
-            for (int i = 0; i < bytes.size(); i++) {
-                byteArray[i] = bytes.get(i);
+        public void append(BitWriteStream other) {
+            for (int i = 0; i < other.bitLength; i++) {
+                writeBit((other.bytes[i >> 3] >> (7 - (i & 7))) & 1);
             }
-            return byteArray;
         }
 
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < bytes.size() - 1; i++) {
-                for (int j = 7; j >= 0; j--) {
-                    byte b = bytes.get(i);
-                    sb.append((b >> j) & 1);
-                }
-            }
-            for (int j = 7; j > 7 - currentBit; j--) {
-                sb.append((currentByte >> j) & 1);
-            }
-
-            return sb.toString();
+        public int length() {
+            return bitLength;
         }
 
-    }
-
-    private static class BitReadStream {
-
-        final byte[] bytes;
-        int currentBit = 0;
-        int currentByte = 0;
-
-        public BitReadStream(byte[] bytes) {
-            this.bytes = bytes;
+        public byte[] toByteArray() {
+            return Arrays.copyOf(bytes, (bitLength + 7) / 8);
         }
 
-        public int readBit() {
-            byte b = bytes[currentByte];
-            int bit = b >> (7 - currentBit) & 1;
-            currentBit++;
-            if (currentBit == 8) {
-                currentBit = 0;
-                currentByte++;
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < bitLength; i++) {
+                sb.append((bytes[i >> 3] >> (7 - (i & 7))) & 1);
             }
-            return bit;
+            return sb.toString();
         }
 
-        public boolean hasNext() {
-            return currentByte < bytes.length;
-        }
     }
 
 }
@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 import com.dabomstew.pkrandom.FileFunctions;
 
@@ -408,6 +409,10 @@ public class BLZCoder {
         }
     }
 
+    /**
+     * Encodes data in memory. With best, uses CUE's LZ-CUE optimization, which saves a little space over the normal
+     * mode but looks ahead at every match; without it, encodes faster, at a few KB more for a 3DS .code.
+     */
     public byte[] BLZ_EncodePub(byte[] data, boolean arm9, boolean best, String reference) {
         int mode = best ? BLZ_BEST : BLZ_NORMAL;
         this.arm9 = arm9;
@@ -456,7 +461,7 @@ public class BLZCoder {
         int[] pak_buffer, tmp;
         int pak, raw, raw_end, flg = 0;
         int pak_len, inc_len, hdr_len, enc_len, len;
-        int len_best, pos_best = 0, len_next, pos_next = 0, len_post, pos_post = 0;
+        int len_best, pos_best, len_next, len_post;
         int pak_tmp, raw_tmp, raw_new;
         int mask;
 
@@ -480,6 +485,11 @@ public class BLZCoder {
         raw = 0;
         raw_end = raw_new;
 
+        MatchFinder finder = new MatchFinder(raw_buffer, raw_end);
+        if (MatchFinder.shouldParseAhead(raw_end)) {
+            finder.parseAhead(best == BLZ_BEST);
+        }
+
         mask = 0;
         while (raw < raw_end) {
             if ((mask = (mask >>> BLZ_SHIFT)) == 0) {
@@ -487,23 +497,16 @@ public class BLZCoder {
                 mask = BLZ_MASK;
             }
 
-            SearchPair sl1 = SEARCH(pos_best, raw_buffer, raw, raw_end);
-            len_best = sl1.l;
-            pos_best = sl1.p;
+            int match = finder.find(raw);
+            len_best = MatchFinder.length(match);
+            pos_best = MatchFinder.position(match);
 
             // LZ-CUE optimization start
             if (best == BLZ_BEST) {
                 if (len_best > BLZ_THRESHOLD) {
                     if (raw + len_best < raw_end) {
-                        raw += len_best;
-                        SearchPair sl2 = SEARCH(pos_next, raw_buffer, raw, raw_end);
-                        len_next = sl2.l;
-                        pos_next = sl2.p;
-                        raw -= (len_best - 1);
-                        SearchPair sl3 = SEARCH(pos_post, raw_buffer, raw, raw_end);
-                        len_post = sl3.l;
-                        pos_post = sl3.p;
-                        raw--;
+                        len_next = MatchFinder.length(finder.find(raw + len_best));
+                        len_post = MatchFinder.length(finder.find(raw + 1));
 
                         if (len_next <= BLZ_THRESHOLD) {
                             len_next = 1;
@@ -706,41 +709,138 @@ public class BLZCoder {
         }
     }
 
-    private static class SearchPair {
-        public int l;
-        public int p;
+    /**
+     * Finds the same matches as CUE's brute-force search did (the longest, and of those the nearest, match of up to
+     * {@link #BLZ_F} bytes within {@link #BLZ_N} bytes back), but only tries earlier positions which share the
+     * hash of the next 3 bytes, through hash chains. Found matches are remembered, since the LZ-CUE optimization
+     * looks at most positions twice.<br>
+     * With several cores, {@link #parseAhead(boolean)} first parses chunks of the input speculatively in parallel,
+     * each from its own start. Parses from different starts soon line up, so the real (sequential) parse then
+     * finds nearly all matches it needs already remembered; its output is the same as without parsing ahead.
+     */
+    private static class MatchFinder {
+
+        private static final int HASH_BITS = 16;
+        private static final int LEN_BITS = 5;
+        private static final int LEN_MASK = (1 << LEN_BITS) - 1;
+        private static final int PARALLEL_THRESHOLD = 0x20000;
+        private static final int CHUNK_SIZE = 0x10000;
+
+        private final int[] buffer;
+        private final int end;
+        // previous position with the same hash, or -1
+        private final int[] prev;
+        // (pos << LEN_BITS) | len of the match at each position, or 0 if not searched yet
+        private final int[] matches;
+
+        MatchFinder(int[] buffer, int end) {
+            this.buffer = buffer;
+            this.end = end;
+            int[] head = new int[1 << HASH_BITS];
+            Arrays.fill(head, -1);
+            prev = new int[Math.max(end, 0)];
+            for (int i = 0; i < end; i++) {
+                if (i + BLZ_THRESHOLD < end) {
+                    int h = hash(i);
+                    prev[i] = head[h];
+                    head[h] = i;
+                } else {
+                    prev[i] = -1;
+                }
+            }
+            matches = new int[Math.max(end, 0)];
+        }
 
-        public SearchPair(int l, int p) {
-            this.l = l;
-            this.p = p;
+        private int hash(int i) {
+            int key = (buffer[i] << 16) | (buffer[i + 1] << 8) | buffer[i + 2];
+            return (key * 0x9E3779B1) >>> (32 - HASH_BITS);
         }
-    }
 
-    private SearchPair SEARCH(int p, int[] raw_buffer, int raw, int raw_end) {
-        int l = BLZ_THRESHOLD;
-        int max = (raw >= BLZ_N) ? BLZ_N : raw;
-        for (int pos = 3; pos <= max; pos++) {
-            int len;
-            for (len = 0; len < BLZ_F; len++) {
-                if (raw + len == raw_end) {
-                    break;
+        static boolean shouldParseAhead(int end) {
+            return end >= PARALLEL_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1;
+        }
+
+        /**
+         * Searches the positions the encoder will likely need, in parallel chunks.
+         */
+        void parseAhead(boolean best) {
+            IntStream.range(0, (end + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel().forEach(chunk -> {
+                int raw = chunk * CHUNK_SIZE;
+                int chunkEnd = Math.min(end, raw + CHUNK_SIZE);
+                while (raw < chunkEnd) {
+                    raw += step(raw, best);
                 }
-                if (len >= pos) {
-                    break;
+            });
+        }
+
+        /**
+         * Returns how far the encoder moves from raw; to the end of the match it writes, or 1 for a literal.
+         */
+        private int step(int raw, boolean best) {
+            int lenBest = length(find(raw));
+            if (best && lenBest > BLZ_THRESHOLD && raw + lenBest < end) {
+                int lenNext = length(find(raw + lenBest));
+                int lenPost = length(find(raw + 1));
+                if (lenNext <= BLZ_THRESHOLD) {
+                    lenNext = 1;
                 }
-                if (raw_buffer[raw + len] != raw_buffer[raw + len - pos]) {
-                    break;
+                if (lenPost <= BLZ_THRESHOLD) {
+                    lenPost = 1;
+                }
+                if ((lenBest + lenNext) <= (1 + lenPost)) {
+                    lenBest = 1;
                 }
             }
+            return lenBest > BLZ_THRESHOLD ? lenBest : 1;
+        }
+
+        /**
+         * Returns the longest match at raw, as (pos << 5) | len. A len of at most {@link #BLZ_THRESHOLD} means there
+         * is no usable match.
+         */
+        int find(int raw) {
+            int match = matches[raw];
+            if (match == 0) {
+                // threads parsing ahead may search the same position, but always store the same result
+                match = search(raw);
+                matches[raw] = match;
+            }
+            return match;
+        }
+
+        static int length(int match) {
+            return match & LEN_MASK;
+        }
 
-            if (len > l) {
-                p = pos;
-                if ((l = len) == BLZ_F) {
+        static int position(int match) {
+            return match >>> LEN_BITS;
+        }
+
+        private int search(int raw) {
+            int l = BLZ_THRESHOLD;
+            int p = 0;
+            int max = Math.min(raw, BLZ_N);
+            int longest = Math.min(BLZ_F, end - raw);
+            for (int candidate = prev[raw]; candidate >= 0 && l < longest; candidate = prev[candidate]) {
+                int pos = raw - candidate;
+                if (pos > max) {
                     break;
                 }
+                if (pos < 3) {
+                    continue;
+                }
+                int maxLen = Math.min(longest, pos);
+                int len = 0;
+                while (len < maxLen && buffer[raw + len] == buffer[candidate + len]) {
+                    len++;
+                }
+                if (len > l) {
+                    p = pos;
+                    l = len;
+                }
             }
+            return (p << LEN_BITS) | l;
         }
-        return new SearchPair(l, p);
     }
 
     private class BLZResult {
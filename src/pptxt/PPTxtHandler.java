@@ -8,23 +8,35 @@ package pptxt;
 
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.dabomstew.pkrandom.FileFunctions;
 
+/**
+ * Reads and writes the encrypted text files of the Gen 5 games.
+ * <br><br>
+ * All methods are static and keep their state on the stack, so several text files (or several ROMs)
+ * may be handled at once from different threads.
+ */
 public class PPTxtHandler {
 
-    private static Map<String, String> pokeToText = new HashMap<>();
-    private static Map<String, String> textToPoke = new HashMap<>();
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
 
-    private static Pattern pokeToTextPattern, textToPokePattern;
+    // The special in-game characters and their text forms, sorted by character for decoding...
+    private static final char[] tableChars;
+    private static final String[] tableTexts;
+    // ...and sorted by the first char of the text form for encoding.
+    private static final char[] textFirstChars;
+    private static final String[] textTokens;
+    private static final char[] textTokenChars;
 
     static {
+        // the tables are built in locals and only then assigned to the final fields, so any thread that sees
+        // the class initialized sees them complete
+        List<String[]> entries = new ArrayList<>();
         try {
             Scanner sc = new Scanner(FileFunctions.openConfig("Generation5.tbl"), "UTF-8");
             while (sc.hasNextLine()) {
@@ -34,206 +46,183 @@ public class PPTxtHandler {
                     if (r[1].endsWith("\r\n")) {
                         r[1] = r[1].substring(0, r[1].length() - 2);
                     }
-                    pokeToText.put(Character.toString((char) Integer.parseInt(r[0], 16)), r[1].replace("\\", "\\\\")
-                            .replace("$", "\\$"));
-                    textToPoke.put(r[1], "\\\\x" + r[0]);
+                    entries.add(r);
                 }
             }
             sc.close();
-            pokeToTextPattern = makePattern(pokeToText.keySet());
-            textToPokePattern = makePattern(textToPoke.keySet());
         } catch (FileNotFoundException e) {
             e.printStackTrace();
+            entries.clear();
         }
-    }
 
-    private static Pattern makePattern(Iterable<String> tokens) {
-        String patternStr = "("
-                + implode(tokens, "|").replace("\\", "\\\\").replace("[", "\\[").replace("]", "\\]")
-                        .replace("(", "\\(").replace(")", "\\)") + ")";
-        return Pattern.compile(patternStr);
-    }
+        entries.sort((a, b) -> Integer.compare(Integer.parseInt(a[0], 16), Integer.parseInt(b[0], 16)));
+        char[] chars = new char[entries.size()];
+        String[] texts = new String[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            chars[i] = (char) Integer.parseInt(entries.get(i)[0], 16);
+            texts[i] = entries.get(i)[1];
+        }
 
-    private static String implode(Iterable<String> tokens, String sep) {
-        StringBuilder sb = new StringBuilder();
-        boolean first = true;
-        for (String token : tokens) {
-            if (!first) {
-                sb.append(sep);
-            }
-            sb.append(token);
-            first = false;
+        entries.sort((a, b) -> Character.compare(a[1].charAt(0), b[1].charAt(0)));
+        char[] firstChars = new char[entries.size()];
+        String[] tokens = new String[entries.size()];
+        char[] tokenChars = new char[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            firstChars[i] = entries.get(i)[1].charAt(0);
+            tokens[i] = entries.get(i)[1];
+            tokenChars[i] = (char) Integer.parseInt(entries.get(i)[0], 16);
         }
-        return sb.toString();
+
+        tableChars = chars;
+        tableTexts = texts;
+        textFirstChars = firstChars;
+        textTokens = tokens;
+        textTokenChars = tokenChars;
     }
 
     /**
      * Decompress the words given into chars according to 9bits per char format
      * Based off poketext's implementation of the same in gen4, but uses all 16
      * bits per word as opposed to 15
-     * 
-     * @param chars
-     *            List of words, beginning with [F100] which is skipped.
-     * @return Decompressed list of integers corresponding to characters
+     *
+     * @param words
+     *            Buffer of words, beginning with [F100] which is skipped.
+     * @param count
+     *            The number of words in the buffer.
+     * @param uncomp
+     *            Buffer to put the decompressed chars in, at least twice count long.
+     * @return The number of decompressed chars
      */
-    private static List<Integer> decompress(List<Integer> chars) {
-        List<Integer> uncomp = new ArrayList<>();
+    private static int decompress(char[] words, int count, char[] uncomp) {
+        int length = 0;
         int j = 1;
         int shift1 = 0;
         int trans = 0;
-        while (true) {
-            int tmp = chars.get(j);
-            tmp = tmp >> shift1;
-            int tmp1 = tmp;
+        // Well-formed text always ends with an FF char, running out of words means it was truncated.
+        while (j < count) {
+            int tmp1;
             if (shift1 >= 0x10) {
                 shift1 -= 0x10;
                 if (shift1 > 0) {
-                    tmp1 = (trans | ((chars.get(j) << (9 - shift1)) & 0x1FF));
+                    tmp1 = (trans | ((words[j] << (9 - shift1)) & 0x1FF));
                     if ((tmp1 & 0xFF) == 0xFF) {
                         break;
                     }
                     if (tmp1 != 0x0 && tmp1 != 0x1) {
-                        uncomp.add(tmp1);
+                        uncomp[length++] = (char) tmp1;
                     }
                 }
             } else {
-                tmp1 = ((chars.get(j) >> shift1) & 0x1FF);
+                tmp1 = ((words[j] >> shift1) & 0x1FF);
                 if ((tmp1 & 0xFF) == 0xFF) {
                     break;
                 }
                 if (tmp1 != 0x0 && tmp1 != 0x1) {
-                    uncomp.add(tmp1);
+                    uncomp[length++] = (char) tmp1;
                 }
                 shift1 += 9;
                 if (shift1 < 0x10) {
-                    trans = ((chars.get(j) >> shift1) & 0x1FF);
+                    trans = ((words[j] >> shift1) & 0x1FF);
                     shift1 += 9;
                 }
                 j += 1;
             }
         }
-        return uncomp;
+        return length;
     }
 
-    private static List<Integer> lastKeys;
-    private static List<Integer> lastUnknowns;
-
     /**
-     * Take a byte-array corresponding to a NARC entry and build a list of
-     * strings against the gen5 text encryption. Decompresses as appropriate.
-     * 
-     * @param ds
-     *            The data from this msg.narc entry
-     * @return The list of strings
+     * Decrypts and decompresses the strings of a single text file, reusing its buffers between strings.
      */
+    private static class Decoder {
 
-    public static List<String> readTexts(byte[] ds) {
-        int pos = 0;
-        int i = 0;
-        lastKeys = new ArrayList<>();
-        lastUnknowns = new ArrayList<>();
-        List<String> strings = new ArrayList<>();
-        int numSections, numEntries, tmpCharCount, tmpUnknown, tmpChar;
-        int tmpOffset;
-        int[] sizeSections = new int[] { 0, 0, 0 };
-        int[] sectionOffset = new int[] { 0, 0, 0 };
-        Map<Integer, List<Integer>> tableOffsets = new HashMap<>();
-        Map<Integer, List<Integer>> characterCount = new HashMap<>();
-        Map<Integer, List<Integer>> unknown = new HashMap<>();
-        Map<Integer, List<List<Integer>>> encText = new HashMap<>();
-        Map<Integer, List<List<String>>> decText = new HashMap<>();
-        StringBuilder sb;
-        int key;
-
-        numSections = readWord(ds, 0);
-        numEntries = readWord(ds, 2);
-        sizeSections[0] = readLong(ds, 4);
-        // unk1 = readLong(ds, 8);
-        pos += 12;
-        if (numSections > i) {
-            for (int z = 0; z < numSections; z++) {
-                sectionOffset[z] = readLong(ds, pos);
-                pos += 4;
+        private final byte[] ds;
+        private final int sectionOffset;
+        private char[] words = new char[0x100];
+        private char[] chars = new char[0x200];
+        private final StringBuilder sb = new StringBuilder();
+
+        private Decoder(byte[] ds) {
+            this.ds = ds;
+            this.sectionOffset = readLong(ds, 12);
+        }
+
+        private String decode(int entry) {
+            int entryPos = sectionOffset + 4 + entry * 8;
+            int pos = sectionOffset + readLong(ds, entryPos);
+            int count = readWord(ds, entryPos + 4);
+            if (words.length < count) {
+                words = new char[count];
+                chars = new char[count * 2];
             }
-            pos = sectionOffset[i];
-            sizeSections[i] = readLong(ds, pos);
-            pos += 4;
-            tableOffsets.put(i, new ArrayList<>());
-            characterCount.put(i, new ArrayList<>());
-            unknown.put(i, new ArrayList<>());
-            encText.put(i, new ArrayList<>());
-            decText.put(i, new ArrayList<>());
-            for (int j = 0; j < numEntries; j++) {
-                tmpOffset = readLong(ds, pos);
-                pos += 4;
-                tmpCharCount = readWord(ds, pos);
-                pos += 2;
-                tmpUnknown = readWord(ds, pos);
-                pos += 2;
-                tableOffsets.get(i).add(tmpOffset);
-                characterCount.get(i).add(tmpCharCount);
-                unknown.get(i).add(tmpUnknown);
-                lastUnknowns.add(tmpUnknown);
+
+            int key = count == 0 ? 0 : readWord(ds, pos + (count - 1) * 2) ^ 0xFFFF;
+            for (int k = count - 1; k >= 0; k--) {
+                words[k] = (char) (readWord(ds, pos + k * 2) ^ key);
+                key = ((key >>> 3) | (key << 13)) & 0xffff;
             }
-            for (int j = 0; j < numEntries; j++) {
-                List<Integer> tmpEncChars = new ArrayList<>();
-                pos = sectionOffset[i] + tableOffsets.get(i).get(j);
-                for (int k = 0; k < characterCount.get(i).get(j); k++) {
-                    tmpChar = readWord(ds, pos);
-                    pos += 2;
-                    tmpEncChars.add(tmpChar);
-                }
-                encText.get(i).add(tmpEncChars);
-                key = encText.get(i).get(j).get(characterCount.get(i).get(j) - 1) ^ 0xFFFF;
-                for (int k = characterCount.get(i).get(j) - 1; k >= 0; k--) {
-                    encText.get(i).get(j).set(k, (encText.get(i).get(j).get(k)) ^ key);
-                    if (k == 0) {
-                        lastKeys.add(key);
-                    }
-                    key = ((key >>> 3) | (key << 13)) & 0xffff;
-                }
-                if (encText.get(i).get(j).get(0) == 0xF100) {
-                    encText.get(i).set(j, decompress(encText.get(i).get(j)));
-                    characterCount.get(i).set(j, encText.get(i).get(j).size());
+            char[] text = words;
+            if (count > 0 && words[0] == 0xF100) {
+                count = decompress(words, count, chars);
+                text = chars;
+            }
+
+            sb.setLength(0);
+            for (int k = 0; k < count; k++) {
+                char c = text[k];
+                if (c == 0xFFFF) {
+                    continue;
                 }
-                List<String> chars = new ArrayList<>();
-                sb = new StringBuilder();
-                for (int k = 0; k < characterCount.get(i).get(j); k++) {
-                    if (encText.get(i).get(j).get(k) == 0xFFFF) {
-                        chars.add("\\xFFFF");
+                if (c > 20 && c <= 0xFFF0 && Character.UnicodeBlock.of(c) != null) {
+                    int tableIndex = Arrays.binarySearch(tableChars, c);
+                    if (tableIndex >= 0) {
+                        sb.append(tableTexts[tableIndex]);
                     } else {
-                        if (encText.get(i).get(j).get(k) > 20 && encText.get(i).get(j).get(k) <= 0xFFF0
-                                && Character.UnicodeBlock.of(encText.get(i).get(j).get(k)) != null) {
-                            chars.add("" + ((char) encText.get(i).get(j).get(k).intValue()));
-                        } else {
-                            String num = String.format("%04X", encText.get(i).get(j).get(k));
-                            chars.add("\\x" + num);
-                        }
-                        sb.append(chars.get(k));
+                        sb.append(c);
                     }
+                } else {
+                    sb.append('\\').append('x')
+                            .append(HEX_DIGITS[(c >> 12) & 0xF]).append(HEX_DIGITS[(c >> 8) & 0xF])
+                            .append(HEX_DIGITS[(c >> 4) & 0xF]).append(HEX_DIGITS[c & 0xF]);
                 }
-                strings.add(sb.toString());
-                decText.get(i).add(chars);
             }
+            return sb.toString();
         }
+    }
 
-        // Parse strings against the table
-        for (int sn = 0; sn < strings.size(); sn++) {
-            strings.set(sn, bulkReplace(strings.get(sn), pokeToTextPattern, pokeToText));
+    /**
+     * Take a byte-array corresponding to a NARC entry and build a list of
+     * strings against the gen5 text encryption. Decompresses as appropriate.
+     *
+     * @param ds
+     *            The data from this msg.narc entry
+     * @return The list of strings
+     */
+    public static List<String> readTexts(byte[] ds) {
+        int numEntries = readWord(ds, 2);
+        List<String> strings = new ArrayList<>(numEntries);
+        if (readWord(ds, 0) > 0) {
+            Decoder decoder = new Decoder(ds);
+            for (int j = 0; j < numEntries; j++) {
+                strings.add(decoder.decode(j));
+            }
         }
         return strings;
     }
 
-    private static String bulkReplace(String string, Pattern pattern, Map<String, String> replacements) {
-        Matcher matcher = pattern.matcher(string);
-
-        StringBuffer sb = new StringBuffer();
-        while (matcher.find()) {
-            matcher.appendReplacement(sb, replacements.get(matcher.group(1)));
-        }
-        matcher.appendTail(sb);
-
-        return sb.toString();
+    /**
+     * Like {@link #readTexts(byte[])}, but only decrypts and decompresses the string at the given index.
+     *
+     * @param ds
+     *            The data from this msg.narc entry
+     * @param index
+     *            The index of the string
+     * @return The string
+     */
+    public static String readText(byte[] ds, int index) {
+        int numEntries = readWord(ds, 0) > 0 ? readWord(ds, 2) : 0;
+        Objects.checkIndex(index, numEntries);
+        return new Decoder(ds).decode(index);
     }
 
     /**
@@ -241,7 +230,7 @@ public class PPTxtHandler {
      * only one in most releases BUT japanese). Return the resulting binary as a
      * byte-array. Will never use the [F100] compression, even if the original
      * file used it.
-     * 
+     *
      * @param originalData
      *            The original file, to copy stuff like unknowns.
      * @param text
@@ -250,27 +239,17 @@ public class PPTxtHandler {
      */
     public static byte[] saveEntry(byte[] originalData, List<String> text) {
 
-        // Parse strings against the reverse table
-        for (int sn = 0; sn < text.size(); sn++) {
-            text.set(sn, bulkReplace(text.get(sn), textToPokePattern, textToPoke));
-        }
-
-        // Make sure we have the original unknowns etc
-        readTexts(originalData);
-
         // Start getting stuff
         int numSections, numEntries;
-        int[] sizeSections = new int[] { 0, 0, 0 };
-        int[] sectionOffset = new int[] { 0, 0, 0 };
-        int[] newsizeSections = new int[] { 0, 0, 0 };
-        int[] newsectionOffset = new int[] { 0, 0, 0 };
+        int[] sizeSections, sectionOffset;
+        int newsizeSection;
 
         // Data-Stream
         int pos = 0;
 
         numSections = readWord(originalData, 0);
         numEntries = readWord(originalData, 2);
-        sizeSections[0] = readLong(originalData, 4);
+        // sizeSections[0] = readLong(ds, 4);
         // unk1 readLong(ds, 8);
         pos += 12;
 
@@ -278,7 +257,8 @@ public class PPTxtHandler {
             System.err.println("Can't do anything due to too few lines");
             return originalData;
         } else {
-            byte[] newEntry = makeSection(text, numEntries);
+            sizeSections = new int[numSections];
+            sectionOffset = new int[numSections];
             for (int z = 0; z < numSections; z++) {
                 sectionOffset[z] = readLong(originalData, pos);
                 pos += 4;
@@ -287,85 +267,129 @@ public class PPTxtHandler {
                 pos = sectionOffset[z];
                 sizeSections[z] = readLong(originalData, pos);
             }
-            newsizeSections[0] = newEntry.length;
+            byte[] newEntry = makeSection(originalData, sectionOffset[0], text, numEntries);
+            newsizeSection = newEntry.length;
 
-            byte[] newData = new byte[originalData.length - sizeSections[0] + newsizeSections[0]];
+            byte[] newData = new byte[originalData.length - sizeSections[0] + newsizeSection];
             System.arraycopy(originalData, 0, newData, 0, Math.min(originalData.length, newData.length));
-            writeLong(newData, 4, newsizeSections[0]);
+            writeLong(newData, 4, newsizeSection);
             if (numSections == 2) {
-                newsectionOffset[1] = newsizeSections[0] + sectionOffset[0];
-                writeLong(newData, 0x10, newsectionOffset[1]);
+                int newsectionOffset = newsizeSection + sectionOffset[0];
+                writeLong(newData, 0x10, newsectionOffset);
+                System.arraycopy(originalData, sectionOffset[1], newData, newsectionOffset, sizeSections[1]);
             }
             System.arraycopy(newEntry, 0, newData, sectionOffset[0], newEntry.length);
-            if (numSections == 2) {
-                System.arraycopy(originalData, sectionOffset[1], newData, newsectionOffset[1], sizeSections[1]);
-            }
             return newData;
         }
     }
 
-    private static byte[] makeSection(List<String> strings, int numEntries) {
-        List<List<Integer>> data = new ArrayList<>();
-        int size = 0;
-        int offset = 4 + 8 * numEntries;
-        int charCount;
+    private static byte[] makeSection(byte[] originalData, int originalSectionOffset, List<String> strings,
+                                      int numEntries) {
+        int capacity = 1;
         for (int i = 0; i < numEntries; i++) {
-            data.add(parseString(strings.get(i), i));
-            size += (data.get(i).size() * 2);
+            capacity += strings.get(i).length() + 1;
         }
-        if (size % 4 == 2) {
-            size += 2;
-            int tmpKey = lastKeys.get(numEntries - 1);
-            for (int i = 0; i < data.get(numEntries - 1).size(); i++) {
-                tmpKey = ((tmpKey << 3) | (tmpKey >> 13)) & 0xFFFF;
+        char[] data = new char[capacity];
+        int[] ends = new int[numEntries];
+        int length = 0;
+        int key = 0;
+        for (int i = 0; i < numEntries; i++) {
+            key = originalKey(originalData, originalSectionOffset, i);
+            length = parseString(strings.get(i), data, length);
+            for (int k = i == 0 ? 0 : ends[i - 1]; k < length; k++) {
+                data[k] ^= key;
+                key = ((key << 3) | (key >>> 13)) & 0xFFFF;
             }
-            data.get(numEntries - 1).add(0xFFFF ^ tmpKey);
+            ends[i] = length;
+        }
+        int offset = 4 + 8 * numEntries;
+        int size = offset + length * 2;
+        if (size % 4 == 2 && numEntries > 0) {
+            // pad the last string, continuing its key
+            size += 2;
+            data[length++] = (char) (0xFFFF ^ key);
+            ends[numEntries - 1] = length;
         }
-        size += offset;
         byte[] section = new byte[size];
         int pos = 0;
         writeLong(section, pos, size);
         pos += 4;
         for (int i = 0; i < numEntries; i++) {
-            charCount = data.get(i).size();
+            int charCount = ends[i] - (i == 0 ? 0 : ends[i - 1]);
             writeLong(section, pos, offset);
             pos += 4;
             writeWord(section, pos, charCount);
             pos += 2;
-            writeWord(section, pos, lastUnknowns.get(i));
+            writeWord(section, pos, readWord(originalData, originalSectionOffset + 4 + i * 8 + 6));
             pos += 2;
             offset += (charCount * 2);
         }
-        for (int i = 0; i < numEntries; i++) {
-            for (int word : data.get(i)) {
-                writeWord(section, pos, word);
-                pos += 2;
-            }
+        for (int i = 0; i < length; i++) {
+            writeWord(section, pos, data[i]);
+            pos += 2;
         }
         return section;
     }
 
-    private static List<Integer> parseString(String string, int entry_id) {
-        List<Integer> chars = new ArrayList<>();
+    /**
+     * Returns the key the first char of an original string was encrypted with. Strings are encrypted
+     * back-to-front starting from the key which turns their last char into FFFF, rotating it right by
+     * three bits per char, so this can be found without decrypting the rest of the string.
+     */
+    private static int originalKey(byte[] ds, int sectionOffset, int entry) {
+        int entryPos = sectionOffset + 4 + entry * 8;
+        int count = readWord(ds, entryPos + 4);
+        if (count == 0) {
+            return 0;
+        }
+        int lastKey = readWord(ds, sectionOffset + readLong(ds, entryPos) + (count - 1) * 2) ^ 0xFFFF;
+        int shift = (3 * (count - 1)) % 16;
+        return ((lastKey >>> shift) | (lastKey << (16 - shift))) & 0xFFFF;
+    }
+
+    /**
+     * Puts the chars of the string into data starting at pos, followed by the FFFF terminator.
+     * Returns the position after the terminator.
+     */
+    private static int parseString(String string, char[] data, int pos) {
         for (int i = 0; i < string.length(); i++) {
-            if (string.charAt(i) != '\\') {
-                chars.add((int) string.charAt(i));
+            int token = findToken(string, i);
+            if (token >= 0) {
+                data[pos++] = textTokenChars[token];
+                i += textTokens[token].length() - 1;
+            } else if (string.charAt(i) != '\\') {
+                data[pos++] = string.charAt(i);
             } else {
                 if (((i + 2) < string.length()) && string.charAt(i + 2) == '{') {
-                    chars.add((int) string.charAt(i));
+                    data[pos++] = string.charAt(i);
                 } else {
-                    chars.add(Integer.parseInt(string.substring(i + 2, i + 6), 16));
+                    data[pos++] = (char) Integer.parseInt(string, i + 2, i + 6, 16);
                     i += 5;
                 }
             }
         }
-        chars.add(0xFFFF);
-        int key = lastKeys.get(entry_id);
-        for (int i = 0; i < chars.size(); i++) {
-            chars.set(i, (chars.get(i) ^ key) & 0xFFFF);
-            key = ((key << 3) | (key >>> 13)) & 0xFFFF;
+        data[pos++] = 0xFFFF;
+        return pos;
+    }
+
+    /**
+     * Returns the index of the text form of a special character found at the given position, or -1.
+     */
+    private static int findToken(String string, int pos) {
+        char c = string.charAt(pos);
+        int token = Arrays.binarySearch(textFirstChars, c);
+        if (token < 0) {
+            return -1;
+        }
+        while (token > 0 && textFirstChars[token - 1] == c) {
+            token--;
+        }
+        for (; token < textFirstChars.length && textFirstChars[token] == c; token++) {
+            if (string.startsWith(textTokens[token], pos)) {
+                return token;
+            }
         }
-        return chars;
+        return -1;
     }
 
     private static int readWord(byte[] data, int offset) {
@@ -0,0 +1,27 @@
+package test.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks in this package. All fixtures are synthetic (see {@link SyntheticGame} and
+ * {@link SyntheticData}), so no ROMs are needed.
+ * <br><br>
+ * Takes an optional regex argument to select benchmarks, e.g. "CompressorBenchmark.blz" to only run the BLZ
+ * ones. Results are written as JSON to "benchmarks.json", so runs can be compared before/after a change.
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : Benchmarks.class.getPackageName() + ".*";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result("benchmarks.json")
+                .build();
+        new Runner(options).run();
+    }
+}
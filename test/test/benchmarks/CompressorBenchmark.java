@@ -0,0 +1,57 @@
+package test.benchmarks;
+
+import com.dabomstew.pkrandom.graphics.images.GBCImage;
+import compressors.DSCmp;
+import compressors.Gen1Cmp;
+import cuecompressors.BLZCoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the compressors used when saving ROMs: BLZ for DS overlays/arm9 and 3DS .code, LZ11 for
+ * DS graphics, and the Gen 1 sprite compressor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressorBenchmark {
+
+    /**
+     * 64KB is a typical overlay; 1MB is in the range of an arm9 binary, 4MB of a 3DS .code.
+     */
+    @Param({"65536", "1048576", "4194304"})
+    public int dataSize;
+
+    private byte[] data;
+    private GBCImage sprite;
+
+    @Setup
+    public void setUp() {
+        data = SyntheticData.compressible(dataSize, 1);
+        sprite = SyntheticData.gbcImage(7, 7, 1);
+    }
+
+    @Benchmark
+    public byte[] blzEncodeBest() {
+        return new BLZCoder(null).BLZ_EncodePub(data, false, true, "benchmark");
+    }
+
+    @Benchmark
+    public byte[] blzEncodeNormal() {
+        return new BLZCoder(null).BLZ_EncodePub(data, false, false, "benchmark");
+    }
+
+    @Benchmark
+    public byte[] compressLZ11() {
+        return DSCmp.compressLZ11(data);
+    }
+
+    @Benchmark
+    public byte[] gen1Compress() {
+        return Gen1Cmp.compress(sprite);
+    }
+}
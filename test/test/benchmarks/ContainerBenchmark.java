@@ -0,0 +1,70 @@
+package test.benchmarks;
+
+import com.dabomstew.pkrandom.ctr.NCCH;
+import com.dabomstew.pkrandom.newnds.NARCArchive;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks rebuilding the DS/3DS container formats: {@link NARCArchive#getBytes()} and
+ * {@link NCCH#saveAsNCCH(String, String, long)}. The CXI is a synthetic one written to a temp file,
+ * with a single romfs file changed so both the "changed" and "copied from the base ROM" paths are used.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContainerBenchmark {
+
+    @Param({"100", "1000"})
+    public int fileCount;
+
+    private NARCArchive narc;
+    private File cxiFile;
+    private File outputFile;
+    private NCCH ncch;
+
+    @Setup
+    public void setUp() throws IOException {
+        narc = SyntheticData.narc(fileCount, 0x400, 1);
+
+        cxiFile = File.createTempFile("benchmark", ".cxi");
+        outputFile = File.createTempFile("benchmark_out", ".cxi");
+        SyntheticData.writeCXI(cxiFile, 0x100000, fileCount, 0x4000, 1);
+        ncch = new NCCH(cxiFile.getAbsolutePath(), "CTR-P-BNCH", "0004000000000000");
+        ncch.writeFile(SyntheticData.fileName(fileCount / 2), SyntheticData.compressible(0x5000, 2));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ncch.closeROM();
+        // the changed romfs file was written to the NCCH's tmp folder
+        File tmpFolder = new File(ncch.getTmpFolder());
+        File[] tmpFiles = tmpFolder.listFiles();
+        if (tmpFiles != null) {
+            for (File tmpFile : tmpFiles) {
+                tmpFile.delete();
+            }
+        }
+        tmpFolder.delete();
+        cxiFile.delete();
+        outputFile.delete();
+    }
+
+    @Benchmark
+    public byte[] narcGetBytes() throws IOException {
+        return narc.getBytes();
+    }
+
+    @Benchmark
+    public File saveAsNCCH() throws IOException, NoSuchAlgorithmException {
+        ncch.saveAsNCCH(outputFile.getAbsolutePath(), "BNCH", 1);
+        return outputFile;
+    }
+}
@@ -0,0 +1,47 @@
+package test.benchmarks;
+
+import com.dabomstew.pkrandom.Settings;
+import com.dabomstew.pkrandom.randomizers.EncounterRandomizer;
+import com.dabomstew.pkrandom.romhandlers.RomHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link EncounterRandomizer#randomizeEncounters()} on a {@link SyntheticGame} of roughly
+ * Gen 7 size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncounterRandomizerBenchmark {
+
+    @Param({"RANDOM", "AREA_MAPPING", "GLOBAL_MAPPING"})
+    public Settings.WildPokemonMod wildPokemonMod;
+
+    @Param({"false", "true"})
+    public boolean similarStrength;
+
+    private RomHandler romHandler;
+    private Settings settings;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        romHandler = new SyntheticGame(1, 809, 900, 300).getRomHandler();
+        settings = new Settings();
+        settings.setWildPokemonMod(wildPokemonMod);
+        settings.setSimilarStrengthEncounters(similarStrength);
+        random = new Random(1);
+    }
+
+    @Benchmark
+    public RomHandler randomizeEncounters() {
+        new EncounterRandomizer(romHandler, settings, random).randomizeEncounters();
+        return romHandler;
+    }
+}
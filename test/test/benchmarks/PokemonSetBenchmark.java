@@ -0,0 +1,57 @@
+package test.benchmarks;
+
+import com.dabomstew.pkrandom.pokemon.Pokemon;
+import com.dabomstew.pkrandom.pokemon.PokemonSet;
+import com.dabomstew.pkrandom.pokemon.Type;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PokemonSetBenchmark {
+
+    @Param({"151", "809"})
+    public int pokemonCount;
+
+    private PokemonSet<Pokemon> all;
+    private PokemonSet<Pokemon> afterRemovals;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        all = new SyntheticGame(1, pokemonCount, 0, 0).getPokemonSet();
+        // getRandom has to deal with removed elements, which is its slowest path
+        afterRemovals = new PokemonSet<>(all);
+        afterRemovals.removeIf(pk -> pk.getNumber() % 3 == 0);
+        random = new Random(1);
+    }
+
+    @Benchmark
+    public Pokemon getRandom() {
+        return all.getRandom(random);
+    }
+
+    @Benchmark
+    public Pokemon getRandomAfterRemovals() {
+        return afterRemovals.getRandom(random);
+    }
+
+    @Benchmark
+    public PokemonSet<Pokemon> filter() {
+        return all.filter(pk -> pk.bstForPowerLevels() > 450);
+    }
+
+    @Benchmark
+    public void filterByType(Blackhole bh) {
+        for (Type t : Type.GEN6PLUS) {
+            bh.consume(all.filterByType(t));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package test.benchmarks;
+
+import com.dabomstew.pkrandom.RomFunctions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link RomFunctions#search(byte[], byte[])} over ROM-sized haystacks, with needles of the
+ * lengths typically used to locate data/code in the GB/GBA handlers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RomFunctionsBenchmark {
+
+    /**
+     * 2MB is a large GBC ROM, 16MB a large GBA ROM.
+     */
+    @Param({"2097152", "16777216"})
+    public int romSize;
+
+    @Param({"4", "16"})
+    public int needleLength;
+
+    private byte[] haystack;
+    private byte[] needle;
+    private byte[] absentNeedle;
+
+    @Setup
+    public void setUp() {
+        needle = SyntheticData.compressible(needleLength, 2);
+        absentNeedle = needle.clone();
+        absentNeedle[needleLength - 1] ^= (byte) 0x5A;
+        haystack = SyntheticData.haystack(romSize, needle, 4, 1);
+    }
+
+    @Benchmark
+    public List<Integer> search() {
+        return RomFunctions.search(haystack, needle);
+    }
+
+    @Benchmark
+    public List<Integer> searchAbsent() {
+        return RomFunctions.search(haystack, absentNeedle);
+    }
+}
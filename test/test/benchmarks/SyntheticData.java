@@ -0,0 +1,230 @@
+package test.benchmarks;
+
+import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.graphics.images.GBCImage;
+import com.dabomstew.pkrandom.newnds.NARCArchive;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generators for the byte-level benchmark fixtures: compressible "code-like" data, ROM-sized haystacks,
+ * images, NARC archives, and a minimal but well-formed CXI (a decrypted 3DS NCCH). Everything is derived
+ * from a seed, so the same benchmark always sees the same input.
+ */
+public class SyntheticData {
+
+    private static final int MEDIA_UNIT_SIZE = 0x200;
+    private static final int HASH_BLOCK_SIZE_LOG2 = 12;
+    private static final int METADATA_UNUSED = 0xFFFFFFFF;
+
+    /**
+     * Returns data with roughly the redundancy of compiled code/game data: a mix of literal runs and
+     * copies of earlier sections, so LZ-type compressors have realistic amounts of work to do.
+     */
+    public static byte[] compressible(int size, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[size];
+        int pos = 0;
+        while (pos < size) {
+            int runLength = Math.min(size - pos, 4 + random.nextInt(60));
+            if (pos > 0x100 && random.nextInt(3) > 0) {
+                int from = pos - 1 - random.nextInt(Math.min(pos, 0x1000) - 1);
+                for (int i = 0; i < runLength; i++) {
+                    data[pos + i] = data[from + i];
+                }
+            } else {
+                for (int i = 0; i < runLength; i++) {
+                    data[pos + i] = (byte) random.nextInt(random.nextBoolean() ? 16 : 256);
+                }
+            }
+            pos += runLength;
+        }
+        return data;
+    }
+
+    /**
+     * Returns a ROM-sized haystack, with the needle planted at the given number of evenly spread places.
+     */
+    public static byte[] haystack(int size, byte[] needle, int occurrences, long seed) {
+        byte[] data = compressible(size, seed);
+        for (int i = 1; i <= occurrences; i++) {
+            int offset = (int) ((long) size * i / (occurrences + 1));
+            System.arraycopy(needle, 0, data, offset, needle.length);
+        }
+        return data;
+    }
+
+    /**
+     * Returns a 2bpp Game Boy image of the given size in tiles, made of blobs of solid colors like a
+     * typical sprite, rather than pure noise (which no Gen 1 compression mode handles well).
+     */
+    public static GBCImage gbcImage(int widthInTiles, int heightInTiles, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[widthInTiles * heightInTiles * 16];
+        for (int tile = 0; tile < widthInTiles * heightInTiles; tile++) {
+            int color = random.nextInt(4);
+            for (int row = 0; row < 8; row++) {
+                if (random.nextInt(4) == 0) {
+                    color = random.nextInt(4);
+                }
+                int mask = random.nextInt(8) == 0 ? random.nextInt(256) : 0xFF;
+                data[tile * 16 + row * 2] = (byte) ((color & 1) != 0 ? mask : 0);
+                data[tile * 16 + row * 2 + 1] = (byte) ((color & 2) != 0 ? mask : 0);
+            }
+        }
+        return new GBCImage.Builder(widthInTiles, heightInTiles, GBCImage.DEFAULT_PALETTE, data)
+                .columnMode(true).build();
+    }
+
+    public static NARCArchive narc(int fileCount, int averageFileSize, long seed) {
+        Random random = new Random(seed);
+        NARCArchive narc = new NARCArchive();
+        for (int i = 0; i < fileCount; i++) {
+            int size = averageFileSize / 2 + random.nextInt(averageFileSize + 1);
+            narc.files.add(compressible(size, random.nextLong()));
+        }
+        return narc;
+    }
+
+    /**
+     * Writes a minimal decrypted CXI to the given file: an NCCH header, an exefs with an uncompressed
+     * .code and an icon, and a romfs with the given number of files in a single root directory.
+     */
+    public static void writeCXI(File file, int codeSize, int romfsFileCount, int romfsFileSize, long seed)
+            throws IOException {
+        Random random = new Random(seed);
+
+        // exefs: header, then .code, then icon (SMDH)
+        byte[] code = compressible(codeSize, random.nextLong());
+        int iconOffset = alignInt(codeSize, MEDIA_UNIT_SIZE);
+        byte[] icon = new byte[0x36C0];
+        FileFunctions.writeFullInt(icon, 0, 0x48444D53);
+        byte[] exefs = new byte[alignInt(0x200 + iconOffset + icon.length, MEDIA_UNIT_SIZE)];
+        writeExefsFileHeader(exefs, 0, ".code", 0, codeSize);
+        writeExefsFileHeader(exefs, 0x10, "icon", iconOffset, icon.length);
+        System.arraycopy(code, 0, exefs, 0x200, codeSize);
+        System.arraycopy(icon, 0, exefs, 0x200 + iconOffset, icon.length);
+
+        byte[] romfs = romfs(romfsFileCount, romfsFileSize, random);
+
+        int exefsOffset = 0xA00;
+        int romfsOffset = alignInt(exefsOffset + exefs.length, 0x1000);
+        byte[] header = new byte[0xA00];
+        header[0x100] = 'N';
+        header[0x101] = 'C';
+        header[0x102] = 'C';
+        header[0x103] = 'H';
+        header[0x18F] = 4; // decrypted (NoCrypto)
+        FileFunctions.writeFullInt(header, 0x1A0, exefsOffset / MEDIA_UNIT_SIZE);
+        FileFunctions.writeFullInt(header, 0x1A4, exefs.length / MEDIA_UNIT_SIZE);
+        FileFunctions.writeFullInt(header, 0x1A8, 1);
+        FileFunctions.writeFullInt(header, 0x1B0, romfsOffset / MEDIA_UNIT_SIZE);
+        FileFunctions.writeFullInt(header, 0x1B4, romfs.length / MEDIA_UNIT_SIZE);
+        FileFunctions.writeFullInt(header, 0x1B8, 1);
+
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(header);
+            fos.write(exefs);
+            fos.write(new byte[romfsOffset - exefsOffset - exefs.length]);
+            fos.write(romfs);
+        }
+    }
+
+    private static void writeExefsFileHeader(byte[] exefs, int offset, String filename, int fileOffset, int size) {
+        byte[] filenameBytes = filename.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(filenameBytes, 0, exefs, offset, filenameBytes.length);
+        FileFunctions.writeFullInt(exefs, offset + 0x08, fileOffset);
+        FileFunctions.writeFullInt(exefs, offset + 0x0C, size);
+    }
+
+    private static byte[] romfs(int fileCount, int averageFileSize, Random random) {
+        int blockSize = 1 << HASH_BLOCK_SIZE_LOG2;
+
+        // level 3: header, directory hash table, directory metadata, file hash table, file metadata, file data
+        int[] fileSizes = new int[fileCount];
+        int fileMetadataLength = 0;
+        for (int i = 0; i < fileCount; i++) {
+            fileSizes[i] = averageFileSize / 2 + random.nextInt(averageFileSize + 1);
+            fileMetadataLength += 0x20 + alignInt(fileName(i).length() * 2, 4);
+        }
+        int directoryHashTableOffset = 0x28;
+        int directoryMetadataOffset = directoryHashTableOffset + 4;
+        int fileHashTableOffset = directoryMetadataOffset + 0x18;
+        int fileMetadataOffset = fileHashTableOffset + 4;
+        int fileDataOffset = alignInt(fileMetadataOffset + fileMetadataLength, 0x10);
+
+        byte[] level3Header = new byte[fileDataOffset];
+        FileFunctions.writeFullInt(level3Header, 0x00, 0x28);
+        FileFunctions.writeFullInt(level3Header, 0x04, directoryHashTableOffset);
+        FileFunctions.writeFullInt(level3Header, 0x08, 4);
+        FileFunctions.writeFullInt(level3Header, 0x0C, directoryMetadataOffset);
+        FileFunctions.writeFullInt(level3Header, 0x10, 0x18);
+        FileFunctions.writeFullInt(level3Header, 0x14, fileHashTableOffset);
+        FileFunctions.writeFullInt(level3Header, 0x18, 4);
+        FileFunctions.writeFullInt(level3Header, 0x1C, fileMetadataOffset);
+        FileFunctions.writeFullInt(level3Header, 0x20, fileMetadataLength);
+        FileFunctions.writeFullInt(level3Header, 0x24, fileDataOffset);
+        FileFunctions.writeFullInt(level3Header, directoryHashTableOffset, 0);
+        FileFunctions.writeFullInt(level3Header, fileHashTableOffset, 0);
+
+        // the root directory, holding all files
+        FileFunctions.writeFullInt(level3Header, directoryMetadataOffset, 0);
+        FileFunctions.writeFullInt(level3Header, directoryMetadataOffset + 0x04, METADATA_UNUSED);
+        FileFunctions.writeFullInt(level3Header, directoryMetadataOffset + 0x08, METADATA_UNUSED);
+        FileFunctions.writeFullInt(level3Header, directoryMetadataOffset + 0x0C, 0);
+        FileFunctions.writeFullInt(level3Header, directoryMetadataOffset + 0x10, METADATA_UNUSED);
+        FileFunctions.writeFullInt(level3Header, directoryMetadataOffset + 0x14, 0);
+
+        int metadataPos = 0;
+        long dataPos = 0;
+        for (int i = 0; i < fileCount; i++) {
+            byte[] nameBytes = fileName(i).getBytes(StandardCharsets.UTF_16LE);
+            int entryLength = 0x20 + alignInt(nameBytes.length, 4);
+            int entry = fileMetadataOffset + metadataPos;
+            FileFunctions.writeFullInt(level3Header, entry, 0);
+            FileFunctions.writeFullInt(level3Header, entry + 0x04,
+                    i == fileCount - 1 ? METADATA_UNUSED : metadataPos + entryLength);
+            FileFunctions.writeFullLong(level3Header, entry + 0x08, dataPos);
+            FileFunctions.writeFullLong(level3Header, entry + 0x10, fileSizes[i]);
+            FileFunctions.writeFullInt(level3Header, entry + 0x18, METADATA_UNUSED);
+            FileFunctions.writeFullInt(level3Header, entry + 0x1C, nameBytes.length);
+            System.arraycopy(nameBytes, 0, level3Header, entry + 0x20, nameBytes.length);
+            metadataPos += entryLength;
+            dataPos += fileSizes[i];
+        }
+
+        int level3Offset = alignInt(0x60 + 0x20, blockSize);
+        int level3Size = fileDataOffset + (int) dataPos;
+        byte[] romfs = new byte[alignInt(level3Offset + level3Size, blockSize) + 2 * blockSize];
+        System.arraycopy(level3Header, 0, romfs, level3Offset, level3Header.length);
+        int pos = level3Offset + fileDataOffset;
+        for (int size : fileSizes) {
+            byte[] contents = compressible(size, random.nextLong());
+            System.arraycopy(contents, 0, romfs, pos, size);
+            pos += size;
+        }
+
+        // IVFC header; the hash levels themselves are left empty since nothing verifies them when reading
+        FileFunctions.writeFullIntBigEndian(romfs, 0x00, 0x49564643);
+        FileFunctions.writeFullIntBigEndian(romfs, 0x04, 0x00000100);
+        FileFunctions.writeFullInt(romfs, 0x08, 0x20);
+        FileFunctions.writeFullInt(romfs, 0x1C, HASH_BLOCK_SIZE_LOG2);
+        FileFunctions.writeFullInt(romfs, 0x34, HASH_BLOCK_SIZE_LOG2);
+        FileFunctions.writeFullInt(romfs, 0x4C, HASH_BLOCK_SIZE_LOG2);
+        FileFunctions.writeFullLong(romfs, 0x44, level3Size);
+        return romfs;
+    }
+
+    public static String fileName(int index) {
+        return String.format("f%04d.bin", index);
+    }
+
+    private static int alignInt(int num, int alignment) {
+        int mask = ~(alignment - 1);
+        return (num + (alignment - 1)) & mask;
+    }
+}
@@ -0,0 +1,239 @@
+package test.benchmarks;
+
+import com.dabomstew.pkrandom.pokemon.*;
+import com.dabomstew.pkrandom.romhandlers.RomHandler;
+import com.dabomstew.pkrandom.services.RestrictedPokemonService;
+import com.dabomstew.pkrandom.services.TypeService;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A generated game, with Pokemon, trainers and wild encounters that look roughly like those of a Gen 6/7 game,
+ * but built from a seed instead of read from a ROM. This lets the randomizer benchmarks run without any
+ * commercial ROMs.
+ * <br><br>
+ * {@link #getRomHandler()} exposes the data through a {@link RomHandler} which only answers what the
+ * randomizers ask for; everything else returns an empty/zero value. Like a real RomHandler, it hands out
+ * fresh copies of the trainers and encounters on every call, so a benchmark can randomize them repeatedly
+ * without the input drifting between invocations.
+ */
+public class SyntheticGame {
+
+    private static final int WONDER_GUARD = 25;
+
+    private final List<Pokemon> pokemon = new ArrayList<>();
+    private final PokemonSet<Pokemon> pokemonSet = new PokemonSet<>();
+    private final List<Trainer> trainers = new ArrayList<>();
+    private final List<EncounterArea> encounterAreas = new ArrayList<>();
+    private final TypeTable typeTable = TypeTable.getVanillaGen6PlusTable();
+
+    private final RomHandler romHandler;
+    private final RestrictedPokemonService rPokeService;
+    private final TypeService typeService;
+
+    public SyntheticGame(long seed, int pokemonCount, int trainerCount, int areaCount) {
+        Random random = new Random(seed);
+        generatePokemon(random, pokemonCount);
+        generateTrainers(random, trainerCount);
+        generateEncounters(random, areaCount);
+
+        this.romHandler = (RomHandler) Proxy.newProxyInstance(RomHandler.class.getClassLoader(),
+                new Class<?>[]{RomHandler.class}, (proxy, method, args) -> answer(proxy, method.getName(),
+                        method.getReturnType(), args));
+        this.rPokeService = new RestrictedPokemonService(romHandler);
+        this.typeService = new TypeService(romHandler);
+    }
+
+    public RomHandler getRomHandler() {
+        return romHandler;
+    }
+
+    public PokemonSet<Pokemon> getPokemonSet() {
+        return pokemonSet;
+    }
+
+    private void generatePokemon(Random random, int pokemonCount) {
+        List<Type> types = typeTable.getTypes();
+        pokemon.add(null);
+        for (int i = 1; i <= pokemonCount; i++) {
+            Pokemon pk = new Pokemon(i);
+            pk.setName("PK" + i);
+            pk.setGeneration(Math.min(7, 1 + i * 7 / (pokemonCount + 1)));
+            pk.setPrimaryType(types.get(random.nextInt(types.size())));
+            if (random.nextBoolean()) {
+                Type secondary = types.get(random.nextInt(types.size()));
+                if (secondary != pk.getPrimaryType()) {
+                    pk.setSecondaryType(secondary);
+                }
+            }
+            pk.setHp(20 + random.nextInt(130));
+            pk.setAttack(20 + random.nextInt(130));
+            pk.setDefense(20 + random.nextInt(130));
+            pk.setSpatk(20 + random.nextInt(130));
+            pk.setSpdef(20 + random.nextInt(130));
+            pk.setSpeed(20 + random.nextInt(130));
+            pk.setAbility1(random.nextInt(50) == 0 ? WONDER_GUARD : 1 + random.nextInt(200));
+            pk.setAbility2(random.nextBoolean() ? 1 + random.nextInt(200) : 0);
+            pk.setAbility3(1 + random.nextInt(200));
+            pokemon.add(pk);
+            pokemonSet.add(pk);
+        }
+
+        // Evolution chains of one to three Pokemon, consecutive in number like in the real games
+        int i = 1;
+        while (i <= pokemonCount) {
+            int chainLength = Math.min(1 + random.nextInt(3), pokemonCount - i + 1);
+            for (int j = 0; j < chainLength - 1; j++) {
+                Pokemon from = pokemon.get(i + j);
+                Pokemon to = pokemon.get(i + j + 1);
+                Evolution evo = new Evolution(from, to, true, EvolutionType.LEVEL, 16 + 16 * j);
+                from.getEvolutionsFrom().add(evo);
+                to.getEvolutionsTo().add(evo);
+            }
+            i += chainLength;
+        }
+    }
+
+    private void generateTrainers(Random random, int trainerCount) {
+        for (int i = 0; i < trainerCount; i++) {
+            Trainer tr = new Trainer();
+            tr.index = i + 1;
+            tr.offset = i;
+            if (i < 16) {
+                tr.tag = "GYM" + (i / 2 + 1) + (i % 2 == 0 ? "-LEADER" : "");
+            } else if (i < 20) {
+                tr.tag = "ELITE" + (i - 15);
+            } else if (i == 20) {
+                tr.tag = "CHAMPION";
+            } else if (i < 30) {
+                tr.tag = "RIVAL" + (i - 20);
+            }
+            int level = 2 + i * 70 / trainerCount;
+            int size = 1 + random.nextInt(tr.tag != null ? 6 : 3);
+            for (int j = 0; j < size; j++) {
+                TrainerPokemon tp = new TrainerPokemon();
+                tp.pokemon = pokemon.get(1 + random.nextInt(pokemon.size() - 1));
+                tp.level = level + random.nextInt(5);
+                tr.pokemon.add(tp);
+            }
+            trainers.add(tr);
+        }
+    }
+
+    private void generateEncounters(Random random, int areaCount) {
+        // Like in the real games, only some species are found in the wild. This also matters for the 1-to-1
+        // mapping modes, which need more allowed Pokemon than there are Pokemon in the wild.
+        List<Pokemon> wildPool = new ArrayList<>(pokemon.subList(1, pokemon.size()));
+        Collections.shuffle(wildPool, random);
+        wildPool = wildPool.subList(0, wildPool.size() / 2);
+        for (int i = 0; i < areaCount; i++) {
+            EncounterArea area = new EncounterArea();
+            area.setDisplayName("Area " + i);
+            area.setLocationTag("Location " + i / 3);
+            area.setRate(random.nextInt(30));
+            int level = 2 + i * 60 / areaCount;
+            for (int j = 0; j < 12; j++) {
+                Encounter enc = new Encounter();
+                enc.setPokemon(wildPool.get(random.nextInt(wildPool.size())));
+                enc.setLevel(level);
+                enc.setMaxLevel(level + random.nextInt(4));
+                area.add(enc);
+            }
+            encounterAreas.add(area);
+        }
+    }
+
+    private Object answer(Object proxy, String methodName, Class<?> returnType, Object[] args) {
+        switch (methodName) {
+            case "getPokemon":
+            case "getPokemonInclFormes":
+                return pokemon;
+            case "getPokemonSet":
+            case "getPokemonSetInclFormes":
+                return new PokemonSet<>(pokemonSet);
+            case "getAltFormeOfPokemon":
+                return args[0];
+            case "getTrainers":
+                return copyTrainers();
+            case "getEncounters":
+                return copyEncounters();
+            case "getMainGameWildPokemon":
+                PokemonSet<Pokemon> wild = new PokemonSet<>();
+                encounterAreas.forEach(area -> wild.addAll(PokemonSet.inArea(area)));
+                return wild;
+            case "getStarters":
+                return List.of(pokemon.get(1), pokemon.get(4), pokemon.get(7));
+            case "getTypeTable":
+                return typeTable;
+            case "getRestrictedPokemonService":
+                return rPokeService;
+            case "getTypeService":
+                return typeService;
+            case "abilitiesPerPokemon":
+                return 3;
+            case "generationOfPokemon":
+                return 7;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "SyntheticGame";
+            default:
+                return defaultValue(returnType);
+        }
+    }
+
+    private static Object defaultValue(Class<?> returnType) {
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        } else if (returnType == long.class) {
+            return 0L;
+        } else if (PokemonSet.class.isAssignableFrom(returnType)) {
+            return new PokemonSet<>();
+        } else if (List.class.isAssignableFrom(returnType)) {
+            return new ArrayList<>();
+        }
+        return null;
+    }
+
+    private List<Trainer> copyTrainers() {
+        List<Trainer> copies = new ArrayList<>(trainers.size());
+        for (Trainer original : trainers) {
+            Trainer tr = new Trainer();
+            tr.index = original.index;
+            tr.offset = original.offset;
+            tr.tag = original.tag;
+            for (TrainerPokemon tp : original.pokemon) {
+                tr.pokemon.add(tp.copy());
+            }
+            copies.add(tr);
+        }
+        return copies;
+    }
+
+    private List<EncounterArea> copyEncounters() {
+        List<EncounterArea> copies = new ArrayList<>(encounterAreas.size());
+        for (EncounterArea original : encounterAreas) {
+            EncounterArea area = new EncounterArea();
+            area.setDisplayName(original.getDisplayName());
+            area.setLocationTag(original.getLocationTag());
+            area.setRate(original.getRate());
+            for (Encounter enc : original) {
+                Encounter copy = new Encounter();
+                copy.setPokemon(enc.getPokemon());
+                copy.setLevel(enc.getLevel());
+                copy.setMaxLevel(enc.getMaxLevel());
+                area.add(copy);
+            }
+            copies.add(area);
+        }
+        return copies;
+    }
+}
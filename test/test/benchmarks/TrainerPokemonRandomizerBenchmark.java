@@ -0,0 +1,48 @@
+package test.benchmarks;
+
+import com.dabomstew.pkrandom.Settings;
+import com.dabomstew.pkrandom.randomizers.TrainerPokemonRandomizer;
+import com.dabomstew.pkrandom.romhandlers.RomHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link TrainerPokemonRandomizer#randomizeTrainerPokes()} on a {@link SyntheticGame} of roughly
+ * Gen 7 size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainerPokemonRandomizerBenchmark {
+
+    @Param({"RANDOM", "DISTRIBUTED", "TYPE_THEMED"})
+    public Settings.TrainersMod trainersMod;
+
+    @Param({"false", "true"})
+    public boolean similarStrength;
+
+    private RomHandler romHandler;
+    private Settings settings;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        romHandler = new SyntheticGame(1, 809, 900, 300).getRomHandler();
+        settings = new Settings();
+        settings.setTrainersMod(trainersMod);
+        settings.setTrainersUsePokemonOfSimilarStrength(similarStrength);
+        romHandler.getRestrictedPokemonService().setRestrictions(settings);
+        random = new Random(1);
+    }
+
+    @Benchmark
+    public RomHandler randomizeTrainerPokes() {
+        new TrainerPokemonRandomizer(romHandler, settings, random).randomizeTrainerPokes();
+        return romHandler;
+    }
+}
@@ -0,0 +1,84 @@
+package test.cli;
+
+import com.dabomstew.pkrandom.cli.JsonLines;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonLinesTest {
+
+    @Test
+    public void parsesFlatObject() {
+        Map<String, Object> object = JsonLines.parseObject(
+                " { \"type\" : \"load\", \"log\":true, \"directory\":false, \"id\":null } ");
+        assertEquals(4, object.size());
+        assertEquals("load", object.get("type"));
+        assertEquals(true, object.get("log"));
+        assertEquals(false, object.get("directory"));
+        assertTrue(object.containsKey("id"));
+        assertNull(object.get("id"));
+    }
+
+    @Test
+    public void parsesEmptyObject() {
+        assertTrue(JsonLines.parseObject("{}").isEmpty());
+    }
+
+    @Test
+    public void parsesEscapes() {
+        Map<String, Object> object = JsonLines.parseObject(
+                "{\"path\":\"C:\\\\roms\\/a \\\"b\\\".gba\",\"text\":\"\\b\\f\\n\\r\\t\\u00e9\\u0041\"}");
+        assertEquals("C:\\roms/a \"b\".gba", object.get("path"));
+        assertEquals("\b\f\n\r\t\u00e9A", object.get("text"));
+    }
+
+    @Test
+    public void parsesIntegersAsLongs() {
+        Map<String, Object> object = JsonLines.parseObject("{\"a\":0,\"b\":-12,\"c\":9007199254740993}");
+        assertEquals(0L, object.get("a"));
+        assertEquals(-12L, object.get("b"));
+        assertEquals(9007199254740993L, object.get("c"));
+    }
+
+    @Test
+    public void parsesOtherNumbersAsDoubles() {
+        Map<String, Object> object = JsonLines.parseObject("{\"a\":1.5,\"b\":-2e3,\"c\":1E+2}");
+        assertEquals(1.5, object.get("a"));
+        assertEquals(-2000.0, object.get("b"));
+        assertEquals(100.0, object.get("c"));
+    }
+
+    @Test
+    public void rejectsBadNumbers() {
+        assertThrows(IllegalArgumentException.class, () -> JsonLines.parseObject("{\"a\":1.2.3}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLines.parseObject("{\"a\":-}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLines.parseObject("{\"a\":99999999999999999999}"));
+    }
+
+    @Test
+    public void rejectsBadEscapes() {
+        assertThrows(IllegalArgumentException.class, () -> JsonLines.parseObject("{\"a\":\"\\x\"}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLines.parseObject("{\"a\":\"\\u00g0\"}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLines.parseObject("{\"a\":\"\\u00\"}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLines.parseObject("{\"a\":\"\\"));
+    }
+
+    @Test
+    public void rejectsMalformedObjects() {
+        String[] lines = {"", "[]", "\"a\"", "{", "{\"a\"}", "{\"a\":}", "{\"a\":1,}", "{a:1}", "{\"a\":1 \"b\":2}",
+                "{\"a\":\"unterminated}", "{\"a\":{}}", "{\"a\":[1]}", "{\"a\":nope}"};
+        for (String line : lines) {
+            assertThrows(IllegalArgumentException.class, () -> JsonLines.parseObject(line), line);
+        }
+    }
+
+    @Test
+    public void rejectsTrailingText() {
+        assertThrows(IllegalArgumentException.class, () -> JsonLines.parseObject("{} x"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLines.parseObject("{\"a\":1}{\"b\":2}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonLines.parseObject("{\"a\":truex}"));
+    }
+
+}
@@ -0,0 +1,139 @@
+package test.cli;
+
+import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.JsonFunctions;
+import com.dabomstew.pkrandom.cli.JsonLines;
+import com.dabomstew.pkrandom.cli.RandomizerDaemon;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import test.benchmarks.SyntheticData;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sends requests the daemon must turn down before it gets to loading a ROM, and checks the error responses.
+ */
+public class RandomizerDaemonTest {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private File romFile;
+    private byte[] romData;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        romFile = File.createTempFile("daemontest", ".gba");
+        romFile.deleteOnExit();
+        romData = SyntheticData.compressible(0x1000, 1);
+        Files.write(romFile.toPath(), romData);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        romFile.delete();
+    }
+
+    private List<Map<String, Object>> run(BufferedReader in) throws IOException, InterruptedException {
+        RandomizerDaemon daemon = new RandomizerDaemon(new PrintStream(output, true, StandardCharsets.UTF_8), 1, 1);
+        daemon.run(in);
+        return responses();
+    }
+
+    private List<Map<String, Object>> run(String... requests) throws IOException, InterruptedException {
+        return run(new BufferedReader(new StringReader(String.join("\n", requests))));
+    }
+
+    private List<Map<String, Object>> responses() {
+        List<Map<String, Object>> responses = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) {
+                responses.add(JsonLines.parseObject(line));
+            }
+        }
+        return responses;
+    }
+
+    private String randomizeRequest(String fields) {
+        return "{\"type\":\"randomize\",\"id\":\"job\",\"settings\":\"x\",\"output\":\"out.gba\"," + fields + "}";
+    }
+
+    private String pathField() {
+        return "\"path\":" + JsonFunctions.quote(romFile.getAbsolutePath());
+    }
+
+    private static String crcField(byte[] data) {
+        return "\"crc\":\"" + String.format("%08X", FileFunctions.getCRC32(data)) + "\"";
+    }
+
+    private static String errorMessage(Map<String, Object> response) {
+        assertEquals("error", response.get("type"));
+        return (String) response.get("message");
+    }
+
+    @Test
+    public void badJsonIsAnsweredWithoutStopping() throws IOException, InterruptedException {
+        List<Map<String, Object>> responses = run("{\"type\":\"load\"", "{\"type\":\"unknown\",\"id\":\"next\"}");
+        assertEquals(2, responses.size());
+        assertNull(responses.get(0).get("id"));
+        assertTrue(errorMessage(responses.get(0)).startsWith("Bad request: "));
+        assertEquals("next", responses.get(1).get("id"));
+        assertEquals("Unknown request type: unknown", errorMessage(responses.get(1)));
+    }
+
+    @Test
+    public void unknownCrcWithoutPathIsAnError() throws IOException, InterruptedException {
+        List<Map<String, Object>> responses = run(randomizeRequest("\"crc\":\"DEADBEEF\""));
+        assertEquals(1, responses.size());
+        assertEquals("job", responses.get(0).get("id"));
+        assertTrue(errorMessage(responses.get(0)).startsWith("No ROM with CRC DEADBEEF is loaded"));
+    }
+
+    @Test
+    public void crcMustMatchPath() throws IOException, InterruptedException {
+        List<Map<String, Object>> responses = run(randomizeRequest("\"crc\":\"DEADBEEF\"," + pathField()));
+        assertEquals(1, responses.size());
+        assertTrue(errorMessage(responses.get(0)).contains("does not match"));
+    }
+
+    @Test
+    public void seedMustBeAnInteger() throws IOException, InterruptedException {
+        List<Map<String, Object>> responses = run(randomizeRequest(pathField() + ",\"seed\":\"12\""),
+                randomizeRequest(pathField() + ",\"seed\":1.5"));
+        assertEquals(2, responses.size());
+        assertEquals("\"seed\" must be an integer, not \"12\"", errorMessage(responses.get(0)));
+        assertEquals("\"seed\" must be an integer, not 1.5", errorMessage(responses.get(1)));
+    }
+
+    @Test
+    public void changedFileIsCheckedAgain() throws IOException, InterruptedException {
+        String request = randomizeRequest(crcField(romData) + "," + pathField());
+        BufferedReader in = new BufferedReader(new StringReader(request + "\n" + request)) {
+            private int linesRead;
+
+            @Override
+            public String readLine() throws IOException {
+                if (linesRead++ == 1) {
+                    // only change the file once the first job has been answered
+                    while (responses().isEmpty()) {
+                        Thread.onSpinWait();
+                    }
+                    Files.write(romFile.toPath(), SyntheticData.compressible(0x2000, 2));
+                }
+                return super.readLine();
+            }
+        };
+        List<Map<String, Object>> responses = run(in);
+        assertEquals(2, responses.size());
+        // the synthetic data matches the CRC, but isn't a ROM
+        assertFalse(errorMessage(responses.get(0)).contains("does not match"));
+        assertTrue(errorMessage(responses.get(1)).contains("does not match"));
+    }
+
+}
@@ -0,0 +1,68 @@
+package test.compressors;
+
+import cuecompressors.BLZCoder;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BLZCoderTest {
+
+    /**
+     * Literals, zero runs, and copies of earlier data, roughly like code/overlays.
+     */
+    private static byte[] codeLike(int size, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[size];
+        int i = 0;
+        while (i < size) {
+            int kind = random.nextInt(4);
+            if (kind == 0 || i < 64) {
+                data[i++] = (byte) random.nextInt(256);
+            } else if (kind == 1) {
+                i += Math.min(size - i, 1 + random.nextInt(40));
+            } else {
+                int from = i - 1 - random.nextInt(Math.min(i, 0x1800));
+                for (int n = 3 + random.nextInt(30); n > 0 && i < size; n--) {
+                    data[i++] = data[from++];
+                }
+            }
+        }
+        return data;
+    }
+
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private static void assertEncodesTo(int size, boolean arm9, boolean best, int length, long crc) {
+        byte[] data = codeLike(size, size);
+        byte[] encoded = new BLZCoder(null).BLZ_EncodePub(data, arm9, best, "test");
+        // the output of CUE's original (brute-force search) encoder
+        assertEquals(length, encoded.length);
+        assertEquals(crc, crc(encoded));
+        assertArrayEquals(data, new BLZCoder(null).BLZ_DecodePub(encoded, "test"));
+    }
+
+    @Test
+    public void smallInputEncodesLikeOriginalEncoder() {
+        assertEncodesTo(0x9000, false, false, 5896, 0xDE37282BL);
+        assertEncodesTo(0x9000, false, true, 5884, 0xC039721AL);
+        assertEncodesTo(0x9000, true, false, 19692, 0xE29E392CL);
+        assertEncodesTo(0x9000, true, true, 19684, 0x26E64F22L);
+    }
+
+    @Test
+    public void largeInputEncodesLikeOriginalEncoder() {
+        assertEncodesTo(0x30000, false, false, 30996, 0x625DA08EL);
+        assertEncodesTo(0x30000, false, true, 30900, 0x8D4EE9A2L);
+        assertEncodesTo(0x30000, true, false, 44600, 0xF4D6D00BL);
+        assertEncodesTo(0x30000, true, true, 44516, 0x109BBF7BL);
+    }
+
+}
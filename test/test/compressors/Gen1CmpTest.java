@@ -3,6 +3,7 @@ package test.compressors;
 import com.dabomstew.pkrandom.graphics.images.GBCImage;
 import compressors.Gen1Cmp;
 import compressors.Gen1Decmp;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -10,8 +11,11 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -113,4 +117,33 @@ public class Gen1CmpTest {
         assertEquals(compressed.length, decmp.getCompressedLength());
     }
 
+    @ParameterizedTest
+    @MethodSource("getImageNames")
+    public void compressPicksTheShortestModeAndOrder(String name) throws IOException {
+        GBCImage image = new GBCImage.Builder(new File(IN_ADRESS + "/" + name + ".png")).columnMode(true).build();
+        byte[] shortest = null;
+        for (int mode = 0; mode <= 2; mode++) {
+            for (int order = 0; order <= 1; order++) {
+                byte[] compressed = new Gen1Cmp(image).compressUsingModeAndOrder(mode, order == 1);
+                if (shortest == null || compressed.length < shortest.length) {
+                    shortest = compressed;
+                }
+            }
+        }
+        assertArrayEquals(shortest, Gen1Cmp.compress(image));
+    }
+
+    @Test
+    public void compressAllMatchesCompress() throws IOException {
+        List<GBCImage> images = new ArrayList<>();
+        for (String name : TEST_FILE_NAMES) {
+            images.add(new GBCImage.Builder(new File(IN_ADRESS + "/" + name + ".png")).columnMode(true).build());
+        }
+        List<byte[]> compressed = Gen1Cmp.compressAll(images);
+        assertEquals(images.size(), compressed.size());
+        for (int i = 0; i < images.size(); i++) {
+            assertArrayEquals(Gen1Cmp.compress(images.get(i)), compressed.get(i), TEST_FILE_NAMES[i]);
+        }
+    }
+
 }
@@ -0,0 +1,112 @@
+package test.ctr;
+
+import com.dabomstew.pkrandom.ctr.GARCArchive;
+import cuecompressors.BLZCoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GARCArchiveTest {
+
+    private static final byte[] PLAIN = "an uncompressed subfile".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COMPRESSIBLE = new byte[0x400];
+
+    static {
+        for (int i = 0; i < COMPRESSIBLE.length; i++) {
+            COMPRESSIBLE[i] = (byte) (i % 7);
+        }
+    }
+
+    /**
+     * Builds a version 6 GARC with an uncompressed file, a compressed file, and optionally a folder holding both.
+     * (GARCArchive can't write folders.)
+     */
+    private static byte[] garc(boolean withFolder) {
+        byte[] compressed = new BLZCoder(null).BLZ_EncodePub(COMPRESSIBLE, false, false, "GARC");
+        byte[][][] entries = withFolder ? new byte[][][]{{PLAIN}, {compressed}, {PLAIN, compressed}}
+                : new byte[][][]{{PLAIN}, {compressed}};
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        ByteBuffer fatb = ByteBuffer.allocate(0xC + entries.length * 4 + (withFolder ? 4 : 2) * 0xC).order(ByteOrder.LITTLE_ENDIAN);
+        fatb.put("BTAF".getBytes(StandardCharsets.US_ASCII)).putInt(fatb.capacity()).putInt(entries.length);
+        ByteBuffer fato = ByteBuffer.allocate(0xC + entries.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        fato.put("OTAF".getBytes(StandardCharsets.US_ASCII)).putInt(fato.capacity())
+                .putShort((short) entries.length).putShort((short) 0xFFFF);
+        for (byte[][] entry : entries) {
+            fato.putInt(fatb.position() - 0xC);
+            fatb.putInt((1 << entry.length) - 1);
+            for (byte[] file : entry) {
+                int start = payload.size();
+                payload.writeBytes(file);
+                while (payload.size() % 4 != 0) {
+                    payload.write(0xFF);
+                }
+                fatb.putInt(start).putInt(payload.size()).putInt(file.length);
+            }
+        }
+
+        int dataOffset = 0x24 + fato.capacity() + fatb.capacity() + 0xC;
+        ByteBuffer garc = ByteBuffer.allocate(dataOffset + payload.size()).order(ByteOrder.LITTLE_ENDIAN);
+        garc.put("CRAG".getBytes(StandardCharsets.US_ASCII)).putInt(0x24).putShort((short) 0xFEFF)
+                .putShort((short) 0x0600).putInt(4).putInt(dataOffset).putInt(garc.capacity())
+                .putInt(0).putInt(0).putInt(4);
+        garc.put(fato.array()).put(fatb.array());
+        garc.put("BMIF".getBytes(StandardCharsets.US_ASCII)).putInt(0xC).putInt(payload.size());
+        garc.put(payload.toByteArray());
+        return garc.array();
+    }
+
+    @Test
+    public void subfilesAreDecompressedWhenAccessed() throws IOException {
+        GARCArchive archive = new GARCArchive(garc(true), false);
+        assertArrayEquals(PLAIN, archive.getFile(0));
+        assertArrayEquals(COMPRESSIBLE, archive.getFile(1));
+        assertArrayEquals(PLAIN, archive.getFile(2, 0));
+        assertArrayEquals(COMPRESSIBLE, archive.getFile(2, 1));
+        assertEquals(2, archive.getDirectory(2).size());
+    }
+
+    @Test
+    public void skippingDecompressionKeepsCompressedData() throws IOException {
+        GARCArchive archive = new GARCArchive(garc(true), true);
+        assertEquals(0x11, archive.getFile(1)[0]);
+        assertFalse(Arrays.equals(COMPRESSIBLE, archive.getFile(1)));
+    }
+
+    @Test
+    public void unreadSubfilesAreWrittenUnchanged() throws IOException {
+        byte[] original = new GARCArchive(garc(false), false).getBytes();
+        assertArrayEquals(original, new GARCArchive(original, false).getBytes());
+    }
+
+    @Test
+    public void changesSurviveWritingAndReading() throws IOException {
+        GARCArchive archive = new GARCArchive(garc(false), false);
+        byte[] changed = Arrays.copyOf(COMPRESSIBLE, 0x300);
+        changed[0] = 42;
+        archive.setFile(1, changed);
+
+        GARCArchive reread = new GARCArchive(archive.getBytes(), false);
+        assertArrayEquals(PLAIN, reread.getFile(0));
+        assertArrayEquals(changed, reread.getFile(1));
+    }
+
+    @Test
+    public void copiesDoNotShareChanges() throws IOException {
+        GARCArchive template = new GARCArchive(garc(true), false);
+        GARCArchive first = new GARCArchive(template);
+        first.getFile(1)[0] = 42;
+        first.setFile(0, new byte[]{1, 2, 3});
+
+        GARCArchive second = new GARCArchive(template);
+        assertArrayEquals(PLAIN, second.getFile(0));
+        assertArrayEquals(COMPRESSIBLE, second.getFile(1));
+    }
+}
@@ -0,0 +1,127 @@
+package test.ctr;
+
+import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.ctr.NCCH;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import test.benchmarks.SyntheticData;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rebuilds synthetic CXIs and compares the result to CRC32s of what NCCH wrote before the romfs rebuild was
+ * streamed, so the rebuilt ROMs stay byte-identical.
+ */
+public class NCCHTest {
+
+    private static final long FEW_FILES_UNCHANGED_CRC = 0x98706824L;
+    private static final long FEW_FILES_CHANGED_CRC = 0x9B6F96BEL;
+    private static final long MANY_FILES_CHANGED_CRC = 0x219D2B18L;
+
+    private final List<File> tempFiles = new ArrayList<>();
+    private final List<NCCH> ncchs = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (NCCH ncch : ncchs) {
+            ncch.closeROM();
+            if (ncch.getTmpFolder() != null) {
+                File tmpFolder = new File(ncch.getTmpFolder());
+                File[] tmpFiles = tmpFolder.listFiles();
+                if (tmpFiles != null) {
+                    for (File tmpFile : tmpFiles) {
+                        tmpFile.delete();
+                    }
+                }
+                tmpFolder.delete();
+            }
+        }
+        for (File file : tempFiles) {
+            file.delete();
+        }
+    }
+
+    private File tempFile() throws IOException {
+        File file = File.createTempFile("ncchtest", ".cxi");
+        file.deleteOnExit();
+        tempFiles.add(file);
+        return file;
+    }
+
+    private NCCH open(int romfsFileCount, int romfsFileSize) throws IOException {
+        File cxi = tempFile();
+        SyntheticData.writeCXI(cxi, 0x10000, romfsFileCount, romfsFileSize, 1);
+        NCCH ncch = new NCCH(cxi.getAbsolutePath(), "CTR-P-TEST", "0004000000000000");
+        ncchs.add(ncch);
+        return ncch;
+    }
+
+    private File save(NCCH ncch) throws IOException, NoSuchAlgorithmException {
+        File saved = tempFile();
+        ncch.saveAsNCCH(saved.getAbsolutePath(), "TEST", 1);
+        return saved;
+    }
+
+    private long saveCRC(NCCH ncch) throws IOException, NoSuchAlgorithmException {
+        return FileFunctions.getCRC32(Files.readAllBytes(save(ncch).toPath()));
+    }
+
+    @Test
+    public void unchangedRomfsIsRebuiltAsBefore() throws IOException, NoSuchAlgorithmException {
+        assertEquals(FEW_FILES_UNCHANGED_CRC, saveCRC(open(3, 0x4000)));
+    }
+
+    @Test
+    public void changedRomfsIsRebuiltAsBefore() throws IOException, NoSuchAlgorithmException {
+        NCCH ncch = open(3, 0x4000);
+        ncch.writeFile(SyntheticData.fileName(1), SyntheticData.compressible(0x5000, 2));
+        assertEquals(FEW_FILES_CHANGED_CRC, saveCRC(ncch));
+    }
+
+    @Test
+    public void romfsWithSeveralHashBlocksIsRebuiltAsBefore() throws IOException, NoSuchAlgorithmException {
+        NCCH ncch = open(1000, 0x1000);
+        ncch.writeFile(SyntheticData.fileName(0), SyntheticData.compressible(0x10, 2));
+        ncch.writeFile(SyntheticData.fileName(500), SyntheticData.compressible(0x3000, 3));
+        assertEquals(MANY_FILES_CHANGED_CRC, saveCRC(ncch));
+    }
+
+    @Test
+    public void copiesReadTheOriginalContents() throws IOException, NoSuchAlgorithmException {
+        NCCH template = open(3, 0x4000);
+        byte[] original = template.getFile(SyntheticData.fileName(1));
+        template.writeFile(SyntheticData.fileName(1), SyntheticData.compressible(0x5000, 2));
+
+        NCCH copy = new NCCH(template);
+        ncchs.add(copy);
+        assertArrayEquals(original, copy.getFile(SyntheticData.fileName(1)));
+        copy.writeFile(SyntheticData.fileName(2), SyntheticData.compressible(0x10, 3));
+
+        // neither the template's changes nor those of other copies are seen by a new copy
+        NCCH unchangedCopy = new NCCH(template);
+        ncchs.add(unchangedCopy);
+        assertEquals(FEW_FILES_UNCHANGED_CRC, saveCRC(unchangedCopy));
+    }
+
+    @Test
+    public void changesCanBeReadBackFromRebuiltRom() throws IOException, NoSuchAlgorithmException {
+        NCCH ncch = open(3, 0x4000);
+        byte[] unchanged = ncch.getFile(SyntheticData.fileName(0));
+        byte[] changed = SyntheticData.compressible(0x5000, 2);
+        ncch.writeFile(SyntheticData.fileName(1), changed);
+        File saved = save(ncch);
+
+        NCCH reopened = new NCCH(saved.getAbsolutePath(), "CTR-P-TEST", "0004000000000000");
+        ncchs.add(reopened);
+        assertArrayEquals(unchanged, reopened.getFile(SyntheticData.fileName(0)));
+        assertArrayEquals(changed, reopened.getFile(SyntheticData.fileName(1)));
+    }
+
+}
@@ -0,0 +1,164 @@
+package test.graphics;
+
+import com.dabomstew.pkrandom.graphics.SpriteExporter;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpriteExporterTest {
+
+    private static final Pattern SPRITE_PATTERN = Pattern.compile(
+            "\\{\"name\":\"([^\"]*)\",\"x\":(\\d+),\"y\":(\\d+),\"width\":(\\d+),\"height\":(\\d+)}");
+
+    private static BufferedImage randomImage(Random random, int width, int height) {
+        BufferedImage bim = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                bim.setRGB(x, y, random.nextInt() | 0xFF000000);
+            }
+        }
+        return bim;
+    }
+
+    private static List<BufferedImage> randomImages(int count) {
+        Random random = new Random(count);
+        List<BufferedImage> bims = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            bims.add(randomImage(random, 8 + random.nextInt(40), 8 + random.nextInt(40)));
+        }
+        return bims;
+    }
+
+    private static List<Supplier<BufferedImage>> suppliers(List<BufferedImage> bims) {
+        List<Supplier<BufferedImage>> suppliers = new ArrayList<>();
+        for (BufferedImage bim : bims) {
+            suppliers.add(() -> bim);
+        }
+        return suppliers;
+    }
+
+    private static File tempDir() throws IOException {
+        File dir = Files.createTempDirectory("spriteexporter").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual, int offX, int offY) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(offX + x, offY + y));
+            }
+        }
+    }
+
+    @Test
+    public void writeFilesWritesEveryImage() throws IOException {
+        List<BufferedImage> bims = randomImages(100);
+        File dir = tempDir();
+        new SpriteExporter(4, 2).writeFiles(suppliers(bims), i -> String.format("%03d", i), dir);
+
+        for (int i = 0; i < bims.size(); i++) {
+            File file = new File(dir, String.format("%03d.png", i));
+            file.deleteOnExit();
+            BufferedImage read = ImageIO.read(file);
+            assertEquals(bims.get(i).getWidth(), read.getWidth());
+            assertEquals(bims.get(i).getHeight(), read.getHeight());
+            assertSameImage(bims.get(i), read, 0, 0);
+        }
+    }
+
+    @Test
+    public void writeAtlasIndexesEveryImageWithoutOverlap() throws IOException {
+        List<BufferedImage> bims = randomImages(150);
+        List<Supplier<BufferedImage>> suppliers = suppliers(bims);
+        suppliers.set(10, () -> null);
+        File dir = tempDir();
+        File atlasFile = new File(dir, "atlas.png");
+        File indexFile = new File(dir, "atlas.json");
+        atlasFile.deleteOnExit();
+        indexFile.deleteOnExit();
+        new SpriteExporter(3, 1).writeAtlas(suppliers, i -> "sprite" + i, atlasFile, indexFile);
+
+        BufferedImage atlas = ImageIO.read(atlasFile);
+        String index = Files.readString(indexFile.toPath(), StandardCharsets.UTF_8);
+        assertTrue(index.startsWith("{\"image\":\"atlas.png\",\"width\":" + atlas.getWidth() + ",\"height\":"
+                + atlas.getHeight() + ",\"sprites\":["));
+
+        boolean[][] used = new boolean[atlas.getHeight()][atlas.getWidth()];
+        Matcher m = SPRITE_PATTERN.matcher(index);
+        int expected = 0;
+        while (m.find()) {
+            if (expected == 10) {
+                expected++; // left out, since its supplier gave null
+            }
+            assertEquals("sprite" + expected, m.group(1));
+            int x = Integer.parseInt(m.group(2));
+            int y = Integer.parseInt(m.group(3));
+            BufferedImage bim = bims.get(expected);
+            assertEquals(bim.getWidth(), Integer.parseInt(m.group(4)));
+            assertEquals(bim.getHeight(), Integer.parseInt(m.group(5)));
+            assertSameImage(bim, atlas, x, y);
+            for (int j = y; j < y + bim.getHeight(); j++) {
+                for (int i = x; i < x + bim.getWidth(); i++) {
+                    assertFalse(used[j][i]);
+                    used[j][i] = true;
+                }
+            }
+            expected++;
+        }
+        assertEquals(bims.size(), expected);
+    }
+
+    @Test
+    public void imagesAreDecodedOnlyOnce() throws IOException {
+        List<BufferedImage> bims = randomImages(50);
+        AtomicInteger calls = new AtomicInteger();
+        List<Supplier<BufferedImage>> suppliers = new ArrayList<>();
+        for (BufferedImage bim : bims) {
+            suppliers.add(() -> {
+                calls.incrementAndGet();
+                return bim;
+            });
+        }
+        File dir = tempDir();
+        File atlasFile = new File(dir, "atlas.png");
+        File indexFile = new File(dir, "atlas.json");
+        atlasFile.deleteOnExit();
+        indexFile.deleteOnExit();
+        new SpriteExporter(4, 4).writeAtlas(suppliers, i -> "sprite" + i, atlasFile, indexFile);
+        assertEquals(bims.size(), calls.get());
+    }
+
+    @Test
+    public void decodingErrorsAreRethrown() throws IOException {
+        List<Supplier<BufferedImage>> suppliers = suppliers(randomImages(20));
+        suppliers.set(7, () -> {
+            throw new IllegalStateException("bad sprite");
+        });
+        File dir = tempDir();
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new SpriteExporter(2, 2).writeFiles(suppliers, i -> "sprite" + i, dir));
+        assertEquals("bad sprite", e.getMessage());
+        File[] written = dir.listFiles();
+        if (written != null) {
+            for (File file : written) {
+                file.delete();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package test.log;
+
+import com.dabomstew.pkrandom.log.JsonLinesLogSink;
+import com.dabomstew.pkrandom.log.SpoilerLog;
+import com.dabomstew.pkrandom.log.TextLogSink;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpoilerLogTest {
+
+    private static void writeExample(SpoilerLog log) {
+        log.println("intro");
+        log.beginSection("Trainers");
+        log.print("Brock: ");
+        log.printf("%s%n", "\"Onix\"");
+        log.println();
+        log.endSection();
+    }
+
+    @Test
+    public void textSinkWritesSectionHeaders() {
+        StringBuilder sb = new StringBuilder();
+        writeExample(new SpoilerLog(new TextLogSink(sb)));
+        String nl = System.lineSeparator();
+        assertEquals("intro" + nl + "--Trainers--" + nl + "Brock: \"Onix\"" + nl + nl, sb.toString());
+    }
+
+    @Test
+    public void jsonLinesSinkWritesOneObjectPerLine() {
+        StringWriter sw = new StringWriter();
+        writeExample(new SpoilerLog(new JsonLinesLogSink(sw)));
+        assertEquals("{\"type\":\"line\",\"text\":\"intro\"}\n"
+                + "{\"type\":\"section\",\"title\":\"Trainers\"}\n"
+                + "{\"type\":\"line\",\"section\":\"Trainers\",\"text\":\"Brock: \\\"Onix\\\"\"}\n", sw.toString());
+    }
+
+    @Test
+    public void discardedLogIsDisabled() {
+        SpoilerLog log = SpoilerLog.discard();
+        assertFalse(log.isEnabled());
+        writeExample(log);
+        assertFalse(log.checkError());
+    }
+}
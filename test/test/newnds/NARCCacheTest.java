@@ -0,0 +1,109 @@
+package test.newnds;
+
+import com.dabomstew.pkrandom.newnds.NARCArchive;
+import com.dabomstew.pkrandom.newnds.NARCCache;
+import com.dabomstew.pkrandom.newnds.NDSRom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import test.benchmarks.SyntheticData;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks when the NARCs handed out by a {@link NARCCache} are turned back into bytes, and when they are dropped.
+ */
+public class NARCCacheTest {
+
+    private static final String NARC_PATH = "a/a1.bin";
+
+    private File romFile;
+    private NDSRom rom;
+    private NARCCache cache;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        romFile = File.createTempFile("narccachetest", ".nds");
+        romFile.deleteOnExit();
+        Files.write(romFile.toPath(), NDSRomTest.nds(1));
+        rom = new NDSRom(romFile.getAbsolutePath());
+        rom.writeFile(NARC_PATH, SyntheticData.narc(4, 0x100, 2).getBytes());
+        cache = new NARCCache(rom);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        rom.closeROM();
+        if (rom.getTmpFolder() != null) {
+            File tmpFolder = new File(rom.getTmpFolder());
+            File[] tmpFiles = tmpFolder.listFiles();
+            if (tmpFiles != null) {
+                for (File tmpFile : tmpFiles) {
+                    tmpFile.delete();
+                }
+            }
+            tmpFolder.delete();
+        }
+        romFile.delete();
+    }
+
+    private NARCArchive change(NARCArchive narc) {
+        narc.files.set(1, new byte[]{1, 2, 3});
+        return narc;
+    }
+
+    @Test
+    public void readsShareOneInstance() throws IOException {
+        NARCArchive narc = change(cache.getNARC(NARC_PATH));
+        assertSame(narc, cache.getNARC(NARC_PATH));
+    }
+
+    @Test
+    public void unwrittenChangesAreNotFlushed() throws IOException {
+        byte[] original = rom.getFile(NARC_PATH);
+        change(cache.getNARC(NARC_PATH));
+        cache.flush();
+        assertArrayEquals(original, rom.getFile(NARC_PATH));
+    }
+
+    @Test
+    public void readingTheFileWritesTheDirtyNARC() throws IOException {
+        NARCArchive narc = change(cache.getNARC(NARC_PATH));
+        cache.writeNARC(NARC_PATH, narc);
+        assertArrayEquals(narc.getBytes(), cache.getFile(NARC_PATH));
+        assertArrayEquals(narc.getBytes(), rom.getFile(NARC_PATH));
+    }
+
+    @Test
+    public void writingTheFileDropsTheNARC() throws IOException {
+        NARCArchive narc = change(cache.getNARC(NARC_PATH));
+        cache.writeNARC(NARC_PATH, narc);
+        byte[] replacement = SyntheticData.narc(2, 0x40, 3).getBytes();
+        cache.writeFile(NARC_PATH, replacement);
+
+        NARCArchive reread = cache.getNARC(NARC_PATH);
+        assertNotSame(narc, reread);
+        assertEquals(2, reread.files.size());
+        cache.flush();
+        assertArrayEquals(replacement, rom.getFile(NARC_PATH));
+    }
+
+    @Test
+    public void flushWritesAllDirtyNARCs() throws IOException {
+        String otherPath = "r0.bin";
+        rom.writeFile(otherPath, SyntheticData.narc(3, 0x80, 4).getBytes());
+        NARCArchive narc = change(cache.getNARC(NARC_PATH));
+        NARCArchive other = change(cache.getNARC(otherPath));
+        cache.writeNARC(NARC_PATH, narc);
+        cache.writeNARC(otherPath, other);
+
+        cache.flush();
+        assertArrayEquals(narc.getBytes(), rom.getFile(NARC_PATH));
+        assertArrayEquals(other.getBytes(), rom.getFile(otherPath));
+    }
+
+}
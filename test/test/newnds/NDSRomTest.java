@@ -0,0 +1,236 @@
+package test.newnds;
+
+import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.newnds.NDSRom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Saves a synthetic NDS ROM after various changes and compares the result to CRC32s of what the NDSRom from
+ * before the ROM file was memory-mapped wrote for the same changes, so the saved ROMs stay byte-identical.
+ */
+public class NDSRomTest {
+
+    private static final int OVERLAY_COUNT = 2;
+    private static final String[] FILE_NAMES = {"r0.bin", "r1.bin", "r2.bin",
+            "a/a0.bin", "a/a1.bin", "a/a2.bin", "a/a3.bin", "a/a4.bin"};
+    private static final int ALIGN = 0x200;
+
+    private static final long UNCHANGED_CRC = 0x736B3C44L;
+    private static final long READ_ONLY_CRC = 0x736B3C44L;
+    private static final long CHANGED_CRC = 0xF4A41A82L;
+    private static final long COPY_CRC = 0xBD234A2CL;
+
+    private final List<File> tempFiles = new ArrayList<>();
+    private final List<NDSRom> roms = new ArrayList<>();
+    private File romFile;
+
+    /**
+     * Builds an NDS ROM with an uncompressed arm9 with a footer, an arm7, two uncompressed overlays, and files
+     * in the root directory and in a subdirectory "a".
+     */
+    static byte[] nds(long seed) {
+        Random random = new Random(seed);
+        byte[] arm9 = randomBytes(random, 0x8000);
+        arm9[arm9.length - 5] = 0; // not BLZ-compressed
+        arm9[arm9.length - 1] = 1; // and no footer inside it
+        byte[] arm7 = randomBytes(random, 0x4000);
+        byte[] banner = randomBytes(random, 0x840);
+        byte[][] files = new byte[OVERLAY_COUNT + FILE_NAMES.length][];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = randomBytes(random, 0x100 + random.nextInt(0x1000));
+        }
+
+        ByteBuffer fnt = ByteBuffer.allocate(0x100).order(ByteOrder.LITTLE_ENDIAN);
+        fnt.putInt(0x10).putShort((short) OVERLAY_COUNT).putShort((short) 2);
+        fnt.putInt(0).putShort((short) (OVERLAY_COUNT + 3)).putShort((short) 0xF000);
+        for (int i = 0; i < 3; i++) {
+            putName(fnt, FILE_NAMES[i], 0);
+        }
+        putName(fnt, "a", 0x80);
+        fnt.putShort((short) 0xF001).put((byte) 0);
+        fnt.putInt(8, fnt.position());
+        for (int i = 3; i < FILE_NAMES.length; i++) {
+            putName(fnt, FILE_NAMES[i].substring(2), 0);
+        }
+        fnt.put((byte) 0);
+        int fntSize = fnt.position();
+
+        int arm9Offset = 0x4000;
+        int ovlTableOffset = align(arm9Offset + arm9.length + 12);
+        int arm7Offset = align(ovlTableOffset + OVERLAY_COUNT * 32);
+        int bannerOffset = align(arm7Offset + arm7.length);
+        int fntOffset = align(bannerOffset + banner.length);
+        int fatOffset = align(fntOffset + fntSize);
+        int[] fileOffsets = new int[files.length];
+        int end = fatOffset + files.length * 8;
+        for (int i = 0; i < files.length; i++) {
+            fileOffsets[i] = align(end);
+            end = fileOffsets[i] + files[i].length;
+        }
+
+        ByteBuffer rom = ByteBuffer.allocate(align(end)).order(ByteOrder.LITTLE_ENDIAN);
+        rom.put(0x0C, "TEST".getBytes(StandardCharsets.US_ASCII));
+        rom.putInt(0x20, arm9Offset).putInt(0x28, 0x02000000).putInt(0x2C, arm9.length);
+        rom.putInt(0x30, arm7Offset).putInt(0x3C, arm7.length);
+        rom.putInt(0x40, fntOffset).putInt(0x44, fntSize).putInt(0x48, fatOffset).putInt(0x4C, files.length * 8);
+        rom.putInt(0x50, ovlTableOffset).putInt(0x54, OVERLAY_COUNT * 32);
+        rom.putInt(0x58, 0).putInt(0x5C, 0).putInt(0x68, bannerOffset).putInt(0x84, 0x4000);
+
+        rom.put(arm9Offset, arm9);
+        rom.putInt(arm9Offset + arm9.length, 0xDEC00621);
+        for (int i = 0; i < OVERLAY_COUNT; i++) {
+            int entry = ovlTableOffset + i * 32;
+            rom.putInt(entry, i).putInt(entry + 4, 0x02100000 + i * 0x10000).putInt(entry + 8, files[i].length);
+            rom.putInt(entry + 24, i);
+        }
+        rom.put(arm7Offset, arm7);
+        rom.put(bannerOffset, banner);
+        rom.put(fntOffset, fnt.array(), 0, fntSize);
+        for (int i = 0; i < files.length; i++) {
+            rom.putInt(fatOffset + i * 8, fileOffsets[i]);
+            rom.putInt(fatOffset + i * 8 + 4, fileOffsets[i] + files[i].length);
+            rom.put(fileOffsets[i], files[i]);
+        }
+        return rom.array();
+    }
+
+    private static void putName(ByteBuffer fnt, String name, int flags) {
+        fnt.put((byte) (flags | name.length())).put(name.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static int align(int offset) {
+        return (offset + ALIGN - 1) & ~(ALIGN - 1);
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        romFile = tempFile(".nds");
+        Files.write(romFile.toPath(), nds(1));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (NDSRom rom : roms) {
+            rom.closeROM();
+            if (rom.getTmpFolder() != null) {
+                File tmpFolder = new File(rom.getTmpFolder());
+                File[] tmpFiles = tmpFolder.listFiles();
+                if (tmpFiles != null) {
+                    for (File tmpFile : tmpFiles) {
+                        tmpFile.delete();
+                    }
+                }
+                tmpFolder.delete();
+            }
+        }
+        for (File file : tempFiles) {
+            file.delete();
+        }
+    }
+
+    private File tempFile(String suffix) throws IOException {
+        File file = File.createTempFile("ndsromtest", suffix);
+        file.deleteOnExit();
+        tempFiles.add(file);
+        return file;
+    }
+
+    private NDSRom open() throws IOException {
+        NDSRom rom = new NDSRom(romFile.getAbsolutePath());
+        roms.add(rom);
+        return rom;
+    }
+
+    private long saveCRC(NDSRom rom) throws IOException {
+        File saved = tempFile(".nds");
+        rom.saveTo(saved.getAbsolutePath());
+        return FileFunctions.getCRC32(Files.readAllBytes(saved.toPath()));
+    }
+
+    private static void change(NDSRom rom) throws IOException {
+        byte[] arm9 = rom.getARM9();
+        arm9[0x100] ^= (byte) 0xFF;
+        rom.writeARM9(arm9);
+        rom.writeFile("r1.bin", new byte[0x1234]);
+        rom.writeFile("a/a2.bin", "smaller".getBytes(StandardCharsets.US_ASCII));
+        byte[] overlay = rom.getOverlay(1);
+        overlay[0] = 0x55;
+        rom.writeOverlay(1, overlay);
+    }
+
+    @Test
+    public void unchangedRomIsSavedAsBefore() throws IOException {
+        assertEquals(UNCHANGED_CRC, saveCRC(open()));
+    }
+
+    @Test
+    public void readOnlyRomIsSavedAsBefore() throws IOException {
+        NDSRom rom = open();
+        rom.getARM9();
+        for (String name : FILE_NAMES) {
+            assertNotNull(rom.getFile(name));
+        }
+        for (int i = 0; i < OVERLAY_COUNT; i++) {
+            assertNotNull(rom.getOverlay(i));
+        }
+        assertEquals(READ_ONLY_CRC, saveCRC(rom));
+    }
+
+    @Test
+    public void changedRomIsSavedAsBefore() throws IOException {
+        NDSRom rom = open();
+        change(rom);
+        assertEquals(CHANGED_CRC, saveCRC(rom));
+    }
+
+    @Test
+    public void copyIsSavedAsBefore() throws IOException {
+        NDSRom template = open();
+        change(template);
+        NDSRom copy = new NDSRom(template);
+        roms.add(copy);
+        copy.writeFile("r0.bin", new byte[0x10]);
+        assertEquals(COPY_CRC, saveCRC(copy));
+    }
+
+    @Test
+    public void changesCanBeReadBackFromSavedRom() throws IOException {
+        NDSRom rom = open();
+        byte[] arm9 = rom.getARM9();
+        byte[] a0 = rom.getFile("a/a0.bin");
+        change(rom);
+        File saved = tempFile(".nds");
+        rom.saveTo(saved.getAbsolutePath());
+
+        NDSRom reopened = new NDSRom(saved.getAbsolutePath());
+        roms.add(reopened);
+        assertEquals("TEST", reopened.getCode());
+        arm9[0x100] ^= (byte) 0xFF;
+        assertArrayEquals(arm9, reopened.getARM9());
+        assertArrayEquals(a0, reopened.getFile("a/a0.bin"));
+        assertArrayEquals(new byte[0x1234], reopened.getFile("r1.bin"));
+        assertArrayEquals("smaller".getBytes(StandardCharsets.US_ASCII), reopened.getFile("a/a2.bin"));
+        assertEquals(0x55, reopened.getOverlay(1)[0]);
+    }
+
+}
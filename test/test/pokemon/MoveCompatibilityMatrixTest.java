@@ -0,0 +1,154 @@
+package test.pokemon;
+
+import com.dabomstew.pkrandom.pokemon.MoveCompatibilityMatrix;
+import com.dabomstew.pkrandom.pokemon.Pokemon;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveCompatibilityMatrixTest {
+
+    private static final int MOVE_COUNT = 107;
+
+    private static MoveCompatibilityMatrix randomMatrix(Random random, Pokemon... pokemon) {
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(10, MOVE_COUNT);
+        for (Pokemon pk : pokemon) {
+            compat.addPokemon(pk);
+            for (int i = 0; i < MOVE_COUNT; i++) {
+                compat.set(pk, i, random.nextBoolean());
+            }
+        }
+        return compat;
+    }
+
+    private static boolean[] row(MoveCompatibilityMatrix compat, Pokemon pk) {
+        boolean[] flags = new boolean[compat.getMoveCount()];
+        for (int i = 0; i < flags.length; i++) {
+            flags[i] = compat.get(pk, i);
+        }
+        return flags;
+    }
+
+    @Test
+    public void getReturnsWhatWasSet() {
+        Pokemon pk = new Pokemon(3);
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(10, MOVE_COUNT);
+        compat.addPokemon(pk);
+        boolean[] expected = new boolean[MOVE_COUNT];
+        Random random = new Random(1);
+        for (int round = 0; round < 1000; round++) {
+            int move = random.nextInt(MOVE_COUNT);
+            boolean value = random.nextBoolean();
+            compat.set(pk, move, value);
+            expected[move] = value;
+        }
+        assertArrayEquals(expected, row(compat, pk));
+        assertThrows(IndexOutOfBoundsException.class, () -> compat.get(pk, MOVE_COUNT));
+        assertThrows(IllegalArgumentException.class, () -> compat.get(new Pokemon(4), 0));
+    }
+
+    @Test
+    public void pokemonAreListedByNumber() {
+        Pokemon a = new Pokemon(7);
+        Pokemon b = new Pokemon(2);
+        Pokemon c = new Pokemon(5);
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(10, MOVE_COUNT);
+        compat.addPokemon(a);
+        compat.addPokemon(b);
+        compat.addPokemon(c);
+        assertEquals(List.of(b, c, a), compat.getPokemon());
+        assertThrows(IllegalArgumentException.class, () -> compat.addPokemon(new Pokemon(10)));
+    }
+
+    @Test
+    public void bitsMatchSingleMovesAcrossWordBoundaries() {
+        Pokemon pk = new Pokemon(1);
+        Random random = new Random(2);
+        MoveCompatibilityMatrix compat = randomMatrix(random, pk);
+        for (int move = 0; move < MOVE_COUNT; move++) {
+            for (int count = 0; count <= 64; count++) {
+                long expected = 0;
+                for (int i = 0; i < count && move + i < MOVE_COUNT; i++) {
+                    expected |= (compat.get(pk, move + i) ? 1L : 0L) << i;
+                }
+                assertEquals(expected, compat.getBits(pk, move, count), "move " + move + ", count " + count);
+            }
+        }
+
+        for (int round = 0; round < 1000; round++) {
+            int move = random.nextInt(MOVE_COUNT);
+            int count = random.nextInt(65);
+            long bits = random.nextLong();
+            boolean[] expected = row(compat, pk);
+            for (int i = 0; i < count && move + i < MOVE_COUNT; i++) {
+                expected[move + i] = ((bits >>> i) & 1) != 0;
+            }
+            compat.setBits(pk, move, count, bits);
+            assertArrayEquals(expected, row(compat, pk), "move " + move + ", count " + count);
+        }
+    }
+
+    @Test
+    public void bytesReadAndWriteAsLittleEndianFlags() {
+        Pokemon pk = new Pokemon(1);
+        MoveCompatibilityMatrix compat = new MoveCompatibilityMatrix(2, 20);
+        compat.addPokemon(pk);
+        byte[] data = {(byte) 0xFF, 0x12, (byte) 0x81, (byte) 0xFE, 0x77};
+
+        // 3 bits from offset 2: 0x81 -> moves 5 (bit 0) only, bits past the count ignored
+        compat.readBytes(pk, 5, 3, data, 2);
+        // 9 bits from offset 3: 0xFE, then bit 0 of 0x77
+        compat.readBytes(pk, 10, 9, data, 3);
+        boolean[] expected = new boolean[20];
+        expected[5] = true;
+        for (int i = 11; i <= 18; i++) {
+            expected[i] = true;
+        }
+        assertArrayEquals(expected, row(compat, pk));
+
+        byte[] out = {0x55, 0x55, 0x55, 0x55};
+        compat.writeBytes(pk, 10, 7, out, 1, 2);
+        assertArrayEquals(new byte[]{0x55, 0x7E, 0x00, 0x55}, out);
+        compat.writeBytes(pk, 0, compat.getMoveCount(), out, 0, 4);
+        assertArrayEquals(new byte[]{0x20, (byte) 0xF8, 0x07, 0x00}, out);
+    }
+
+    @Test
+    public void bulkOperationsMatchPerMoveOperations() {
+        Pokemon from = new Pokemon(1);
+        Pokemon to = new Pokemon(2);
+        Random random = new Random(3);
+        MoveCompatibilityMatrix compat = randomMatrix(random, from, to);
+        boolean[] fromFlags = row(compat, from);
+        boolean[] toFlags = row(compat, to);
+
+        compat.or(from, to);
+        for (int i = 0; i < MOVE_COUNT; i++) {
+            toFlags[i] |= fromFlags[i];
+        }
+        assertArrayEquals(toFlags, row(compat, to));
+        assertArrayEquals(fromFlags, row(compat, from));
+
+        long[] mask = compat.newMask();
+        compat.addToMask(mask, 0);
+        compat.addToMask(mask, 64);
+        compat.addToMask(mask, MOVE_COUNT - 1);
+        compat.or(from, mask);
+        fromFlags[0] = fromFlags[64] = fromFlags[MOVE_COUNT - 1] = true;
+        assertArrayEquals(fromFlags, row(compat, from));
+
+        compat.copy(from, to);
+        assertArrayEquals(fromFlags, row(compat, to));
+
+        compat.orAll(compat.rangeMask(60, 70));
+        for (int i = 60; i < 70; i++) {
+            fromFlags[i] = true;
+        }
+        assertArrayEquals(fromFlags, row(compat, from));
+        assertArrayEquals(fromFlags, row(compat, to));
+    }
+
+}
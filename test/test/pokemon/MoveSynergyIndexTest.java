@@ -0,0 +1,135 @@
+package test.pokemon;
+
+import com.dabomstew.pkrandom.pokemon.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveSynergyIndexTest {
+
+    private static final int MOVE_COUNT = 826;
+    private static final int ABILITY_COUNT = 267;
+    private static final int PERFECT_ACCURACY = 100;
+    private static final Type[] TYPES = Type.values();
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static List<Move> randomMoves(Random random) {
+        List<Move> moves = new ArrayList<>();
+        moves.add(null);
+        for (int i = 1; i <= MOVE_COUNT; i++) {
+            Move mv = new Move();
+            mv.number = i;
+            mv.name = "Move " + i;
+            mv.type = pick(random, TYPES);
+            mv.category = pick(random, MoveCategory.values());
+            mv.power = mv.category == MoveCategory.STATUS ? 0 : 10 * random.nextInt(16);
+            mv.hitratio = random.nextInt(4) == 0 ? 30 + 10 * random.nextInt(7) : PERFECT_ACCURACY;
+            mv.priority = random.nextInt(8) == 0 ? random.nextInt(5) - 2 : 0;
+            mv.hitCount = random.nextInt(10) == 0 ? 2 + random.nextInt(4) : 1;
+            mv.statChangeMoveType = pick(random, StatChangeMoveType.values());
+            for (int s = 0; s < random.nextInt(3); s++) {
+                mv.statChanges[s].type = pick(random, StatChangeType.values());
+                mv.statChanges[s].stages = random.nextInt(5) - 2;
+                mv.statChanges[s].percentChance = random.nextBoolean() ? 100 : 10;
+            }
+            mv.statusMoveType = pick(random, StatusMoveType.values());
+            mv.statusType = random.nextBoolean() ? StatusType.NONE : pick(random, StatusType.values());
+            mv.statusPercentChance = random.nextBoolean() ? 100 : 30;
+            mv.criticalChance = pick(random, CriticalChance.values());
+            mv.flinchPercentChance = random.nextInt(6) == 0 ? 30 : 0;
+            mv.recoilPercent = random.nextInt(8) == 0 ? 25 : 0;
+            mv.absorbPercent = random.nextInt(8) == 0 ? 50 : 0;
+            mv.makesContact = random.nextBoolean();
+            mv.isPunchMove = random.nextInt(10) == 0;
+            mv.isSoundMove = random.nextInt(10) == 0;
+            mv.isTrapMove = random.nextInt(10) == 0;
+            moves.add(mv);
+        }
+        return moves;
+    }
+
+    /**
+     * A trainer-style move pool: a random sample with some duplicates, in random order.
+     */
+    private static List<Move> randomPool(Random random, List<Move> moves) {
+        List<Move> pool = new ArrayList<>();
+        int size = 5 + random.nextInt(60);
+        for (int i = 0; i < size; i++) {
+            pool.add(moves.get(1 + random.nextInt(MOVE_COUNT)));
+        }
+        Collections.shuffle(pool, random);
+        return pool;
+    }
+
+    private static Pokemon randomPokemon(Random random, int number) {
+        Pokemon pk = new Pokemon(number);
+        pk.setHp(1 + random.nextInt(150));
+        pk.setAttack(1 + random.nextInt(150));
+        pk.setDefense(1 + random.nextInt(150));
+        pk.setSpatk(1 + random.nextInt(150));
+        pk.setSpdef(1 + random.nextInt(150));
+        pk.setSpeed(1 + random.nextInt(150));
+        return pk;
+    }
+
+    @Test
+    public void abilityAndStatLookupsMatchMoveSynergy() {
+        Random random = new Random(1);
+        List<Move> moves = randomMoves(random);
+        MoveSynergyIndex index = new MoveSynergyIndex(moves, 7, PERFECT_ACCURACY,
+                TypeTable.getVanillaGen6PlusTable());
+
+        for (int round = 0; round < 3; round++) {
+            for (int ability = 0; ability <= ABILITY_COUNT; ability++) {
+                List<Move> pool = randomPool(random, moves);
+                Type type1 = pick(random, TYPES);
+                Type type2 = random.nextBoolean() ? null : pick(random, TYPES);
+                assertEquals(MoveSynergy.getHardAbilityMoveSynergy(ability, type1, type2, pool, 7,
+                        PERFECT_ACCURACY), index.getHardAbilityMoveSynergy(ability, type1, type2, pool));
+                assertEquals(MoveSynergy.getSoftAbilityMoveSynergy(ability, pool, type1, type2),
+                        index.getSoftAbilityMoveSynergy(ability, type1, type2, pool));
+                assertEquals(MoveSynergy.getHardAbilityMoveAntiSynergy(ability, pool),
+                        index.getHardAbilityMoveAntiSynergy(ability, pool));
+                assertEquals(MoveSynergy.getSoftAbilityMoveAntiSynergy(ability, pool),
+                        index.getSoftAbilityMoveAntiSynergy(ability, pool));
+            }
+        }
+
+        for (int i = 1; i <= 200; i++) {
+            Pokemon pk = randomPokemon(random, i);
+            List<Move> pool = randomPool(random, moves);
+            assertEquals(MoveSynergy.getStatMoveSynergy(pk, pool), index.getStatMoveSynergy(pk, pool));
+            assertEquals(MoveSynergy.getStatMoveAntiSynergy(pk, pool), index.getStatMoveAntiSynergy(pk, pool));
+        }
+    }
+
+    @Test
+    public void moveLookupsMatchMoveSynergy() {
+        Random random = new Random(2);
+        List<Move> moves = randomMoves(random);
+        TypeTable typeTable = TypeTable.getVanillaGen6PlusTable();
+        MoveSynergyIndex index = new MoveSynergyIndex(moves, 7, PERFECT_ACCURACY, typeTable);
+
+        for (int round = 0; round < 2; round++) {
+            for (int number = 1; number <= MOVE_COUNT; number++) {
+                Move mv1 = moves.get(number);
+                List<Move> pool = randomPool(random, moves);
+                assertEquals(MoveSynergy.getMoveSynergy(mv1, pool, 7), index.getMoveSynergy(mv1, pool));
+                assertEquals(MoveSynergy.getSoftMoveSynergy(mv1, pool, typeTable),
+                        index.getSoftMoveSynergy(mv1, pool));
+                assertEquals(MoveSynergy.getHardMoveAntiSynergy(mv1, pool),
+                        index.getHardMoveAntiSynergy(mv1, pool));
+                assertEquals(MoveSynergy.getSoftMoveAntiSynergy(mv1, pool),
+                        index.getSoftMoveAntiSynergy(mv1, pool));
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package test.pokemon;
+
+import com.dabomstew.pkrandom.pokemon.PlacementHistory;
+import com.dabomstew.pkrandom.pokemon.Pokemon;
+import com.dabomstew.pkrandom.pokemon.PokemonSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlacementHistoryTest {
+
+    @Test
+    public void averageOnlyCountsPlacedPokemon() {
+        PlacementHistory history = new PlacementHistory();
+        assertEquals(0, history.getAverage(), 0);
+        Pokemon a = new Pokemon(1);
+        Pokemon b = new Pokemon(2);
+        history.place(a);
+        history.place(a);
+        history.place(a);
+        history.place(b);
+        assertEquals(3, history.getCount(a));
+        assertEquals(1, history.getCount(b));
+        assertEquals(0, history.getCount(new Pokemon(3)));
+        assertEquals(2.0, history.getAverage(), 0);
+    }
+
+    @Test
+    public void filterPlacedLessThanMatchesLinearFilter() {
+        Random random = new Random(1);
+        PokemonSet<Pokemon> pool = new PokemonSet<>();
+        Pokemon[] pks = new Pokemon[100];
+        for (int i = 0; i < pks.length; i++) {
+            pks[i] = new Pokemon(i);
+            pool.add(pks[i]);
+        }
+        PlacementHistory history = new PlacementHistory();
+        for (int i = 0; i < 500; i++) {
+            history.place(pks[(int) Math.sqrt(random.nextInt(pks.length * pks.length))]);
+
+            for (double threshold : new double[]{history.getAverage(), history.getAverage() * 2, 3.0}) {
+                PokemonSet<Pokemon> expected = pool.filter(pk -> history.getCount(pk) < threshold);
+                assertEquals(expected, history.filterPlacedLessThan(pool, threshold));
+            }
+        }
+    }
+
+    @Test
+    public void nothingIsPlacedLessThanZeroTimes() {
+        PokemonSet<Pokemon> pool = new PokemonSet<>();
+        pool.add(new Pokemon(1));
+        assertTrue(new PlacementHistory().filterPlacedLessThan(pool, 0).isEmpty());
+    }
+}
@@ -130,4 +130,80 @@ public class PokemonSetTest {
             it.remove();
         });
     }
+
+    @Test
+    public void bulkOperationsBetweenPokemonSetsMatchSetSemantics() {
+        Pokemon[] pks = new Pokemon[200];
+        for (int i = 0; i < pks.length; i++) {
+            pks[i] = new Pokemon(i);
+        }
+        PokemonSet<Pokemon> evens = new PokemonSet<>();
+        PokemonSet<Pokemon> threes = new PokemonSet<>();
+        for (Pokemon pk : pks) {
+            if (pk.getNumber() % 2 == 0) {
+                evens.add(pk);
+            }
+            if (pk.getNumber() % 3 == 0) {
+                threes.add(pk);
+            }
+        }
+
+        PokemonSet<Pokemon> union = new PokemonSet<>(evens);
+        assertTrue(union.addAll(threes));
+        PokemonSet<Pokemon> intersection = new PokemonSet<>(evens);
+        assertTrue(intersection.retainAll(threes));
+        PokemonSet<Pokemon> difference = new PokemonSet<>(evens);
+        assertTrue(difference.removeAll(threes));
+
+        for (Pokemon pk : pks) {
+            int n = pk.getNumber();
+            assertEquals(n % 2 == 0 || n % 3 == 0, union.contains(pk));
+            assertEquals(n % 6 == 0, intersection.contains(pk));
+            assertEquals(n % 2 == 0 && n % 3 != 0, difference.contains(pk));
+        }
+        assertEquals(133, union.size());
+        assertEquals(34, intersection.size());
+        assertEquals(66, difference.size());
+        assertTrue(union.containsAll(evens));
+        assertFalse(evens.containsAll(union));
+        assertFalse(union.addAll(evens));
+    }
+
+    @Test
+    public void modifyingACopyDoesNotAffectTheOriginal() {
+        Pokemon a = new Pokemon(0);
+        Pokemon b = new Pokemon(1);
+        Pokemon c = new Pokemon(100);
+        PokemonSet<Pokemon> original = new PokemonSet<>();
+        original.add(a);
+        original.add(b);
+
+        PokemonSet<Pokemon> copy = new PokemonSet<>(original);
+        copy.remove(a);
+        copy.add(c);
+        PokemonSet<Pokemon> filtered = original.filter(pk -> pk != b);
+        filtered.add(c);
+
+        assertEquals(Set.of(a, b), original);
+        assertEquals(Set.of(b, c), copy);
+        assertEquals(Set.of(a, c), filtered);
+    }
+
+    @Test
+    public void iteratorRemoveRemovesFromSet() {
+        PokemonSet<Pokemon> pokes = new PokemonSet<>();
+        for (int i = 0; i < 100; i++) {
+            pokes.add(new Pokemon(i));
+        }
+        Iterator<Pokemon> it = pokes.iterator();
+        while (it.hasNext()) {
+            if (it.next().getNumber() % 10 != 0) {
+                it.remove();
+            }
+        }
+        assertEquals(10, pokes.size());
+        for (Pokemon pk : pokes) {
+            assertEquals(0, pk.getNumber() % 10);
+        }
+    }
 }
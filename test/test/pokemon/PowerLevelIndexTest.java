@@ -0,0 +1,66 @@
+package test.pokemon;
+
+import com.dabomstew.pkrandom.constants.Abilities;
+import com.dabomstew.pkrandom.pokemon.Pokemon;
+import com.dabomstew.pkrandom.pokemon.PokemonSet;
+import com.dabomstew.pkrandom.pokemon.PowerLevelIndex;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PowerLevelIndexTest {
+
+    private static PokemonSet<Pokemon> pool() {
+        PokemonSet<Pokemon> pool = new PokemonSet<>();
+        for (int i = 1; i <= 60; i++) {
+            Pokemon pk = new Pokemon(i);
+            // BSTs 60, 70, ..., 650 in a scrambled order
+            int bst = 60 + ((i * 37) % 60) * 10;
+            pk.setHp(bst / 6 + bst % 6);
+            pk.setAttack(bst / 6);
+            pk.setDefense(bst / 6);
+            pk.setSpatk(bst / 6);
+            pk.setSpdef(bst / 6);
+            pk.setSpeed(bst / 6);
+            if (i % 10 == 0) {
+                pk.setAbility1(Abilities.wonderGuard);
+            }
+            pool.add(pk);
+        }
+        return pool;
+    }
+
+    private static PokemonSet<Pokemon> scan(PokemonSet<Pokemon> allowed, int min, int max,
+                                            boolean wonderGuardAllowed) {
+        return allowed.filter(pk -> pk.bstForPowerLevels() >= min && pk.bstForPowerLevels() <= max
+                && (wonderGuardAllowed || pk.getAbility1() != Abilities.wonderGuard));
+    }
+
+    @Test
+    public void widenedWindowMatchesLinearScan() {
+        PokemonSet<Pokemon> pool = pool();
+        PokemonSet<Pokemon> allowed = pool.filter(pk -> pk.getNumber() % 3 != 0);
+        PowerLevelIndex index = new PowerLevelIndex(pool);
+
+        for (boolean wonderGuardAllowed : new boolean[]{true, false}) {
+            PowerLevelIndex.Window window = index.window(wonderGuardAllowed);
+            PokemonSet<Pokemon> results = new PokemonSet<>();
+            int min = 300;
+            int max = 340;
+            for (int round = 0; round < 5; round++) {
+                window.widen(min, max, allowed, results);
+                assertEquals(scan(allowed, min, max, wonderGuardAllowed), results);
+                min -= 45;
+                max += 45;
+            }
+        }
+    }
+
+    @Test
+    public void windowOutsideAllBSTsIsEmpty() {
+        PokemonSet<Pokemon> pool = pool();
+        PokemonSet<Pokemon> results = new PokemonSet<>();
+        new PowerLevelIndex(pool).window(true).widen(700, 800, pool, results);
+        assertTrue(results.isEmpty());
+    }
+}
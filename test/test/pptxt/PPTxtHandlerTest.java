@@ -0,0 +1,180 @@
+package test.pptxt;
+
+import org.junit.jupiter.api.Test;
+import pptxt.PPTxtHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PPTxtHandlerTest {
+
+    private static final List<String> STRINGS = List.of(
+            "Pok\u00E9mon",
+            "\\x0001: It's decided.\\xFFFEYou'll be my opponent!\\x0000",
+            "\\[PK]\\[MN] \\[:)]×÷",
+            "",
+            "odd");
+
+    /**
+     * Builds a single-section text file with the given strings, each encrypted with the given key and
+     * stored as-is (or [F100]-compressed if compressed is set, which only works for 9-bit chars).
+     */
+    private static byte[] textFile(int[][] strings, int key, boolean compressed) {
+        int[][] words = new int[strings.length][];
+        int totalWords = 0;
+        for (int i = 0; i < strings.length; i++) {
+            words[i] = compressed ? compress(strings[i]) : terminate(strings[i]);
+            totalWords += words[i].length;
+        }
+        int sectionSize = 4 + 8 * strings.length + 2 * totalWords;
+        byte[] data = new byte[0x10 + sectionSize];
+        writeWord(data, 0, 1);
+        writeWord(data, 2, strings.length);
+        writeLong(data, 4, sectionSize);
+        writeLong(data, 12, 0x10);
+        writeLong(data, 0x10, sectionSize);
+        int offset = 4 + 8 * strings.length;
+        int pos = 0x10 + offset;
+        for (int i = 0; i < strings.length; i++) {
+            writeLong(data, 0x14 + 8 * i, offset);
+            writeWord(data, 0x18 + 8 * i, words[i].length);
+            writeWord(data, 0x1A + 8 * i, 0x100 + i);
+            offset += 2 * words[i].length;
+            int k = key;
+            for (int word : words[i]) {
+                writeWord(data, pos, word ^ k);
+                pos += 2;
+                k = ((k << 3) | (k >>> 13)) & 0xFFFF;
+            }
+        }
+        return data;
+    }
+
+    private static int[] terminate(int[] chars) {
+        int[] words = Arrays.copyOf(chars, chars.length + 1);
+        words[chars.length] = 0xFFFF;
+        return words;
+    }
+
+    private static int[] compress(int[] chars) {
+        List<Integer> words = new ArrayList<>();
+        words.add(0xF100);
+        long bits = 0;
+        int bitCount = 0;
+        int[] terminated = Arrays.copyOf(chars, chars.length + 1);
+        terminated[chars.length] = 0x1FF;
+        for (int c : terminated) {
+            bits |= (long) c << bitCount;
+            bitCount += 9;
+            while (bitCount >= 16) {
+                words.add((int) (bits & 0xFFFF));
+                bits >>>= 16;
+                bitCount -= 16;
+            }
+        }
+        if (bitCount > 0) {
+            words.add((int) (bits | (0xFFFF << bitCount)) & 0xFFFF);
+        }
+        words.add(0xFFFF);
+        return words.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] chars(String s) {
+        return s.chars().toArray();
+    }
+
+    private static byte[] template(int count) {
+        int[][] strings = new int[count][];
+        Arrays.fill(strings, chars("x"));
+        return textFile(strings, 0x1234, false);
+    }
+
+    @Test
+    public void readsPlainAndCompressedText() {
+        int[][] strings = {chars("Hello"), chars("Route 1"), {0x41, 0x10, 0x42}};
+        for (boolean compressed : new boolean[]{false, true}) {
+            byte[] data = textFile(strings, 0xBEEF, compressed);
+            assertEquals(List.of("Hello", "Route 1", "A\\x0010B"), PPTxtHandler.readTexts(data));
+        }
+    }
+
+    @Test
+    public void specialCharactersUseTheirTextForm() {
+        byte[] data = textFile(new int[][]{{0x2486, 0x2487, 0x20, 0x2460, 0x2467, 0x2468}}, 0, false);
+        assertEquals(List.of("\\[PK]\\[MN] \\[:)]×÷"), PPTxtHandler.readTexts(data));
+    }
+
+    @Test
+    public void savedTextReadsBack() {
+        byte[] saved = PPTxtHandler.saveEntry(template(STRINGS.size()), new ArrayList<>(STRINGS));
+        assertEquals(STRINGS, PPTxtHandler.readTexts(saved));
+    }
+
+    @Test
+    public void saveKeepsUnknownsAndDoesNotChangeTheList() {
+        byte[] original = template(STRINGS.size());
+        List<String> strings = new ArrayList<>(STRINGS);
+        byte[] saved = PPTxtHandler.saveEntry(original, strings);
+        assertEquals(STRINGS, strings);
+        for (int i = 0; i < STRINGS.size(); i++) {
+            assertEquals(0x100 + i, (saved[0x1A + 8 * i] & 0xFF) | ((saved[0x1B + 8 * i] & 0xFF) << 8));
+        }
+    }
+
+    @Test
+    public void singleTextMatchesReadingAll() {
+        byte[] saved = PPTxtHandler.saveEntry(template(STRINGS.size()), new ArrayList<>(STRINGS));
+        List<String> all = PPTxtHandler.readTexts(saved);
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(all.get(i), PPTxtHandler.readText(saved, i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> PPTxtHandler.readText(saved, all.size()));
+    }
+
+    @Test
+    public void concurrentSavesDoNotInterfere() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                int key = t * 0x1111;
+                results.add(executor.submit(() -> {
+                    List<String> strings = new ArrayList<>();
+                    for (int i = 0; i < 50; i++) {
+                        strings.add("text " + key + " " + i);
+                    }
+                    int[][] original = new int[50][];
+                    Arrays.fill(original, chars("old text"));
+                    for (int round = 0; round < 20; round++) {
+                        byte[] saved = PPTxtHandler.saveEntry(textFile(original, key, false), strings);
+                        if (!strings.equals(PPTxtHandler.readTexts(saved))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void writeWord(byte[] data, int offset, int value) {
+        data[offset] = (byte) value;
+        data[offset + 1] = (byte) (value >> 8);
+    }
+
+    private static void writeLong(byte[] data, int offset, int value) {
+        writeWord(data, offset, value);
+        writeWord(data, offset + 2, value >> 16);
+    }
+}
@@ -0,0 +1,229 @@
+package test.romhandlers;
+
+import com.dabomstew.pkrandom.pokemon.Evolution;
+import com.dabomstew.pkrandom.pokemon.EvolutionType;
+import com.dabomstew.pkrandom.pokemon.Pokemon;
+import com.dabomstew.pkrandom.pokemon.PokemonSet;
+import com.dabomstew.pkrandom.pokemon.Type;
+import com.dabomstew.pkrandom.romhandlers.DeepCopier;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeepCopierTest {
+
+    private static class Node {
+        private final String name;
+        private Node next;
+        private final List<Node> children = new ArrayList<>();
+        private int[] values = new int[0];
+
+        private Node(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class Holder {
+        private Object value;
+        private Holder self;
+    }
+
+    private static class Opaque {
+        private final int id;
+
+        private Opaque(int id) {
+            this.id = id;
+        }
+    }
+
+    private static <T> T copy(T original) {
+        return DeepCopier.copy(original, new HashMap<>());
+    }
+
+    private static List<Pokemon> evolutionLine() {
+        List<Pokemon> pokes = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Pokemon pk = new Pokemon(i);
+            pk.setName("Poke" + i);
+            pokes.add(pk);
+        }
+        for (int i = 0; i < 2; i++) {
+            Evolution evo = new Evolution(pokes.get(i), pokes.get(i + 1), true, EvolutionType.LEVEL, 16 * (i + 1));
+            pokes.get(i).getEvolutionsFrom().add(evo);
+            pokes.get(i + 1).getEvolutionsTo().add(evo);
+        }
+        return pokes;
+    }
+
+    @Test
+    public void sharedObjectsStayShared() {
+        Node a = new Node("a");
+        Node b = new Node("b");
+        a.next = b;
+        b.next = a;
+        a.children.add(b);
+        a.children.add(b);
+        a.values = new int[]{1, 2, 3};
+
+        Node copy = copy(a);
+        assertNotSame(a, copy);
+        assertNotSame(b, copy.next);
+        assertSame(copy, copy.next.next);
+        assertSame(copy.next, copy.children.get(0));
+        assertSame(copy.next, copy.children.get(1));
+        assertArrayEquals(a.values, copy.values);
+        assertNotSame(a.values, copy.values);
+        assertEquals("b", copy.next.name);
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        Node a = new Node("a");
+        a.values = new int[]{1};
+        a.children.add(new Node("c"));
+
+        Node copy = copy(a);
+        copy.values[0] = 2;
+        copy.children.add(new Node("d"));
+        copy.children.get(0).next = copy;
+        assertEquals(1, a.values[0]);
+        assertEquals(1, a.children.size());
+        assertNull(a.children.get(0).next);
+    }
+
+    @Test
+    public void pokemonKeepTheirEvolutions() {
+        List<Pokemon> pokes = evolutionLine();
+
+        List<Pokemon> copy = copy(pokes);
+        assertEquals(pokes, copy);
+        for (int i = 0; i < pokes.size(); i++) {
+            assertNotSame(pokes.get(i), copy.get(i));
+            assertEquals(pokes.get(i).getName(), copy.get(i).getName());
+        }
+        Evolution evo = copy.get(0).getEvolutionsFrom().get(0);
+        assertSame(copy.get(0), evo.getFrom());
+        assertSame(copy.get(1), evo.getTo());
+        assertSame(evo, copy.get(1).getEvolutionsTo().get(0));
+        assertEquals(16, evo.getExtraInfo());
+    }
+
+    @Test
+    public void hashedCollectionsFindTheirCopiedElements() {
+        List<Pokemon> pokes = evolutionLine();
+        Set<Pokemon> set = new HashSet<>(pokes);
+        Map<Pokemon, Evolution> map = new HashMap<>();
+        map.put(pokes.get(0), pokes.get(0).getEvolutionsFrom().get(0));
+        PokemonSet<Pokemon> pokemonSet = new PokemonSet<>(pokes.subList(1, 3));
+        Object[] all = {pokes, set, map, pokemonSet};
+
+        Object[] copy = copy(all);
+        @SuppressWarnings("unchecked")
+        List<Pokemon> copiedPokes = (List<Pokemon>) copy[0];
+        Set<?> copiedSet = (Set<?>) copy[1];
+        Map<?, ?> copiedMap = (Map<?, ?>) copy[2];
+        PokemonSet<?> copiedPokemonSet = (PokemonSet<?>) copy[3];
+        assertEquals(3, copiedSet.size());
+        for (Pokemon pk : copiedPokes) {
+            assertTrue(copiedSet.contains(pk));
+        }
+        assertSame(copiedPokes.get(0).getEvolutionsFrom().get(0), copiedMap.get(copiedPokes.get(0)));
+        assertEquals(2, copiedPokemonSet.size());
+        assertTrue(copiedPokemonSet.contains(copiedPokes.get(1)));
+        assertTrue(copiedPokemonSet.contains(copiedPokes.get(2)));
+        for (Object pk : copiedPokemonSet) {
+            assertTrue(copiedPokes.stream().anyMatch(copied -> copied == pk));
+        }
+    }
+
+    @Test
+    public void sortedAndEnumCollectionsAreCopied() {
+        TreeSet<String> sorted = new TreeSet<>(Comparator.reverseOrder());
+        sorted.addAll(List.of("a", "c", "b"));
+        EnumSet<Type> types = EnumSet.of(Type.FIRE, Type.WATER);
+        EnumMap<Type, String> names = new EnumMap<>(Type.class);
+        names.put(Type.GRASS, "grass");
+        Object[] all = {sorted, types, names};
+
+        Object[] copy = copy(all);
+        assertEquals(List.of("c", "b", "a"), new ArrayList<>((Collection<?>) copy[0]));
+        assertEquals(types, copy[1]);
+        assertNotSame(types, copy[1]);
+        assertEquals(names, copy[2]);
+        assertNotSame(names, copy[2]);
+    }
+
+    @Test
+    public void unmodifiableListsBecomeModifiable() {
+        Holder fixed = new Holder();
+        fixed.value = Arrays.asList(1, 2, 3);
+        Holder unmodifiable = new Holder();
+        unmodifiable.value = Collections.unmodifiableList(new ArrayList<>(List.of(4)));
+
+        @SuppressWarnings("unchecked")
+        List<Integer> fixedCopy = (List<Integer>) copy(fixed).value;
+        @SuppressWarnings("unchecked")
+        List<Integer> unmodifiableCopy = (List<Integer>) copy(unmodifiable).value;
+        assertEquals(List.of(1, 2, 3), fixedCopy);
+        assertEquals(List.of(4), unmodifiableCopy);
+        fixedCopy.add(4);
+        unmodifiableCopy.add(5);
+    }
+
+    @Test
+    public void immutablesAreShared() {
+        String name = new String("name");
+        Holder holder = new Holder();
+        holder.value = new Object[]{name, Type.FIRE, 5L};
+
+        Object[] copy = (Object[]) copy(holder).value;
+        assertSame(name, copy[0]);
+        assertSame(Type.FIRE, copy[1]);
+        assertSame(((Object[]) holder.value)[2], copy[2]);
+    }
+
+    @Test
+    public void copyIntoRemapsTheSource() {
+        Holder source = new Holder();
+        source.self = source;
+        source.value = new Node("a");
+        Holder target = new Holder();
+
+        DeepCopier.copyInto(source, target, new HashMap<>());
+        assertSame(target, target.self);
+        assertNotSame(source.value, target.value);
+        assertEquals("a", ((Node) target.value).name);
+    }
+
+    @Test
+    public void copyIntoNeedsTheSameClass() {
+        assertThrows(IllegalArgumentException.class,
+                () -> DeepCopier.copyInto(new Holder(), new Node("a"), new HashMap<>()));
+    }
+
+    @Test
+    public void copiersAreUsedForTheirClass() {
+        Opaque opaque = new Opaque(1);
+        Holder holder = new Holder();
+        holder.value = new Object[]{opaque, opaque};
+        Map<Class<?>, UnaryOperator<Object>> copiers = new HashMap<>();
+        copiers.put(Opaque.class, o -> new Opaque(((Opaque) o).id + 1));
+
+        Object[] copy = (Object[]) DeepCopier.copy(holder, copiers).value;
+        assertEquals(2, ((Opaque) copy[0]).id);
+        assertSame(copy[0], copy[1]);
+    }
+
+    @Test
+    public void otherJDKObjectsAreRejected() {
+        Holder holder = new Holder();
+        holder.value = new StringBuilder("text");
+        assertThrows(IllegalArgumentException.class, () -> copy(holder));
+        holder.value = new Random(1);
+        assertThrows(IllegalArgumentException.class, () -> copy(holder));
+    }
+
+}
@@ -0,0 +1,144 @@
+package test.romhandlers;
+
+import com.dabomstew.pkrandom.gbspace.BankDividedFreedSpace;
+import com.dabomstew.pkrandom.gbspace.FreedSpace;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FreedSpaceTest {
+
+    private static final int SIZE = 0x4000;
+    private static final int BANK_SIZE = 0x400;
+
+    /**
+     * The freed bytes as a plain map, with first-fit found by scanning it.
+     */
+    private static class NaiveFreedSpace {
+
+        private final boolean[] freed = new boolean[SIZE];
+        private final int bankSize;
+        private final boolean[] reservedBanks;
+
+        NaiveFreedSpace(int bankSize, boolean[] reservedBanks) {
+            this.bankSize = bankSize;
+            this.reservedBanks = reservedBanks;
+        }
+
+        boolean canFree(int start, int length) {
+            if (start / bankSize != (start + length - 1) / bankSize) {
+                return false;
+            }
+            for (int i = start; i < start + length; i++) {
+                if (freed[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void free(int start, int length) {
+            for (int i = start; i < start + length; i++) {
+                freed[i] = true;
+            }
+        }
+
+        int findAndUnfree(int length, int onlyBank) {
+            int i = 0;
+            while (i < SIZE) {
+                int bank = i / bankSize;
+                boolean allowed = onlyBank == -1 ? !reservedBanks[bank] : bank == onlyBank;
+                if (!allowed || !freed[i]) {
+                    i++;
+                    continue;
+                }
+                int end = i;
+                while (end < (bank + 1) * bankSize && freed[end]) {
+                    end++;
+                }
+                if (end - i >= length) {
+                    for (int j = i; j < i + length; j++) {
+                        freed[j] = false;
+                    }
+                    return i;
+                }
+                i = end;
+            }
+            return -1;
+        }
+
+        int getLengthSum() {
+            int sum = 0;
+            for (boolean b : freed) {
+                sum += b ? 1 : 0;
+            }
+            return sum;
+        }
+    }
+
+    private static void randomOperations(Random random, FreedSpace fs, NaiveFreedSpace naive, boolean banked) {
+        for (int round = 0; round < 20000; round++) {
+            if (random.nextInt(3) != 0) {
+                int start = random.nextInt(SIZE - 64);
+                int length = 1 + random.nextInt(random.nextBoolean() ? 8 : 64);
+                if (naive.canFree(start, length)) {
+                    fs.free(start, length);
+                    naive.free(start, length);
+                } else {
+                    assertThrows(RuntimeException.class, () -> fs.free(start, length));
+                }
+            } else {
+                int length = 1 + random.nextInt(random.nextBoolean() ? 8 : 128);
+                if (banked && random.nextBoolean()) {
+                    int bank = random.nextInt(SIZE / BANK_SIZE);
+                    assertEquals(naive.findAndUnfree(length, bank),
+                            ((BankDividedFreedSpace) fs).findAndUnfreeInBank(length, bank));
+                } else {
+                    assertEquals(naive.findAndUnfree(length, -1), fs.findAndUnfree(length));
+                }
+            }
+            assertEquals(naive.getLengthSum(), fs.getLengthSum());
+        }
+    }
+
+    @Test
+    public void findAndUnfreeIsFirstFitByOffset() {
+        FreedSpace fs = new FreedSpace();
+        NaiveFreedSpace naive = new NaiveFreedSpace(Integer.MAX_VALUE, new boolean[1]);
+        randomOperations(new Random(1), fs, naive, false);
+    }
+
+    @Test
+    public void bankDividedFindAndUnfreeIsFirstFitByOffset() {
+        boolean[] reserved = new boolean[SIZE / BANK_SIZE];
+        reserved[0] = reserved[3] = reserved[7] = true;
+        BankDividedFreedSpace fs = new BankDividedFreedSpace(BANK_SIZE, SIZE / BANK_SIZE, new int[]{0, 3, 7});
+        NaiveFreedSpace naive = new NaiveFreedSpace(BANK_SIZE, reserved);
+        Random random = new Random(2);
+        for (int round = 0; round < 5; round++) {
+            randomOperations(random, fs, naive, true);
+        }
+    }
+
+    @Test
+    public void neighboringFreesMergeIntoOneChunk() {
+        FreedSpace fs = new FreedSpace();
+        fs.free(10, 5);
+        fs.free(20, 5);
+        fs.free(15, 5);
+        assertEquals(1, fs.getChunkCount());
+        assertEquals(15, fs.getLargestChunkLength());
+        assertEquals(0.0, fs.getFragmentation());
+        assertEquals(10, fs.findAndUnfree(15));
+
+        fs.free(0, 4);
+        fs.free(8, 2);
+        assertEquals(2, fs.getChunkCount());
+        assertEquals(1 / 3.0, fs.getFragmentation(), 1e-9);
+        assertEquals(-1, fs.findAndUnfree(5));
+        assertTrue(fs.getStatistics().contains("1 failed allocations"));
+    }
+
+}
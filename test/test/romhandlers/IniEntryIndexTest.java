@@ -0,0 +1,144 @@
+package test.romhandlers;
+
+import com.dabomstew.pkrandom.romhandlers.romentries.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.FileNotFoundException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IniEntryIndexTest {
+
+    record OffsetsFile(IniEntryReader<? extends RomEntry> reader, String fileName) {
+        @Override
+        public String toString() {
+            return fileName;
+        }
+    }
+
+    public static List<OffsetsFile> getOffsetsFiles() {
+        return List.of(new OffsetsFile(Gen1RomEntry.READER, "gen1_offsets.ini"),
+                new OffsetsFile(Gen2RomEntry.READER, "gen2_offsets.ini"),
+                new OffsetsFile(Gen3RomEntry.READER, "gen3_offsets.ini"),
+                new OffsetsFile(Gen4RomEntry.READER, "gen4_offsets.ini"),
+                new OffsetsFile(Gen5RomEntry.READER, "gen5_offsets.ini"),
+                new OffsetsFile(Gen6RomEntry.READER, "gen6_offsets.ini"),
+                new OffsetsFile(Gen7RomEntry.READER, "gen7_offsets.ini"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getOffsetsFiles")
+    public void resolvedEntriesMatchEagerlyReadOnes(OffsetsFile file) throws FileNotFoundException {
+        assertSameEntries(file.reader(), file.fileName());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getOffsetsFiles")
+    public void stubsHaveIdentifyingValues(OffsetsFile file) throws FileNotFoundException {
+        List<? extends RomEntry> eager = file.reader().readEntriesFromFile(file.fileName());
+        IniEntryIndex<? extends RomEntry> index = file.reader().indexEntriesFromFile(file.fileName());
+        assertEquals(eager.size(), index.size());
+        int i = 0;
+        for (RomEntry stub : index) {
+            RomEntry full = eager.get(i++);
+            assertEquals(full.getName(), stub.getName());
+            assertEquals(full.getRomCode(), stub.getRomCode(), full.getName());
+            assertEquals(full.getVersion(), stub.getVersion(), full.getName());
+            if (full instanceof AbstractGBCRomEntry gbcFull) {
+                AbstractGBCRomEntry gbcStub = (AbstractGBCRomEntry) stub;
+                assertEquals(gbcFull.getNonJapanese(), gbcStub.getNonJapanese(), full.getName());
+                assertEquals(gbcFull.getCRCInHeader(), gbcStub.getCRCInHeader(), full.getName());
+            }
+            if (full instanceof Abstract3DSRomEntry ctrFull) {
+                assertEquals(ctrFull.getTitleID(), ((Abstract3DSRomEntry) stub).getTitleID(), full.getName());
+            }
+        }
+    }
+
+    @Test
+    public void resolveIsCached() throws FileNotFoundException {
+        IniEntryIndex<Gen3RomEntry> index = Gen3RomEntry.READER.indexEntriesFromFile("gen3_offsets.ini");
+        Gen3RomEntry stub = index.iterator().next();
+        assertSame(index.resolve(stub), index.resolve(stub));
+        assertNotSame(stub, index.resolve(stub));
+    }
+
+    @Test
+    public void resolveRejectsForeignEntries() throws FileNotFoundException {
+        IniEntryIndex<Gen3RomEntry> index = Gen3RomEntry.READER.indexEntriesFromFile("gen3_offsets.ini");
+        assertThrows(IllegalArgumentException.class, () -> index.resolve(new Gen3RomEntry(index.iterator().next())));
+    }
+
+    private static <T extends IniEntry> void assertSameEntries(IniEntryReader<T> reader, String fileName)
+            throws FileNotFoundException {
+        List<T> eager = reader.readEntriesFromFile(fileName);
+
+        // resolving back to front makes every CopyFrom source get resolved on demand
+        IniEntryIndex<T> index = reader.indexEntriesFromFile(fileName);
+        List<T> stubs = new ArrayList<>();
+        index.forEach(stubs::add);
+        assertEquals(eager.size(), stubs.size());
+        for (int i = stubs.size() - 1; i >= 0; i--) {
+            assertEquals(dump(eager.get(i)), dump(index.resolve(stubs.get(i))), fileName + " " + eager.get(i).getName());
+        }
+
+        List<T> all = reader.indexEntriesFromFile(fileName).resolveAll();
+        for (int i = 0; i < eager.size(); i++) {
+            assertEquals(dump(eager.get(i)), dump(all.get(i)), fileName + " " + eager.get(i).getName());
+        }
+    }
+
+    /**
+     * Writes out all fields of an object, recursively, since the entries and their parts do not implement equals().
+     */
+    private static String dump(Object o) {
+        StringBuilder sb = new StringBuilder();
+        dump(o, sb);
+        return sb.toString();
+    }
+
+    private static void dump(Object o, StringBuilder sb) {
+        if (o == null || o instanceof String || o instanceof Number || o instanceof Boolean
+                || o instanceof Character || o instanceof Enum<?>) {
+            sb.append(o);
+        } else if (o.getClass().isArray()) {
+            sb.append('[');
+            for (int i = 0; i < Array.getLength(o); i++) {
+                dump(Array.get(o, i), sb);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else if (o instanceof Collection<?> c) {
+            dump(c.toArray(), sb);
+        } else if (o instanceof Map<?, ?> m) {
+            Map<String, String> sorted = new TreeMap<>();
+            m.forEach((k, v) -> sorted.put(dump(k), dump(v)));
+            sb.append(sorted);
+        } else {
+            sb.append(o.getClass().getSimpleName()).append('{');
+            for (Class<?> c = o.getClass(); c != Object.class; c = c.getSuperclass()) {
+                for (Field f : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(f.getModifiers())) {
+                        continue;
+                    }
+                    f.setAccessible(true);
+                    sb.append(f.getName()).append('=');
+                    try {
+                        dump(f.get(o), sb);
+                    } catch (IllegalAccessException e) {
+                        throw new RuntimeException(e);
+                    }
+                    sb.append(';');
+                }
+            }
+            sb.append('}');
+        }
+    }
+
+}
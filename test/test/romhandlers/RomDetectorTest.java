@@ -0,0 +1,152 @@
+package test.romhandlers;
+
+import com.dabomstew.pkrandom.romhandlers.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RomDetectorTest {
+
+    private static final RomHandler.Factory[] FACTORIES = new RomHandler.Factory[]{
+            new Gen1RomHandler.Factory(), new Gen2RomHandler.Factory(), new Gen3RomHandler.Factory(),
+            new Gen4RomHandler.Factory(), new Gen5RomHandler.Factory(), new Gen6RomHandler.Factory(),
+            new Gen7RomHandler.Factory()};
+
+    private static File tempFile(long length) throws IOException {
+        File file = File.createTempFile("romdetector", ".bin");
+        file.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+        return file;
+    }
+
+    private static void write(File file, long offset, byte[] bytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            raf.write(bytes);
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] intLE(int value) {
+        return new byte[]{(byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24)};
+    }
+
+    private static File gbaRom(String code, int version) throws IOException {
+        File file = tempFile(0x1000000);
+        write(file, 0xAC, ascii(code));
+        write(file, 0xBC, new byte[]{(byte) version});
+        return file;
+    }
+
+    private static File ndsRom(String code, int version) throws IOException {
+        File file = tempFile(0x10000);
+        write(file, 0x0C, ascii(code));
+        write(file, 0x1E, new byte[]{(byte) version});
+        return file;
+    }
+
+    private static void writeNCCH(File file, long offset, String productCode, String titleId) throws IOException {
+        write(file, offset + 0x100, ascii("NCCH"));
+        byte[] programId = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            programId[7 - i] = (byte) Integer.parseInt(titleId.substring(i * 2, i * 2 + 2), 16);
+        }
+        write(file, offset + 0x118, programId);
+        write(file, offset + 0x150, ascii(productCode));
+    }
+
+    private static int indexOf(RomHandler.Factory factory) {
+        for (int i = 0; i < FACTORIES.length; i++) {
+            if (FACTORIES[i] == factory) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void detectsGBAByCodeAndVersion() throws IOException {
+        RomDetector detector = new RomDetector(16, FACTORIES);
+        assertEquals(2, indexOf(detector.detect(gbaRom("AXVE", 1).getPath())));
+        assertNull(detector.detect(gbaRom("ZZZZ", 0).getPath()));
+    }
+
+    @Test
+    public void detectsNDSByCodeAndVersion() throws IOException {
+        RomDetector detector = new RomDetector(16, FACTORIES);
+        assertEquals(3, indexOf(detector.detect(ndsRom("ADAE", 5).getPath())));
+        assertEquals(4, indexOf(detector.detect(ndsRom("IRBO", 0).getPath())));
+        assertNull(detector.detect(ndsRom("ADAE", 4).getPath()));
+    }
+
+    @Test
+    public void detects3DSCartridgeAndCIA() throws IOException {
+        RomDetector detector = new RomDetector(16, FACTORIES);
+
+        File cci = tempFile(0x10000);
+        write(cci, 0x100, ascii("NCSD"));
+        writeNCCH(cci, 0x4000, "CTR-P-EKJA", "0004000000055D00");
+        assertEquals(5, indexOf(detector.detect(cci.getPath())));
+
+        // the content of a CIA is past what is read up front
+        File cia = tempFile(0x20000);
+        write(cia, 0x00, intLE(0x2020));
+        write(cia, 0x08, intLE(0xA00));
+        write(cia, 0x0C, intLE(0x350));
+        write(cia, 0x10, intLE(0x1B34));
+        long contentOffset = 0x2040 + 0xA00 + 0x380 + 0x1B40;
+        writeNCCH(cia, contentOffset, "CTR-P-ECRA", "000400000011C400");
+        assertEquals(5, indexOf(detector.detect(cia.getPath())));
+        assertEquals("000400000011C400", Abstract3DSRomHandler.getTitleIdFromFile(cia.getPath()));
+    }
+
+    @Test
+    public void rejectsShortMissingAndUnknownFiles() throws IOException {
+        RomDetector detector = new RomDetector(16, FACTORIES);
+        assertNull(detector.detect(tempFile(0).getPath()));
+        assertNull(detector.detect(tempFile(0x10).getPath()));
+        assertNull(detector.detect(tempFile(0x8000).getPath()));
+        assertNull(detector.detect(new File("does-not-exist.gba").getPath()));
+    }
+
+    @Test
+    public void cacheFollowsFileChanges() throws IOException {
+        RomDetector detector = new RomDetector(16, FACTORIES);
+        File file = gbaRom("AXVE", 1);
+        assertEquals(2, indexOf(detector.detect(file.getPath())));
+
+        write(file, 0xAC, ascii("ZZZZ"));
+        // same length, so make sure the modification time differs
+        assertTrue(file.setLastModified(file.lastModified() - 10000));
+        assertNull(detector.detect(file.getPath()));
+
+        detector.clearCache();
+        assertNull(detector.detect(file.getPath()));
+    }
+
+    @Test
+    public void detectAgreesWithIsLoadable() throws IOException {
+        RomDetector detector = new RomDetector(16, FACTORIES);
+        for (File file : new File[]{gbaRom("AXVE", 0), ndsRom("ADAE", 5), ndsRom("IRBO", 0), tempFile(0x4000)}) {
+            RomHandler.Factory expected = null;
+            for (RomHandler.Factory factory : FACTORIES) {
+                if (factory.isLoadable(file.getPath())) {
+                    expected = factory;
+                    break;
+                }
+            }
+            assertSame(expected, detector.detect(file.getPath()));
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package test.romhandlers;
+
+import com.dabomstew.pkrandom.RomFunctions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RomFunctionsSearchTest {
+
+    /**
+     * Left to right, resuming after the end of each match.
+     */
+    private static List<Integer> naiveSearch(byte[] haystack, int begin, int end, byte[] needle) {
+        List<Integer> found = new ArrayList<>();
+        int i = begin;
+        while (i + needle.length <= end) {
+            if (Arrays.equals(haystack, i, i + needle.length, needle, 0, needle.length)) {
+                found.add(i);
+                i += needle.length;
+            } else {
+                i++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * A haystack over a small alphabet, so short needles occur often and overlap.
+     */
+    private static byte[] randomBytes(Random random, int length, int alphabet) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (0xFE + random.nextInt(alphabet));
+        }
+        return bytes;
+    }
+
+    @Test
+    public void searchMatchesNaiveSearch() {
+        Random random = new Random(1);
+        for (int round = 0; round < 2000; round++) {
+            byte[] haystack = randomBytes(random, random.nextInt(300), 3);
+            byte[] needle = randomBytes(random, 1 + random.nextInt(6), 3);
+            int begin = haystack.length == 0 ? 0 : random.nextInt(haystack.length);
+            int end = begin + random.nextInt(haystack.length - begin + 1);
+            assertEquals(naiveSearch(haystack, begin, end, needle),
+                    RomFunctions.search(haystack, begin, end, needle));
+            List<Integer> all = naiveSearch(haystack, begin, haystack.length, needle);
+            assertEquals(all.isEmpty() ? -1 : all.get(0), RomFunctions.searchForFirst(haystack, begin, needle));
+        }
+        assertEquals(List.of(0, 2), RomFunctions.search(new byte[]{1, 1, 1, 1, 1}, new byte[]{1, 1}));
+        assertThrows(IllegalArgumentException.class, () -> RomFunctions.search(new byte[4], new byte[0]));
+    }
+
+}
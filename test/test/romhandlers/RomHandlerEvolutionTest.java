@@ -384,6 +384,25 @@ public class RomHandlerEvolutionTest extends RomHandlerTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("getRomNames")
+    public void randomNoConvergenceSameTypingANDLimitEvosToThreeStagesWorks(String romName) {
+        loadROM(romName);
+
+        Settings s = new Settings();
+        s.setEvolutionsMod(false, true, false);
+        s.setEvosNoConvergence(true);
+        s.setEvosSameTyping(true);
+        s.setEvosMaxThreeStages(true);
+        new EvolutionRandomizer(romHandler, s, RND).randomizeEvolutions();
+
+        for (Pokemon pk : romHandler.getPokemonSet()) {
+            assertTrue(pk.getEvolutionsTo().size() <= 1);
+        }
+        evosHaveSharedTypeCheck();
+        maxThreeEvoStagesCheck();
+    }
+
     @ParameterizedTest
     @MethodSource("getRomNames")
     public void randomNoEvoHasLevelFemaleEspurrEvoType(String romName) {
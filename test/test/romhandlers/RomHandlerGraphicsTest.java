@@ -2,12 +2,15 @@ package test.romhandlers;
 
 import com.dabomstew.pkrandom.Settings;
 import com.dabomstew.pkrandom.constants.Gen3Constants;
+import com.dabomstew.pkrandom.graphics.SpriteExporter;
 import com.dabomstew.pkrandom.graphics.packs.*;
 import com.dabomstew.pkrandom.romhandlers.Gen3RomHandler;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -24,6 +27,20 @@ public class RomHandlerGraphicsTest extends RomHandlerTest {
         romHandler.dumpAllPokemonImages();
     }
 
+    @ParameterizedTest
+    @MethodSource("getRomNames")
+    public void canExportPokemonImageAtlas(String romName) throws IOException {
+        loadROM(romName);
+        File atlasFile = File.createTempFile("atlas", ".png");
+        File indexFile = File.createTempFile("atlas", ".json");
+        atlasFile.deleteOnExit();
+        indexFile.deleteOnExit();
+        new SpriteExporter().writeAtlas(romHandler.getAllPokemonImageSuppliers(), i -> String.format("%03d_d", i + 1),
+                atlasFile, indexFile);
+        assertTrue(atlasFile.length() > 0);
+        assertTrue(indexFile.length() > 0);
+    }
+
     @ParameterizedTest
     @MethodSource("getRomNames")
     public void canSetCustomPlayerGraphicsWithoutThrowing(String romName) {
@@ -0,0 +1,159 @@
+package test.romhandlers;
+
+import com.dabomstew.pkrandom.FileFunctions;
+import com.dabomstew.pkrandom.romhandlers.RomImage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RomImageTest {
+
+    private static final int ROM_SIZE = 0x500000;
+
+    private static byte[] randomRom(Random random) {
+        byte[] rom = new byte[ROM_SIZE];
+        random.nextBytes(rom);
+        return rom;
+    }
+
+    private static byte[] edited(Random random, byte[] original) {
+        byte[] rom = original.clone();
+        for (int i = 0; i < 200; i++) {
+            int offset = random.nextInt(rom.length);
+            int length = random.nextInt(3) == 0 ? random.nextInt(0x20000) : 1 + random.nextInt(16);
+            for (int j = offset; j < Math.min(rom.length, offset + length); j++) {
+                rom[j] = (byte) random.nextInt(256);
+            }
+        }
+        return rom;
+    }
+
+    @Test
+    public void changedPagesAreTheOnesWritten() {
+        byte[] original = randomRom(new Random(1));
+        RomImage image = new RomImage(original.clone());
+        byte[] rom = image.copy();
+        assertTrue(image.getChangedPages(rom).isEmpty());
+
+        rom[0] ^= 1;
+        rom[RomImage.PAGE_SIZE * 5 - 1] ^= 1;
+        rom[RomImage.PAGE_SIZE * 5] ^= 1;
+        rom[ROM_SIZE - 1] ^= 1;
+        BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(4);
+        expected.set(5);
+        expected.set(ROM_SIZE / RomImage.PAGE_SIZE - 1);
+        assertEquals(expected, image.getChangedPages(rom));
+        assertArrayEquals(original, image.copy());
+    }
+
+    @Test
+    public void ipsPatchRecreatesTheEditedRom() throws IOException {
+        Random random = new Random(2);
+        for (int round = 0; round < 5; round++) {
+            byte[] original = randomRom(random);
+            byte[] rom = edited(random, original);
+            RomImage image = new RomImage(original.clone());
+
+            ByteArrayOutputStream patch = new ByteArrayOutputStream();
+            image.writeIPSPatch(rom, patch);
+            byte[] patched = original.clone();
+            FileFunctions.applyIPSPatch(patched, patch.toByteArray());
+            assertArrayEquals(rom, patched);
+        }
+    }
+
+    @Test
+    public void ipsPatchAvoidsTheEOFOffset() throws IOException {
+        byte[] original = randomRom(new Random(3));
+        int eof = 0x454F46;
+
+        // a run starting at the offset which reads as "EOF"
+        byte[] rom = original.clone();
+        rom[eof] ^= 1;
+        assertIPSRecreates(original, rom);
+
+        // a run long enough to be split into records, where the first would end at "EOF"
+        rom = original.clone();
+        for (int i = eof - 0xFFFF; i <= eof; i++) {
+            rom[i] ^= 1;
+        }
+        assertIPSRecreates(original, rom);
+    }
+
+    private static void assertIPSRecreates(byte[] original, byte[] rom) throws IOException {
+        ByteArrayOutputStream patch = new ByteArrayOutputStream();
+        new RomImage(original.clone()).writeIPSPatch(rom, patch);
+        byte[] patched = original.clone();
+        FileFunctions.applyIPSPatch(patched, patch.toByteArray());
+        assertArrayEquals(rom, patched);
+    }
+
+    @Test
+    public void bpsPatchRecreatesTheEditedRom() throws IOException {
+        Random random = new Random(4);
+        for (int round = 0; round < 5; round++) {
+            byte[] original = randomRom(random);
+            byte[] rom = edited(random, original);
+            RomImage image = new RomImage(original.clone());
+
+            ByteArrayOutputStream patch = new ByteArrayOutputStream();
+            image.writeBPSPatch(rom, patch);
+            assertArrayEquals(rom, applyBPS(original, patch.toByteArray()));
+        }
+    }
+
+    /**
+     * A minimal BPS patcher, supporting only the SourceRead and TargetRead actions.
+     */
+    private static byte[] applyBPS(byte[] source, byte[] patch) {
+        assertEquals("BPS1", new String(patch, 0, 4));
+        int[] pos = {4};
+        assertEquals(source.length, readBPSNumber(patch, pos));
+        byte[] target = new byte[(int) readBPSNumber(patch, pos)];
+        assertEquals(0, readBPSNumber(patch, pos));
+        int out = 0;
+        while (pos[0] < patch.length - 12) {
+            long data = readBPSNumber(patch, pos);
+            int length = (int) (data >>> 2) + 1;
+            switch ((int) (data & 3)) {
+                case 0 -> System.arraycopy(source, out, target, out, length);
+                case 1 -> {
+                    System.arraycopy(patch, pos[0], target, out, length);
+                    pos[0] += length;
+                }
+                default -> fail("Unexpected action " + (data & 3));
+            }
+            out += length;
+        }
+        assertEquals(target.length, out);
+        assertEquals(FileFunctions.getCRC32(source), FileFunctions.readFullInt(patch, patch.length - 12) & 0xFFFFFFFFL);
+        assertEquals(FileFunctions.getCRC32(target), FileFunctions.readFullInt(patch, patch.length - 8) & 0xFFFFFFFFL);
+        byte[] patchWithoutCRC = Arrays.copyOf(patch, patch.length - 4);
+        assertEquals(FileFunctions.getCRC32(patchWithoutCRC),
+                FileFunctions.readFullInt(patch, patch.length - 4) & 0xFFFFFFFFL);
+        return target;
+    }
+
+    private static long readBPSNumber(byte[] patch, int[] pos) {
+        long data = 0;
+        long shift = 1;
+        while (true) {
+            int x = patch[pos[0]++] & 0xFF;
+            data += (x & 0x7F) * shift;
+            if ((x & 0x80) != 0) {
+                return data;
+            }
+            shift <<= 7;
+            data += shift;
+        }
+    }
+
+}